@@ -0,0 +1,192 @@
+package edu.cqu.coit13235.musicchat.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broker channel interceptor that coalesces chat broadcasts under load.
+ * While the /topic/messages rate stays below the threshold every message is delivered as its own frame.
+ * Above it, messages arriving within a short window are held back and delivered to the broker as a
+ * single JSON array, so each subscriber receives one frame per window instead of one per message.
+ */
+@Component
+public class ChatBroadcastCoalescer implements ExecutorChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatBroadcastCoalescer.class);
+
+    /**
+     * Destination whose broadcasts are coalesced.
+     */
+    public static final String CHAT_TOPIC = "/topic/messages";
+
+    /**
+     * Native header carrying the number of messages in a coalesced frame.
+     */
+    public static final String BATCH_SIZE_HEADER = "batch-size";
+
+    private final boolean enabled;
+    private final int thresholdPerSecond;
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Object lock = new Object();
+    private final List<byte[]> pending = new ArrayList<>();
+    private MessageHandler brokerHandler;
+
+    // Per-second arrival counters used to estimate the current broadcast rate
+    private long currentSecond;
+    private int currentCount;
+    private int previousCount;
+
+    public ChatBroadcastCoalescer(@Value("${app.chat.coalesce.enabled:true}") boolean enabled,
+                                  @Value("${app.chat.coalesce.threshold-per-second:200}") int thresholdPerSecond,
+                                  @Value("${app.chat.coalesce.window-ms:5}") long windowMillis) {
+        if (thresholdPerSecond <= 0) {
+            throw new IllegalArgumentException("Coalescing threshold must be positive");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Coalescing window must be positive");
+        }
+        this.enabled = enabled;
+        this.thresholdPerSecond = thresholdPerSecond;
+        this.windowMillis = windowMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!enabled || !(handler instanceof AbstractBrokerMessageHandler) || !isCoalescible(message)) {
+            return message;
+        }
+
+        synchronized (lock) {
+            int rate = recordArrival(System.currentTimeMillis());
+
+            // Quiet traffic with nothing held back: deliver immediately as a single frame
+            if (pending.isEmpty() && rate < thresholdPerSecond) {
+                return message;
+            }
+
+            pending.add((byte[]) message.getPayload());
+            if (pending.size() == 1) {
+                brokerHandler = handler;
+                scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Deliver all held-back messages to the broker as one array frame.
+     * Runs under the lock so messages that arrive meanwhile cannot overtake the batch.
+     */
+    private void flush() {
+        synchronized (lock) {
+            if (pending.isEmpty() || brokerHandler == null) {
+                return;
+            }
+            try {
+                brokerHandler.handleMessage(buildBatch(pending));
+            } catch (Exception e) {
+                logger.error("Failed to deliver {} coalesced chat messages: {}", pending.size(), e.getMessage(), e);
+            } finally {
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Check whether broadcasts are currently being coalesced.
+     * @return true if the recent rate is at or above the threshold
+     */
+    public boolean isCoalescing() {
+        synchronized (lock) {
+            return recordedRate(System.currentTimeMillis()) >= thresholdPerSecond;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        scheduler.shutdownNow();
+    }
+
+    private boolean isCoalescible(Message<?> message) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (!SimpMessageType.MESSAGE.equals(type)) {
+            return false;
+        }
+        if (!CHAT_TOPIC.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+            return false;
+        }
+        Object contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        MimeType mimeType = (contentType instanceof MimeType) ? (MimeType) contentType
+            : (contentType != null ? MimeTypeUtils.parseMimeType(contentType.toString()) : null);
+        return message.getPayload() instanceof byte[]
+            && mimeType != null && MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType);
+    }
+
+    private int recordArrival(long now) {
+        int rate = recordedRate(now);
+        currentCount++;
+        return Math.max(rate, currentCount);
+    }
+
+    private int recordedRate(long now) {
+        long second = now / 1000;
+        if (second != currentSecond) {
+            previousCount = (second == currentSecond + 1) ? currentCount : 0;
+            currentCount = 0;
+            currentSecond = second;
+        }
+        return Math.max(previousCount, currentCount);
+    }
+
+    private Message<byte[]> buildBatch(List<byte[]> payloads) {
+        int size = 2 + payloads.size();
+        for (byte[] payload : payloads) {
+            size += payload.length;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        out.write('[');
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.writeBytes(payloads.get(i));
+        }
+        out.write(']');
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(CHAT_TOPIC);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setNativeHeader(BATCH_SIZE_HEADER, String.valueOf(payloads.size()));
+        return MessageBuilder.createMessage(out.toByteArray(), accessor.getMessageHeaders());
+    }
+}
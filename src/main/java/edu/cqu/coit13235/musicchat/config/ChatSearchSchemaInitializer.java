@@ -0,0 +1,46 @@
+package edu.cqu.coit13235.musicchat.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the PostgreSQL full-text search column and index to chat_messages on startup.
+ * Hibernate's schema update cannot express a generated tsvector column or a GIN index,
+ * so they are created here with idempotent DDL. Only active when app.chat.search=fulltext.
+ */
+@Component
+@ConditionalOnProperty(name = "app.chat.search", havingValue = "fulltext")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ChatSearchSchemaInitializer implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchSchemaInitializer.class);
+
+    private static final String ADD_SEARCH_VECTOR =
+        "ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS search_vector tsvector "
+            + "GENERATED ALWAYS AS (to_tsvector('english', coalesce(text, ''))) STORED";
+
+    private static final String CREATE_SEARCH_INDEX =
+        "CREATE INDEX IF NOT EXISTS idx_chat_messages_search_vector ON chat_messages USING GIN (search_vector)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ChatSearchSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute(ADD_SEARCH_VECTOR);
+        jdbcTemplate.execute(CREATE_SEARCH_INDEX);
+        logger.info("Chat full-text search column and GIN index are in place");
+    }
+}
@@ -0,0 +1,30 @@
+package edu.cqu.coit13235.musicchat.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Enables @Scheduled background tasks (presence checkpoints, buffer flushes).
+ * Declares its own scheduler so these tasks never share the WebSocket broker's heartbeat threads.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    /**
+     * Scheduler used for all @Scheduled methods.
+     * Named taskScheduler so Spring picks it over messageBrokerTaskScheduler.
+     *
+     * @return ThreadPoolTaskScheduler instance
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("app-scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        return scheduler;
+    }
+}
@@ -79,11 +79,13 @@ public class SecurityConfig {
                 
                 // Public GET API endpoints (read-only)
                 .requestMatchers("GET", "/api/audio/tracks", "/api/audio/tracks/*", "/api/audio/count").permitAll()
+                .requestMatchers("GET", "/api/audio/trending", "/api/audio/top-rated").permitAll()
                 .requestMatchers("GET", "/api/audio/search/**", "/api/audio/download/*").permitAll()
-                .requestMatchers("GET", "/api/audio/*/ratings", "/api/audio/*/favourites").permitAll()
-                .requestMatchers("GET", "/api/audio/favorites").permitAll()
-                .requestMatchers("GET", "/api/chat/messages", "/api/chat/messages/*", "/api/chat/messages/sender/*", "/api/chat/messages/count").permitAll()
-                .requestMatchers("GET", "/api/playlists", "/api/playlists/*", "/api/playlists/*/tracks").permitAll()
+                .requestMatchers("GET", "/api/audio/*/ratings", "/api/audio/*/favourites", "/api/audio/*/similar", "/api/audio/*/plays").permitAll()
+                .requestMatchers("GET", "/api/audio/favorites", "/api/audio/history", "/api/audio/ratings").permitAll()
+                .requestMatchers("GET", "/api/recommendations").permitAll()
+                .requestMatchers("GET", "/api/chat/messages", "/api/chat/messages/*", "/api/chat/messages/*/thread", "/api/chat/messages/sender/*", "/api/chat/messages/count", "/api/chat/search").permitAll()
+                .requestMatchers("GET", "/api/playlists", "/api/playlists/*", "/api/playlists/*/tracks", "/api/playlists/*/smart").permitAll()
                 .requestMatchers("GET", "/api/playlists/owner/*", "/api/playlists/search", "/api/playlists/count/**").permitAll()
                 .requestMatchers("GET", "/api/external/**").permitAll()
                 .requestMatchers("GET", "/tests").permitAll()
@@ -91,8 +93,9 @@ public class SecurityConfig {
                 
                 // Public POST endpoints (rating/favourite use userId in request body, playlist creation)
                 .requestMatchers("POST", "/api/audio/*/rate", "/api/audio/*/favorite").permitAll()
-                .requestMatchers("POST", "/api/playlists", "/api/playlists/*/tracks").permitAll()
+                .requestMatchers("POST", "/api/playlists", "/api/playlists/smart", "/api/playlists/*/fork", "/api/playlists/*/tracks", "/api/playlists/*/tracks/bulk").permitAll()
                 .requestMatchers("PUT", "/api/playlists/*").permitAll()
+                .requestMatchers("PATCH", "/api/playlists/*/tracks/*/position").permitAll()
                 .requestMatchers("DELETE", "/api/playlists/*", "/api/playlists/*/tracks").permitAll()
                 
                 // Protected API endpoints (require authentication)
@@ -1,7 +1,17 @@
 package edu.cqu.coit13235.musicchat.config;
 
+import edu.cqu.coit13235.musicchat.service.PresenceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -14,12 +24,44 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ChatBroadcastCoalescer chatBroadcastCoalescer;
+    private final PresenceService presenceService;
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    @Autowired
+    public WebSocketConfig(ChatBroadcastCoalescer chatBroadcastCoalescer, PresenceService presenceService) {
+        this.chatBroadcastCoalescer = chatBroadcastCoalescer;
+        this.presenceService = presenceService;
+    }
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Enable a simple in-memory message broker to send messages to clients
-        config.enableSimpleBroker("/topic");
+        // (/queue carries per-session messages such as chat replays)
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[] {PresenceService.HEARTBEAT_INTERVAL, PresenceService.HEARTBEAT_INTERVAL})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         // Prefix for messages from clients
         config.setApplicationDestinationPrefixes("/app");
+        // Batch chat broadcasts into array frames when the message rate spikes
+        config.configureBrokerChannel().interceptors(chatBroadcastCoalescer);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Every inbound frame, heartbeats included, keeps the sender's presence alive
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                presenceService.touch(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+                return message;
+            }
+        });
     }
 
     @Override
@@ -30,4 +72,3 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .withSockJS();
     }
 }
-
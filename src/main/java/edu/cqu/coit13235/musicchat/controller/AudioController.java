@@ -30,12 +30,21 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.PlayEvent;
 import edu.cqu.coit13235.musicchat.domain.Favourite;
 import edu.cqu.coit13235.musicchat.domain.Rating;
+import edu.cqu.coit13235.musicchat.dto.RankedTrack;
+import edu.cqu.coit13235.musicchat.dto.RatingStats;
+import edu.cqu.coit13235.musicchat.dto.SimilarTrack;
+import edu.cqu.coit13235.musicchat.dto.TrackReactionState;
 import edu.cqu.coit13235.musicchat.service.AudioService;
 import edu.cqu.coit13235.musicchat.service.RatingService;
 import edu.cqu.coit13235.musicchat.service.FavouriteService;
+import edu.cqu.coit13235.musicchat.service.LeaderboardService;
+import edu.cqu.coit13235.musicchat.service.PlayTrackingService;
 import edu.cqu.coit13235.musicchat.service.ExternalMusicService;
+import edu.cqu.coit13235.musicchat.service.SimilarTrackService;
+import reactor.core.publisher.Mono;
 
 /**
  * REST controller for audio file operations.
@@ -46,18 +55,28 @@ import edu.cqu.coit13235.musicchat.service.ExternalMusicService;
 @CrossOrigin(origins = "*") // Allow CORS for frontend integration
 public class AudioController {
     
+    private static final int MAX_BULK_TRACKS = 200;
+    
     private final AudioService audioService;
     private final RatingService ratingService;
     private final FavouriteService favouriteService;
     private final ExternalMusicService externalMusicService;
+    private final SimilarTrackService similarTrackService;
+    private final LeaderboardService leaderboardService;
+    private final PlayTrackingService playTrackingService;
     
     @Autowired
     public AudioController(AudioService audioService, RatingService ratingService, 
-                          FavouriteService favouriteService, ExternalMusicService externalMusicService) {
+                          FavouriteService favouriteService, ExternalMusicService externalMusicService,
+                          SimilarTrackService similarTrackService, LeaderboardService leaderboardService,
+                          PlayTrackingService playTrackingService) {
         this.audioService = audioService;
         this.ratingService = ratingService;
         this.favouriteService = favouriteService;
         this.externalMusicService = externalMusicService;
+        this.similarTrackService = similarTrackService;
+        this.leaderboardService = leaderboardService;
+        this.playTrackingService = playTrackingService;
     }
     
     /**
@@ -151,6 +170,42 @@ public class AudioController {
         }
     }
     
+    /**
+     * Get whether a user has favourited and rated each of a page of tracks.
+     * GET /api/audio/tracks/state?userId={userId}&ids=1,2,3
+     * 
+     * @param userId The user ID
+     * @param ids The track IDs (at most 200)
+     * @return ResponseEntity containing one state per track, in the order given
+     */
+    @GetMapping("/tracks/state")
+    public ResponseEntity<?> getTrackStates(@RequestParam("userId") Long userId, @RequestParam("ids") List<Long> ids) {
+        try {
+            if (ids.size() > MAX_BULK_TRACKS) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "At most " + MAX_BULK_TRACKS + " track IDs are allowed"));
+            }
+            
+            List<TrackReactionState> states = new ArrayList<>(ids.size());
+            for (Long trackId : ids) {
+                states.add(new TrackReactionState(trackId,
+                    favouriteService.isFavourited(userId, trackId),
+                    ratingService.getUserRatingValue(userId, trackId)));
+            }
+            return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "tracks", states
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Get audio track by ID.
      * GET /api/audio/tracks/{id}
@@ -171,14 +226,16 @@ public class AudioController {
     }
     
     /**
-     * Download an audio file.
-     * GET /api/audio/download/{id}
+     * Download an audio file. Each download counts as a play of the track.
+     * GET /api/audio/download/{id}?userId=1
      * 
      * @param id The track ID
+     * @param userId The listening user for their history (optional; defaults to the authenticated user)
      * @return ResponseEntity containing the audio file or 404 if not found
      */
     @GetMapping("/download/{id}")
-    public ResponseEntity<?> downloadTrack(@PathVariable Long id) {
+    public ResponseEntity<?> downloadTrack(@PathVariable Long id,
+                                           @RequestParam(value = "userId", required = false) Long userId) {
         try {
             Optional<AudioTrack> trackOpt = audioService.getTrackById(id);
             if (trackOpt.isEmpty()) {
@@ -205,6 +262,8 @@ public class AudioController {
                 contentType = "application/octet-stream";
             }
             
+            playTrackingService.recordPlay(id, userId != null ? userId : getCurrentUserId());
+            
             return ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(contentType))
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + track.getOriginalFilename() + "\"")
@@ -435,7 +494,37 @@ public class AudioController {
     }
     
     /**
-     * Get rating statistics for a track.
+     * Get rating statistics for many tracks in one request.
+     * GET /api/audio/ratings?ids=1,2,3
+     * 
+     * @param ids The track IDs (at most 200)
+     * @return ResponseEntity containing one set of statistics per track, in the order given
+     */
+    @GetMapping("/ratings")
+    public ResponseEntity<?> getTrackRatingsBulk(@RequestParam("ids") List<Long> ids) {
+        try {
+            if (ids.size() > MAX_BULK_TRACKS) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "At most " + MAX_BULK_TRACKS + " track IDs are allowed"));
+            }
+            
+            List<RatingStats> stats = ratingService.getRatingStats(ids);
+            return ResponseEntity.ok(Map.of(
+                "tracks", stats,
+                "count", stats.size()
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get rating statistics for a track: the 1-5 star histogram, average, count and Bayesian score.
      * GET /api/audio/{id}/ratings
      * 
      * @param id The track ID
@@ -451,14 +540,8 @@ public class AudioController {
                     .body(Map.of("error", "Track not found", "message", "Audio track with ID " + id + " not found"));
             }
             
-            Double averageRating = ratingService.getAverageRating(id);
-            Long ratingCount = ratingService.getRatingCount(id);
-            
-            return ResponseEntity.ok(Map.of(
-                "trackId", id,
-                "averageRating", averageRating,
-                "ratingCount", ratingCount
-            ));
+            RatingStats stats = ratingService.getRatingStats(id);
+            return ResponseEntity.ok(stats);
             
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -496,6 +579,148 @@ public class AudioController {
         }
     }
     
+    /**
+     * Get play statistics for a track.
+     * GET /api/audio/{id}/plays
+     * 
+     * @param id The track ID
+     * @return ResponseEntity containing the track's play count
+     */
+    @GetMapping("/{id}/plays")
+    public ResponseEntity<?> getTrackPlays(@PathVariable Long id) {
+        try {
+            // Validate track exists
+            Optional<AudioTrack> trackOpt = audioService.getTrackById(id);
+            if (trackOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Track not found", "message", "Audio track with ID " + id + " not found"));
+            }
+            
+            long playCount = playTrackingService.getPlayCount(id);
+            
+            return ResponseEntity.ok(Map.of(
+                "trackId", id,
+                "playCount", playCount
+            ));
+            
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get a user's listening history.
+     * GET /api/audio/history?userId=1&limit=20
+     * 
+     * @param userId The user ID
+     * @param limit Maximum number of plays to return (1-100)
+     * @return ResponseEntity containing the user's plays, newest first
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getListeningHistory(@RequestParam("userId") Long userId,
+                                                 @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            List<PlayEvent> plays = playTrackingService.getListeningHistory(userId, limit);
+            return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "plays", plays,
+                "count", plays.size()
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get the tracks most often found in the same playlists as a track.
+     * GET /api/audio/{id}/similar?limit=10
+     * 
+     * @param id The track ID
+     * @param limit Maximum number of tracks to return (1-100)
+     * @return ResponseEntity containing the similar tracks, best first
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<?> getSimilarTracks(@PathVariable Long id,
+                                              @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        try {
+            // Validate track exists
+            Optional<AudioTrack> trackOpt = audioService.getTrackById(id);
+            if (trackOpt.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Track not found", "message", "Audio track with ID " + id + " not found"));
+            }
+            
+            List<SimilarTrack> similar = similarTrackService.getSimilarTracks(id, limit);
+            return ResponseEntity.ok(Map.of(
+                "trackId", id,
+                "similar", similar
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get the tracks with the most recent plays, ratings and favourites.
+     * GET /api/audio/trending?limit=20
+     * 
+     * @param limit Maximum number of tracks to return (1-100)
+     * @return ResponseEntity containing the trending tracks, best first
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<?> getTrendingTracks(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            List<RankedTrack> tracks = leaderboardService.getTrending(limit);
+            return ResponseEntity.ok(Map.of(
+                "tracks", tracks,
+                "count", tracks.size()
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get the best-rated tracks, ranked by Bayesian average rating.
+     * GET /api/audio/top-rated?limit=20
+     * 
+     * @param limit Maximum number of tracks to return (1-100)
+     * @return ResponseEntity containing the top-rated tracks, best first
+     */
+    @GetMapping("/top-rated")
+    public ResponseEntity<?> getTopRatedTracks(@RequestParam(value = "limit", defaultValue = "20") int limit) {
+        try {
+            List<RankedTrack> tracks = leaderboardService.getTopRated(limit);
+            return ResponseEntity.ok(Map.of(
+                "tracks", tracks,
+                "count", tracks.size()
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Get user's favorite tracks.
      * GET /api/audio/favorites
@@ -544,31 +769,27 @@ public class AudioController {
     /**
      * Search external music using Deezer API.
      * GET /api/audio/search/external?query={query}
+     * The request is processed asynchronously: no request thread waits while Deezer answers.
      * 
      * @param query The search query
-     * @return ResponseEntity containing external music search results
+     * @return Mono of the ResponseEntity containing external music search results
      */
     @GetMapping("/search/external")
-    public ResponseEntity<?> searchExternalMusic(@RequestParam("query") String query) {
-        try {
-            if (query == null || query.trim().isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Invalid query", "message", "Search query cannot be empty"));
-            }
-            
-            List<ExternalMusicService.MusicMetadata> results = externalMusicService.searchMusic(query.trim());
-            
-            return ResponseEntity.ok(Map.of(
+    public Mono<ResponseEntity<?>> searchExternalMusic(@RequestParam("query") String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid query", "message", "Search query cannot be empty")));
+        }
+        
+        return externalMusicService.searchMusicReactive(query.trim())
+            .<ResponseEntity<?>>map(results -> ResponseEntity.ok(Map.of(
                 "message", "Search completed successfully",
                 "query", query.trim(),
                 "count", results.size(),
                 "results", results
-            ));
-            
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Search failed", "message", e.getMessage()));
-        }
+            )))
+            .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Search failed", "message", e.getMessage()))));
     }
     
     /**
@@ -2,7 +2,9 @@ package edu.cqu.coit13235.musicchat.controller;
 
 import edu.cqu.coit13235.musicchat.domain.ChatMessage;
 import edu.cqu.coit13235.musicchat.dto.ChatMessageRequest;
+import edu.cqu.coit13235.musicchat.service.ChatSearchService;
 import edu.cqu.coit13235.musicchat.service.ChatService;
+import edu.cqu.coit13235.musicchat.service.ChatThreadService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -25,17 +27,22 @@ import java.util.Map;
 public class ChatController {
     
     private final ChatService chatService;
+    private final ChatThreadService chatThreadService;
+    private final ChatSearchService chatSearchService;
     
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ChatThreadService chatThreadService,
+                          ChatSearchService chatSearchService) {
         this.chatService = chatService;
+        this.chatThreadService = chatThreadService;
+        this.chatSearchService = chatSearchService;
     }
     
     /**
      * Send a new chat message.
      * POST /api/chat/messages
      * 
-     * @param request JSON object containing only the message content
+     * @param request JSON object containing the message content and an optional previousId to reply to
      * @param principal The authenticated user principal
      * @return ResponseEntity containing the created message
      */
@@ -53,7 +60,7 @@ public class ChatController {
             String content = request.getContent();
             
             // Create and save the message with the authenticated user's username
-            ChatMessage message = chatService.sendMessage(username, content);
+            ChatMessage message = chatService.sendMessage(username, content, request.getPreviousId());
             
             return ResponseEntity.status(HttpStatus.CREATED).body(message);
             
@@ -114,6 +121,28 @@ public class ChatController {
         }
     }
     
+    /**
+     * Get the reply thread around a message.
+     * GET /api/chat/messages/{id}/thread
+     * 
+     * @param id The message ID
+     * @return ResponseEntity containing the message, its ancestors and its replies, or 404 if not found
+     */
+    @GetMapping("/messages/{id}/thread")
+    public ResponseEntity<?> getThread(@PathVariable Long id) {
+        try {
+            return chatThreadService.getThread(id)
+                .<ResponseEntity<?>>map(thread -> ResponseEntity.ok(thread))
+                .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid message ID", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Get messages from a specific sender.
      * GET /api/chat/messages/sender/{sender}
@@ -151,4 +180,28 @@ public class ChatController {
                 .body(Map.of("error", "Internal server error", "message", e.getMessage()));
         }
     }
+    
+    /**
+     * Search chat history, best matches first.
+     * GET /api/chat/search?q={query}
+     * 
+     * @param q The search query; every term must match
+     * @param cursor Optional nextCursor from the previous page
+     * @param limit Optional page size (default 20, maximum 100)
+     * @return ResponseEntity containing a page of ranked results
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "" + ChatSearchService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(chatSearchService.search(q, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid search parameters", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
 }
@@ -1,13 +1,12 @@
 package edu.cqu.coit13235.musicchat.controller;
 
 import edu.cqu.coit13235.musicchat.service.ExternalMusicService;
-import edu.cqu.coit13235.musicchat.service.ExternalMusicService.MusicMetadata;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,34 +28,29 @@ public class ExternalMusicController {
     /**
      * Search for music metadata using external APIs.
      * GET /api/external/search?query={query}
+     * The request is processed asynchronously: no request thread waits while the external API answers.
      * 
      * @param query the search query
-     * @return ResponseEntity containing the list of music metadata
+     * @return Mono of the ResponseEntity containing the list of music metadata
      */
     @GetMapping("/search")
-    public ResponseEntity<?> searchMusic(@RequestParam("query") String query) {
-        try {
-            if (query == null || query.trim().isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Invalid query", "message", "Search query cannot be null or empty"));
-            }
-            
-            List<MusicMetadata> results = externalMusicService.searchMusic(query.trim());
-            
-            return ResponseEntity.ok(Map.of(
+    public Mono<ResponseEntity<?>> searchMusic(@RequestParam("query") String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return Mono.just(ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid query", "message", "Search query cannot be null or empty")));
+        }
+        
+        return externalMusicService.searchMusicReactive(query.trim())
+            .<ResponseEntity<?>>map(results -> ResponseEntity.ok(Map.of(
                 "query", query,
                 "results", results,
                 "count", results.size(),
                 "message", "Search completed successfully"
-            ));
-            
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Search failed", "message", e.getMessage()));
-        }
+            )))
+            .onErrorResume(IllegalArgumentException.class, e -> Mono.just(ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()))))
+            .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Search failed", "message", e.getMessage()))));
     }
     
     /**
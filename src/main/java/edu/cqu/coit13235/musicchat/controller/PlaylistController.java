@@ -2,10 +2,13 @@ package edu.cqu.coit13235.musicchat.controller;
 
 import edu.cqu.coit13235.musicchat.domain.Playlist;
 import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
+import edu.cqu.coit13235.musicchat.dto.PlaylistBulkAddResponse;
+import edu.cqu.coit13235.musicchat.dto.PlaylistSummary;
 import edu.cqu.coit13235.musicchat.service.PlaylistService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -84,6 +87,40 @@ public class PlaylistController {
         }
     }
     
+    /**
+     * Fork a playlist.
+     * POST /api/playlists/{id}/fork
+     * 
+     * @param id The ID of the playlist to fork
+     * @param request JSON object containing the fork's ownerId and optional name
+     * @return ResponseEntity containing the fork, which shares the original's tracks until either is edited
+     */
+    @PostMapping("/{id}/fork")
+    public ResponseEntity<?> forkPlaylist(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        try {
+            Object ownerIdRaw = request.get("ownerId");
+            if (ownerIdRaw == null) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "ownerId is required"));
+            }
+            Long ownerId = Long.valueOf(ownerIdRaw.toString());
+            String name = (String) request.get("name");
+            
+            Playlist fork = playlistService.forkPlaylist(id, ownerId, name);
+            return ResponseEntity.status(HttpStatus.CREATED).body(fork);
+            
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid ownerId format", "message", "ownerId must be a valid number"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Get playlist by ID.
      * GET /api/playlists/{id}
@@ -128,12 +165,12 @@ public class PlaylistController {
      * GET /api/playlists/owner/{ownerId}
      * 
      * @param ownerId The owner ID
-     * @return ResponseEntity containing the list of playlists
+     * @return ResponseEntity containing the list of playlist summaries
      */
     @GetMapping("/owner/{ownerId}")
     public ResponseEntity<?> getPlaylistsByOwner(@PathVariable Long ownerId) {
         try {
-            List<Playlist> playlists = playlistService.getPlaylistsByOwner(ownerId);
+            List<PlaylistSummary> playlists = playlistService.getPlaylistSummariesByOwner(ownerId);
             return ResponseEntity.ok(playlists);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -145,12 +182,12 @@ public class PlaylistController {
      * Get all playlists.
      * GET /api/playlists
      * 
-     * @return ResponseEntity containing the list of all playlists
+     * @return ResponseEntity containing summaries of all playlists
      */
     @GetMapping
     public ResponseEntity<?> getAllPlaylists() {
         try {
-            List<Playlist> playlists = playlistService.getAllPlaylists();
+            List<PlaylistSummary> playlists = playlistService.getAllPlaylistSummaries();
             return ResponseEntity.ok(playlists);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -163,7 +200,7 @@ public class PlaylistController {
      * GET /api/playlists/search?q={query}
      * 
      * @param query The search query
-     * @return ResponseEntity containing the list of matching playlists
+     * @return ResponseEntity containing summaries of the matching playlists
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchPlaylistsByName(@RequestParam("q") String query) {
@@ -173,7 +210,7 @@ public class PlaylistController {
                     .body(Map.of("error", "Invalid query", "message", "Search query cannot be empty"));
             }
             
-            List<Playlist> playlists = playlistService.searchPlaylistsByName(query.trim());
+            List<PlaylistSummary> playlists = playlistService.searchPlaylistSummariesByName(query.trim());
             return ResponseEntity.ok(playlists);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -182,17 +219,33 @@ public class PlaylistController {
     }
     
     /**
-     * Get tracks in a playlist.
-     * GET /api/playlists/{id}/tracks
+     * Get tracks in a playlist, optionally one page at a time.
+     * GET /api/playlists/{id}/tracks?page={page}&size={size}
      * 
      * @param id The playlist ID
-     * @return ResponseEntity containing the list of playlist tracks
+     * @param page Optional zero-based page number; without page and size every track is returned
+     * @param size Optional page size
+     * @return ResponseEntity containing the list of playlist tracks, with the total in X-Total-Count when paged
      */
     @GetMapping("/{id}/tracks")
-    public ResponseEntity<?> getPlaylistTracks(@PathVariable Long id) {
+    public ResponseEntity<?> getPlaylistTracks(@PathVariable Long id,
+                                               @RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size) {
         try {
-            List<PlaylistTrack> tracks = playlistService.getPlaylistTracks(id);
-            return ResponseEntity.ok(tracks);
+            if (page == null && size == null) {
+                List<PlaylistTrack> tracks = playlistService.getPlaylistTracks(id);
+                return ResponseEntity.ok(tracks);
+            }
+            
+            List<PlaylistTrack> tracks = playlistService.getPlaylistTracks(id,
+                (page != null) ? page : 0,
+                (size != null) ? size : PlaylistService.DEFAULT_TRACK_PAGE_SIZE);
+            return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(playlistService.getPlaylistTrackCount(id)))
+                .body(tracks);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Internal server error", "message", e.getMessage()));
@@ -242,6 +295,41 @@ public class PlaylistController {
         }
     }
     
+    /**
+     * Add many tracks to a playlist and return only a summary.
+     * POST /api/playlists/{id}/tracks/bulk
+     * 
+     * @param id The playlist ID
+     * @param request JSON object containing trackIds array
+     * @return ResponseEntity containing the IDs added and the IDs already present
+     */
+    @PostMapping("/{id}/tracks/bulk")
+    public ResponseEntity<?> bulkAddTracksToPlaylist(@PathVariable Long id, @RequestBody Map<String, Object> request) {
+        try {
+            @SuppressWarnings("unchecked")
+            List<Object> trackIdsRaw = (List<Object>) request.get("trackIds");
+            List<Long> trackIds = trackIdsRaw != null ? trackIdsRaw.stream()
+                .map(item -> Long.valueOf(item.toString()))
+                .collect(java.util.stream.Collectors.toList()) : null;
+            
+            if (trackIds == null || trackIds.isEmpty()) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "trackIds is required and cannot be empty"));
+            }
+            
+            PlaylistBulkAddResponse summary = playlistService.bulkAddTracks(id, trackIds);
+            return ResponseEntity.ok(summary);
+            
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException from malformed track IDs
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Remove tracks from a playlist.
      * DELETE /api/playlists/{id}/tracks
@@ -285,23 +373,59 @@ public class PlaylistController {
         }
     }
     
+    /**
+     * Move a track within a playlist, next to another track.
+     * PATCH /api/playlists/{id}/tracks/{trackId}/position
+     * 
+     * @param id The playlist ID
+     * @param trackId The ID of the track to move
+     * @param request JSON object containing "after" and/or "before" track IDs, and optionally the "version" last seen
+     * @return ResponseEntity containing the moved playlist track, or 409 if it changed concurrently
+     */
+    @PatchMapping("/{id}/tracks/{trackId}/position")
+    public ResponseEntity<?> moveTrack(@PathVariable Long id, @PathVariable Long trackId,
+                                       @RequestBody Map<String, Object> request) {
+        try {
+            Long after = toLong(request.get("after"));
+            Long before = toLong(request.get("before"));
+            Long version = toLong(request.get("version"));
+            
+            PlaylistTrack moved = playlistService.moveTrack(id, trackId, after, before, version);
+            return ResponseEntity.ok(moved);
+            
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Conflict", "message", "The playlist changed concurrently; reload it and retry the move"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
     /**
      * Update playlist information.
      * PUT /api/playlists/{id}
      * 
      * @param id The playlist ID
-     * @param request JSON object containing name and description
-     * @return ResponseEntity containing the updated playlist
+     * @param request JSON object containing name and description, and optionally the "version" last seen
+     * @return ResponseEntity containing the updated playlist, or 409 if it changed concurrently
      */
     @PutMapping("/{id}")
     public ResponseEntity<?> updatePlaylist(@PathVariable Long id, @RequestBody Map<String, Object> request) {
         try {
             String name = (String) request.get("name");
             String description = (String) request.get("description");
+            Long version = toLong(request.get("version"));
             
-            Playlist playlist = playlistService.updatePlaylist(id, name, description);
+            Playlist playlist = playlistService.updatePlaylist(id, name, description, version);
             return ResponseEntity.ok(playlist);
             
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Conflict", "message", "The playlist changed concurrently; reload it and retry"));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("error", "Invalid input", "message", e.getMessage()));
@@ -368,4 +492,8 @@ public class PlaylistController {
                 .body(Map.of("error", "Internal server error", "message", e.getMessage()));
         }
     }
+    
+    private static Long toLong(Object value) {
+        return (value != null) ? Long.valueOf(value.toString()) : null;
+    }
 }
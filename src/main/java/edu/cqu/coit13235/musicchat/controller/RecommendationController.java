@@ -0,0 +1,55 @@
+package edu.cqu.coit13235.musicchat.controller;
+
+import edu.cqu.coit13235.musicchat.dto.RecommendedTrack;
+import edu.cqu.coit13235.musicchat.service.RecommendationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for personalised track recommendations.
+ */
+@RestController
+@RequestMapping("/api/recommendations")
+@CrossOrigin(origins = "*") // Allow CORS for frontend integration
+public class RecommendationController {
+    
+    private final RecommendationService recommendationService;
+    
+    @Autowired
+    public RecommendationController(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+    }
+    
+    /**
+     * Get tracks recommended to a user from what similar listeners rated and favourited.
+     * GET /api/recommendations?userId={userId}&limit=20
+     * 
+     * @param userId The user ID
+     * @param limit Maximum number of tracks to return
+     * @return ResponseEntity containing the recommended tracks, best first
+     */
+    @GetMapping
+    public ResponseEntity<?> getRecommendations(@RequestParam("userId") Long userId,
+                                                @RequestParam(value = "limit", defaultValue = "" + RecommendationService.DEFAULT_LIMIT) int limit) {
+        try {
+            List<RecommendedTrack> recommendations = recommendationService.getRecommendations(userId, limit);
+            return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "recommendations", recommendations,
+                "count", recommendations.size()
+            ));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+}
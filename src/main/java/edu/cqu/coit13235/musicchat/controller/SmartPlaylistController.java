@@ -0,0 +1,115 @@
+package edu.cqu.coit13235.musicchat.controller;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.Playlist;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistRule;
+import edu.cqu.coit13235.musicchat.dto.SmartPlaylistResponse;
+import edu.cqu.coit13235.musicchat.service.PlaylistService;
+import edu.cqu.coit13235.musicchat.service.SmartPlaylistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller for smart playlists.
+ * A smart playlist is defined by rules instead of a hand-picked track list, and its
+ * tracks follow uploads, ratings and favourites automatically.
+ */
+@RestController
+@RequestMapping("/api/playlists")
+@CrossOrigin(origins = "*") // Allow CORS for frontend integration
+public class SmartPlaylistController {
+    
+    private final SmartPlaylistService smartPlaylistService;
+    private final PlaylistService playlistService;
+    
+    @Autowired
+    public SmartPlaylistController(SmartPlaylistService smartPlaylistService, PlaylistService playlistService) {
+        this.smartPlaylistService = smartPlaylistService;
+        this.playlistService = playlistService;
+    }
+    
+    /**
+     * Create a smart playlist.
+     * POST /api/playlists/smart
+     * 
+     * @param request JSON object containing ownerId, name, description and rules, each rule a {type, value} object
+     * @return ResponseEntity containing the created smart playlist and its initial tracks
+     */
+    @PostMapping("/smart")
+    public ResponseEntity<?> createSmartPlaylist(@RequestBody Map<String, Object> request) {
+        try {
+            Object ownerIdRaw = request.get("ownerId");
+            if (ownerIdRaw == null) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "ownerId is required"));
+            }
+            Long ownerId = Long.valueOf(ownerIdRaw.toString());
+            String name = (String) request.get("name");
+            String description = (String) request.get("description");
+            
+            if (!(request.get("rules") instanceof List<?> rulesRaw)) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid input", "message", "rules must be a list"));
+            }
+            List<SmartPlaylistRule> rules = new ArrayList<>();
+            for (Object item : rulesRaw) {
+                if (!(item instanceof Map<?, ?> ruleRaw) || ruleRaw.get("type") == null) {
+                    return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Invalid input", "message", "Each rule needs a type"));
+                }
+                SmartPlaylistRule.Type type = SmartPlaylistRule.Type.valueOf(ruleRaw.get("type").toString().trim().toUpperCase());
+                Object value = ruleRaw.get("value");
+                rules.add(new SmartPlaylistRule(null, type, value != null ? value.toString() : null));
+            }
+            
+            Playlist playlist = smartPlaylistService.createSmartPlaylist(ownerId, name, description, rules);
+            return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(playlist));
+            
+        } catch (IllegalArgumentException e) {
+            // Also covers a malformed ownerId and an unknown rule type
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get a smart playlist with its rules and current tracks.
+     * GET /api/playlists/{id}/smart
+     * 
+     * @param id The playlist ID
+     * @return ResponseEntity containing the smart playlist, 404 if not found, or 400 if it is not a smart playlist
+     */
+    @GetMapping("/{id}/smart")
+    public ResponseEntity<?> getSmartPlaylist(@PathVariable Long id) {
+        try {
+            Optional<Playlist> playlist = playlistService.getPlaylistById(id);
+            if (playlist.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(toResponse(playlist.get()));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Invalid input", "message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error", "message", e.getMessage()));
+        }
+    }
+    
+    private SmartPlaylistResponse toResponse(Playlist playlist) {
+        List<AudioTrack> tracks = smartPlaylistService.getSmartPlaylistTracks(playlist.getId());
+        return new SmartPlaylistResponse(playlist.getId(), playlist.getOwnerId(), playlist.getName(),
+            playlist.getDescription(), smartPlaylistService.getRules(playlist.getId()), tracks);
+    }
+}
@@ -2,14 +2,24 @@ package edu.cqu.coit13235.musicchat.controller;
 
 import edu.cqu.coit13235.musicchat.domain.ChatMessage;
 import edu.cqu.coit13235.musicchat.dto.ChatMessageRequest;
+import edu.cqu.coit13235.musicchat.dto.ChatReplayResponse;
+import edu.cqu.coit13235.musicchat.dto.PresenceUpdate;
 import edu.cqu.coit13235.musicchat.service.ChatService;
+import edu.cqu.coit13235.musicchat.service.PresenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
+import java.util.List;
 
 /**
  * WebSocket controller for real-time chat messaging.
@@ -19,17 +29,34 @@ import java.security.Principal;
 @Controller
 public class WebSocketChatController {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketChatController.class);
+
+    /**
+     * STOMP header a reconnecting client sets on /app/chat.join with the last message ID it saw.
+     */
+    public static final String LAST_SEEN_ID_HEADER = "last-seen-id";
+
+    /**
+     * User destination the missed messages are replayed to (subscribe as /user/queue/chat.replay).
+     */
+    public static final String REPLAY_DESTINATION = "/queue/chat.replay";
+
     private final ChatService chatService;
+    private final PresenceService presenceService;
+    private final SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    public WebSocketChatController(ChatService chatService) {
+    public WebSocketChatController(ChatService chatService, PresenceService presenceService,
+                                   SimpMessagingTemplate messagingTemplate) {
         this.chatService = chatService;
+        this.presenceService = presenceService;
+        this.messagingTemplate = messagingTemplate;
     }
 
     /**
      * Handle incoming WebSocket chat messages.
      * Messages are persisted to the database and broadcast to all connected clients.
-     * 
+     *
      * @param request The chat message request containing the message content
      * @param headerAccessor Provides access to message headers including user principal
      * @return The saved ChatMessage that will be broadcast to all subscribers
@@ -40,17 +67,19 @@ public class WebSocketChatController {
         // Extract username from the WebSocket session
         Principal principal = headerAccessor.getUser();
         String username = (principal != null) ? principal.getName() : "anonymous";
-        
+
         // Save the message to the database
-        ChatMessage message = chatService.sendMessage(username, request.getContent());
-        
+        ChatMessage message = chatService.sendMessage(username, request.getContent(), request.getPreviousId());
+
         return message;
     }
 
     /**
      * Handle user join events.
-     * Broadcasts a notification when a user joins the chat.
-     * 
+     * Broadcasts a notification when a user joins the chat. A reconnecting client may set the
+     * {@value #LAST_SEEN_ID_HEADER} header, in which case only the messages it missed are
+     * replayed privately to its session before the live stream continues.
+     *
      * @param headerAccessor Provides access to message headers including user principal
      * @return A system message indicating the user has joined
      */
@@ -59,11 +88,62 @@ public class WebSocketChatController {
     public ChatMessage userJoin(SimpMessageHeaderAccessor headerAccessor) {
         Principal principal = headerAccessor.getUser();
         String username = (principal != null) ? principal.getName() : "anonymous";
-        
+
+        Long lastSeenId = parseLastSeenId(headerAccessor.getFirstNativeHeader(LAST_SEEN_ID_HEADER));
+        if (lastSeenId != null && headerAccessor.getSessionId() != null) {
+            replayMissedMessages(principal, headerAccessor.getSessionId(), lastSeenId);
+        }
+
         // Create a system message for user join (not persisted)
         ChatMessage joinMessage = new ChatMessage("System", username + " has joined the chat");
-        
+
         return joinMessage;
     }
-}
 
+    /**
+     * Return the current presence snapshot to a client subscribing to /app/presence.{room}.
+     * Clients then follow /topic/presence.{room} for diffs, so the full list is sent only once.
+     *
+     * @param room The room name
+     * @return The room's online users and current sequence number
+     */
+    @SubscribeMapping("/presence.{room}")
+    public PresenceUpdate presenceSnapshot(@DestinationVariable String room) {
+        return presenceService.getSnapshot(room);
+    }
+
+    /**
+     * Send the messages after lastSeenId to a single session.
+     *
+     * @param principal The session's user, or null for anonymous sessions
+     * @param sessionId The WebSocket session ID
+     * @param lastSeenId The last message ID the session received before disconnecting
+     */
+    private void replayMissedMessages(Principal principal, String sessionId, Long lastSeenId) {
+        List<ChatMessage> missed = chatService.getMessagesSince(lastSeenId);
+        boolean complete = missed.size() < ChatService.MAX_REPLAY_MESSAGES;
+
+        SimpMessageHeaderAccessor replayHeaders = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        replayHeaders.setSessionId(sessionId);
+        replayHeaders.setLeaveMutable(true);
+
+        // Anonymous sessions are addressed by session ID; the header pins delivery to this session only
+        String user = (principal != null) ? principal.getName() : sessionId;
+        messagingTemplate.convertAndSendToUser(user, REPLAY_DESTINATION,
+            new ChatReplayResponse(lastSeenId, missed, complete), replayHeaders.getMessageHeaders());
+        logger.debug("Replayed {} missed messages after ID {} to session {}", missed.size(), lastSeenId, sessionId);
+    }
+
+    private Long parseLastSeenId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            long id = Long.parseLong(value.trim());
+            return id >= 0 ? id : null;
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring invalid {} header: {}", LAST_SEEN_ID_HEADER, value);
+            return null;
+        }
+    }
+}
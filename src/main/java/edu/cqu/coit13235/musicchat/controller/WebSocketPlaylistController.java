@@ -0,0 +1,64 @@
+package edu.cqu.coit13235.musicchat.controller;
+
+import edu.cqu.coit13235.musicchat.dto.PlaylistEditRequest;
+import edu.cqu.coit13235.musicchat.dto.PlaylistEditResult;
+import edu.cqu.coit13235.musicchat.service.PlaylistService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Controller;
+
+/**
+ * WebSocket controller for collaborative playlist editing.
+ * Collaborators subscribe to /topic/playlists/{id} for operations and send edits to
+ * /app/playlists/{id}/edit. Accepted edits are broadcast by the service once committed;
+ * the sender alone is told whether its edit was accepted, on /user/queue/playlists.results.
+ */
+@Controller
+public class WebSocketPlaylistController {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketPlaylistController.class);
+
+    /**
+     * User destination edit results are sent to (subscribe as /user/queue/playlists.results).
+     */
+    public static final String RESULT_DESTINATION = "/queue/playlists.results";
+
+    private final PlaylistService playlistService;
+
+    @Autowired
+    public WebSocketPlaylistController(PlaylistService playlistService) {
+        this.playlistService = playlistService;
+    }
+
+    /**
+     * Apply one edit to a playlist.
+     *
+     * @param id The playlist ID
+     * @param request The edit: an insert, move or remove of one track
+     * @return Whether the edit was accepted and, if so, the playlist version it produced
+     */
+    @MessageMapping("/playlists/{id}/edit")
+    @SendToUser(destinations = RESULT_DESTINATION, broadcast = false)
+    public PlaylistEditResult edit(@DestinationVariable Long id, PlaylistEditRequest request) {
+        String clientOpId = request.getClientOpId();
+        try {
+            long version = playlistService.applyEdit(id, request.getType(), request.getTrackId(),
+                request.getAfter(), request.getBefore(), request.getVersion());
+            return PlaylistEditResult.accepted(clientOpId, version);
+
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return PlaylistEditResult.rejected(clientOpId, "Conflict",
+                "The track changed concurrently; reload the playlist and retry");
+        } catch (IllegalArgumentException e) {
+            return PlaylistEditResult.rejected(clientOpId, "Invalid input", e.getMessage());
+        } catch (Exception e) {
+            logger.warn("Failed to apply {} edit to playlist {}: {}", request.getType(), id, e.getMessage());
+            return PlaylistEditResult.rejected(clientOpId, "Internal server error", e.getMessage());
+        }
+    }
+}
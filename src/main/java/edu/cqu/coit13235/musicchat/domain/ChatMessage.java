@@ -8,7 +8,9 @@ import java.time.LocalDateTime;
  * Contains fields: id, sender, text, timestamp, and optional previousId for threading.
  */
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+    @Index(name = "idx_chat_messages_previous_id", columnList = "previous_id")
+})
 public class ChatMessage {
     
     @Id
@@ -0,0 +1,80 @@
+package edu.cqu.coit13235.musicchat.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * PlayEvent entity recording one play (download) of a track by a user, for listening history.
+ * Rows are written in batches by PlayTrackingService rather than one per play.
+ */
+@Entity
+@Table(name = "play_events", indexes = {
+    @Index(name = "idx_play_events_user_played_at", columnList = "user_id, played_at")
+})
+public class PlayEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "track_id", nullable = false)
+    private Long trackId;
+
+    @Column(name = "played_at", nullable = false)
+    private LocalDateTime playedAt;
+
+    // Default constructor for JPA
+    protected PlayEvent() {}
+
+    public PlayEvent(Long userId, Long trackId, LocalDateTime playedAt) {
+        this.userId = userId;
+        this.trackId = trackId;
+        this.playedAt = playedAt;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public LocalDateTime getPlayedAt() {
+        return playedAt;
+    }
+
+    public void setPlayedAt(LocalDateTime playedAt) {
+        this.playedAt = playedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayEvent{" +
+                "id=" + id +
+                ", userId=" + userId +
+                ", trackId=" + trackId +
+                ", playedAt=" + playedAt +
+                '}';
+    }
+}
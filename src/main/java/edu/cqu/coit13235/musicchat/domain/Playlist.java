@@ -4,6 +4,13 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.OptimisticLock;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -14,13 +21,22 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.OrderBy;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 /**
  * Playlist entity representing a collection of audio tracks.
  * Contains playlist metadata and references to tracks through PlaylistTrack join table.
+ * Tracks are loaded lazily, so listing playlists does not read their contents; the track count,
+ * total duration and total size are stored on the playlist and kept up to date by every track edit.
+ * The version is bumped by every edit, including track edits, and numbers the operations
+ * broadcast to collaborators.
+ * A fork shares its source's track rows until either of them is first edited (copy-on-write),
+ * so forking costs the same however long the playlist is.
  */
 @Entity
 @Table(name = "playlists")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // Entries loaded first leave the playlist as a proxy
 public class Playlist {
     
     @Id
@@ -39,8 +55,45 @@ public class Playlist {
     @Column(name = "description")
     private String description;
     
-    @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
-    @OrderBy("position ASC")
+    // Smart playlists take their tracks from rules (SmartPlaylistRule) instead of PlaylistTrack rows
+    @ColumnDefault("false")
+    @Column(name = "smart", nullable = false)
+    private boolean smart;
+    
+    // Aggregates of the tracks, adjusted in the same transaction as each track edit
+    @ColumnDefault("0")
+    @Column(name = "track_count", nullable = false)
+    private long trackCount;
+    
+    @ColumnDefault("0")
+    @Column(name = "total_duration_seconds", nullable = false)
+    private long totalDurationSeconds;
+    
+    @ColumnDefault("0")
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+    
+    // The playlist this one was forked from, kept for display after the fork has its own tracks
+    @Column(name = "forked_from_id")
+    private Long forkedFromId;
+    
+    // While set, this playlist has no track rows of its own and reads those of the given playlist
+    @Column(name = "track_source_id")
+    private Long trackSourceId;
+    
+    // The source's tracks, filled in when an unmodified fork is loaded for display
+    @Transient
+    private List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> sharedTracks;
+    
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+    
+    // Track edits bump the version explicitly, so loading or changing the collection must not
+    @OneToMany(mappedBy = "playlist", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OrderBy("position ASC, id ASC")
+    @OptimisticLock(excluded = true)
     private List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> tracks = new ArrayList<>();
     
     // Default constructor for JPA
@@ -100,10 +153,86 @@ public class Playlist {
         this.description = description;
     }
     
+    public boolean isSmart() {
+        return smart;
+    }
+    
+    public void setSmart(boolean smart) {
+        this.smart = smart;
+    }
+    
+    public Long getForkedFromId() {
+        return forkedFromId;
+    }
+    
+    public void setForkedFromId(Long forkedFromId) {
+        this.forkedFromId = forkedFromId;
+    }
+    
+    @JsonIgnore
+    public Long getTrackSourceId() {
+        return trackSourceId;
+    }
+    
+    public void setTrackSourceId(Long trackSourceId) {
+        this.trackSourceId = trackSourceId;
+    }
+    
+    /**
+     * Get the ID of the playlist whose rows hold this playlist's tracks.
+     * @return The source's ID for an unmodified fork, otherwise this playlist's own ID
+     */
+    @JsonIgnore
+    public Long getTrackListId() {
+        return trackSourceId != null ? trackSourceId : id;
+    }
+    
+    /**
+     * Whether this is a fork still sharing its source's tracks.
+     * @return true if the playlist has no track rows of its own yet
+     */
+    public boolean isSharingTracks() {
+        return trackSourceId != null;
+    }
+    
+    public void setSharedTracks(List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> sharedTracks) {
+        this.sharedTracks = sharedTracks;
+    }
+    
+    /**
+     * Get the playlist version, incremented by every edit; clients send it back to detect concurrent changes.
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    @JsonIgnore
     public List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> getTracks() {
         return tracks;
     }
     
+    /**
+     * Get the tracks as serialised, numbered with their zero-based index.
+     * Loads the tracks if they have not been read yet; an unmodified fork returns its source's tracks.
+     * @return The tracks in order
+     */
+    @JsonProperty("tracks")
+    public List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> getIndexedTracks() {
+        if (sharedTracks != null) {
+            for (int i = 0; i < sharedTracks.size(); i++) {
+                sharedTracks.get(i).setIndex(i);
+            }
+            return sharedTracks;
+        }
+        indexTracks();
+        return tracks;
+    }
+    
     public void setTracks(List<edu.cqu.coit13235.musicchat.domain.PlaylistTrack> tracks) {
         this.tracks = tracks;
     }
@@ -119,11 +248,48 @@ public class Playlist {
     }
     
     /**
-     * Get the number of tracks in the playlist.
+     * Number the tracks 0..n-1 in order, since their stored positions are sparse.
+     */
+    public void indexTracks() {
+        for (int i = 0; i < tracks.size(); i++) {
+            tracks.get(i).setIndex(i);
+        }
+    }
+    
+    /**
+     * Get the number of tracks in the playlist, without loading them.
      * @return The number of tracks
      */
-    public int getTrackCount() {
-        return tracks.size();
+    public long getTrackCount() {
+        return trackCount;
+    }
+    
+    public void setTrackCount(long trackCount) {
+        this.trackCount = trackCount;
+    }
+    
+    /**
+     * Get the combined duration of the tracks; tracks without a known duration count as zero.
+     * @return The total duration in seconds
+     */
+    public long getTotalDurationSeconds() {
+        return totalDurationSeconds;
+    }
+    
+    public void setTotalDurationSeconds(long totalDurationSeconds) {
+        this.totalDurationSeconds = totalDurationSeconds;
+    }
+    
+    /**
+     * Get the combined file size of the tracks.
+     * @return The total size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
     }
     
     @Override
@@ -134,7 +300,8 @@ public class Playlist {
                 ", name='" + name + '\'' +
                 ", createdAt=" + createdAt +
                 ", description='" + description + '\'' +
-                ", trackCount=" + getTrackCount() +
+                ", version=" + version +
+                ", trackCount=" + trackCount +
                 '}';
     }
 }
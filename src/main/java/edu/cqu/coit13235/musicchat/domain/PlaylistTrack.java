@@ -1,6 +1,7 @@
 package edu.cqu.coit13235.musicchat.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -11,15 +12,26 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * PlaylistTrack entity representing the many-to-many relationship between Playlist and AudioTrack.
- * Includes position field for ordering tracks within a playlist.
+ * The stored position is a sparse ordering key: keys are spaced {@link #POSITION_GAP} apart so a
+ * track can be placed between two others by writing only its own row, and removals leave gaps.
+ * Clients see a dense zero-based position, computed when the playlist is read.
  */
 @Entity
 @Table(name = "playlist_tracks")
 public class PlaylistTrack {
     
+    /**
+     * Distance between the ordering keys of consecutive tracks when they are appended or rebalanced.
+     */
+    public static final int POSITION_GAP = 1024;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -36,6 +48,14 @@ public class PlaylistTrack {
     @Column(nullable = false)
     private Integer position;
     
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+    
+    @Transient
+    private Integer index;
+    
     // Default constructor for JPA
     public PlaylistTrack() {}
     
@@ -70,6 +90,11 @@ public class PlaylistTrack {
         this.track = track;
     }
     
+    /**
+     * Get the sparse ordering key; only its order relative to other keys is meaningful.
+     * @return The ordering key
+     */
+    @JsonIgnore
     public Integer getPosition() {
         return position;
     }
@@ -78,6 +103,32 @@ public class PlaylistTrack {
         this.position = position;
     }
     
+    /**
+     * Get the row version, incremented on every change; clients send it back when moving the track.
+     * @return The version
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    /**
+     * Get the zero-based index of the track within its playlist.
+     * Serialised as "position" so clients keep seeing dense positions.
+     * @return The index, or null if the track has not been read as part of a playlist
+     */
+    @JsonProperty("position")
+    public Integer getIndex() {
+        return index;
+    }
+    
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+    
     @Override
     public String toString() {
         return "PlaylistTrack{" +
@@ -85,6 +136,7 @@ public class PlaylistTrack {
                 ", playlistId=" + (playlist != null ? playlist.getId() : null) +
                 ", trackId=" + (track != null ? track.getId() : null) +
                 ", position=" + position +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,81 @@
+package edu.cqu.coit13235.musicchat.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * SmartPlaylistMember entity recording that a track currently satisfies a smart playlist's rules.
+ * Rows are added and removed as tracks are uploaded, rated and favourited, so opening a smart
+ * playlist reads its members instead of re-evaluating the rules over every track.
+ */
+@Entity
+@Table(name = "smart_playlist_members",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"playlist_id", "track_id"}),
+       indexes = @Index(name = "idx_smart_playlist_members_track_id", columnList = "track_id"))
+public class SmartPlaylistMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "playlist_id", nullable = false)
+    private Long playlistId;
+
+    @Column(name = "track_id", nullable = false)
+    private Long trackId;
+
+    @Column(name = "added_at", nullable = false)
+    private LocalDateTime addedAt;
+
+    // Default constructor for JPA
+    protected SmartPlaylistMember() {}
+
+    public SmartPlaylistMember(Long playlistId, Long trackId) {
+        this.playlistId = playlistId;
+        this.trackId = trackId;
+        this.addedAt = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(Long playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public LocalDateTime getAddedAt() {
+        return addedAt;
+    }
+
+    public void setAddedAt(LocalDateTime addedAt) {
+        this.addedAt = addedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "SmartPlaylistMember{" +
+                "id=" + id +
+                ", playlistId=" + playlistId +
+                ", trackId=" + trackId +
+                ", addedAt=" + addedAt +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package edu.cqu.coit13235.musicchat.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * SmartPlaylistRule entity representing one condition of a smart playlist.
+ * A track belongs to a smart playlist when it satisfies every rule of that playlist.
+ */
+@Entity
+@Table(name = "smart_playlist_rules", indexes = {
+    @Index(name = "idx_smart_playlist_rules_playlist_id", columnList = "playlist_id"),
+    @Index(name = "idx_smart_playlist_rules_type", columnList = "rule_type")
+})
+public class SmartPlaylistRule {
+
+    /**
+     * The kinds of rule a smart playlist can combine.
+     */
+    public enum Type {
+        /** Artist contains the value, ignoring case. */
+        ARTIST,
+        /** Average rating is at least the value. */
+        MIN_AVERAGE_RATING,
+        /** The playlist owner has favourited the track; takes no value. */
+        FAVOURITED_BY_OWNER,
+        /** Uploaded no more than the value in days ago. */
+        UPLOADED_WITHIN_DAYS
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "playlist_id", nullable = false)
+    private Long playlistId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rule_type", nullable = false, length = 32)
+    private Type type;
+
+    @Column(name = "rule_value")
+    private String value;
+
+    // Default constructor for JPA
+    protected SmartPlaylistRule() {}
+
+    public SmartPlaylistRule(Long playlistId, Type type, String value) {
+        this.playlistId = playlistId;
+        this.type = type;
+        this.value = value;
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getPlaylistId() {
+        return playlistId;
+    }
+
+    public void setPlaylistId(Long playlistId) {
+        this.playlistId = playlistId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return "SmartPlaylistRule{" +
+                "id=" + id +
+                ", playlistId=" + playlistId +
+                ", type=" + type +
+                ", value='" + value + '\'' +
+                '}';
+    }
+}
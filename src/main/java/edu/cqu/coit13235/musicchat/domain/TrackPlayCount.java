@@ -0,0 +1,66 @@
+package edu.cqu.coit13235.musicchat.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * TrackPlayCount entity holding the running play count of a track.
+ * Incremented in batches by PlayTrackingService from its in-memory counters.
+ */
+@Entity
+@Table(name = "track_play_counts")
+public class TrackPlayCount {
+
+    @Id
+    @Column(name = "track_id")
+    private Long trackId;
+
+    @Column(name = "play_count", nullable = false)
+    private long playCount;
+
+    @Column(name = "last_played_at")
+    private LocalDateTime lastPlayedAt;
+
+    // Default constructor for JPA
+    protected TrackPlayCount() {}
+
+    public TrackPlayCount(Long trackId, long playCount, LocalDateTime lastPlayedAt) {
+        this.trackId = trackId;
+        this.playCount = playCount;
+        this.lastPlayedAt = lastPlayedAt;
+    }
+
+    // Getters and setters
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public long getPlayCount() {
+        return playCount;
+    }
+
+    public void setPlayCount(long playCount) {
+        this.playCount = playCount;
+    }
+
+    public LocalDateTime getLastPlayedAt() {
+        return lastPlayedAt;
+    }
+
+    public void setLastPlayedAt(LocalDateTime lastPlayedAt) {
+        this.lastPlayedAt = lastPlayedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TrackPlayCount{" +
+                "trackId=" + trackId +
+                ", playCount=" + playCount +
+                ", lastPlayedAt=" + lastPlayedAt +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package edu.cqu.coit13235.musicchat.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * TrendingScore entity holding a snapshot of a track's time-decayed trending score.
+ * The scores live in memory; these rows only let them survive a restart, decaying further
+ * from scoredAt when they are loaded.
+ */
+@Entity
+@Table(name = "trending_scores")
+public class TrendingScore {
+
+    @Id
+    @Column(name = "track_id")
+    private Long trackId;
+
+    @Column(name = "score", nullable = false)
+    private double score;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+
+    // Default constructor for JPA
+    protected TrendingScore() {}
+
+    public TrendingScore(Long trackId, double score, LocalDateTime scoredAt) {
+        this.trackId = trackId;
+        this.score = score;
+        this.scoredAt = scoredAt;
+    }
+
+    // Getters and setters
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public LocalDateTime getScoredAt() {
+        return scoredAt;
+    }
+
+    public void setScoredAt(LocalDateTime scoredAt) {
+        this.scoredAt = scoredAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendingScore{" +
+                "trackId=" + trackId +
+                ", score=" + score +
+                ", scoredAt=" + scoredAt +
+                '}';
+    }
+}
@@ -5,7 +5,8 @@ import jakarta.validation.constraints.Size;
 
 /**
  * DTO for chat message requests.
- * Only contains the message content - username is extracted from authentication.
+ * Contains the message content and, for replies, the ID of the message being answered.
+ * The username is extracted from authentication.
  */
 public class ChatMessageRequest {
     
@@ -13,6 +14,8 @@ public class ChatMessageRequest {
     @Size(max = 1000, message = "Message content cannot exceed 1000 characters")
     private String content;
     
+    private Long previousId;
+    
     public ChatMessageRequest() {}
     
     public ChatMessageRequest(String content) {
@@ -26,4 +29,12 @@ public class ChatMessageRequest {
     public void setContent(String content) {
         this.content = content;
     }
+    
+    public Long getPreviousId() {
+        return previousId;
+    }
+    
+    public void setPreviousId(Long previousId) {
+        this.previousId = previousId;
+    }
 }
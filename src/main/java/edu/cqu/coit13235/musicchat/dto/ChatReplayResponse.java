@@ -0,0 +1,45 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+
+import java.util.List;
+
+/**
+ * DTO sent privately to a reconnecting client with the messages it missed.
+ * Clients drop live messages with an ID at or below {@code lastId} once the replay arrives.
+ */
+public class ChatReplayResponse {
+
+    private final Long afterId;
+    private final Long lastId;
+    private final List<ChatMessage> messages;
+    private final boolean complete;
+
+    public ChatReplayResponse(Long afterId, List<ChatMessage> messages, boolean complete) {
+        this.afterId = afterId;
+        this.messages = messages;
+        this.lastId = messages.isEmpty() ? afterId : messages.get(messages.size() - 1).getId();
+        this.complete = complete;
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public List<ChatMessage> getMessages() {
+        return messages;
+    }
+
+    /**
+     * Whether the replay closed the whole gap.
+     * When false the client should join again with {@code lastId} to fetch the rest.
+     * @return true if no further messages are pending
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,56 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+
+import java.util.List;
+
+/**
+ * DTO for a page of ranked chat search results.
+ * Pass nextCursor back as the cursor parameter to fetch the following page; it is null on the last page.
+ */
+public class ChatSearchResponse {
+
+    private final String query;
+    private final List<Result> results;
+    private final String nextCursor;
+
+    public ChatSearchResponse(String query, List<Result> results, String nextCursor) {
+        this.query = query;
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * A matching message with its relevance score.
+     */
+    public static class Result {
+
+        private final ChatMessage message;
+        private final float score;
+
+        public Result(ChatMessage message, float score) {
+            this.message = message;
+            this.score = score;
+        }
+
+        public ChatMessage getMessage() {
+            return message;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+
+import java.util.List;
+
+/**
+ * DTO for a chat reply thread around one message.
+ * Ancestors run from the thread root down to the message's direct parent;
+ * replies are every message below it, in ID order.
+ */
+public class ChatThreadResponse {
+
+    private final ChatMessage message;
+    private final List<ChatMessage> ancestors;
+    private final List<ChatMessage> replies;
+
+    public ChatThreadResponse(ChatMessage message, List<ChatMessage> ancestors, List<ChatMessage> replies) {
+        this.message = message;
+        this.ancestors = ancestors;
+        this.replies = replies;
+    }
+
+    public ChatMessage getMessage() {
+        return message;
+    }
+
+    public List<ChatMessage> getAncestors() {
+        return ancestors;
+    }
+
+    public List<ChatMessage> getReplies() {
+        return replies;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import java.util.List;
+
+/**
+ * DTO summarising a bulk add of tracks to a playlist.
+ * Returned instead of the whole playlist so large adds stay cheap to serialise.
+ */
+public class PlaylistBulkAddResponse {
+
+    private final Long playlistId;
+    private final int requested;
+    private final List<Long> added;
+    private final List<Long> alreadyPresent;
+
+    public PlaylistBulkAddResponse(Long playlistId, int requested, List<Long> added, List<Long> alreadyPresent) {
+        this.playlistId = playlistId;
+        this.requested = requested;
+        this.added = added;
+        this.alreadyPresent = alreadyPresent;
+    }
+
+    public Long getPlaylistId() {
+        return playlistId;
+    }
+
+    public int getRequested() {
+        return requested;
+    }
+
+    public int getAddedCount() {
+        return added.size();
+    }
+
+    public List<Long> getAdded() {
+        return added;
+    }
+
+    public List<Long> getAlreadyPresent() {
+        return alreadyPresent;
+    }
+}
@@ -0,0 +1,71 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+/**
+ * DTO for a playlist edit sent by a collaborator over WebSocket.
+ * The type is "insert", "move" or "remove"; inserts and moves are placed relative to the
+ * "after" and/or "before" tracks. The client's own clientOpId is echoed in the result so it
+ * can match the broadcast operation to the edit it applied locally.
+ */
+public class PlaylistEditRequest {
+
+    private String type;
+    private Long trackId;
+    private Long after;
+    private Long before;
+    private Long version;
+    private String clientOpId;
+
+    public PlaylistEditRequest() {}
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public Long getAfter() {
+        return after;
+    }
+
+    public void setAfter(Long after) {
+        this.after = after;
+    }
+
+    public Long getBefore() {
+        return before;
+    }
+
+    public void setBefore(Long before) {
+        this.before = before;
+    }
+
+    /**
+     * Get the version of the moved entry the client last saw, or null to skip the check.
+     * @return The expected entry version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getClientOpId() {
+        return clientOpId;
+    }
+
+    public void setClientOpId(String clientOpId) {
+        this.clientOpId = clientOpId;
+    }
+}
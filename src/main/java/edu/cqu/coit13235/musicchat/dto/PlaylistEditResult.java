@@ -0,0 +1,54 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * DTO sent privately to the collaborator who submitted a playlist edit.
+ * An accepted edit reports the playlist version its broadcast operation carries;
+ * a rejected one reports why, and the client rolls back its local change.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlaylistEditResult {
+
+    private final String clientOpId;
+    private final boolean accepted;
+    private final Long version;
+    private final String error;
+    private final String message;
+
+    private PlaylistEditResult(String clientOpId, boolean accepted, Long version, String error, String message) {
+        this.clientOpId = clientOpId;
+        this.accepted = accepted;
+        this.version = version;
+        this.error = error;
+        this.message = message;
+    }
+
+    public static PlaylistEditResult accepted(String clientOpId, long version) {
+        return new PlaylistEditResult(clientOpId, true, version, null, null);
+    }
+
+    public static PlaylistEditResult rejected(String clientOpId, String error, String message) {
+        return new PlaylistEditResult(clientOpId, false, null, error, message);
+    }
+
+    public String getClientOpId() {
+        return clientOpId;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
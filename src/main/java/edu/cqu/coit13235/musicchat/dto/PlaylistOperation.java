@@ -0,0 +1,85 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
+
+import java.util.List;
+
+/**
+ * DTO broadcast on /topic/playlists/{id} for every committed edit of a playlist.
+ * Each operation carries the playlist version it produced; versions increase by one per edit,
+ * so clients apply operations in version order and reload only if one goes missing.
+ * "insert" and "move" carry the affected entries with their new zero-based positions,
+ * "remove" carries the removed track IDs and "update" the new name and description.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlaylistOperation {
+
+    public static final String TYPE_INSERT = "insert";
+    public static final String TYPE_MOVE = "move";
+    public static final String TYPE_REMOVE = "remove";
+    public static final String TYPE_UPDATE = "update";
+
+    private final String type;
+    private final Long playlistId;
+    private final long version;
+    private final List<PlaylistTrack> entries;
+    private final List<Long> trackIds;
+    private final String name;
+    private final String description;
+
+    private PlaylistOperation(String type, Long playlistId, long version, List<PlaylistTrack> entries,
+                              List<Long> trackIds, String name, String description) {
+        this.type = type;
+        this.playlistId = playlistId;
+        this.version = version;
+        this.entries = entries;
+        this.trackIds = trackIds;
+        this.name = name;
+        this.description = description;
+    }
+
+    public static PlaylistOperation insert(Long playlistId, long version, List<PlaylistTrack> entries) {
+        return new PlaylistOperation(TYPE_INSERT, playlistId, version, entries, null, null, null);
+    }
+
+    public static PlaylistOperation move(Long playlistId, long version, PlaylistTrack entry) {
+        return new PlaylistOperation(TYPE_MOVE, playlistId, version, List.of(entry), null, null, null);
+    }
+
+    public static PlaylistOperation remove(Long playlistId, long version, List<Long> trackIds) {
+        return new PlaylistOperation(TYPE_REMOVE, playlistId, version, null, trackIds, null, null);
+    }
+
+    public static PlaylistOperation update(Long playlistId, long version, String name, String description) {
+        return new PlaylistOperation(TYPE_UPDATE, playlistId, version, null, null, name, description);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getPlaylistId() {
+        return playlistId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<PlaylistTrack> getEntries() {
+        return entries;
+    }
+
+    public List<Long> getTrackIds() {
+        return trackIds;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,115 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * DTO describing a playlist in listings without its track contents.
+ * Carries the track count, total duration and size, read from the playlist's stored aggregates,
+ * and the first few tracks to show as a cover.
+ */
+public class PlaylistSummary {
+
+    private final Long id;
+    private final Long ownerId;
+    private final String name;
+    private final String description;
+    private final LocalDateTime createdAt;
+    private final Long trackListId;
+    private final long trackCount;
+    private final long totalDurationSeconds;
+    private final long totalBytes;
+    private List<CoverTrack> coverTracks = new ArrayList<>();
+
+    public PlaylistSummary(Long id, Long ownerId, String name, String description, LocalDateTime createdAt,
+                           Long trackListId, Long trackCount, Long totalDurationSeconds, Long totalBytes) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.name = name;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.trackListId = trackListId;
+        this.trackCount = (trackCount != null) ? trackCount : 0L;
+        this.totalDurationSeconds = (totalDurationSeconds != null) ? totalDurationSeconds : 0L;
+        this.totalBytes = (totalBytes != null) ? totalBytes : 0L;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Get the ID of the playlist whose rows hold this playlist's tracks: its own, or its source while an unmodified fork.
+     * @return The track list's playlist ID
+     */
+    @JsonIgnore
+    public Long getTrackListId() {
+        return trackListId;
+    }
+
+    public long getTrackCount() {
+        return trackCount;
+    }
+
+    public long getTotalDurationSeconds() {
+        return totalDurationSeconds;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public List<CoverTrack> getCoverTracks() {
+        return coverTracks;
+    }
+
+    public void setCoverTracks(List<CoverTrack> coverTracks) {
+        this.coverTracks = coverTracks;
+    }
+
+    /**
+     * One of the leading tracks of a playlist, shown on its card.
+     */
+    public static class CoverTrack {
+        private final Long id;
+        private final String title;
+        private final String artist;
+
+        public CoverTrack(Long id, String title, String artist) {
+            this.id = id;
+            this.title = title;
+            this.artist = artist;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getArtist() {
+            return artist;
+        }
+    }
+}
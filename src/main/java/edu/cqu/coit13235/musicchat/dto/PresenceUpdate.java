@@ -0,0 +1,65 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * DTO broadcast on /topic/presence.{room}.
+ * A "diff" lists only the users who joined or left since the previous sequence number;
+ * a "snapshot" carries the full online list and lets clients resynchronise after a gap.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PresenceUpdate {
+
+    public static final String TYPE_DIFF = "diff";
+    public static final String TYPE_SNAPSHOT = "snapshot";
+
+    private final String type;
+    private final String room;
+    private final long seq;
+    private final List<String> joined;
+    private final List<String> left;
+    private final List<String> users;
+
+    private PresenceUpdate(String type, String room, long seq, List<String> joined, List<String> left, List<String> users) {
+        this.type = type;
+        this.room = room;
+        this.seq = seq;
+        this.joined = joined;
+        this.left = left;
+        this.users = users;
+    }
+
+    public static PresenceUpdate diff(String room, long seq, List<String> joined, List<String> left) {
+        return new PresenceUpdate(TYPE_DIFF, room, seq, joined, left, null);
+    }
+
+    public static PresenceUpdate snapshot(String room, long seq, List<String> users) {
+        return new PresenceUpdate(TYPE_SNAPSHOT, room, seq, null, null, users);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getRoom() {
+        return room;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public List<String> getJoined() {
+        return joined;
+    }
+
+    public List<String> getLeft() {
+        return left;
+    }
+
+    public List<String> getUsers() {
+        return users;
+    }
+}
@@ -0,0 +1,28 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+
+/**
+ * DTO for a track's place on a leaderboard.
+ */
+public class RankedTrack {
+
+    private final AudioTrack track;
+    private final double score;
+
+    public RankedTrack(AudioTrack track, double score) {
+        this.track = track;
+        this.score = score;
+    }
+
+    public AudioTrack getTrack() {
+        return track;
+    }
+
+    /**
+     * @return The leaderboard's score: decayed activity for trending, Bayesian average for top rated
+     */
+    public double getScore() {
+        return score;
+    }
+}
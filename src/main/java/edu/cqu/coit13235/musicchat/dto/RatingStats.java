@@ -0,0 +1,72 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DTO for a track's rating statistics: how many ratings of each value (1-5) it has,
+ * their average, and its Bayesian-adjusted score for ranking.
+ */
+public class RatingStats {
+
+    private final Long trackId;
+    private final long[] histogram;
+    private final long ratingCount;
+    private final Double averageRating;
+    private final double bayesianScore;
+
+    /**
+     * @param trackId The track ID
+     * @param histogram Number of ratings of each value; index 0 holds the 1-star count
+     * @param bayesianScore The track's Bayesian-adjusted score
+     */
+    public RatingStats(Long trackId, long[] histogram, double bayesianScore) {
+        if (histogram.length != 5) {
+            throw new IllegalArgumentException("Histogram must have one count per rating value (1-5)");
+        }
+        this.trackId = trackId;
+        this.histogram = histogram.clone();
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            count += histogram[i];
+            sum += histogram[i] * (i + 1);
+        }
+        this.ratingCount = count;
+        this.averageRating = count > 0 ? Math.round(sum * 100.0 / count) / 100.0 : null; // Round to 2 decimal places
+        this.bayesianScore = bayesianScore;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    /**
+     * @return Number of ratings of each value, keyed 1 to 5
+     */
+    public Map<Integer, Long> getHistogram() {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < histogram.length; i++) {
+            counts.put(i + 1, histogram[i]);
+        }
+        return counts;
+    }
+
+    public long getRatingCount() {
+        return ratingCount;
+    }
+
+    /**
+     * @return The average rating to 2 decimal places, or null if there are no ratings
+     */
+    public Double getAverageRating() {
+        return averageRating;
+    }
+
+    /**
+     * @return The average pulled towards the mean of all ratings, less so the more ratings the track has
+     */
+    public double getBayesianScore() {
+        return bayesianScore;
+    }
+}
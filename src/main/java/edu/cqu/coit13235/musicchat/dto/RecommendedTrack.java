@@ -0,0 +1,29 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+
+/**
+ * DTO for a track recommended to a user.
+ */
+public class RecommendedTrack {
+
+    private final AudioTrack track;
+    private final double score;
+
+    public RecommendedTrack(AudioTrack track, double score) {
+        this.track = track;
+        this.score = score;
+    }
+
+    public AudioTrack getTrack() {
+        return track;
+    }
+
+    /**
+     * @return Sum over the user's rated and favourited tracks of their strength times their
+     * similarity to this track; only comparable between one user's recommendations
+     */
+    public double getScore() {
+        return score;
+    }
+}
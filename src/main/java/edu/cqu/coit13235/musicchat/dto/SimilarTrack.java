@@ -0,0 +1,37 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+
+/**
+ * DTO for a track often found in the same playlists as another one.
+ */
+public class SimilarTrack {
+
+    private final AudioTrack track;
+    private final double score;
+    private final int sharedPlaylists;
+
+    public SimilarTrack(AudioTrack track, double score, int sharedPlaylists) {
+        this.track = track;
+        this.score = score;
+        this.sharedPlaylists = sharedPlaylists;
+    }
+
+    public AudioTrack getTrack() {
+        return track;
+    }
+
+    /**
+     * @return Cosine similarity of the two tracks' playlist memberships, between 0 and 1
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return Number of playlists holding both tracks
+     */
+    public int getSharedPlaylists() {
+        return sharedPlaylists;
+    }
+}
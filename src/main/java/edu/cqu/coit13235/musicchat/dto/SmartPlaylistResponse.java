@@ -0,0 +1,58 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistRule;
+
+import java.util.List;
+
+/**
+ * DTO for a smart playlist: its details, the rules that define it and the tracks
+ * currently satisfying them.
+ */
+public class SmartPlaylistResponse {
+
+    private final Long id;
+    private final Long ownerId;
+    private final String name;
+    private final String description;
+    private final List<SmartPlaylistRule> rules;
+    private final List<AudioTrack> tracks;
+
+    public SmartPlaylistResponse(Long id, Long ownerId, String name, String description,
+                                 List<SmartPlaylistRule> rules, List<AudioTrack> tracks) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.name = name;
+        this.description = description;
+        this.rules = rules;
+        this.tracks = tracks;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<SmartPlaylistRule> getRules() {
+        return rules;
+    }
+
+    public int getTrackCount() {
+        return tracks.size();
+    }
+
+    public List<AudioTrack> getTracks() {
+        return tracks;
+    }
+}
@@ -0,0 +1,32 @@
+package edu.cqu.coit13235.musicchat.dto;
+
+/**
+ * DTO for whether a user has favourited and rated a track.
+ */
+public class TrackReactionState {
+
+    private final Long trackId;
+    private final boolean favourited;
+    private final Integer rating;
+
+    public TrackReactionState(Long trackId, boolean favourited, Integer rating) {
+        this.trackId = trackId;
+        this.favourited = favourited;
+        this.rating = rating;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public boolean isFavourited() {
+        return favourited;
+    }
+
+    /**
+     * @return The user's rating value (1-5), or null if they have not rated the track
+     */
+    public Integer getRating() {
+        return rating;
+    }
+}
@@ -1,5 +1,7 @@
 package edu.cqu.coit13235.musicchat.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -90,4 +92,45 @@ public interface AudioTrackRepository extends JpaRepository<AudioTrack, Long> {
      */
     @Query("SELECT at FROM AudioTrack at WHERE DATE(at.uploadedAt) = DATE(:uploadedAt) ORDER BY at.uploadedAt DESC")
     List<AudioTrack> findByUploadedAtDate(java.time.LocalDateTime uploadedAt);
+    
+    /**
+     * Find which of the given IDs belong to existing tracks, without loading the tracks.
+     * @param ids The candidate track IDs
+     * @return The IDs that exist
+     */
+    @Query("SELECT at.id FROM AudioTrack at WHERE at.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+    
+    /**
+     * Find the IDs of tracks whose artist contains the given text (case-insensitive).
+     * @param artist The artist text to search for
+     * @return IDs of the matching tracks
+     */
+    @Query("SELECT at.id FROM AudioTrack at WHERE LOWER(at.artist) LIKE LOWER(CONCAT('%', :artist, '%'))")
+    List<Long> findIdsByArtistContainingIgnoreCase(String artist);
+    
+    /**
+     * Find the IDs of tracks uploaded at or after the given time.
+     * @param since Earliest upload time to include
+     * @return IDs of the matching tracks
+     */
+    @Query("SELECT at.id FROM AudioTrack at WHERE at.uploadedAt >= :since")
+    List<Long> findIdsUploadedSince(LocalDateTime since);
+    
+    /**
+     * Total the tracks with the given IDs.
+     * @param ids The track IDs
+     * @return A single row of {track count, total duration in seconds, total size in bytes}
+     */
+    @Query("SELECT COUNT(at), COALESCE(SUM(at.duration), 0), COALESCE(SUM(at.fileSizeBytes), 0) "
+        + "FROM AudioTrack at WHERE at.id IN :ids")
+    List<Object[]> sumByIds(Collection<Long> ids);
+    
+    /**
+     * Lock a track row until the transaction ends, without loading the track.
+     * @param id The track ID
+     * @return The ID if the track exists
+     */
+    @Query(value = "SELECT id FROM audio_tracks WHERE id = :id FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdById(Long id);
 }
@@ -1,8 +1,10 @@
 package edu.cqu.coit13235.musicchat.repository;
 
 import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -36,6 +38,77 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
      */
     List<ChatMessage> findBySenderOrderByTimestampAsc(String sender);
     
+    /**
+     * Find messages with an ID greater than the given one, oldest first.
+     * Uses the primary key index so the cost is proportional to the gap, not the history.
+     * @param id The last message ID already seen
+     * @param pageable Page limiting how many messages are returned
+     * @return List of newer messages in ID order
+     */
+    List<ChatMessage> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    /**
+     * Find the whole reply thread around a message in one round trip (PostgreSQL).
+     * Walks previous_id up to the root and down through every reply with recursive CTEs;
+     * UNION rather than UNION ALL stops the recursion if a chain ever loops.
+     * @param id The message ID
+     * @return The message, its ancestors and its descendants in ID order
+     */
+    @Query(value = "WITH RECURSIVE ancestors AS ("
+            + " SELECT * FROM chat_messages WHERE id = :id"
+            + " UNION SELECT m.* FROM chat_messages m JOIN ancestors a ON m.id = a.previous_id"
+            + "), descendants AS ("
+            + " SELECT * FROM chat_messages WHERE id = :id"
+            + " UNION SELECT m.* FROM chat_messages m JOIN descendants d ON m.previous_id = d.id"
+            + ") SELECT * FROM ancestors UNION SELECT * FROM descendants ORDER BY id",
+            nativeQuery = true)
+    List<ChatMessage> findThread(@Param("id") Long id);
+    
+    /**
+     * Find every reply edge, used to build the in-memory thread index.
+     * @return Pairs of {id, previousId} for messages that reply to another
+     */
+    @Query("SELECT cm.id, cm.previousId FROM ChatMessage cm WHERE cm.previousId IS NOT NULL")
+    List<Object[]> findReplyEdges();
+    
+    /**
+     * Find every message ID and text, used to build the in-memory search index.
+     * @return Pairs of {id, text}
+     */
+    @Query("SELECT cm.id, cm.text FROM ChatMessage cm")
+    List<Object[]> findAllIdAndText();
+    
+    /**
+     * Full-text search over the generated search_vector column (PostgreSQL, GIN indexed).
+     * @param query Free-text query in web search syntax
+     * @param limit Maximum number of hits
+     * @return Pairs of {id, rank}, best rank first, ties broken by newest ID
+     */
+    @Query(value = "SELECT hits.id, hits.rank FROM ("
+            + " SELECT m.id AS id, ts_rank(m.search_vector, websearch_to_tsquery('english', :query)) AS rank"
+            + " FROM chat_messages m WHERE m.search_vector @@ websearch_to_tsquery('english', :query)"
+            + ") hits ORDER BY hits.rank DESC, hits.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> searchFullText(@Param("query") String query, @Param("limit") int limit);
+    
+    /**
+     * Next page of a full-text search, continuing after the (rank, id) of the previous page's last hit.
+     * @param query Free-text query in web search syntax
+     * @param afterRank Rank of the last hit already returned
+     * @param afterId ID of the last hit already returned
+     * @param limit Maximum number of hits
+     * @return Pairs of {id, rank}, best rank first, ties broken by newest ID
+     */
+    @Query(value = "SELECT hits.id, hits.rank FROM ("
+            + " SELECT m.id AS id, ts_rank(m.search_vector, websearch_to_tsquery('english', :query)) AS rank"
+            + " FROM chat_messages m WHERE m.search_vector @@ websearch_to_tsquery('english', :query)"
+            + ") hits WHERE hits.rank < CAST(:afterRank AS real)"
+            + " OR (hits.rank = CAST(:afterRank AS real) AND hits.id < :afterId)"
+            + " ORDER BY hits.rank DESC, hits.id DESC LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> searchFullTextAfter(@Param("query") String query, @Param("afterRank") float afterRank,
+                                       @Param("afterId") long afterId, @Param("limit") int limit);
+    
     /**
      * Count total number of messages.
      * @return Total count of messages
@@ -2,8 +2,13 @@ package edu.cqu.coit13235.musicchat.repository;
 
 import edu.cqu.coit13235.musicchat.domain.Favourite;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,7 +17,7 @@ import java.util.Optional;
  * Provides methods for favourite data access and management.
  */
 @Repository
-public interface FavouriteRepository extends JpaRepository<Favourite, Long> {
+public interface FavouriteRepository extends JpaRepository<Favourite, Long>, FavouriteRepositoryCustom {
     
     /**
      * Find a favourite by user ID and track ID.
@@ -55,4 +60,66 @@ public interface FavouriteRepository extends JpaRepository<Favourite, Long> {
      * @return number of favourites
      */
     Long countByTrackId(Long trackId);
+    
+    /**
+     * Find the IDs of the tracks a user has favourited.
+     * @param userId The user ID
+     * @return IDs of the user's favourite tracks
+     */
+    @Query("SELECT f.trackId FROM Favourite f WHERE f.userId = :userId")
+    List<Long> findTrackIdsByUserId(Long userId);
+    
+    /**
+     * Find every favourite of a track that still exists.
+     * @return [userId, trackId] pairs
+     */
+    @Query("SELECT f.userId, f.trackId FROM Favourite f WHERE f.trackId IN (SELECT t.id FROM AudioTrack t)")
+    List<Object[]> findAllUserTrackPairs();
+    
+    /**
+     * Find the favourites of any of several users among any of several tracks, in one query.
+     * @param userIds The user IDs
+     * @param trackIds The track IDs
+     * @return [userId, trackId] pairs
+     */
+    @Query("SELECT f.userId, f.trackId FROM Favourite f WHERE f.userId IN :userIds AND f.trackId IN :trackIds")
+    List<Object[]> findUserTrackPairsByUserIdsAndTrackIds(@Param("userIds") Collection<Long> userIds,
+                                                          @Param("trackIds") Collection<Long> trackIds);
+    
+    /**
+     * Favourite a track unless it already is, in one statement (H2 MERGE).
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param createdAt the time of the new favourite
+     * @return 1 if a favourite was inserted, 0 if one already existed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "MERGE INTO favourites f USING (VALUES (CAST(:userId AS BIGINT), CAST(:trackId AS BIGINT))) AS v(user_id, track_id) "
+        + "ON f.user_id = v.user_id AND f.track_id = v.track_id "
+        + "WHEN NOT MATCHED THEN INSERT (user_id, track_id, created_at) VALUES (v.user_id, v.track_id, :createdAt)",
+        nativeQuery = true)
+    int insertIfAbsentMerge(Long userId, Long trackId, LocalDateTime createdAt);
+    
+    /**
+     * Favourite a track unless it already is, in one statement (PostgreSQL INSERT ... ON CONFLICT).
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param createdAt the time of the new favourite
+     * @return 1 if a favourite was inserted, 0 if one already existed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO favourites (user_id, track_id, created_at) VALUES (:userId, :trackId, :createdAt) "
+        + "ON CONFLICT (user_id, track_id) DO NOTHING",
+        nativeQuery = true)
+    int insertIfAbsentOnConflict(Long userId, Long trackId, LocalDateTime createdAt);
+    
+    /**
+     * Delete a user's favourite for a track without loading it.
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @return 1 if a favourite was deleted, 0 if there was none
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Favourite f WHERE f.userId = :userId AND f.trackId = :trackId")
+    int deleteByUserIdAndTrackIdInBulk(Long userId, Long trackId);
 }
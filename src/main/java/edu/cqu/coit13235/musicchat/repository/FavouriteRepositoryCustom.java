@@ -0,0 +1,26 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.util.List;
+
+/**
+ * Custom bulk operations for Favourite that Spring Data cannot derive.
+ */
+public interface FavouriteRepositoryCustom {
+    
+    /**
+     * Add many favourites in a single JDBC batch, skipping those that already exist.
+     * @param userIds User of each favourite
+     * @param trackIds Track of each favourite, parallel to userIds
+     * @param onConflict true for INSERT ... ON CONFLICT (PostgreSQL), false for MERGE (H2)
+     * @return Rows inserted by each statement (0 where the favourite already existed)
+     */
+    int[] batchInsertIfAbsent(List<Long> userIds, List<Long> trackIds, boolean onConflict);
+    
+    /**
+     * Delete many favourites in a single JDBC batch.
+     * @param userIds User of each favourite
+     * @param trackIds Track of each favourite, parallel to userIds
+     * @return Rows deleted by each statement (0 where there was no favourite)
+     */
+    int[] batchDelete(List<Long> userIds, List<Long> trackIds);
+}
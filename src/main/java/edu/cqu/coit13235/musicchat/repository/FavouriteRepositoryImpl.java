@@ -0,0 +1,67 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of the bulk Favourite operations.
+ * Used to flush buffered favourite writes as one batch per statement type.
+ */
+public class FavouriteRepositoryImpl implements FavouriteRepositoryCustom {
+    
+    private static final String MERGE_SQL =
+        "MERGE INTO favourites f USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP))) "
+            + "AS v(user_id, track_id, ts) ON f.user_id = v.user_id AND f.track_id = v.track_id "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, track_id, created_at) VALUES (v.user_id, v.track_id, v.ts)";
+    
+    private static final String ON_CONFLICT_SQL =
+        "INSERT INTO favourites (user_id, track_id, created_at) VALUES (?, ?, ?) "
+            + "ON CONFLICT (user_id, track_id) DO NOTHING";
+    
+    private static final String DELETE_SQL =
+        "DELETE FROM favourites WHERE user_id = ? AND track_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public FavouriteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public int[] batchInsertIfAbsent(List<Long> userIds, List<Long> trackIds, boolean onConflict) {
+        if (userIds.size() != trackIds.size()) {
+            throw new IllegalArgumentException("Each favourite needs a user and a track");
+        }
+        if (userIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(new Object[]{userIds.get(i), trackIds.get(i), now});
+        }
+        return jdbcTemplate.batchUpdate(onConflict ? ON_CONFLICT_SQL : MERGE_SQL, rows);
+    }
+    
+    @Override
+    public int[] batchDelete(List<Long> userIds, List<Long> trackIds) {
+        if (userIds.size() != trackIds.size()) {
+            throw new IllegalArgumentException("Each favourite needs a user and a track");
+        }
+        if (userIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(new Object[]{userIds.get(i), trackIds.get(i)});
+        }
+        return jdbcTemplate.batchUpdate(DELETE_SQL, rows);
+    }
+}
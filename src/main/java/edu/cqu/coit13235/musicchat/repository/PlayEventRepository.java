@@ -0,0 +1,24 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import edu.cqu.coit13235.musicchat.domain.PlayEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for PlayEvent entity.
+ * Provides a user's listening history, newest first.
+ */
+@Repository
+public interface PlayEventRepository extends JpaRepository<PlayEvent, Long>, PlayEventRepositoryCustom {
+    
+    /**
+     * Find a user's most recent plays.
+     * @param userId the user ID
+     * @param pageable how many plays to return
+     * @return the user's plays, newest first
+     */
+    List<PlayEvent> findByUserIdOrderByPlayedAtDescIdDesc(Long userId, Pageable pageable);
+}
@@ -0,0 +1,19 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Custom bulk operations for PlayEvent that Spring Data cannot derive.
+ */
+public interface PlayEventRepositoryCustom {
+    
+    /**
+     * Insert many plays in a single JDBC batch.
+     * @param userIds User of each play
+     * @param trackIds Track of each play, parallel to userIds
+     * @param playedAts Time of each play, parallel to userIds
+     * @return Rows inserted by each statement
+     */
+    int[] batchInsert(List<Long> userIds, List<Long> trackIds, List<LocalDateTime> playedAts);
+}
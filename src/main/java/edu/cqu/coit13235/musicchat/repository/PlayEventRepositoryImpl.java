@@ -0,0 +1,42 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of the bulk PlayEvent operations.
+ * Used to flush queued plays as one batch.
+ */
+public class PlayEventRepositoryImpl implements PlayEventRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO play_events (user_id, track_id, played_at) VALUES (?, ?, ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public PlayEventRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public int[] batchInsert(List<Long> userIds, List<Long> trackIds, List<LocalDateTime> playedAts) {
+        if (userIds.size() != trackIds.size() || userIds.size() != playedAts.size()) {
+            throw new IllegalArgumentException("Each play needs a user, a track and a time");
+        }
+        if (userIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(new Object[]{userIds.get(i), trackIds.get(i), Timestamp.valueOf(playedAts.get(i))});
+        }
+        return jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+}
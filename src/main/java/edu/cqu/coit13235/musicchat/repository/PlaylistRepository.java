@@ -3,11 +3,17 @@ package edu.cqu.coit13235.musicchat.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import edu.cqu.coit13235.musicchat.domain.Playlist;
+import edu.cqu.coit13235.musicchat.dto.PlaylistSummary;
 
 /**
  * Repository interface for Playlist entity.
@@ -16,6 +22,12 @@ import edu.cqu.coit13235.musicchat.domain.Playlist;
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     
+    String SUMMARY_SELECT = "SELECT new edu.cqu.coit13235.musicchat.dto.PlaylistSummary("
+        + "p.id, p.ownerId, p.name, p.description, p.createdAt, COALESCE(p.trackSourceId, p.id), "
+        + "p.trackCount, p.totalDurationSeconds, p.totalBytes) FROM Playlist p ";
+    
+    String SUMMARY_ORDER = "ORDER BY p.createdAt DESC";
+    
     /**
      * Find playlists by owner ID.
      * @param ownerId The owner's ID
@@ -46,6 +58,154 @@ public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     @Query("SELECT p FROM Playlist p ORDER BY p.createdAt DESC")
     List<Playlist> findAllOrderByCreatedAtDesc();
     
+    /**
+     * Summarise playlists by owner without loading their tracks.
+     * @param ownerId The owner's ID
+     * @return Summaries of the owner's playlists, newest first
+     */
+    @Query(SUMMARY_SELECT + "WHERE p.ownerId = :ownerId " + SUMMARY_ORDER)
+    List<PlaylistSummary> findSummariesByOwnerId(Long ownerId);
+    
+    /**
+     * Summarise all playlists without loading their tracks.
+     * @return Summaries of all playlists, newest first
+     */
+    @Query(SUMMARY_SELECT + SUMMARY_ORDER)
+    List<PlaylistSummary> findAllSummaries();
+    
+    /**
+     * Summarise playlists whose name contains the given text (case-insensitive).
+     * @param name The name text to search for
+     * @return Summaries of the matching playlists, newest first
+     */
+    @Query(SUMMARY_SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) " + SUMMARY_ORDER)
+    List<PlaylistSummary> findSummariesByNameContainingIgnoreCase(String name);
+    
+    /**
+     * Bump a playlist's version ahead of an edit. The row stays locked until the transaction ends,
+     * so concurrent edits of the same playlist are applied one after another.
+     * @param playlistId The playlist ID
+     * @return Number of playlists updated, 0 if it does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET p.version = p.version + 1 WHERE p.id = :playlistId")
+    int incrementVersion(Long playlistId);
+    
+    /**
+     * Read a playlist's current version without loading it.
+     * @param playlistId The playlist ID
+     * @return The version, or null if the playlist does not exist
+     */
+    @Query("SELECT p.version FROM Playlist p WHERE p.id = :playlistId")
+    Long findVersionById(Long playlistId);
+    
+    /**
+     * Adjust a playlist's stored aggregates after tracks were added (positive deltas) or removed (negative).
+     * @param playlistId The playlist ID
+     * @param tracks Change in the number of tracks
+     * @param durationSeconds Change in the total duration
+     * @param bytes Change in the total size
+     * @return Number of playlists updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET p.trackCount = p.trackCount + :tracks, "
+        + "p.totalDurationSeconds = p.totalDurationSeconds + :durationSeconds, p.totalBytes = p.totalBytes + :bytes "
+        + "WHERE p.id = :playlistId")
+    int adjustAggregates(Long playlistId, long tracks, long durationSeconds, long bytes);
+    
+    /**
+     * Take a track out of the aggregates of every playlist containing it, forks sharing its rows included.
+     * @param trackId The ID of the audio track being deleted
+     * @param durationSeconds The track's duration
+     * @param bytes The track's size
+     * @return Number of playlists updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET p.trackCount = p.trackCount - 1, "
+        + "p.totalDurationSeconds = p.totalDurationSeconds - :durationSeconds, p.totalBytes = p.totalBytes - :bytes "
+        + "WHERE COALESCE(p.trackSourceId, p.id) IN "
+        + "(SELECT pt.playlist.id FROM PlaylistTrack pt WHERE pt.track.id = :trackId)")
+    int removeTrackFromAggregates(Long trackId, long durationSeconds, long bytes);
+    
+    /**
+     * Recompute the aggregates of playlists that have tracks but a zero track count,
+     * as playlists created before the aggregates were stored do.
+     * @return Number of playlists updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET "
+        + "p.trackCount = (SELECT COUNT(pt) FROM PlaylistTrack pt WHERE pt.playlist.id = COALESCE(p.trackSourceId, p.id)), "
+        + "p.totalDurationSeconds = (SELECT COALESCE(SUM(t.duration), 0) FROM PlaylistTrack pt JOIN pt.track t "
+        + "WHERE pt.playlist.id = COALESCE(p.trackSourceId, p.id)), "
+        + "p.totalBytes = (SELECT COALESCE(SUM(t.fileSizeBytes), 0) FROM PlaylistTrack pt JOIN pt.track t "
+        + "WHERE pt.playlist.id = COALESCE(p.trackSourceId, p.id)) "
+        + "WHERE p.trackCount = 0 AND EXISTS "
+        + "(SELECT 1 FROM PlaylistTrack x WHERE x.playlist.id = COALESCE(p.trackSourceId, p.id))")
+    int backfillMissingAggregates();
+    
+    /**
+     * Lock a playlist row until the transaction ends.
+     * @param id The playlist ID
+     * @return The locked playlist, if it exists
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Playlist p WHERE p.id = :id")
+    Optional<Playlist> findAndLockById(Long id);
+    
+    /**
+     * Find the playlist whose track rows a fork is still reading.
+     * @param playlistId The playlist ID
+     * @return The source's ID, or null if the playlist has its own tracks or does not exist
+     */
+    @Query("SELECT p.trackSourceId FROM Playlist p WHERE p.id = :playlistId")
+    Long findTrackSourceIdById(Long playlistId);
+    
+    /**
+     * Read whether a playlist is a smart playlist without loading it.
+     * @param playlistId The playlist ID
+     * @return true if it is smart, false if not, or null if the playlist does not exist
+     */
+    @Query("SELECT p.smart FROM Playlist p WHERE p.id = :playlistId")
+    Boolean findSmartById(Long playlistId);
+    
+    /**
+     * Find the forks still reading a playlist's track rows.
+     * @param sourceId The source playlist ID
+     * @param pageable How many forks to return
+     * @return IDs of the sharing forks, oldest first
+     */
+    @Query("SELECT p.id FROM Playlist p WHERE p.trackSourceId = :sourceId ORDER BY p.id")
+    List<Long> findSharingPlaylistIds(Long sourceId, Pageable pageable);
+    
+    /**
+     * Stop a fork sharing its source's track rows, if it still shares them with the given source.
+     * @param playlistId The fork's ID
+     * @param sourceId The source it is expected to share with
+     * @return Number of playlists updated, 0 if the fork no longer shares that source
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET p.trackSourceId = NULL WHERE p.id = :playlistId AND p.trackSourceId = :sourceId")
+    int detachTrackSource(Long playlistId, Long sourceId);
+    
+    /**
+     * Point every fork sharing one playlist's track rows at another playlist holding the same rows.
+     * @param fromSourceId The current source
+     * @param toSourceId The new source
+     * @return Number of forks updated
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Playlist p SET p.trackSourceId = :toSourceId WHERE p.trackSourceId = :fromSourceId")
+    int moveTrackSource(Long fromSourceId, Long toSourceId);
+    
+    /**
+     * Delete a playlist row without loading it or cascading to its tracks; delete those first.
+     * @param playlistId The playlist ID
+     * @return Number of playlists deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Playlist p WHERE p.id = :playlistId")
+    int deleteByIdInBulk(Long playlistId);
+    
     /**
      * Count total number of playlists.
      * @return Total count of playlists
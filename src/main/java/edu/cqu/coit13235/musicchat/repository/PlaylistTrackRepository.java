@@ -1,8 +1,11 @@
 package edu.cqu.coit13235.musicchat.repository;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -13,16 +16,50 @@ import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
  * Provides data access methods for playlist-track relationships.
  */
 @Repository
-public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, Long> {
+public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, Long>, PlaylistTrackRepositoryCustom {
     
     /**
      * Find all tracks in a playlist ordered by position.
      * @param playlistId The playlist ID
      * @return List of playlist tracks ordered by position
      */
-    @Query("SELECT pt FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId ORDER BY pt.position ASC")
+    @Query("SELECT pt FROM PlaylistTrack pt JOIN FETCH pt.track t JOIN FETCH t.user "
+        + "WHERE pt.playlist.id = :playlistId ORDER BY pt.position ASC, pt.id ASC")
     List<PlaylistTrack> findByPlaylistIdOrderByPosition(Long playlistId);
     
+    /**
+     * Find all tracks of several playlists in one query, grouped by playlist and ordered by position.
+     * @param playlistIds The playlist IDs
+     * @return List of playlist tracks ordered by playlist, then position
+     */
+    @Query("SELECT pt FROM PlaylistTrack pt JOIN FETCH pt.track t JOIN FETCH t.user "
+        + "WHERE pt.playlist.id IN :playlistIds ORDER BY pt.playlist.id ASC, pt.position ASC, pt.id ASC")
+    List<PlaylistTrack> findByPlaylistIdsOrderByPosition(Collection<Long> playlistIds);
+    
+    /**
+     * Find a page of a playlist's tracks with their audio tracks and uploaders, in one query.
+     * @param playlistId The playlist ID
+     * @param pageable The page to read; its sort is ignored
+     * @return The playlist tracks on the page, ordered by position
+     */
+    @Query("SELECT pt FROM PlaylistTrack pt JOIN FETCH pt.track t JOIN FETCH t.user "
+        + "WHERE pt.playlist.id = :playlistId ORDER BY pt.position ASC, pt.id ASC")
+    List<PlaylistTrack> findPageByPlaylistId(Long playlistId, Pageable pageable);
+    
+    /**
+     * Find the first few tracks of each of the given playlists.
+     * @param playlistIds The playlist IDs
+     * @param limit Maximum number of tracks per playlist
+     * @return Rows of {playlistId, trackId, title, artist}, ordered by playlist then position
+     */
+    @Query(value = "SELECT ranked.playlist_id, ranked.track_id, ranked.title, ranked.artist FROM ("
+        + "SELECT pt.playlist_id, t.id AS track_id, t.title, t.artist, "
+        + "ROW_NUMBER() OVER (PARTITION BY pt.playlist_id ORDER BY pt.position, pt.id) AS rn "
+        + "FROM playlist_tracks pt JOIN audio_tracks t ON t.id = pt.track_id "
+        + "WHERE pt.playlist_id IN (:playlistIds)) ranked "
+        + "WHERE ranked.rn <= :limit ORDER BY ranked.playlist_id, ranked.rn", nativeQuery = true)
+    List<Object[]> findLeadingTracks(Collection<Long> playlistIds, int limit);
+    
     /**
      * Find playlist tracks by playlist ID.
      * @param playlistId The playlist ID
@@ -46,10 +83,42 @@ public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, Lo
     List<PlaylistTrack> findByPlaylistIdAndTrackId(Long playlistId, Long trackId);
     
     /**
-     * Delete all tracks from a playlist.
+     * Find the entries of the given tracks in a playlist, with their audio tracks and uploaders.
+     * @param playlistId The playlist ID
+     * @param trackIds The track IDs
+     * @return The matching playlist tracks ordered by position
+     */
+    @Query("SELECT pt FROM PlaylistTrack pt JOIN FETCH pt.track t JOIN FETCH t.user "
+        + "WHERE pt.playlist.id = :playlistId AND t.id IN :trackIds ORDER BY pt.position ASC, pt.id ASC")
+    List<PlaylistTrack> findByPlaylistIdAndTrackIdIn(Long playlistId, Collection<Long> trackIds);
+    
+    /**
+     * Find which of the given tracks are already in a playlist.
+     * @param playlistId The playlist ID
+     * @param trackIds The candidate track IDs
+     * @return IDs of the candidates already present in the playlist
+     */
+    @Query("SELECT pt.track.id FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND pt.track.id IN :trackIds")
+    List<Long> findTrackIdsInPlaylist(Long playlistId, Collection<Long> trackIds);
+    
+    /**
+     * Delete all tracks from a playlist in one statement, without loading them.
      * @param playlistId The playlist ID
+     * @return Number of rows deleted
      */
-    void deleteByPlaylistId(Long playlistId);
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId")
+    int deleteByPlaylistId(Long playlistId);
+    
+    /**
+     * Delete the given tracks from a playlist in one statement, without loading them.
+     * @param playlistId The playlist ID
+     * @param trackIds IDs of the audio tracks to remove
+     * @return Number of rows deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND pt.track.id IN :trackIds")
+    int deleteByPlaylistIdAndTrackIdIn(Long playlistId, Collection<Long> trackIds);
     
     /**
      * Count tracks in a playlist.
@@ -58,6 +127,45 @@ public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, Lo
      */
     long countByPlaylistId(Long playlistId);
     
+    /**
+     * Find the ordering key of a track in a playlist without loading the row.
+     * @param playlistId The playlist ID
+     * @param trackId The track ID
+     * @return The track's keys (normally one), empty if it is not in the playlist
+     */
+    @Query("SELECT pt.position FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND pt.track.id = :trackId")
+    List<Integer> findPositionsOfTrack(Long playlistId, Long trackId);
+    
+    /**
+     * Find the smallest ordering key after the given one, ignoring one row.
+     * @param playlistId The playlist ID
+     * @param position The key to search after
+     * @param excludedId ID of a row to ignore, typically the one being moved
+     * @return The next key, or null if nothing follows
+     */
+    @Query("SELECT MIN(pt.position) FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND pt.position > :position AND pt.id <> :excludedId")
+    Integer findNextPosition(Long playlistId, Integer position, Long excludedId);
+    
+    /**
+     * Find the largest ordering key before the given one, ignoring one row.
+     * @param playlistId The playlist ID
+     * @param position The key to search before
+     * @param excludedId ID of a row to ignore, typically the one being moved
+     * @return The previous key, or null if nothing precedes
+     */
+    @Query("SELECT MAX(pt.position) FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND pt.position < :position AND pt.id <> :excludedId")
+    Integer findPreviousPosition(Long playlistId, Integer position, Long excludedId);
+    
+    /**
+     * Count the tracks ordered before a given row, to report its zero-based index.
+     * @param playlistId The playlist ID
+     * @param position The row's ordering key
+     * @param id The row's ID, breaking ties between equal keys
+     * @return Number of tracks before the row
+     */
+    @Query("SELECT COUNT(pt) FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId AND (pt.position < :position OR (pt.position = :position AND pt.id < :id))")
+    long countBefore(Long playlistId, Integer position, Long id);
+    
     /**
      * Find the maximum position in a playlist.
      * @param playlistId The playlist ID
@@ -65,4 +173,36 @@ public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, Lo
      */
     @Query("SELECT MAX(pt.position) FROM PlaylistTrack pt WHERE pt.playlist.id = :playlistId")
     Integer findMaxPositionByPlaylistId(Long playlistId);
+    
+    /**
+     * Copy one playlist's track rows, keys and versions included, into another playlist.
+     * @param fromPlaylistId The playlist whose rows are copied
+     * @param toPlaylistId The playlist receiving the copies
+     * @return Number of rows copied
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO playlist_tracks (playlist_id, track_id, position, version) "
+        + "SELECT :toPlaylistId, track_id, position, version FROM playlist_tracks WHERE playlist_id = :fromPlaylistId",
+        nativeQuery = true)
+    int copyTracks(Long fromPlaylistId, Long toPlaylistId);
+    
+    /**
+     * Move one playlist's track rows to another playlist without copying them.
+     * @param fromPlaylistId The playlist giving up its rows
+     * @param toPlaylistId The playlist taking them over
+     * @return Number of rows moved
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE playlist_tracks SET playlist_id = :toPlaylistId WHERE playlist_id = :fromPlaylistId",
+        nativeQuery = true)
+    int reassignTracks(Long fromPlaylistId, Long toPlaylistId);
+    
+    /**
+     * Remove an audio track from every playlist.
+     * @param trackId The audio track ID
+     * @return Number of rows deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM PlaylistTrack pt WHERE pt.track.id = :trackId")
+    int deleteByTrackId(Long trackId);
 }
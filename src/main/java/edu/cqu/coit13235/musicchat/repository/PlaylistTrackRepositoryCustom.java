@@ -0,0 +1,49 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.util.List;
+
+/**
+ * Custom bulk operations for PlaylistTrack that Spring Data cannot derive.
+ */
+public interface PlaylistTrackRepositoryCustom {
+    
+    /**
+     * Receives playlist memberships as primitive IDs.
+     */
+    @FunctionalInterface
+    interface MembershipVisitor {
+        void visit(long playlistId, long trackId);
+    }
+    
+    /**
+     * Insert playlist-track rows in a single JDBC batch.
+     * The rows are not loaded into the persistence context.
+     * @param playlistId The playlist ID
+     * @param trackIds Track IDs to insert, in playlist order
+     * @param positions Position of each track, parallel to trackIds
+     * @return Number of rows inserted
+     */
+    int batchInsert(Long playlistId, List<Long> trackIds, List<Integer> positions);
+    
+    /**
+     * Respace the ordering keys of a playlist's tracks to 0, gap, 2*gap, ... keeping their order.
+     * Runs as one select and one JDBC batch of updates, and increments every row's version.
+     * @param playlistId The playlist ID
+     * @param gap Distance between consecutive keys
+     * @return Number of rows renumbered
+     */
+    int rebalancePositions(Long playlistId, int gap);
+    
+    /**
+     * Read the IDs of the tracks stored under a playlist, without loading any entities.
+     * @param playlistId The playlist ID
+     * @return The track IDs, in no particular order
+     */
+    long[] findTrackIdArray(Long playlistId);
+    
+    /**
+     * Stream every playlist membership, grouped by playlist, without loading any entities.
+     * @param visitor Receives each (playlist ID, track ID) pair
+     */
+    void forEachMembership(MembershipVisitor visitor);
+}
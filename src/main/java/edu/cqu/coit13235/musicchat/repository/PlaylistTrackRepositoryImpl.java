@@ -0,0 +1,88 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/**
+ * JDBC implementation of the bulk PlaylistTrack operations.
+ * PlaylistTrack uses IDENTITY keys, which stop Hibernate from batching inserts,
+ * so bulk inserts go through JdbcTemplate in the surrounding transaction instead.
+ * Rebalancing bumps each row's version so moves computed from the old keys fail optimistically.
+ */
+public class PlaylistTrackRepositoryImpl implements PlaylistTrackRepositoryCustom {
+    
+    private static final String INSERT_SQL =
+        "INSERT INTO playlist_tracks (playlist_id, track_id, position) VALUES (?, ?, ?)";
+    
+    private static final String SELECT_ORDERED_IDS_SQL =
+        "SELECT id FROM playlist_tracks WHERE playlist_id = ? ORDER BY position ASC, id ASC";
+    
+    private static final String UPDATE_POSITION_SQL =
+        "UPDATE playlist_tracks SET position = ?, version = version + 1 WHERE id = ?";
+    
+    private static final String SELECT_TRACK_IDS_SQL =
+        "SELECT track_id FROM playlist_tracks WHERE playlist_id = ?";
+    
+    private static final String SELECT_MEMBERSHIPS_SQL =
+        "SELECT playlist_id, track_id FROM playlist_tracks ORDER BY playlist_id";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public PlaylistTrackRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public int batchInsert(Long playlistId, List<Long> trackIds, List<Integer> positions) {
+        if (trackIds.size() != positions.size()) {
+            throw new IllegalArgumentException("Each track needs exactly one position");
+        }
+        if (trackIds.isEmpty()) {
+            return 0;
+        }
+        
+        List<Object[]> rows = new ArrayList<>(trackIds.size());
+        for (int i = 0; i < trackIds.size(); i++) {
+            rows.add(new Object[]{playlistId, trackIds.get(i), positions.get(i)});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return rows.size();
+    }
+    
+    @Override
+    public int rebalancePositions(Long playlistId, int gap) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_ORDERED_IDS_SQL, Long.class, playlistId);
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            rows.add(new Object[]{i * gap, ids.get(i)});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_POSITION_SQL, rows);
+        }
+        return rows.size();
+    }
+    
+    @Override
+    public long[] findTrackIdArray(Long playlistId) {
+        long[][] ids = {new long[16]};
+        int[] count = {0};
+        jdbcTemplate.query(SELECT_TRACK_IDS_SQL, (RowCallbackHandler) rs -> {
+            if (count[0] == ids[0].length) {
+                ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+            }
+            ids[0][count[0]++] = rs.getLong(1);
+        }, playlistId);
+        return Arrays.copyOf(ids[0], count[0]);
+    }
+    
+    @Override
+    public void forEachMembership(MembershipVisitor visitor) {
+        jdbcTemplate.query(SELECT_MEMBERSHIPS_SQL, (RowCallbackHandler) rs -> visitor.visit(rs.getLong(1), rs.getLong(2)));
+    }
+}
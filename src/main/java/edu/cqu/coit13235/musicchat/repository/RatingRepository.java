@@ -2,10 +2,13 @@ package edu.cqu.coit13235.musicchat.repository;
 
 import edu.cqu.coit13235.musicchat.domain.Rating;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +17,7 @@ import java.util.Optional;
  * Provides methods for rating data access and statistics.
  */
 @Repository
-public interface RatingRepository extends JpaRepository<Rating, Long> {
+public interface RatingRepository extends JpaRepository<Rating, Long>, RatingRepositoryCustom {
     
     /**
      * Find a rating by user ID and track ID.
@@ -57,4 +60,109 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
      * @return number of ratings
      */
     Long countByTrackId(Long trackId);
+    
+    /**
+     * Find the tracks whose average rating is at least the given value.
+     * @param minimum The minimum average rating
+     * @return IDs of the matching tracks
+     */
+    @Query("SELECT r.trackId FROM Rating r GROUP BY r.trackId HAVING AVG(r.ratingValue) >= :minimum")
+    List<Long> findTrackIdsWithAverageAtLeast(@Param("minimum") double minimum);
+    
+    /**
+     * Find the tracks a user has rated, with the values given.
+     * @param userId the user ID
+     * @return [trackId, ratingValue] pairs
+     */
+    @Query("SELECT r.trackId, r.ratingValue FROM Rating r WHERE r.userId = :userId")
+    List<Object[]> findTrackRatingsByUserId(@Param("userId") Long userId);
+    
+    /**
+     * Find every rating of a track that still exists.
+     * @return [userId, trackId, ratingValue] triples
+     */
+    @Query("SELECT r.userId, r.trackId, r.ratingValue FROM Rating r WHERE r.trackId IN (SELECT t.id FROM AudioTrack t)")
+    List<Object[]> findAllRatingValues();
+    
+    /**
+     * Find the ratings given by any of several users to any of several tracks, in one query.
+     * @param userIds the user IDs
+     * @param trackIds the track IDs
+     * @return [userId, trackId, ratingValue] triples
+     */
+    @Query("SELECT r.userId, r.trackId, r.ratingValue FROM Rating r WHERE r.userId IN :userIds AND r.trackId IN :trackIds")
+    List<Object[]> findRatingValuesByUserIdsAndTrackIds(@Param("userIds") Collection<Long> userIds,
+                                                        @Param("trackIds") Collection<Long> trackIds);
+    
+    /**
+     * Sum and count the ratings of a track.
+     * @param trackId the track ID
+     * @return a single [sum, count] row; the sum is null when there are no ratings
+     */
+    @Query("SELECT SUM(r.ratingValue), COUNT(r) FROM Rating r WHERE r.trackId = :trackId")
+    List<Object[]> findRatingTotalsByTrackId(@Param("trackId") Long trackId);
+    
+    /**
+     * Sum and count the ratings of every track that still exists.
+     * @return [trackId, sum, count] rows
+     */
+    @Query("SELECT r.trackId, SUM(r.ratingValue), COUNT(r) FROM Rating r "
+        + "WHERE r.trackId IN (SELECT t.id FROM AudioTrack t) GROUP BY r.trackId")
+    List<Object[]> findAllRatingTotals();
+    
+    /**
+     * Count the ratings of each value (1-5) for several tracks in one grouped query.
+     * @param trackIds the track IDs
+     * @return [trackId, ratingValue, count] rows; values nobody chose are absent
+     */
+    @Query("SELECT r.trackId, r.ratingValue, COUNT(r) FROM Rating r "
+        + "WHERE r.trackId IN :trackIds GROUP BY r.trackId, r.ratingValue")
+    List<Object[]> findRatingHistogramsByTrackIds(@Param("trackIds") Collection<Long> trackIds);
+    
+    /**
+     * Insert or update a user's rating for a track in one statement (H2 MERGE).
+     * 
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param ratingValue the rating value
+     * @param now the creation time of a new rating, and the update time either way
+     * @return number of rows written (1)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "MERGE INTO ratings r USING (VALUES (CAST(:userId AS BIGINT), CAST(:trackId AS BIGINT))) AS v(user_id, track_id) "
+        + "ON r.user_id = v.user_id AND r.track_id = v.track_id "
+        + "WHEN MATCHED THEN UPDATE SET rating_value = :ratingValue, updated_at = :now "
+        + "WHEN NOT MATCHED THEN INSERT (user_id, track_id, rating_value, created_at, updated_at) "
+        + "VALUES (v.user_id, v.track_id, :ratingValue, :now, :now)",
+        nativeQuery = true)
+    int upsertMerge(@Param("userId") Long userId, @Param("trackId") Long trackId,
+                    @Param("ratingValue") Integer ratingValue, @Param("now") LocalDateTime now);
+    
+    /**
+     * Insert or update a user's rating for a track in one statement (PostgreSQL INSERT ... ON CONFLICT).
+     * 
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param ratingValue the rating value
+     * @param now the creation time of a new rating, and the update time either way
+     * @return number of rows written (1)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO ratings (user_id, track_id, rating_value, created_at, updated_at) "
+        + "VALUES (:userId, :trackId, :ratingValue, :now, :now) "
+        + "ON CONFLICT (user_id, track_id) DO UPDATE SET rating_value = EXCLUDED.rating_value, updated_at = EXCLUDED.updated_at",
+        nativeQuery = true)
+    int upsertOnConflict(@Param("userId") Long userId, @Param("trackId") Long trackId,
+                         @Param("ratingValue") Integer ratingValue, @Param("now") LocalDateTime now);
+    
+    /**
+     * Delete a user's rating for a track without loading it.
+     * 
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @return 1 if a rating was deleted, 0 if there was none
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Rating r WHERE r.userId = :userId AND r.trackId = :trackId")
+    int deleteByUserIdAndTrackIdInBulk(@Param("userId") Long userId, @Param("trackId") Long trackId);
 }
@@ -0,0 +1,27 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.util.List;
+
+/**
+ * Custom bulk operations for Rating that Spring Data cannot derive.
+ */
+public interface RatingRepositoryCustom {
+    
+    /**
+     * Insert or update many ratings in a single JDBC batch of upserts.
+     * @param userIds User of each rating
+     * @param trackIds Track of each rating, parallel to userIds
+     * @param ratingValues Value of each rating, parallel to userIds
+     * @param onConflict true for INSERT ... ON CONFLICT (PostgreSQL), false for MERGE (H2)
+     * @return Rows written by each upsert
+     */
+    int[] batchUpsert(List<Long> userIds, List<Long> trackIds, List<Integer> ratingValues, boolean onConflict);
+    
+    /**
+     * Delete many users' ratings in a single JDBC batch.
+     * @param userIds User of each rating
+     * @param trackIds Track of each rating, parallel to userIds
+     * @return Rows deleted by each statement (0 where there was no rating)
+     */
+    int[] batchDelete(List<Long> userIds, List<Long> trackIds);
+}
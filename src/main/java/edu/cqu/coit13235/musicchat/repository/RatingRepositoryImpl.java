@@ -0,0 +1,71 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of the bulk Rating operations.
+ * Used to flush buffered rating writes as one batch per statement type.
+ */
+public class RatingRepositoryImpl implements RatingRepositoryCustom {
+    
+    private static final String MERGE_SQL =
+        "MERGE INTO ratings r USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INT), CAST(? AS TIMESTAMP))) "
+            + "AS v(user_id, track_id, rating_value, ts) ON r.user_id = v.user_id AND r.track_id = v.track_id "
+            + "WHEN MATCHED THEN UPDATE SET rating_value = v.rating_value, updated_at = v.ts "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, track_id, rating_value, created_at, updated_at) "
+            + "VALUES (v.user_id, v.track_id, v.rating_value, v.ts, v.ts)";
+    
+    private static final String ON_CONFLICT_SQL =
+        "INSERT INTO ratings (user_id, track_id, rating_value, created_at, updated_at) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, track_id) DO UPDATE SET rating_value = EXCLUDED.rating_value, updated_at = EXCLUDED.updated_at";
+    
+    private static final String DELETE_SQL =
+        "DELETE FROM ratings WHERE user_id = ? AND track_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public RatingRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public int[] batchUpsert(List<Long> userIds, List<Long> trackIds, List<Integer> ratingValues, boolean onConflict) {
+        if (userIds.size() != trackIds.size() || userIds.size() != ratingValues.size()) {
+            throw new IllegalArgumentException("Each rating needs a user, a track and a value");
+        }
+        if (userIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(onConflict
+                ? new Object[]{userIds.get(i), trackIds.get(i), ratingValues.get(i), now, now}
+                : new Object[]{userIds.get(i), trackIds.get(i), ratingValues.get(i), now});
+        }
+        return jdbcTemplate.batchUpdate(onConflict ? ON_CONFLICT_SQL : MERGE_SQL, rows);
+    }
+    
+    @Override
+    public int[] batchDelete(List<Long> userIds, List<Long> trackIds) {
+        if (userIds.size() != trackIds.size()) {
+            throw new IllegalArgumentException("Each rating needs a user and a track");
+        }
+        if (userIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        List<Object[]> rows = new ArrayList<>(userIds.size());
+        for (int i = 0; i < userIds.size(); i++) {
+            rows.add(new Object[]{userIds.get(i), trackIds.get(i)});
+        }
+        return jdbcTemplate.batchUpdate(DELETE_SQL, rows);
+    }
+}
@@ -0,0 +1,65 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistMember;
+
+/**
+ * Repository interface for SmartPlaylistMember entity.
+ * Provides data access methods for the materialised membership of smart playlists.
+ */
+@Repository
+public interface SmartPlaylistMemberRepository extends JpaRepository<SmartPlaylistMember, Long> {
+    
+    /**
+     * Check whether a track is currently a member of a smart playlist.
+     * @param playlistId The playlist ID
+     * @param trackId The track ID
+     * @return true if the track is a member
+     */
+    boolean existsByPlaylistIdAndTrackId(Long playlistId, Long trackId);
+    
+    /**
+     * Find the member tracks of a smart playlist uploaded at or after a time, newest first.
+     * @param playlistId The playlist ID
+     * @param uploadedAfter Earliest upload time to include
+     * @return The member tracks
+     */
+    @Query("SELECT t FROM SmartPlaylistMember m, AudioTrack t WHERE t.id = m.trackId AND m.playlistId = :playlistId "
+        + "AND t.uploadedAt >= :uploadedAfter ORDER BY t.uploadedAt DESC, t.id DESC")
+    List<AudioTrack> findTracks(Long playlistId, LocalDateTime uploadedAfter);
+    
+    /**
+     * Remove a track from a smart playlist.
+     * @param playlistId The playlist ID
+     * @param trackId The track ID
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM SmartPlaylistMember m WHERE m.playlistId = :playlistId AND m.trackId = :trackId")
+    int deleteByPlaylistIdAndTrackId(Long playlistId, Long trackId);
+    
+    /**
+     * Remove a track from every smart playlist.
+     * @param trackId The track ID
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Query("DELETE FROM SmartPlaylistMember m WHERE m.trackId = :trackId")
+    int deleteByTrackId(Long trackId);
+    
+    /**
+     * Remove every member of a smart playlist.
+     * @param playlistId The playlist ID
+     */
+    @Modifying
+    @Query("DELETE FROM SmartPlaylistMember m WHERE m.playlistId = :playlistId")
+    void deleteByPlaylistId(Long playlistId);
+}
@@ -0,0 +1,63 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistRule;
+
+/**
+ * Repository interface for SmartPlaylistRule entity.
+ * Finds the smart playlists an event can affect, with all of their rules.
+ */
+@Repository
+public interface SmartPlaylistRuleRepository extends JpaRepository<SmartPlaylistRule, Long> {
+    
+    /**
+     * Find the rules of a smart playlist.
+     * @param playlistId The playlist ID
+     * @return The playlist's rules
+     */
+    List<SmartPlaylistRule> findByPlaylistId(Long playlistId);
+    
+    /**
+     * Find every rule of the smart playlists that have at least one rule of the given type.
+     * @param type The rule type
+     * @return Rules of the matching playlists, grouped by playlist
+     */
+    @Query("SELECT r FROM SmartPlaylistRule r WHERE r.playlistId IN "
+        + "(SELECT x.playlistId FROM SmartPlaylistRule x WHERE x.type = :type) ORDER BY r.playlistId")
+    List<SmartPlaylistRule> findRulesOfPlaylistsWithType(SmartPlaylistRule.Type type);
+    
+    /**
+     * Find every rule of a user's smart playlists that have at least one rule of the given type.
+     * @param type The rule type
+     * @param ownerId The playlist owner's ID
+     * @return Rules of the matching playlists, grouped by playlist
+     */
+    @Query("SELECT r FROM SmartPlaylistRule r WHERE r.playlistId IN "
+        + "(SELECT x.playlistId FROM SmartPlaylistRule x, Playlist p "
+        + "WHERE x.type = :type AND p.id = x.playlistId AND p.ownerId = :ownerId) ORDER BY r.playlistId")
+    List<SmartPlaylistRule> findRulesOfOwnerPlaylistsWithType(SmartPlaylistRule.Type type, Long ownerId);
+    
+    /**
+     * Find every rule of the smart playlists that have no rule of the given types.
+     * @param types The excluded rule types
+     * @return Rules of the matching playlists, grouped by playlist
+     */
+    @Query("SELECT r FROM SmartPlaylistRule r WHERE r.playlistId NOT IN "
+        + "(SELECT x.playlistId FROM SmartPlaylistRule x WHERE x.type IN :types) ORDER BY r.playlistId")
+    List<SmartPlaylistRule> findRulesOfPlaylistsWithoutTypes(Collection<SmartPlaylistRule.Type> types);
+    
+    /**
+     * Delete the rules of a smart playlist.
+     * @param playlistId The playlist ID
+     */
+    @Modifying
+    @Query("DELETE FROM SmartPlaylistRule r WHERE r.playlistId = :playlistId")
+    void deleteByPlaylistId(Long playlistId);
+}
@@ -0,0 +1,13 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import edu.cqu.coit13235.musicchat.domain.TrackPlayCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for TrackPlayCount entity.
+ * Holds each track's play count as rolled up from the in-memory counters.
+ */
+@Repository
+public interface TrackPlayCountRepository extends JpaRepository<TrackPlayCount, Long>, TrackPlayCountRepositoryCustom {
+}
@@ -0,0 +1,20 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Custom bulk operations for TrackPlayCount that Spring Data cannot derive.
+ */
+public interface TrackPlayCountRepositoryCustom {
+    
+    /**
+     * Add to many tracks' play counts in a single JDBC batch of upserts, creating missing rows.
+     * @param trackIds Track of each increment
+     * @param plays Plays to add, parallel to trackIds
+     * @param lastPlayedAt Time to record as each track's last play
+     * @param onConflict true for INSERT ... ON CONFLICT (PostgreSQL), false for MERGE (H2)
+     * @return Rows written by each upsert
+     */
+    int[] batchIncrement(List<Long> trackIds, List<Long> plays, LocalDateTime lastPlayedAt, boolean onConflict);
+}
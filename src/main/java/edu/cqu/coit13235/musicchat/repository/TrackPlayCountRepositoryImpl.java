@@ -0,0 +1,51 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * JDBC implementation of the bulk TrackPlayCount operations.
+ * Used to roll the in-memory play counters into the database as one batch.
+ */
+public class TrackPlayCountRepositoryImpl implements TrackPlayCountRepositoryCustom {
+    
+    private static final String MERGE_SQL =
+        "MERGE INTO track_play_counts c USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP))) "
+            + "AS v(track_id, plays, ts) ON c.track_id = v.track_id "
+            + "WHEN MATCHED THEN UPDATE SET play_count = c.play_count + v.plays, last_played_at = v.ts "
+            + "WHEN NOT MATCHED THEN INSERT (track_id, play_count, last_played_at) VALUES (v.track_id, v.plays, v.ts)";
+    
+    private static final String ON_CONFLICT_SQL =
+        "INSERT INTO track_play_counts (track_id, play_count, last_played_at) VALUES (?, ?, ?) "
+            + "ON CONFLICT (track_id) DO UPDATE SET play_count = track_play_counts.play_count + EXCLUDED.play_count, "
+            + "last_played_at = EXCLUDED.last_played_at";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    public TrackPlayCountRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public int[] batchIncrement(List<Long> trackIds, List<Long> plays, LocalDateTime lastPlayedAt, boolean onConflict) {
+        if (trackIds.size() != plays.size()) {
+            throw new IllegalArgumentException("Each increment needs a track and a play count");
+        }
+        if (trackIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        Timestamp ts = Timestamp.valueOf(lastPlayedAt);
+        List<Object[]> rows = new ArrayList<>(trackIds.size());
+        for (int i = 0; i < trackIds.size(); i++) {
+            rows.add(new Object[]{trackIds.get(i), plays.get(i), ts});
+        }
+        return jdbcTemplate.batchUpdate(onConflict ? ON_CONFLICT_SQL : MERGE_SQL, rows);
+    }
+}
@@ -0,0 +1,13 @@
+package edu.cqu.coit13235.musicchat.repository;
+
+import edu.cqu.coit13235.musicchat.domain.TrendingScore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for TrendingScore entity.
+ * Holds the latest snapshot of the in-memory trending leaderboard.
+ */
+@Repository
+public interface TrendingScoreRepository extends JpaRepository<TrendingScore, Long> {
+}
@@ -11,6 +11,7 @@ import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -32,16 +33,19 @@ public class AudioService {
     
     private final AudioTrackRepository audioTrackRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
     private final String uploadDir;
     private final long maxFileSize;
     
     @Autowired
     public AudioService(AudioTrackRepository audioTrackRepository,
                        UserRepository userRepository,
+                       ApplicationEventPublisher eventPublisher,
                        @Value("${app.upload.dir:uploads}") String uploadDir,
                        @Value("${app.upload.max-file-size:52428800}") long maxFileSize) {
         this.audioTrackRepository = audioTrackRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
         this.uploadDir = uploadDir;
         this.maxFileSize = maxFileSize;
         
@@ -115,7 +119,9 @@ public class AudioService {
             user
         );
         
-        return audioTrackRepository.save(audioTrack);
+        AudioTrack savedTrack = audioTrackRepository.save(audioTrack);
+        eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.UPLOADED, savedTrack.getId(), user.getId()));
+        return savedTrack;
     }
     
     /**
@@ -187,6 +193,7 @@ public class AudioService {
             }
             
             // Delete from database
+            eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.DELETED, track.getId(), null));
             audioTrackRepository.delete(track);
             return true;
         }
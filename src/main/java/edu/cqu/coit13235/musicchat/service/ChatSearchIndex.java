@@ -0,0 +1,157 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded inverted index over chat message text, used when the database has no full-text search.
+ * Maps each lower-cased term to the messages containing it and how often, and scores matches
+ * with TF-IDF so results can be ranked. Nothing is recorded until the index is first used.
+ */
+@Component
+public class ChatSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    // Term -> (message ID -> occurrences of the term in that message)
+    private final Map<String, Map<Long, Integer>> postings = new ConcurrentHashMap<>();
+    private final Set<Long> indexedIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean active;
+    private volatile boolean loaded;
+
+    /**
+     * A message matching a search, with its relevance score.
+     */
+    public static final class Hit {
+        private final long id;
+        private final float score;
+
+        public Hit(long id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * Add a message's text to the index.
+     * @param id The message ID
+     * @param text The message text
+     */
+    public void add(Long id, String text) {
+        if (!active || id == null || text == null || !indexedIds.add(id)) {
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : tokenize(text)) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        counts.forEach((term, count) ->
+            postings.computeIfAbsent(term, k -> new ConcurrentHashMap<>()).put(id, count));
+    }
+
+    /**
+     * Bulk-load message texts the first time the index is used.
+     * @param loader Supplies pairs of {id, text}, typically from the database
+     */
+    public void loadIfAbsent(Supplier<List<Object[]>> loader) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            // Start recording before the load query so messages committed meanwhile are kept
+            active = true;
+            for (Object[] row : loader.get()) {
+                if (row[0] instanceof Number) {
+                    add(((Number) row[0]).longValue(), (String) row[1]);
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Find messages containing every term of the query.
+     * @param query Free-text query
+     * @return Matching messages ordered by score, then by ID, both descending
+     */
+    public List<Hit> search(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<Long, Integer>> termPostings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Long, Integer> candidates = postings.get(term);
+            if (candidates == null || candidates.isEmpty()) {
+                return List.of();
+            }
+            termPostings.add(candidates);
+        }
+        // Drive the intersection from the rarest term so the work is bounded by its posting list
+        termPostings.sort(Comparator.comparingInt(Map::size));
+
+        double documentCount = Math.max(1, indexedIds.size());
+        float[] idf = new float[termPostings.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = (float) Math.log(1 + documentCount / termPostings.get(i).size());
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        candidates:
+        for (Map.Entry<Long, Integer> entry : termPostings.get(0).entrySet()) {
+            float score = entry.getValue() * idf[0];
+            for (int i = 1; i < idf.length; i++) {
+                Integer count = termPostings.get(i).get(entry.getKey());
+                if (count == null) {
+                    continue candidates;
+                }
+                score += count * idf[i];
+            }
+            hits.add(new Hit(entry.getKey(), score));
+        }
+
+        hits.sort(Comparator.comparing(Hit::getScore).thenComparing(Hit::getId).reversed());
+        return hits;
+    }
+
+    /**
+     * Split text into lower-case terms on anything that is not a letter or digit.
+     * @param text The text to split
+     * @return The terms in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import edu.cqu.coit13235.musicchat.dto.ChatSearchResponse;
+import edu.cqu.coit13235.musicchat.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for ranked full-text search over chat history.
+ * On PostgreSQL it queries a GIN-indexed tsvector column; elsewhere it uses the embedded
+ * {@link ChatSearchIndex}. Pages are keyset-paginated on (score, id) so deep pages stay cheap.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ChatSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSearchService.class);
+
+    /**
+     * Search with the database's full-text engine (PostgreSQL tsvector).
+     */
+    public static final String SEARCH_FULLTEXT = "fulltext";
+
+    /**
+     * Search with the embedded inverted index (any database).
+     */
+    public static final String SEARCH_INDEX = "index";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_QUERY_LENGTH = 200;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSearchIndex chatSearchIndex;
+    private final boolean useFullText;
+
+    @Autowired
+    public ChatSearchService(ChatMessageRepository chatMessageRepository, ChatSearchIndex chatSearchIndex,
+                             @Value("${app.chat.search:index}") String searchMode) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSearchIndex = chatSearchIndex;
+        this.useFullText = SEARCH_FULLTEXT.equalsIgnoreCase(searchMode);
+        logger.info("Chat search strategy: {}", useFullText ? SEARCH_FULLTEXT : SEARCH_INDEX);
+    }
+
+    /**
+     * Search chat messages.
+     * @param query Free-text query; every term must match
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param limit Maximum number of results on this page
+     * @return A page of results ordered by relevance
+     * @throws IllegalArgumentException if the query, cursor or limit is invalid
+     */
+    public ChatSearchResponse search(String query, String cursor, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be null or empty");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Search query cannot exceed " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String trimmed = query.trim();
+        ChatSearchIndex.Hit after = parseCursor(cursor);
+
+        // Fetch one extra hit to learn whether another page exists
+        List<ChatSearchIndex.Hit> hits = useFullText
+            ? searchFullText(trimmed, after, limit + 1)
+            : searchIndex(trimmed, after, limit + 1);
+        boolean hasMore = hits.size() > limit;
+        if (hasMore) {
+            hits = hits.subList(0, limit);
+        }
+
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (ChatSearchIndex.Hit hit : hits) {
+            ids.add(hit.getId());
+        }
+        Map<Long, ChatMessage> messages = new HashMap<>();
+        for (ChatMessage message : chatMessageRepository.findAllById(ids)) {
+            messages.put(message.getId(), message);
+        }
+
+        List<ChatSearchResponse.Result> results = new ArrayList<>(hits.size());
+        for (ChatSearchIndex.Hit hit : hits) {
+            ChatMessage message = messages.get(hit.getId());
+            if (message != null) {
+                results.add(new ChatSearchResponse.Result(message, hit.getScore()));
+            }
+        }
+
+        String nextCursor = hasMore ? formatCursor(hits.get(hits.size() - 1)) : null;
+        return new ChatSearchResponse(trimmed, results, nextCursor);
+    }
+
+    private List<ChatSearchIndex.Hit> searchFullText(String query, ChatSearchIndex.Hit after, int limit) {
+        List<Object[]> rows = (after == null)
+            ? chatMessageRepository.searchFullText(query, limit)
+            : chatMessageRepository.searchFullTextAfter(query, after.getScore(), after.getId(), limit);
+        List<ChatSearchIndex.Hit> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new ChatSearchIndex.Hit(((Number) row[0]).longValue(), ((Number) row[1]).floatValue()));
+        }
+        return hits;
+    }
+
+    private List<ChatSearchIndex.Hit> searchIndex(String query, ChatSearchIndex.Hit after, int limit) {
+        chatSearchIndex.loadIfAbsent(chatMessageRepository::findAllIdAndText);
+
+        List<ChatSearchIndex.Hit> hits = new ArrayList<>(limit);
+        for (ChatSearchIndex.Hit hit : chatSearchIndex.search(query)) {
+            if (after != null && !isAfter(hit, after)) {
+                continue;
+            }
+            hits.add(hit);
+            if (hits.size() == limit) {
+                break;
+            }
+        }
+        return hits;
+    }
+
+    private static boolean isAfter(ChatSearchIndex.Hit hit, ChatSearchIndex.Hit cursor) {
+        int byScore = Float.compare(hit.getScore(), cursor.getScore());
+        return byScore < 0 || (byScore == 0 && hit.getId() < cursor.getId());
+    }
+
+    private static String formatCursor(ChatSearchIndex.Hit hit) {
+        return hit.getScore() + ":" + hit.getId();
+    }
+
+    private static ChatSearchIndex.Hit parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.lastIndexOf(':');
+        try {
+            if (separator <= 0) {
+                throw new NumberFormatException(cursor);
+            }
+            float score = Float.parseFloat(cursor.substring(0, separator));
+            long id = Long.parseLong(cursor.substring(separator + 1));
+            return new ChatSearchIndex.Hit(id, score);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid search cursor: " + cursor);
+        }
+    }
+}
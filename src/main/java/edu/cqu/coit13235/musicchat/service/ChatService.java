@@ -3,8 +3,11 @@ package edu.cqu.coit13235.musicchat.service;
 import edu.cqu.coit13235.musicchat.domain.ChatMessage;
 import edu.cqu.coit13235.musicchat.repository.ChatMessageRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,11 +20,23 @@ import java.util.Optional;
 @Transactional
 public class ChatService {
     
+    /**
+     * Maximum number of messages replayed to a reconnecting client in one go.
+     */
+    public static final int MAX_REPLAY_MESSAGES = 500;
+    
     private final ChatMessageRepository chatMessageRepository;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final ChatThreadIndex chatThreadIndex;
+    private final ChatSearchIndex chatSearchIndex;
     
     @Autowired
-    public ChatService(ChatMessageRepository chatMessageRepository) {
+    public ChatService(ChatMessageRepository chatMessageRepository, RecentMessageBuffer recentMessageBuffer,
+                       ChatThreadIndex chatThreadIndex, ChatSearchIndex chatSearchIndex) {
         this.chatMessageRepository = chatMessageRepository;
+        this.recentMessageBuffer = recentMessageBuffer;
+        this.chatThreadIndex = chatThreadIndex;
+        this.chatSearchIndex = chatSearchIndex;
     }
     
     /**
@@ -40,7 +55,7 @@ public class ChatService {
         }
         
         ChatMessage message = new ChatMessage(sender.trim(), text.trim());
-        return chatMessageRepository.save(message);
+        return remember(chatMessageRepository.save(message));
     }
     
     /**
@@ -60,7 +75,7 @@ public class ChatService {
         }
         
         ChatMessage message = new ChatMessage(sender.trim(), text.trim(), previousId);
-        return chatMessageRepository.save(message);
+        return remember(chatMessageRepository.save(message));
     }
     
     /**
@@ -91,6 +106,24 @@ public class ChatService {
         return allMessages.subList(Math.max(0, allMessages.size() - limit), allMessages.size());
     }
     
+    /**
+     * Get the messages a client missed since the last one it saw.
+     * Served from the recent-message buffer when it covers the gap,
+     * otherwise from a single indexed ID range query.
+     * @param lastSeenId The ID of the last message the client received
+     * @return Up to {@link #MAX_REPLAY_MESSAGES} newer messages in ID order
+     */
+    @Transactional(readOnly = true)
+    public List<ChatMessage> getMessagesSince(Long lastSeenId) {
+        if (lastSeenId == null || lastSeenId < 0) {
+            throw new IllegalArgumentException("Last seen ID must be zero or positive");
+        }
+        
+        return recentMessageBuffer.since(lastSeenId, MAX_REPLAY_MESSAGES)
+            .orElseGet(() -> chatMessageRepository.findByIdGreaterThanOrderByIdAsc(
+                lastSeenId, PageRequest.of(0, MAX_REPLAY_MESSAGES)));
+    }
+    
     /**
      * Get a specific message by ID.
      * @param id The message ID
@@ -122,4 +155,35 @@ public class ChatService {
     public long getMessageCount() {
         return chatMessageRepository.count();
     }
+    
+    /**
+     * Add a saved message to the recent-message buffer and the thread and search indexes
+     * once its transaction commits, so rolled-back messages are never replayed or found.
+     * @param message The saved message
+     * @return The same message
+     */
+    private ChatMessage remember(ChatMessage message) {
+        if (message == null) {
+            return null;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(message);
+                }
+            });
+        } else {
+            index(message);
+        }
+        return message;
+    }
+    
+    private void index(ChatMessage message) {
+        recentMessageBuffer.append(message);
+        chatSearchIndex.add(message.getId(), message.getText());
+        if (message.getPreviousId() != null) {
+            chatThreadIndex.recordReply(message.getId(), message.getPreviousId());
+        }
+    }
 }
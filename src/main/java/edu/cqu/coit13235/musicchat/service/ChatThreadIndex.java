@@ -0,0 +1,115 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory adjacency index of chat reply chains (message ID -> previousId and back).
+ * Only replies are stored, so memory grows with the number of threaded messages, not the history.
+ * Used to resolve a whole thread to a set of IDs without one query per hop.
+ * Nothing is recorded until the index is first used, so it costs nothing when threads are
+ * resolved in the database instead.
+ */
+@Component
+public class ChatThreadIndex {
+
+    private final Map<Long, Long> parentById = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> childrenById = new ConcurrentHashMap<>();
+    private volatile boolean active;
+    private volatile boolean loaded;
+
+    /**
+     * Record that a message replies to another.
+     * @param id The reply's message ID
+     * @param previousId The ID of the message it replies to
+     */
+    public void recordReply(Long id, Long previousId) {
+        if (!active || id == null || previousId == null || id.equals(previousId)) {
+            return;
+        }
+        parentById.put(id, previousId);
+        childrenById.computeIfAbsent(previousId, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    /**
+     * Bulk-load reply edges the first time the index is used.
+     * Replies recorded while the load runs are merged, so edges committed meanwhile are not lost.
+     * @param edgeLoader Supplies pairs of {id, previousId}, typically from the database
+     */
+    public void loadIfAbsent(Supplier<List<Object[]>> edgeLoader) {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            // Start recording before the load query so replies committed meanwhile are kept
+            active = true;
+            for (Object[] edge : edgeLoader.get()) {
+                recordReply(toLong(edge[0]), toLong(edge[1]));
+            }
+            loaded = true;
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Get the ancestor chain of a message, nearest first.
+     * @param id The message ID
+     * @return IDs of the messages it replies to, walking up to the root
+     */
+    public List<Long> ancestorsOf(Long id) {
+        List<Long> ancestors = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        visited.add(id);
+        Long current = parentById.get(id);
+        while (current != null && visited.add(current)) {
+            ancestors.add(current);
+            current = parentById.get(current);
+        }
+        return ancestors;
+    }
+
+    /**
+     * Get every message that replies to the given one, directly or transitively.
+     * @param id The message ID
+     * @return IDs of all descendants in breadth-first order
+     */
+    public List<Long> descendantsOf(Long id) {
+        List<Long> descendants = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        visited.add(id);
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(id);
+        while (!queue.isEmpty()) {
+            Set<Long> children = childrenById.get(queue.poll());
+            if (children == null) {
+                continue;
+            }
+            for (Long child : children) {
+                if (visited.add(child)) {
+                    descendants.add(child);
+                    queue.add(child);
+                }
+            }
+        }
+        return descendants;
+    }
+
+    private static Long toLong(Object value) {
+        return (value instanceof Number) ? ((Number) value).longValue() : null;
+    }
+}
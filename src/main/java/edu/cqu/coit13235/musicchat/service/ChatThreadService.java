@@ -0,0 +1,115 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import edu.cqu.coit13235.musicchat.dto.ChatThreadResponse;
+import edu.cqu.coit13235.musicchat.repository.ChatMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service for reading chat reply threads built from ChatMessage.previousId.
+ * On PostgreSQL the thread is resolved by a recursive CTE; elsewhere an in-memory
+ * adjacency index resolves it to IDs which are then loaded in a single query.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ChatThreadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatThreadService.class);
+
+    /**
+     * Resolve threads with a recursive CTE in the database (PostgreSQL).
+     */
+    public static final String LOOKUP_CTE = "cte";
+
+    /**
+     * Resolve threads with the in-memory adjacency index (any database).
+     */
+    public static final String LOOKUP_ADJACENCY = "adjacency";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatThreadIndex chatThreadIndex;
+    private final boolean useCte;
+
+    @Autowired
+    public ChatThreadService(ChatMessageRepository chatMessageRepository, ChatThreadIndex chatThreadIndex,
+                             @Value("${app.chat.thread-lookup:adjacency}") String threadLookup) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatThreadIndex = chatThreadIndex;
+        this.useCte = LOOKUP_CTE.equalsIgnoreCase(threadLookup);
+        logger.info("Chat thread lookup strategy: {}", useCte ? LOOKUP_CTE : LOOKUP_ADJACENCY);
+    }
+
+    /**
+     * Get the reply thread around a message.
+     * @param id The message ID
+     * @return The message with its ancestors and replies, or empty if the message does not exist
+     * @throws IllegalArgumentException if id is null
+     */
+    public Optional<ChatThreadResponse> getThread(Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Message ID cannot be null");
+        }
+
+        List<ChatMessage> messages = useCte ? chatMessageRepository.findThread(id) : findThreadFromIndex(id);
+        return assemble(id, messages);
+    }
+
+    private List<ChatMessage> findThreadFromIndex(Long id) {
+        chatThreadIndex.loadIfAbsent(chatMessageRepository::findReplyEdges);
+
+        List<Long> ids = new ArrayList<>();
+        ids.add(id);
+        ids.addAll(chatThreadIndex.ancestorsOf(id));
+        ids.addAll(chatThreadIndex.descendantsOf(id));
+        return chatMessageRepository.findAllById(ids);
+    }
+
+    /**
+     * Split a flat thread into the target message, its ancestor chain and its replies.
+     */
+    private Optional<ChatThreadResponse> assemble(Long id, List<ChatMessage> messages) {
+        Map<Long, ChatMessage> byId = new HashMap<>();
+        for (ChatMessage message : messages) {
+            byId.put(message.getId(), message);
+        }
+        ChatMessage target = byId.get(id);
+        if (target == null) {
+            return Optional.empty();
+        }
+
+        List<ChatMessage> ancestors = new ArrayList<>();
+        Set<Long> excluded = new HashSet<>();
+        excluded.add(id);
+        ChatMessage parent = byId.get(target.getPreviousId());
+        while (parent != null && excluded.add(parent.getId())) {
+            ancestors.add(parent);
+            parent = byId.get(parent.getPreviousId());
+        }
+        Collections.reverse(ancestors);
+
+        List<ChatMessage> replies = new ArrayList<>();
+        for (ChatMessage message : messages) {
+            if (!excluded.contains(message.getId())) {
+                replies.add(message);
+            }
+        }
+        replies.sort(Comparator.comparing(ChatMessage::getId));
+
+        return Optional.of(new ChatThreadResponse(target, ancestors, replies));
+    }
+}
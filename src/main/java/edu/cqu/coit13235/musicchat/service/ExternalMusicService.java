@@ -5,97 +5,87 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service for integrating with external music APIs (Deezer).
  * Provides metadata search functionality with caching.
+ * Searches are non-blocking: {@link #searchMusicReactive} returns a Mono that completes when
+ * Deezer answers, so no thread waits on the call. Results are cached by normalised query in a
+ * {@link TinyLfuCache} bounded by app.external.cache.max-entries and app.external.cache.max-bytes
+ * (estimated), expiring app.external.cache.expire-after-write-ms after they were fetched. A result
+ * read after app.external.cache.refresh-after-write-ms is served from the cache while it is
+ * re-fetched in the background. Concurrent searches for a query that is not cached share one
+ * Deezer request, and if it fails they all fail without the failure being cached.
  */
 @Service
 public class ExternalMusicService {
     
     private static final Logger logger = LoggerFactory.getLogger(ExternalMusicService.class);
     
-    private static final String DEEZER_API_BASE_URL = "https://api.deezer.com";
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
     
-    private final WebClient webClient;
+    // Rough per-object overheads for estimating a cached result's size
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+    private static final long METADATA_OVERHEAD_BYTES = 96;
+    private static final long STRING_OVERHEAD_BYTES = 40;
     
-    // Simple in-memory cache for API responses
-    private final Map<String, DeezerSearchResponse> cache = new ConcurrentHashMap<>();
+    private final WebClient webClient;
+    private final TinyLfuCache<String, List<MusicMetadata>> cache;
     
     @Autowired
-    public ExternalMusicService() {
+    public ExternalMusicService(@Value("${app.external.deezer.base-url:https://api.deezer.com}") String baseUrl,
+                                @Value("${app.external.cache.max-entries:1000}") int maxEntries,
+                                @Value("${app.external.cache.max-bytes:10485760}") long maxBytes,
+                                @Value("${app.external.cache.expire-after-write-ms:3600000}") long expireAfterWriteMs,
+                                @Value("${app.external.cache.refresh-after-write-ms:900000}") long refreshAfterWriteMs) {
         this.webClient = WebClient.builder()
-            .baseUrl(DEEZER_API_BASE_URL)
+            .baseUrl(baseUrl)
             .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024)) // 1MB
             .build();
+        this.cache = new TinyLfuCache<>(maxEntries, maxBytes,
+            TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMs), TimeUnit.MILLISECONDS.toNanos(refreshAfterWriteMs),
+            ExternalMusicService::estimateBytes, System::nanoTime);
     }
     
     /**
-     * Search for music metadata using Deezer API.
-     * Results are cached to reduce API calls.
+     * Search for music metadata using Deezer API, blocking until the results arrive.
+     * Prefer {@link #searchMusicReactive} on request threads.
      * 
      * @param query the search query
      * @return List of music metadata
      */
-    @Cacheable(value = "deezerSearch", key = "#query")
     public List<MusicMetadata> searchMusic(String query) {
+        return searchMusicReactive(query).block();
+    }
+    
+    /**
+     * Search for music metadata using Deezer API without blocking.
+     * Cached results complete at once; otherwise the Mono completes when Deezer answers.
+     * 
+     * @param query the search query
+     * @return Mono of the list of music metadata (empty list if nothing matched); fails with
+     *         IllegalArgumentException for an empty query
+     */
+    public Mono<List<MusicMetadata>> searchMusicReactive(String query) {
         if (query == null || query.trim().isEmpty()) {
-            throw new IllegalArgumentException("Search query cannot be null or empty");
+            return Mono.error(new IllegalArgumentException("Search query cannot be null or empty"));
         }
         
         String normalizedQuery = query.trim().toLowerCase();
-        
-        // Check in-memory cache first
-        if (cache.containsKey(normalizedQuery)) {
-            logger.debug("Returning cached result for query: {}", query);
-            DeezerSearchResponse cachedResponse = cache.get(normalizedQuery);
-            return cachedResponse.getData().stream()
-                .map(DeezerTrack::toMusicMetadata)
-                .toList();
-        }
-        
-        logger.info("Searching Deezer API for: {}", query);
-        
-        try {
-            DeezerSearchResponse response = webClient.get()
-                .uri("/search?q={query}", query)
-                .retrieve()
-                .bodyToMono(DeezerSearchResponse.class)
-                .timeout(REQUEST_TIMEOUT)
-                .block();
-            
-            if (response != null && response.getData() != null) {
-                // Convert DeezerTrack to MusicMetadata
-                List<MusicMetadata> metadata = response.getData().stream()
-                    .map(DeezerTrack::toMusicMetadata)
-                    .toList();
-                
-                // Cache the response
-                cache.put(normalizedQuery, response);
-                logger.info("Found {} results for query: {}", metadata.size(), query);
-                return metadata;
-            } else {
-                logger.warn("No results found for query: {}", query);
-                return List.of();
-            }
-            
-        } catch (WebClientResponseException e) {
-            logger.error("Deezer API error for query '{}': {} - {}", query, e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to search music metadata: " + e.getMessage(), e);
-        } catch (Exception e) {
-            logger.error("Unexpected error searching Deezer API for query '{}': {}", query, e.getMessage(), e);
-            throw new RuntimeException("Failed to search music metadata: " + e.getMessage(), e);
-        }
+        // Cancelling one subscriber (e.g. a client disconnecting) must not cancel the load others share
+        return Mono.fromFuture(() -> cache.getAsync(normalizedQuery, key -> fetch(key).toFuture()), true)
+            .defaultIfEmpty(List.of());
     }
     
     /**
@@ -104,20 +94,85 @@ public class ExternalMusicService {
      * @return Map containing cache statistics
      */
     public Map<String, Object> getCacheStats() {
-        return Map.of(
-            "cacheSize", cache.size(),
-            "cachedQueries", cache.keySet()
-        );
+        TinyLfuCache.Stats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cacheSize", stats.getSize());
+        result.put("maxEntries", cache.getMaxEntries());
+        result.put("estimatedBytes", stats.getWeightedSize());
+        result.put("maxBytes", cache.getMaxWeight());
+        result.put("hitCount", stats.getHitCount());
+        result.put("missCount", stats.getMissCount());
+        result.put("hitRate", Math.round(stats.getHitRate() * 1000.0) / 1000.0);
+        result.put("loadSuccessCount", stats.getLoadSuccessCount());
+        result.put("loadFailureCount", stats.getLoadFailureCount());
+        result.put("averageLoadMillis", Math.round(stats.getAverageLoadNanos() / 1000.0) / 1000.0);
+        result.put("evictionCount", stats.getEvictionCount());
+        result.put("expirationCount", stats.getExpirationCount());
+        result.put("refreshCount", stats.getRefreshCount());
+        result.put("coalescedCount", stats.getCoalescedCount());
+        return result;
     }
     
     /**
      * Clear the cache.
      */
     public void clearCache() {
-        cache.clear();
+        cache.invalidateAll();
         logger.info("External music cache cleared");
     }
     
+    private Mono<List<MusicMetadata>> fetch(String query) {
+        logger.info("Searching Deezer API for: {}", query);
+        
+        return webClient.get()
+            .uri("/search?q={query}", query)
+            .retrieve()
+            .bodyToMono(DeezerSearchResponse.class)
+            .timeout(REQUEST_TIMEOUT)
+            .flatMap(response -> {
+                if (response.getData() == null) {
+                    return Mono.<List<MusicMetadata>>empty();
+                }
+                // Convert DeezerTrack to MusicMetadata
+                List<MusicMetadata> metadata = response.getData().stream()
+                    .map(DeezerTrack::toMusicMetadata)
+                    .toList();
+                logger.info("Found {} results for query: {}", metadata.size(), query);
+                return Mono.just(metadata);
+            })
+            // Not cached, so the next search asks again
+            .doOnSuccess(metadata -> {
+                if (metadata == null) {
+                    logger.warn("No results found for query: {}", query);
+                }
+            })
+            .onErrorMap(e -> {
+                if (e instanceof WebClientResponseException responseException) {
+                    logger.error("Deezer API error for query '{}': {} - {}", query,
+                        responseException.getStatusCode(), responseException.getResponseBodyAsString());
+                } else {
+                    logger.error("Unexpected error searching Deezer API for query '{}': {}", query, e.getMessage(), e);
+                }
+                return new RuntimeException("Failed to search music metadata: " + e.getMessage(), e);
+            });
+    }
+    
+    /**
+     * Estimate the memory held by a cached search result.
+     */
+    static long estimateBytes(String query, List<MusicMetadata> results) {
+        long bytes = ENTRY_OVERHEAD_BYTES + stringBytes(query);
+        for (MusicMetadata metadata : results) {
+            bytes += METADATA_OVERHEAD_BYTES + stringBytes(metadata.getTitle()) + stringBytes(metadata.getArtist())
+                + stringBytes(metadata.getAlbum()) + stringBytes(metadata.getCoverUrl()) + stringBytes(metadata.getPreviewUrl());
+        }
+        return bytes;
+    }
+    
+    private static long stringBytes(String value) {
+        return value != null ? STRING_OVERHEAD_BYTES + value.length() : 0;
+    }
+    
     /**
      * Music metadata DTO for external API responses.
      */
@@ -1,19 +1,32 @@
 package edu.cqu.coit13235.musicchat.service;
 
 import edu.cqu.coit13235.musicchat.domain.Favourite;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Service class for managing user favourites.
  * Provides business logic for favourite operations and toggle functionality.
+ * Adds are insert-if-absent statements and removes are conditional deletes, so concurrent
+ * clicks cannot race into the (user_id, track_id) unique constraint. With the write buffer enabled,
+ * favourites are written behind by {@link ReactionWriteBuffer} and a user's own state, including
+ * their list of favourites, is read through it.
+ * "Is this a favourite?" is answered from {@link UserReactionIndex} rather than a query per track.
  */
 @Service
 @Transactional
@@ -22,14 +35,27 @@ public class FavouriteService {
     private static final Logger logger = LoggerFactory.getLogger(FavouriteService.class);
     
     private final FavouriteRepository favouriteRepository;
+    private final AudioTrackRepository audioTrackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReactionWriteBuffer writeBuffer;
+    private final UserReactionIndex reactionIndex;
+    private final boolean useOnConflict;
     
     @Autowired
-    public FavouriteService(FavouriteRepository favouriteRepository) {
+    public FavouriteService(FavouriteRepository favouriteRepository, AudioTrackRepository audioTrackRepository,
+                            ApplicationEventPublisher eventPublisher, ReactionWriteBuffer writeBuffer,
+                            UserReactionIndex reactionIndex,
+                            @Value("${app.reactions.upsert:merge}") String upsertSyntax) {
         this.favouriteRepository = favouriteRepository;
+        this.audioTrackRepository = audioTrackRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeBuffer = writeBuffer;
+        this.reactionIndex = reactionIndex;
+        this.useOnConflict = RatingService.UPSERT_ON_CONFLICT.equalsIgnoreCase(upsertSyntax);
     }
     
     /**
-     * Toggle favourite status for a track.
+     * Toggle favourite status for a track with a conditional delete, then an insert-if-absent.
      * If the track is already favourited, it will be removed from favourites.
      * If not favourited, it will be added to favourites.
      * 
@@ -40,20 +66,30 @@ public class FavouriteService {
     public boolean toggleFavourite(Long userId, Long trackId) {
         logger.debug("Toggling favourite for track {} by user {}", trackId, userId);
         
-        Optional<Favourite> existingFavourite = favouriteRepository.findByUserIdAndTrackId(userId, trackId);
-        
-        if (existingFavourite.isPresent()) {
-            // Remove from favourites
-            favouriteRepository.delete(existingFavourite.get());
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.toggleFavourite(userId, trackId, () -> favouriteRepository.existsByUserIdAndTrackId(userId, trackId));
+        }
+        // Removing is a conditional delete; if there was nothing to remove, add instead
+        if (favouriteRepository.deleteByUserIdAndTrackIdInBulk(userId, trackId) > 0) {
             logger.info("Removed track {} from favourites for user {}", trackId, userId);
+            eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.UNFAVOURITED, trackId, userId));
             return false;
-        } else {
-            // Add to favourites
-            Favourite favourite = new Favourite(userId, trackId);
-            favouriteRepository.save(favourite);
+        }
+        // A concurrent click may have added it in between; either way it is now a favourite
+        if (insertIfAbsent(userId, trackId)) {
             logger.info("Added track {} to favourites for user {}", trackId, userId);
-            return true;
+            eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, trackId, userId));
         }
+        return true;
+    }
+    
+    private boolean insertIfAbsent(Long userId, Long trackId) {
+        if (useOnConflict) {
+            return favouriteRepository.insertIfAbsentOnConflict(userId, trackId, LocalDateTime.now()) > 0;
+        }
+        // H2's MERGE does not lock the key it is about to insert; take turns on the track row (see RatingService)
+        audioTrackRepository.lockIdById(trackId);
+        return favouriteRepository.insertIfAbsentMerge(userId, trackId, LocalDateTime.now()) > 0;
     }
     
     /**
@@ -63,9 +99,20 @@ public class FavouriteService {
      * @param trackId the track ID
      * @return true if favourited, false otherwise
      */
-    @Transactional(readOnly = true)
+    // Answered from memory; no transaction unless the caller has one
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean isFavourited(Long userId, Long trackId) {
-        return favouriteRepository.existsByUserIdAndTrackId(userId, trackId);
+        if (writeBuffer.isEnabled()) {
+            Boolean buffered = writeBuffer.bufferedFavourite(userId, trackId);
+            if (buffered != null) {
+                return buffered;
+            }
+        }
+        // The index only knows committed rows; a caller's own transaction may have changed this one
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return favouriteRepository.existsByUserIdAndTrackId(userId, trackId);
+        }
+        return reactionIndex.isFavourited(userId, trackId);
     }
     
     /**
@@ -77,6 +124,16 @@ public class FavouriteService {
      */
     @Transactional(readOnly = true)
     public Optional<Favourite> getUserFavourite(Long userId, Long trackId) {
+        if (writeBuffer.isEnabled()) {
+            Boolean buffered = writeBuffer.bufferedFavourite(userId, trackId);
+            if (buffered != null && !buffered) {
+                return Optional.empty();
+            }
+            if (buffered != null) {
+                Optional<Favourite> stored = favouriteRepository.findByUserIdAndTrackId(userId, trackId);
+                return stored.isPresent() ? stored : Optional.of(new Favourite(userId, trackId));
+            }
+        }
         return favouriteRepository.findByUserIdAndTrackId(userId, trackId);
     }
     
@@ -99,7 +156,28 @@ public class FavouriteService {
      */
     @Transactional(readOnly = true)
     public List<Favourite> getUserFavourites(Long userId) {
-        return favouriteRepository.findByUserId(userId);
+        List<Favourite> stored = favouriteRepository.findByUserId(userId);
+        if (!writeBuffer.isEnabled()) {
+            return stored;
+        }
+        Map<Long, Boolean> buffered = writeBuffer.bufferedFavouritesOf(userId);
+        if (buffered.isEmpty()) {
+            return stored;
+        }
+        // Drop buffered removals and add buffered favourites the database does not hold yet
+        List<Favourite> favourites = new ArrayList<>(stored.size() + buffered.size());
+        for (Favourite favourite : stored) {
+            Boolean state = buffered.remove(favourite.getTrackId());
+            if (state == null || state) {
+                favourites.add(favourite);
+            }
+        }
+        buffered.forEach((trackId, favourited) -> {
+            if (favourited) {
+                favourites.add(new Favourite(userId, trackId));
+            }
+        });
+        return favourites;
     }
     
     /**
@@ -118,17 +196,23 @@ public class FavouriteService {
      * 
      * @param userId the user ID
      * @param trackId the track ID
-     * @return the created favourite
+     * @return the created favourite, unsaved when the write is buffered
      */
     public Favourite addFavourite(Long userId, Long trackId) {
-        if (favouriteRepository.existsByUserIdAndTrackId(userId, trackId)) {
+        if (writeBuffer.isEnabled()) {
+            if (writeBuffer.setFavourite(userId, trackId, true, () -> favouriteRepository.existsByUserIdAndTrackId(userId, trackId))) {
+                throw new IllegalStateException("Track is already in favourites");
+            }
+            return new Favourite(userId, trackId);
+        }
+        if (!insertIfAbsent(userId, trackId)) {
             throw new IllegalStateException("Track is already in favourites");
         }
         
-        Favourite favourite = new Favourite(userId, trackId);
-        Favourite savedFavourite = favouriteRepository.save(favourite);
         logger.info("Added track {} to favourites for user {}", trackId, userId);
-        return savedFavourite;
+        eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, trackId, userId));
+        return favouriteRepository.findByUserIdAndTrackId(userId, trackId)
+            .orElseThrow(() -> new IllegalStateException("Favourite for track " + trackId + " was not saved"));
     }
     
     /**
@@ -139,10 +223,12 @@ public class FavouriteService {
      * @return true if favourite was removed, false if no favourite existed
      */
     public boolean removeFavourite(Long userId, Long trackId) {
-        Optional<Favourite> favourite = favouriteRepository.findByUserIdAndTrackId(userId, trackId);
-        if (favourite.isPresent()) {
-            favouriteRepository.delete(favourite.get());
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.setFavourite(userId, trackId, false, () -> favouriteRepository.existsByUserIdAndTrackId(userId, trackId));
+        }
+        if (favouriteRepository.deleteByUserIdAndTrackIdInBulk(userId, trackId) > 0) {
             logger.info("Removed track {} from favourites for user {}", trackId, userId);
+            eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.UNFAVOURITED, trackId, userId));
             return true;
         }
         return false;
@@ -0,0 +1,316 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Item-based collaborative filtering model. Each track is a sparse vector of user interaction
+ * strengths (1-5, see RecommendationService), held as primitive hash maps in both directions.
+ * Track-to-track cosine similarities are found by walking the users who share a track rather than
+ * comparing every pair, keeping each track's best neighbours; a user's recommendations are the
+ * tracks that score highest when their own tracks' neighbours are summed, weighted by strength.
+ * A full {@link #rebuild} computes both in parallel with fork/join; after a change, single rows
+ * are computed with {@link #computeNeighbours}/{@link #computeRecommendations} and installed
+ * separately, so the computing only needs read access. Not thread-safe; computing rows and a rebuild's workers only
+ * read shared state.
+ */
+public final class ItemSimilarityModel {
+
+    // Below this many rows a fork/join task stops splitting
+    private static final int SPLIT_THRESHOLD = 32;
+
+    /**
+     * Track IDs with scores, best first.
+     */
+    public static final class Ranking {
+        private final long[] ids;
+        private final double[] scores;
+
+        Ranking(long[] ids, double[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public long getId(int index) {
+            return ids[index];
+        }
+
+        public double getScore(int index) {
+            return scores[index];
+        }
+    }
+
+    // User ID -> (track ID -> strength)
+    private final LongObjectHashMap<LongIntHashMap> userTracks = new LongObjectHashMap<>();
+    // Track ID -> (user ID -> strength)
+    private final LongObjectHashMap<LongIntHashMap> trackUsers = new LongObjectHashMap<>();
+    // Track ID -> sum of its squared strengths, the squared norm of its vector
+    private final LongIntHashMap squaredNorms = new LongIntHashMap();
+    private final LongObjectHashMap<Ranking> neighbours = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Ranking> recommendations = new LongObjectHashMap<>();
+    private final int maxNeighbours;
+    private final int maxRecommendations;
+
+    /**
+     * @param maxNeighbours Similar tracks kept per track
+     * @param maxRecommendations Recommendations kept per user
+     */
+    public ItemSimilarityModel(int maxNeighbours, int maxRecommendations) {
+        if (maxNeighbours <= 0 || maxRecommendations <= 0) {
+            throw new IllegalArgumentException("Neighbour and recommendation counts must be positive");
+        }
+        this.maxNeighbours = maxNeighbours;
+        this.maxRecommendations = maxRecommendations;
+    }
+
+    /**
+     * Set how strongly a user likes a track. Rankings are not updated until refreshed or rebuilt.
+     * @param userId The user ID
+     * @param trackId The track ID
+     * @param strength The strength, or 0 to remove the interaction
+     */
+    public void setInteraction(long userId, long trackId, int strength) {
+        LongIntHashMap tracks = userTracks.get(userId);
+        int previous = (tracks != null) ? tracks.get(trackId) : 0;
+        if (previous == strength) {
+            return;
+        }
+        squaredNorms.addTo(trackId, strength * strength - previous * previous);
+        if (strength == 0) {
+            tracks.remove(trackId);
+            if (tracks.isEmpty()) {
+                userTracks.remove(userId);
+            }
+            LongIntHashMap users = trackUsers.get(trackId);
+            users.remove(userId);
+            if (users.isEmpty()) {
+                trackUsers.remove(trackId);
+            }
+        } else {
+            userTracks.computeIfAbsent(userId, id -> new LongIntHashMap()).put(trackId, strength);
+            trackUsers.computeIfAbsent(trackId, id -> new LongIntHashMap()).put(userId, strength);
+        }
+    }
+
+    /**
+     * Drop a track and every interaction with it. Other tracks' rankings may still name it
+     * until they are refreshed.
+     * @param trackId The track ID
+     */
+    public void removeTrack(long trackId) {
+        LongIntHashMap users = trackUsers.get(trackId);
+        if (users != null) {
+            for (long userId : users.keys()) {
+                setInteraction(userId, trackId, 0);
+            }
+        }
+        neighbours.remove(trackId);
+    }
+
+    /**
+     * Recompute every track's neighbours, then every user's recommendations.
+     * @param pool The pool to run on
+     */
+    public void rebuild(ForkJoinPool pool) {
+        long[] tracks = trackUsers.keys();
+        Ranking[] trackRows = new Ranking[tracks.length];
+        pool.invoke(new RangeTask(0, tracks.length, i -> trackRows[i] = neighboursOf(tracks[i])));
+        neighbours.clear();
+        for (int i = 0; i < tracks.length; i++) {
+            neighbours.put(tracks[i], trackRows[i]);
+        }
+
+        long[] users = userTracks.keys();
+        Ranking[] userRows = new Ranking[users.length];
+        pool.invoke(new RangeTask(0, users.length, i -> userRows[i] = recommendationsOf(users[i])));
+        recommendations.clear();
+        for (int i = 0; i < users.length; i++) {
+            recommendations.put(users[i], userRows[i]);
+        }
+    }
+
+    /**
+     * Compute a track's neighbours from the current interactions without storing them.
+     * @param trackId The track ID
+     * @return The track's most similar tracks, best first, or null if nobody has interacted with it
+     */
+    public Ranking computeNeighbours(long trackId) {
+        return (trackUsers.get(trackId) != null) ? neighboursOf(trackId) : null;
+    }
+
+    /**
+     * Compute a user's recommendations from the current neighbours without storing them.
+     * @param userId The user ID
+     * @return The user's recommendations, best first, or null if the user has no interactions
+     */
+    public Ranking computeRecommendations(long userId) {
+        return (userTracks.get(userId) != null) ? recommendationsOf(userId) : null;
+    }
+
+    /**
+     * @param trackId The track ID
+     * @param ranking The track's neighbours, or null to remove them
+     */
+    public void setNeighbours(long trackId, Ranking ranking) {
+        if (ranking == null) {
+            neighbours.remove(trackId);
+        } else {
+            neighbours.put(trackId, ranking);
+        }
+    }
+
+    /**
+     * @param userId The user ID
+     * @param ranking The user's recommendations, or null to remove them
+     */
+    public void setRecommendations(long userId, Ranking ranking) {
+        if (ranking == null) {
+            recommendations.remove(userId);
+        } else {
+            recommendations.put(userId, ranking);
+        }
+    }
+
+    /**
+     * @param userId The user ID
+     * @return The user's recommendations, best first, or null if the user has none
+     */
+    public Ranking getRecommendations(long userId) {
+        return recommendations.get(userId);
+    }
+
+    /**
+     * @param trackId The track ID
+     * @return The track's most similar tracks, best first, or null if it has none
+     */
+    public Ranking getNeighbours(long trackId) {
+        return neighbours.get(trackId);
+    }
+
+    public int getUserCount() {
+        return userTracks.size();
+    }
+
+    public int getTrackCount() {
+        return trackUsers.size();
+    }
+
+    // Cosine similarity with every track sharing a user, via the dot products accumulated user by user
+    private Ranking neighboursOf(long trackId) {
+        LongIntHashMap dots = new LongIntHashMap();
+        trackUsers.get(trackId).forEach((userId, strength) ->
+            userTracks.get(userId).forEach((otherId, otherStrength) -> {
+                if (otherId != trackId) {
+                    dots.addTo(otherId, strength * otherStrength);
+                }
+            }));
+        double ownNorm = Math.sqrt(squaredNorms.get(trackId));
+        TopK top = new TopK(Math.min(maxNeighbours, dots.size()));
+        dots.forEach((otherId, dot) -> top.offer(otherId, 0, dot / (ownNorm * Math.sqrt(squaredNorms.get(otherId)))));
+        return toRanking(top);
+    }
+
+    // Sum of strength x similarity over the user's tracks, for tracks the user has not interacted with
+    private Ranking recommendationsOf(long userId) {
+        LongIntHashMap own = userTracks.get(userId);
+        ScoreSums sums = new ScoreSums();
+        own.forEach((trackId, strength) -> {
+            Ranking near = neighbours.get(trackId);
+            if (near == null) {
+                return;
+            }
+            for (int i = 0; i < near.size(); i++) {
+                if (!own.containsKey(near.ids[i])) {
+                    sums.add(near.ids[i], strength * near.scores[i]);
+                }
+            }
+        });
+        TopK top = new TopK(Math.min(maxRecommendations, sums.size()));
+        sums.forEach((trackId, score) -> top.offer(trackId, 0, score));
+        return toRanking(top);
+    }
+
+    private static Ranking toRanking(TopK top) {
+        long[] ids = new long[top.size()];
+        double[] scores = new double[top.size()];
+        int[] next = {0};
+        top.drain((id, ignored, score) -> {
+            ids[next[0]] = id;
+            scores[next[0]++] = score;
+        });
+        return new Ranking(ids, scores);
+    }
+
+    /**
+     * Running double totals per track ID: a LongIntHashMap from ID to slot in a growable array.
+     */
+    private static final class ScoreSums {
+
+        @FunctionalInterface
+        interface Visitor {
+            void visit(long id, double score);
+        }
+
+        private final LongIntHashMap slots = new LongIntHashMap();
+        private long[] ids = new long[16];
+        private double[] totals = new double[16];
+        private int size;
+
+        void add(long id, double amount) {
+            int slot = slots.get(id) - 1;
+            if (slot < 0) {
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    totals = Arrays.copyOf(totals, size * 2);
+                }
+                slot = size++;
+                ids[slot] = id;
+                slots.put(id, slot + 1);
+            }
+            totals[slot] += amount;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void forEach(Visitor visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(ids[i], totals[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs a body for each index in a range, splitting the range in halves across the pool.
+     */
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        RangeTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, body), new RangeTask(middle, to, body));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Concurrent ranking of IDs by score, kept sorted in a skip list so the top N is read by walking
+ * its head. Each ID's current entry is held in a ConcurrentHashMap, and an update replaces the
+ * entry atomically per ID: the new entry is inserted before the old one is removed, so a reader
+ * walking the list may briefly meet an ID twice (top() skips the repeat) but never misses it.
+ * Ties are broken by the lower ID.
+ */
+public final class Leaderboard {
+
+    /**
+     * An ID with its score.
+     */
+    public static final class Entry implements Comparable<Entry> {
+        private final long id;
+        private final double score;
+
+        Entry(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byScore = Double.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry entry && entry.id == id && Double.compare(entry.score, score) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id) * 31 + Double.hashCode(score);
+        }
+    }
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Add to an ID's score, treating a missing ID as 0.
+     * @param id The ID
+     * @param delta Amount to add
+     */
+    public void add(long id, double delta) {
+        entries.compute(id, (key, old) -> replace(old, new Entry(id, (old != null ? old.score : 0) + delta)));
+    }
+
+    /**
+     * Set an ID's score.
+     * @param id The ID
+     * @param score The score
+     */
+    public void set(long id, double score) {
+        entries.compute(id, (key, old) -> replace(old, new Entry(id, score)));
+    }
+
+    public void remove(long id) {
+        entries.computeIfPresent(id, (key, old) -> {
+            ranking.remove(old);
+            return null;
+        });
+    }
+
+    /**
+     * @param id The ID
+     * @return The ID's score, or 0 if absent
+     */
+    public double getScore(long id) {
+        Entry entry = entries.get(id);
+        return entry != null ? entry.score : 0;
+    }
+
+    /**
+     * @param n Maximum number of entries
+     * @return The n highest-scoring entries, best first
+     */
+    public List<Entry> top(int n) {
+        List<Entry> top = new ArrayList<>(Math.min(n, 64));
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (top.size() >= n) {
+                break;
+            }
+            if (seen.add(entry.id)) {
+                top.add(entry);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return Every entry, in no particular order
+     */
+    public List<Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        ranking.clear();
+    }
+
+    private Entry replace(Entry old, Entry updated) {
+        if (updated.equals(old)) {
+            return old;
+        }
+        ranking.add(updated);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        return updated;
+    }
+}
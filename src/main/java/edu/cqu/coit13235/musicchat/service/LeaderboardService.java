@@ -0,0 +1,352 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.TrendingScore;
+import edu.cqu.coit13235.musicchat.dto.RankedTrack;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import edu.cqu.coit13235.musicchat.repository.TrendingScoreRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for the "trending" and "top rated" leaderboards, both served from memory.
+ * <p>
+ * Trending: every play, rating and favourite adds a weight to the track's score, and scores
+ * decay exponentially with a half-life of app.leaderboards.trending.half-life-hours. Rather than
+ * decaying every score as time passes, each addition is scaled up by how long after a reference
+ * time it happened; since all scores decay at the same rate, the order is unchanged. The
+ * reference time is moved forward, and all scores rescaled, when the board is snapshotted to
+ * trending_scores (every app.leaderboards.snapshot-interval-ms), which is also when scores that
+ * have decayed to almost nothing are dropped. The snapshot is loaded again at startup.
+ * <p>
+ * Top rated: each track's Bayesian average, (C x m + sum) / (C + count), where m is the mean of
+ * all ratings and C is app.leaderboards.top-rated.prior-weight, so a track needs several good
+ * ratings to outrank one with many. A rating change re-reads that track's totals; the board is
+ * computed from one grouped query at startup and re-scored against the current mean at each snapshot.
+ */
+@Service
+@Transactional(readOnly = true)
+public class LeaderboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    static final double PLAY_WEIGHT = 1.0;
+    static final double RATING_WEIGHT = 2.0;
+    static final double FAVOURITE_WEIGHT = 3.0;
+
+    // Trending scores that have decayed below this are dropped at snapshot time
+    private static final double MIN_TRENDING_SCORE = 0.01;
+    // Prior mean for top rated while there are no ratings at all
+    private static final double DEFAULT_MEAN_RATING = 3.0;
+
+    private final AudioTrackRepository audioTrackRepository;
+    private final RatingRepository ratingRepository;
+    private final TrendingScoreRepository trendingScoreRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final double decayPerMilli;
+    private final double priorWeight;
+
+    private final Leaderboard trending = new Leaderboard();
+    // Additions take the read lock, so they run concurrently; rescaling takes the write lock
+    private final ReentrantReadWriteLock trendingLock = new ReentrantReadWriteLock();
+    private long referenceMillis;
+
+    private final Leaderboard topRated = new Leaderboard();
+    // Guards ratingTotals, ratingSum and ratingCount
+    private final Object topRatedLock = new Object();
+    // Track ID -> {sum, count} of its ratings
+    private final LongObjectHashMap<long[]> ratingTotals = new LongObjectHashMap<>();
+    private long ratingSum;
+    private long ratingCount;
+
+    @Autowired
+    public LeaderboardService(AudioTrackRepository audioTrackRepository,
+                              RatingRepository ratingRepository,
+                              TrendingScoreRepository trendingScoreRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.leaderboards.trending.half-life-hours:24}") double halfLifeHours,
+                              @Value("${app.leaderboards.top-rated.prior-weight:5}") double priorWeight) {
+        this(audioTrackRepository, ratingRepository, trendingScoreRepository, transactionManager,
+            halfLifeHours, priorWeight, Clock.systemDefaultZone());
+    }
+
+    LeaderboardService(AudioTrackRepository audioTrackRepository,
+                       RatingRepository ratingRepository,
+                       TrendingScoreRepository trendingScoreRepository,
+                       PlatformTransactionManager transactionManager,
+                       double halfLifeHours, double priorWeight, Clock clock) {
+        if (halfLifeHours <= 0) {
+            throw new IllegalArgumentException("Trending half-life must be positive");
+        }
+        this.audioTrackRepository = audioTrackRepository;
+        this.ratingRepository = ratingRepository;
+        this.trendingScoreRepository = trendingScoreRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.decayPerMilli = Math.log(2) / (halfLifeHours * Duration.ofHours(1).toMillis());
+        this.priorWeight = priorWeight;
+        this.referenceMillis = clock.millis();
+    }
+
+    /**
+     * Get the tracks with the most recent activity, weighting newer activity more.
+     * @param limit Maximum number of tracks to return, at most MAX_LIMIT
+     * @return Trending tracks with their current decayed scores, best first
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public List<RankedTrack> getTrending(int limit) {
+        checkLimit(limit);
+        List<Leaderboard.Entry> top;
+        double decay;
+        trendingLock.readLock().lock();
+        try {
+            top = trending.top(limit);
+            decay = Math.exp(-decayPerMilli * (clock.millis() - referenceMillis));
+        } finally {
+            trendingLock.readLock().unlock();
+        }
+        return toRankedTracks(top, decay);
+    }
+
+    /**
+     * Get the tracks with the best Bayesian average rating.
+     * @param limit Maximum number of tracks to return, at most MAX_LIMIT
+     * @return Top-rated tracks with their Bayesian averages, best first
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public List<RankedTrack> getTopRated(int limit) {
+        checkLimit(limit);
+        return toRankedTracks(topRated.top(limit), 1.0);
+    }
+
+    /**
+     * Score a track's ratings the way the top-rated board does, against the current mean of all ratings.
+     * @param sum Sum of the track's ratings
+     * @param count Number of the track's ratings
+     * @return The Bayesian average; the mean of all ratings when count is 0
+     */
+    public double getBayesianScore(long sum, long count) {
+        synchronized (topRatedLock) {
+            return bayesianAverage(sum, count);
+        }
+    }
+
+    /**
+     * Count a play towards a track's trending score.
+     * @param trackId The track ID
+     */
+    public void recordPlay(Long trackId) {
+        addTrending(trackId, PLAY_WEIGHT);
+    }
+
+    /**
+     * Update the leaderboards once a rating, favourite or deletion has committed.
+     * @param event The track event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onTrackActivity(TrackActivityEvent event) {
+        Long trackId = event.getTrackId();
+        switch (event.getType()) {
+            case RATED -> {
+                addTrending(trackId, RATING_WEIGHT);
+                refreshRating(trackId);
+            }
+            // Taking a rating back is not activity worth trending on
+            case UNRATED -> refreshRating(trackId);
+            case FAVOURITED -> addTrending(trackId, FAVOURITE_WEIGHT);
+            case DELETED -> {
+                trending.remove(trackId);
+                synchronized (topRatedLock) {
+                    setRatingTotals(trackId, 0, 0);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Load the trending snapshot and compute the top-rated board when the application starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadLeaderboards() {
+        long now = clock.millis();
+        trendingLock.writeLock().lock();
+        try {
+            trending.clear();
+            referenceMillis = now;
+            for (TrendingScore row : trendingScoreRepository.findAll()) {
+                long age = Duration.between(row.getScoredAt(), LocalDateTime.now(clock)).toMillis();
+                trending.set(row.getTrackId(), row.getScore() * Math.exp(-decayPerMilli * Math.max(age, 0)));
+            }
+        } finally {
+            trendingLock.writeLock().unlock();
+        }
+
+        synchronized (topRatedLock) {
+            topRated.clear();
+            ratingTotals.clear();
+            ratingSum = 0;
+            ratingCount = 0;
+            for (Object[] row : ratingRepository.findAllRatingTotals()) {
+                long sum = ((Number) row[1]).longValue();
+                long count = ((Number) row[2]).longValue();
+                ratingTotals.put((Long) row[0], new long[]{sum, count});
+                ratingSum += sum;
+                ratingCount += count;
+            }
+            rescoreTopRated();
+        }
+        logger.info("Loaded leaderboards: {} trending tracks, {} rated tracks", trending.size(), topRated.size());
+    }
+
+    /**
+     * Decay the trending board to the present, drop scores that have faded away and save the rest,
+     * replacing the previous snapshot in one transaction. Also re-scores the top-rated board against
+     * the current mean. The transaction is opened here rather than by the proxy, since the shutdown
+     * hook calls this method directly.
+     */
+    @Scheduled(fixedDelayString = "${app.leaderboards.snapshot-interval-ms:300000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void snapshot() {
+        List<TrendingScore> rows = new ArrayList<>();
+        LocalDateTime scoredAt = LocalDateTime.now(clock);
+        trendingLock.writeLock().lock();
+        try {
+            long now = clock.millis();
+            double decay = Math.exp(-decayPerMilli * (now - referenceMillis));
+            referenceMillis = now;
+            for (Leaderboard.Entry entry : trending.entries()) {
+                double score = entry.getScore() * decay;
+                if (score < MIN_TRENDING_SCORE) {
+                    trending.remove(entry.getId());
+                } else {
+                    trending.set(entry.getId(), score);
+                    rows.add(new TrendingScore(entry.getId(), score, scoredAt));
+                }
+            }
+        } finally {
+            trendingLock.writeLock().unlock();
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            trendingScoreRepository.deleteAllInBatch();
+            trendingScoreRepository.saveAll(rows);
+        });
+
+        synchronized (topRatedLock) {
+            rescoreTopRated();
+        }
+        logger.debug("Snapshotted {} trending scores", rows.size());
+    }
+
+    @PreDestroy
+    public void saveOnShutdown() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            logger.warn("Could not snapshot trending scores on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void addTrending(long trackId, double weight) {
+        trendingLock.readLock().lock();
+        try {
+            trending.add(trackId, weight * Math.exp(decayPerMilli * (clock.millis() - referenceMillis)));
+        } finally {
+            trendingLock.readLock().unlock();
+        }
+    }
+
+    // Re-read one track's totals; read and applied under the lock so the last refresh is the latest
+    private void refreshRating(long trackId) {
+        synchronized (topRatedLock) {
+            List<Object[]> rows = ratingRepository.findRatingTotalsByTrackId(trackId);
+            Object[] row = rows.isEmpty() ? null : rows.get(0);
+            long sum = (row != null && row[0] != null) ? ((Number) row[0]).longValue() : 0;
+            long count = (row != null && row[1] != null) ? ((Number) row[1]).longValue() : 0;
+            setRatingTotals(trackId, sum, count);
+        }
+    }
+
+    // Callers hold topRatedLock
+    private void setRatingTotals(long trackId, long sum, long count) {
+        long[] previous = (count > 0) ? ratingTotals.put(trackId, new long[]{sum, count}) : ratingTotals.remove(trackId);
+        if (previous != null) {
+            ratingSum -= previous[0];
+            ratingCount -= previous[1];
+        }
+        ratingSum += sum;
+        ratingCount += count;
+        if (count > 0) {
+            topRated.set(trackId, bayesianAverage(sum, count));
+        } else {
+            topRated.remove(trackId);
+        }
+    }
+
+    // Callers hold topRatedLock
+    private void rescoreTopRated() {
+        ratingTotals.forEach((trackId, totals) -> topRated.set(trackId, bayesianAverage(totals[0], totals[1])));
+    }
+
+    private double bayesianAverage(long sum, long count) {
+        double mean = ratingCount > 0 ? (double) ratingSum / ratingCount : DEFAULT_MEAN_RATING;
+        return (priorWeight * mean + sum) / (priorWeight + count);
+    }
+
+    private List<RankedTrack> toRankedTracks(List<Leaderboard.Entry> entries, double scale) {
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(entries.size());
+        for (Leaderboard.Entry entry : entries) {
+            ids.add(entry.getId());
+        }
+        Map<Long, AudioTrack> tracks = audioTrackRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(AudioTrack::getId, Function.identity()));
+
+        List<RankedTrack> ranked = new ArrayList<>(entries.size());
+        for (Leaderboard.Entry entry : entries) {
+            AudioTrack track = tracks.get(entry.getId());
+            // A snapshot may name a track deleted while the application was down
+            if (track != null) {
+                ranked.add(new RankedTrack(track, entry.getScore() * scale));
+            }
+        }
+        return ranked;
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values, with no boxing.
+ * Keys must be non-zero (zero marks a free slot); entity IDs, which start at 1, fit.
+ * A missing key reads as 0, and {@link #addTo} drops entries whose value falls to 0,
+ * so the map doubles as a sparse counter. Not thread-safe.
+ */
+public final class LongIntHashMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    /**
+     * Receives each entry of a map.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(long key, int value);
+    }
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeAt;
+
+    public LongIntHashMap() {
+        this(4);
+    }
+
+    /**
+     * @param expectedSize Number of entries to hold before the table grows
+     */
+    public LongIntHashMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    static int tableSize(int expectedSize) {
+        int needed = Math.max(4, (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR));
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -(slot + 1);
+    }
+
+    /**
+     * @param key The key
+     * @return The key's value, or 0 if absent
+     */
+    public int get(long key) {
+        int slot = find(checkKey(key));
+        return slot >= 0 ? values[slot] : 0;
+    }
+
+    public boolean containsKey(long key) {
+        return find(checkKey(key)) >= 0;
+    }
+
+    /**
+     * Set a key's value.
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or 0 if absent
+     */
+    public int put(long key, int value) {
+        int slot = find(checkKey(key));
+        if (slot >= 0) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insertAt(-slot - 1, key, value);
+        return 0;
+    }
+
+    /**
+     * Add to a key's value, treating a missing key as 0. The entry is removed if the result is 0.
+     * @param key The key
+     * @param delta Amount to add
+     * @return The new value
+     */
+    public int addTo(long key, int delta) {
+        int slot = find(checkKey(key));
+        if (slot >= 0) {
+            int value = values[slot] + delta;
+            if (value == 0) {
+                removeAt(slot);
+            } else {
+                values[slot] = value;
+            }
+            return value;
+        }
+        if (delta != 0) {
+            insertAt(-slot - 1, key, delta);
+        }
+        return delta;
+    }
+
+    /**
+     * @param key The key
+     * @return The removed value, or 0 if absent
+     */
+    public int remove(long key) {
+        int slot = find(checkKey(key));
+        if (slot < 0) {
+            return 0;
+        }
+        int previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return A new array holding the keys, in no particular order
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != 0) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    public void forEach(EntryVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                visitor.visit(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void insertAt(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    // Backward-shift deletion keeps probe sequences intact without tombstones
+    private void removeAt(int slot) {
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long key = keys[next];
+            if (key == 0) {
+                break;
+            }
+            int home = hash(key) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static long checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        return key;
+    }
+}
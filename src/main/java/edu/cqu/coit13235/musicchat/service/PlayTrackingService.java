@@ -0,0 +1,238 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.cqu.coit13235.musicchat.domain.PlayEvent;
+import edu.cqu.coit13235.musicchat.domain.TrackPlayCount;
+import edu.cqu.coit13235.musicchat.repository.PlayEventRepository;
+import edu.cqu.coit13235.musicchat.repository.TrackPlayCountRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for counting plays (downloads) and recording listening history without a
+ * database write per play. Each track's plays are counted in a {@link LongAdder}, so concurrent
+ * plays of a popular track do not contend on one counter, and each play by a known user is
+ * queued for history in a bounded queue of app.plays.history.capacity; when the queue is full
+ * the history entry is dropped (the play is still counted). Every app.plays.flush-interval-ms
+ * the counters are drained into track_play_counts with one batch of upserts, and the queue into
+ * play_events with one batch of inserts, in a single transaction.
+ */
+@Service
+@Transactional(readOnly = true)
+public class PlayTrackingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlayTrackingService.class);
+
+    public static final int DEFAULT_HISTORY_LIMIT = 20;
+    public static final int MAX_HISTORY_LIMIT = 100;
+
+    private final PlayEventRepository playEventRepository;
+    private final TrackPlayCountRepository trackPlayCountRepository;
+    private final LeaderboardService leaderboardService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean useOnConflict;
+
+    // Track ID -> plays since the last flush
+    private final ConcurrentHashMap<Long, LongAdder> counters = new ConcurrentHashMap<>();
+    private final BlockingQueue<PendingPlay> history;
+    private final LongAdder droppedPlays = new LongAdder();
+    // Only one flush at a time
+    private final Object flushLock = new Object();
+    // Counts taken by the running flush and not yet committed, still included in getPlayCount
+    private volatile Map<Long, Long> countsInFlight = Map.of();
+
+    @Autowired
+    public PlayTrackingService(PlayEventRepository playEventRepository,
+                               TrackPlayCountRepository trackPlayCountRepository,
+                               LeaderboardService leaderboardService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.plays.history.capacity:10000}") int historyCapacity,
+                               @Value("${app.reactions.upsert:merge}") String upsertSyntax) {
+        if (historyCapacity <= 0) {
+            throw new IllegalArgumentException("History capacity must be positive");
+        }
+        this.playEventRepository = playEventRepository;
+        this.trackPlayCountRepository = trackPlayCountRepository;
+        this.leaderboardService = leaderboardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.useOnConflict = RatingService.UPSERT_ON_CONFLICT.equalsIgnoreCase(upsertSyntax);
+        this.history = new ArrayBlockingQueue<>(historyCapacity);
+    }
+
+    /**
+     * Count a play of a track. Only touches memory; the play reaches the database at the next flush.
+     * @param trackId The track ID
+     * @param userId The listening user, or null for an anonymous play (counted but not kept in history)
+     */
+    public void recordPlay(Long trackId, Long userId) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        counter(trackId).increment();
+        if (userId != null && !history.offer(new PendingPlay(userId, trackId, LocalDateTime.now()))) {
+            droppedPlays.increment();
+        }
+        leaderboardService.recordPlay(trackId);
+    }
+
+    /**
+     * Get a track's play count, including plays not yet flushed. While a flush is running the
+     * count may be off by the plays being moved for a moment.
+     * @param trackId The track ID
+     * @return Number of times the track has been played
+     */
+    public long getPlayCount(Long trackId) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        // Read the in-flight counts before the stored count: they are cleared once the flush commits
+        long inFlight = countsInFlight.getOrDefault(trackId, 0L);
+        LongAdder pending = counters.get(trackId);
+        long stored = trackPlayCountRepository.findById(trackId).map(TrackPlayCount::getPlayCount).orElse(0L);
+        return stored + inFlight + (pending != null ? pending.sum() : 0);
+    }
+
+    /**
+     * Get a user's most recent plays. Plays since the last flush are not included yet.
+     * @param userId The user ID
+     * @param limit Maximum number of plays to return, at most MAX_HISTORY_LIMIT
+     * @return The user's plays, newest first
+     * @throws IllegalArgumentException if the user ID is null or the limit is out of range
+     */
+    public List<PlayEvent> getListeningHistory(Long userId, int limit) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_HISTORY_LIMIT);
+        }
+        return playEventRepository.findByUserIdOrderByPlayedAtDescIdDesc(userId, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Write the counted plays and queued history in one transaction. If the write fails the
+     * counts are added back and the history re-queued (as far as it fits) for the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.plays.flush-interval-ms:1000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void flush() {
+        synchronized (flushLock) {
+            long dropped = droppedPlays.sumThenReset();
+            if (dropped > 0) {
+                logger.warn("Listening history queue was full; dropped {} history entries", dropped);
+            }
+
+            Map<Long, Long> counts = new ConcurrentHashMap<>();
+            countsInFlight = counts;
+            counters.forEach((trackId, counter) -> {
+                long plays = counter.sumThenReset();
+                if (plays > 0) {
+                    counts.put(trackId, plays);
+                }
+            });
+            List<PendingPlay> plays = new ArrayList<>();
+            history.drainTo(plays);
+            if (counts.isEmpty() && plays.isEmpty()) {
+                countsInFlight = Map.of();
+                return;
+            }
+
+            boolean written = false;
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(counts, plays));
+                written = true;
+                logger.debug("Flushed play counts for {} tracks and {} history entries", counts.size(), plays.size());
+            } catch (Exception e) {
+                logger.warn("Failed to flush play counts for {} tracks and {} history entries: {}",
+                    counts.size(), plays.size(), e.getMessage());
+            } finally {
+                if (!written) {
+                    counts.forEach((trackId, count) -> counter(trackId).add(count));
+                    for (PendingPlay play : plays) {
+                        if (!history.offer(play)) {
+                            droppedPlays.increment();
+                        }
+                    }
+                }
+                countsInFlight = Map.of();
+            }
+        }
+    }
+
+    /**
+     * Stop counting plays of a deleted track.
+     * @param event The track event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onTrackActivity(TrackActivityEvent event) {
+        if (event.getType() == TrackActivityEvent.Type.DELETED) {
+            counters.remove(event.getTrackId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(Map<Long, Long> counts, List<PendingPlay> plays) {
+        if (!counts.isEmpty()) {
+            List<Long> trackIds = new ArrayList<>(counts.keySet());
+            List<Long> increments = new ArrayList<>(trackIds.size());
+            for (Long trackId : trackIds) {
+                increments.add(counts.get(trackId));
+            }
+            trackPlayCountRepository.batchIncrement(trackIds, increments, LocalDateTime.now(), useOnConflict);
+        }
+        if (!plays.isEmpty()) {
+            List<Long> userIds = new ArrayList<>(plays.size());
+            List<Long> trackIds = new ArrayList<>(plays.size());
+            List<LocalDateTime> playedAts = new ArrayList<>(plays.size());
+            for (PendingPlay play : plays) {
+                userIds.add(play.userId);
+                trackIds.add(play.trackId);
+                playedAts.add(play.playedAt);
+            }
+            playEventRepository.batchInsert(userIds, trackIds, playedAts);
+        }
+    }
+
+    private LongAdder counter(Long trackId) {
+        // get() first, so counting a play of a known track never locks a map bin
+        LongAdder counter = counters.get(trackId);
+        return (counter != null) ? counter : counters.computeIfAbsent(trackId, id -> new LongAdder());
+    }
+
+    private static final class PendingPlay {
+        private final long userId;
+        private final long trackId;
+        private final LocalDateTime playedAt;
+
+        private PendingPlay(long userId, long trackId, LocalDateTime playedAt) {
+            this.userId = userId;
+            this.trackId = trackId;
+            this.playedAt = playedAt;
+        }
+    }
+}
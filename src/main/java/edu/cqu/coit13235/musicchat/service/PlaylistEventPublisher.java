@@ -0,0 +1,62 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.dto.PlaylistOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Broadcasts playlist edits to the collaborators subscribed to /topic/playlists/{id}.
+ * Operations are sent only once the edit's transaction commits, so a client that reloads
+ * after receiving one always sees the change.
+ */
+@Component
+public class PlaylistEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistEventPublisher.class);
+
+    /**
+     * Destination prefix for playlist operations; the playlist ID is appended.
+     */
+    public static final String PLAYLIST_TOPIC_PREFIX = "/topic/playlists/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    public PlaylistEventPublisher(@Lazy SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Broadcast an operation after the current transaction commits, or now if there is none.
+     * Nothing is sent if the transaction rolls back.
+     * @param operation The operation to broadcast
+     */
+    public void publish(PlaylistOperation operation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(operation);
+                }
+            });
+        } else {
+            send(operation);
+        }
+    }
+
+    private void send(PlaylistOperation operation) {
+        try {
+            messagingTemplate.convertAndSend(PLAYLIST_TOPIC_PREFIX + operation.getPlaylistId(), operation);
+        } catch (Exception e) {
+            // Clients notice the missing version and reload, so a failed broadcast must not fail the edit
+            logger.warn("Failed to broadcast {} operation for playlist {}: {}",
+                operation.getType(), operation.getPlaylistId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package edu.cqu.coit13235.musicchat.service;
+
+/**
+ * Application event published when the track rows stored under a playlist change:
+ * tracks added or removed, rows copied or handed over between forks, or the playlist deleted.
+ * It names the playlist only; listeners read the rows again once the change has committed.
+ */
+public class PlaylistMembershipEvent {
+    
+    private final Long playlistId;
+    
+    public PlaylistMembershipEvent(Long playlistId) {
+        this.playlistId = playlistId;
+    }
+    
+    public Long getPlaylistId() {
+        return playlistId;
+    }
+    
+    @Override
+    public String toString() {
+        return "PlaylistMembershipEvent{" +
+                "playlistId=" + playlistId +
+                '}';
+    }
+}
@@ -0,0 +1,135 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
+import edu.cqu.coit13235.musicchat.repository.PlaylistTrackRepository;
+
+/**
+ * Computes sparse ordering keys for playlist tracks and keeps them spread out.
+ * Keys are spaced {@link PlaylistTrack#POSITION_GAP} apart, so appending or placing a track between
+ * two others writes only that track's row. When a gap gets too narrow the playlist is queued and
+ * respaced in the background; only a gap that is already exhausted forces an inline rebalance.
+ */
+@Component
+public class PlaylistOrdering {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistOrdering.class);
+
+    /**
+     * Gaps narrower than this after an insert queue the playlist for background rebalancing.
+     */
+    static final int MIN_GAP = 8;
+
+    private final PlaylistTrackRepository playlistTrackRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<Long> pendingRebalance = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PlaylistOrdering(PlaylistTrackRepository playlistTrackRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.playlistTrackRepository = playlistTrackRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Get the key for a track placed between two neighbours.
+     * @param before Key of the track that will precede it, or null if it goes first
+     * @param after Key of the track that will follow it, or null if it goes last
+     * @return The new key, or null if there is no room between the neighbours
+     */
+    public static Integer keyBetween(Integer before, Integer after) {
+        long key;
+        if (before == null && after == null) {
+            key = 0L;
+        } else if (before == null) {
+            key = (long) after - PlaylistTrack.POSITION_GAP;
+        } else if (after == null) {
+            key = (long) before + PlaylistTrack.POSITION_GAP;
+        } else {
+            long gap = (long) after - before;
+            if (gap < 2) {
+                return null;
+            }
+            key = before + gap / 2;
+        }
+        return (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) ? null : (int) key;
+    }
+
+    /**
+     * Check whether a key left too little room on either side of it.
+     * @param before Key of the preceding track, or null
+     * @param key The new key
+     * @param after Key of the following track, or null
+     * @return true if the playlist should be rebalanced soon
+     */
+    public static boolean isCrowded(Integer before, int key, Integer after) {
+        return (before != null && (long) key - before < MIN_GAP)
+            || (after != null && (long) after - key < MIN_GAP);
+    }
+
+    /**
+     * Get the keys for tracks appended after the current last track.
+     * @param maxPosition The current largest key, or null if the playlist is empty
+     * @param count Number of tracks being appended
+     * @return The first key, or null if the keys would overflow and the playlist must be rebalanced first
+     */
+    public static Integer firstAppendKey(Integer maxPosition, int count) {
+        long first = (maxPosition != null) ? (long) maxPosition + PlaylistTrack.POSITION_GAP : 0L;
+        long last = first + (long) (count - 1) * PlaylistTrack.POSITION_GAP;
+        return (last > Integer.MAX_VALUE) ? null : (int) first;
+    }
+
+    /**
+     * Queue a playlist for background rebalancing.
+     * @param playlistId The playlist ID
+     */
+    public void scheduleRebalance(Long playlistId) {
+        if (playlistId != null) {
+            pendingRebalance.add(playlistId);
+        }
+    }
+
+    /**
+     * Respace a playlist's keys now, in the caller's transaction.
+     * @param playlistId The playlist ID
+     * @return Number of tracks renumbered
+     */
+    public int rebalance(Long playlistId) {
+        pendingRebalance.remove(playlistId);
+        int renumbered = playlistTrackRepository.rebalancePositions(playlistId, PlaylistTrack.POSITION_GAP);
+        logger.debug("Rebalanced {} track positions in playlist {}", renumbered, playlistId);
+        return renumbered;
+    }
+
+    /**
+     * Rebalance every queued playlist, each in its own transaction.
+     */
+    @Scheduled(fixedDelayString = "${app.playlist.rebalance-interval-ms:60000}")
+    public void rebalancePending() {
+        Iterator<Long> iterator = pendingRebalance.iterator();
+        while (iterator.hasNext()) {
+            Long playlistId = iterator.next();
+            iterator.remove();
+            try {
+                transactionTemplate.executeWithoutResult(status -> rebalance(playlistId));
+            } catch (Exception e) {
+                logger.warn("Failed to rebalance playlist {}: {}", playlistId, e.getMessage());
+            }
+        }
+    }
+
+    boolean isRebalancePending(Long playlistId) {
+        return pendingRebalance.contains(playlistId);
+    }
+}
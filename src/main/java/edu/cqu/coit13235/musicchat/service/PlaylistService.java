@@ -1,38 +1,97 @@
 package edu.cqu.coit13235.musicchat.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import jakarta.persistence.EntityManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import edu.cqu.coit13235.musicchat.domain.AudioTrack;
 import edu.cqu.coit13235.musicchat.domain.Playlist;
 import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
+import edu.cqu.coit13235.musicchat.dto.PlaylistBulkAddResponse;
+import edu.cqu.coit13235.musicchat.dto.PlaylistOperation;
+import edu.cqu.coit13235.musicchat.dto.PlaylistSummary;
 import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import edu.cqu.coit13235.musicchat.repository.PlaylistRepository;
 import edu.cqu.coit13235.musicchat.repository.PlaylistTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.SmartPlaylistMemberRepository;
+import edu.cqu.coit13235.musicchat.repository.SmartPlaylistRuleRepository;
 
 /**
  * Service class for playlist management.
  * Handles playlist creation, track management, and retrieval.
+ * Every edit bumps the playlist version and is broadcast to collaborators as a small operation.
+ * Forks share their source's track rows until one of them is edited, when the rows are copied once.
+ * Each playlist's track count, duration and size are adjusted in the same transaction as the edit.
+ * Changes to a playlist's stored track rows are announced with a PlaylistMembershipEvent.
  */
 @Service
 @Transactional
 public class PlaylistService {
     
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistService.class);
+    
+    /**
+     * Maximum number of track IDs accepted in one add or remove request.
+     */
+    public static final int MAX_BULK_TRACKS = 1000;
+    
+    public static final int DEFAULT_TRACK_PAGE_SIZE = 50;
+    public static final int MAX_TRACK_PAGE_SIZE = 500;
+    
+    // Stands in for the moved row when placing a new track; generated IDs start at 1
+    private static final Long NO_ROW = 0L;
+    
     private final PlaylistRepository playlistRepository;
     private final PlaylistTrackRepository playlistTrackRepository;
     private final AudioTrackRepository audioTrackRepository;
+    private final PlaylistOrdering playlistOrdering;
+    private final EntityManager entityManager;
+    private final PlaylistEventPublisher playlistEventPublisher;
+    private final SmartPlaylistRuleRepository smartPlaylistRuleRepository;
+    private final SmartPlaylistMemberRepository smartPlaylistMemberRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int coverTrackCount;
     
     @Autowired
     public PlaylistService(PlaylistRepository playlistRepository,
                           PlaylistTrackRepository playlistTrackRepository,
-                          AudioTrackRepository audioTrackRepository) {
+                          AudioTrackRepository audioTrackRepository,
+                          PlaylistOrdering playlistOrdering,
+                          EntityManager entityManager,
+                          PlaylistEventPublisher playlistEventPublisher,
+                          SmartPlaylistRuleRepository smartPlaylistRuleRepository,
+                          SmartPlaylistMemberRepository smartPlaylistMemberRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${app.playlist.cover-tracks:4}") int coverTrackCount) {
         this.playlistRepository = playlistRepository;
         this.playlistTrackRepository = playlistTrackRepository;
         this.audioTrackRepository = audioTrackRepository;
+        this.playlistOrdering = playlistOrdering;
+        this.entityManager = entityManager;
+        this.playlistEventPublisher = playlistEventPublisher;
+        this.smartPlaylistRuleRepository = smartPlaylistRuleRepository;
+        this.smartPlaylistMemberRepository = smartPlaylistMemberRepository;
+        this.eventPublisher = eventPublisher;
+        this.coverTrackCount = coverTrackCount;
     }
     
     /**
@@ -63,23 +122,50 @@ public class PlaylistService {
      * @return The created playlist with tracks
      */
     public Playlist createPlaylistWithTracks(Long ownerId, String name, String description, List<Long> trackIds) {
-        System.out.println("🎵 [DEBUG] createPlaylistWithTracks - Starting with ownerId=" + ownerId + ", name=" + name + ", trackIds=" + trackIds);
-        
         Playlist playlist = createPlaylist(ownerId, name, description);
-        System.out.println("🎵 [DEBUG] createPlaylistWithTracks - Created base playlist with ID: " + playlist.getId());
         
         if (trackIds != null && !trackIds.isEmpty()) {
-            System.out.println("🎵 [DEBUG] createPlaylistWithTracks - Adding tracks to playlist: " + trackIds);
-            addTracksToPlaylist(playlist.getId(), trackIds);
+            bulkAddTracks(playlist.getId(), trackIds);
             // Refresh the playlist to get updated tracks
             playlist = playlistRepository.findById(playlist.getId()).orElse(playlist);
-            System.out.println("🎵 [DEBUG] createPlaylistWithTracks - Refreshed playlist, track count: " + playlist.getTracks().size());
         }
         
-        System.out.println("✅ [DEBUG] createPlaylistWithTracks - Successfully created playlist with tracks");
+        logger.debug("Created playlist {} for owner {} with tracks {}", playlist.getId(), ownerId, trackIds);
         return playlist;
     }
     
+    /**
+     * Fork a playlist: create a copy owned by another user that shares the original's tracks.
+     * No track rows are written; they are copied only when the fork or the original is first edited.
+     * @param playlistId The ID of the playlist to fork
+     * @param ownerId The ID of the fork's owner
+     * @param name The fork's name, or null to keep the original's name
+     * @return The fork
+     * @throws IllegalArgumentException if the playlist does not exist or is a smart playlist
+     */
+    public Playlist forkPlaylist(Long playlistId, Long ownerId, String name) {
+        if (ownerId == null) {
+            throw new IllegalArgumentException("Owner ID cannot be null");
+        }
+        Playlist parent = playlistRepository.findById(playlistId)
+            .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
+        if (parent.isSmart()) {
+            throw new IllegalArgumentException("Smart playlists cannot be forked");
+        }
+        
+        String forkName = (name != null && !name.trim().isEmpty()) ? name.trim() : parent.getName();
+        Playlist fork = new Playlist(ownerId, forkName, parent.getDescription());
+        fork.setForkedFromId(parent.getId());
+        // Forks of an unmodified fork read the same rows as it does, so sharing never chains
+        fork.setTrackSourceId(parent.getTrackListId());
+        fork.setTrackCount(parent.getTrackCount());
+        fork.setTotalDurationSeconds(parent.getTotalDurationSeconds());
+        fork.setTotalBytes(parent.getTotalBytes());
+        fork = playlistRepository.save(fork);
+        logger.info("Forked playlist {} as {} for owner {}", playlistId, fork.getId(), ownerId);
+        return withSharedTracks(fork);
+    }
+    
     /**
      * Get playlist by ID.
      * @param id The playlist ID
@@ -87,7 +173,7 @@ public class PlaylistService {
      */
     @Transactional(readOnly = true)
     public Optional<Playlist> getPlaylistById(Long id) {
-        return playlistRepository.findById(id);
+        return playlistRepository.findById(id).map(this::withSharedTracks);
     }
     
     /**
@@ -98,7 +184,7 @@ public class PlaylistService {
      */
     @Transactional(readOnly = true)
     public Optional<Playlist> getPlaylistByIdAndOwner(Long id, Long ownerId) {
-        return playlistRepository.findByIdAndOwnerId(id, ownerId);
+        return playlistRepository.findByIdAndOwnerId(id, ownerId).map(this::withSharedTracks);
     }
     
     /**
@@ -108,7 +194,7 @@ public class PlaylistService {
      */
     @Transactional(readOnly = true)
     public List<Playlist> getPlaylistsByOwner(Long ownerId) {
-        return playlistRepository.findByOwnerIdOrderByCreatedAtDesc(ownerId);
+        return withSharedTracks(playlistRepository.findByOwnerIdOrderByCreatedAtDesc(ownerId));
     }
     
     /**
@@ -117,7 +203,7 @@ public class PlaylistService {
      */
     @Transactional(readOnly = true)
     public List<Playlist> getAllPlaylists() {
-        return playlistRepository.findAllOrderByCreatedAtDesc();
+        return withSharedTracks(playlistRepository.findAllOrderByCreatedAtDesc());
     }
     
     /**
@@ -127,7 +213,111 @@ public class PlaylistService {
      */
     @Transactional(readOnly = true)
     public List<Playlist> searchPlaylistsByName(String name) {
-        return playlistRepository.findByNameContainingIgnoreCase(name);
+        return withSharedTracks(playlistRepository.findByNameContainingIgnoreCase(name));
+    }
+    
+    /**
+     * Give an unmodified fork its source's tracks to show, since it has no rows of its own.
+     */
+    private Playlist withSharedTracks(Playlist playlist) {
+        if (playlist.isSharingTracks()) {
+            playlist.setSharedTracks(playlistTrackRepository.findByPlaylistIdOrderByPosition(playlist.getTrackSourceId()));
+        }
+        return playlist;
+    }
+    
+    /**
+     * Give every unmodified fork in a list its source's tracks, loading all sources in one query.
+     */
+    private List<Playlist> withSharedTracks(List<Playlist> playlists) {
+        Set<Long> sourceIds = new HashSet<>();
+        for (Playlist playlist : playlists) {
+            if (playlist.isSharingTracks()) {
+                sourceIds.add(playlist.getTrackSourceId());
+            }
+        }
+        if (sourceIds.isEmpty()) {
+            return playlists;
+        }
+        
+        Map<Long, List<PlaylistTrack>> tracksBySource = new HashMap<>();
+        for (PlaylistTrack entry : playlistTrackRepository.findByPlaylistIdsOrderByPosition(sourceIds)) {
+            tracksBySource.computeIfAbsent(entry.getPlaylist().getId(), id -> new ArrayList<>()).add(entry);
+        }
+        for (Playlist playlist : playlists) {
+            if (playlist.isSharingTracks()) {
+                playlist.setSharedTracks(tracksBySource.getOrDefault(playlist.getTrackSourceId(), new ArrayList<>()));
+            }
+        }
+        return playlists;
+    }
+    
+    /**
+     * Find the playlist whose rows hold a playlist's tracks: its own, or its source while it is an unmodified fork.
+     */
+    private Long trackListId(Long playlistId) {
+        Long sourceId = playlistRepository.findTrackSourceIdById(playlistId);
+        return sourceId != null ? sourceId : playlistId;
+    }
+    
+    /**
+     * Get summaries of a user's playlists without loading their tracks.
+     * @param ownerId The owner ID
+     * @return Playlist summaries, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<PlaylistSummary> getPlaylistSummariesByOwner(Long ownerId) {
+        return withCoverTracks(playlistRepository.findSummariesByOwnerId(ownerId));
+    }
+    
+    /**
+     * Get summaries of all playlists without loading their tracks.
+     * @return Playlist summaries, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<PlaylistSummary> getAllPlaylistSummaries() {
+        return withCoverTracks(playlistRepository.findAllSummaries());
+    }
+    
+    /**
+     * Search playlists by name, returning summaries.
+     * @param name The name to search for
+     * @return Summaries of the matching playlists, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<PlaylistSummary> searchPlaylistSummariesByName(String name) {
+        return withCoverTracks(playlistRepository.findSummariesByNameContainingIgnoreCase(name));
+    }
+    
+    /**
+     * Fill in the cover tracks of every summary with a single query.
+     */
+    private List<PlaylistSummary> withCoverTracks(List<PlaylistSummary> summaries) {
+        if (summaries.isEmpty() || coverTrackCount <= 0) {
+            return summaries;
+        }
+        
+        // Keyed by track list, since unmodified forks show their source's tracks
+        Map<Long, List<PlaylistSummary>> byTrackList = new HashMap<>();
+        for (PlaylistSummary summary : summaries) {
+            if (summary.getTrackCount() > 0) {
+                byTrackList.computeIfAbsent(summary.getTrackListId(), id -> new ArrayList<>()).add(summary);
+            }
+        }
+        if (byTrackList.isEmpty()) {
+            return summaries;
+        }
+        
+        for (Object[] row : playlistTrackRepository.findLeadingTracks(byTrackList.keySet(), coverTrackCount)) {
+            List<PlaylistSummary> sharing = byTrackList.get(((Number) row[0]).longValue());
+            if (sharing != null) {
+                for (PlaylistSummary summary : sharing) {
+                    summary.getCoverTracks().add(new PlaylistSummary.CoverTrack(
+                        ((Number) row[1]).longValue(), (String) row[2], (String) row[3]));
+                }
+            }
+        }
+        return summaries;
     }
     
     /**
@@ -137,91 +327,461 @@ public class PlaylistService {
      * @return The updated playlist
      */
     public Playlist addTracksToPlaylist(Long playlistId, List<Long> trackIds) {
-        System.out.println("🎵 [DEBUG] addTracksToPlaylist - Starting with playlistId=" + playlistId + ", trackIds=" + trackIds);
-        
-        Playlist playlist = playlistRepository.findById(playlistId)
+        bulkAddTracks(playlistId, trackIds);
+        return playlistRepository.findById(playlistId)
             .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
-        System.out.println("🎵 [DEBUG] addTracksToPlaylist - Found playlist: " + playlist.getName());
+    }
+    
+    /**
+     * Add tracks to the end of a playlist with a fixed number of statements, however many tracks are given:
+     * one IN query to validate the track IDs, one for existing memberships, one for the current
+     * maximum position and a single batched insert. Tracks already in the playlist are skipped,
+     * and new tracks get sparse ordering keys after the current last track.
+     * @param playlistId The playlist ID
+     * @param trackIds List of track IDs to add, in the order they should appear
+     * @return Summary of which tracks were added and which were already present
+     * @throws IllegalArgumentException if the playlist or any track does not exist, or too many IDs are given
+     */
+    public PlaylistBulkAddResponse bulkAddTracks(Long playlistId, List<Long> trackIds) {
+        if (playlistId == null || !playlistRepository.existsById(playlistId)) {
+            throw new IllegalArgumentException("Playlist not found with ID: " + playlistId);
+        }
+        
+        Set<Long> requested = new LinkedHashSet<>();
+        if (trackIds != null) {
+            for (Long trackId : trackIds) {
+                if (trackId != null) {
+                    requested.add(trackId);
+                }
+            }
+        }
+        if (requested.isEmpty()) {
+            return new PlaylistBulkAddResponse(playlistId, 0, List.of(), List.of());
+        }
+        if (requested.size() > MAX_BULK_TRACKS) {
+            throw new IllegalArgumentException("Cannot add more than " + MAX_BULK_TRACKS + " tracks at once");
+        }
         
-        if (trackIds == null || trackIds.isEmpty()) {
-            System.out.println("🎵 [DEBUG] addTracksToPlaylist - No tracks to add, returning playlist");
-            return playlist;
+        Set<Long> existingTracks = new HashSet<>(audioTrackRepository.findExistingIds(requested));
+        for (Long trackId : requested) {
+            if (!existingTracks.contains(trackId)) {
+                throw new IllegalArgumentException("Audio track not found with ID: " + trackId);
+            }
         }
         
-        // Get current maximum position in the playlist
-        Integer maxPosition = playlistTrackRepository.findMaxPositionByPlaylistId(playlistId);
-        int nextPosition = (maxPosition != null) ? maxPosition + 1 : 0;
-        System.out.println("🎵 [DEBUG] addTracksToPlaylist - Current max position: " + maxPosition + ", next position: " + nextPosition);
+        // Lock the playlist before reading its memberships, so concurrent adds cannot both insert a track
+        long version = beginEdit(playlistId);
+        Set<Long> present = new HashSet<>(playlistTrackRepository.findTrackIdsInPlaylist(playlistId, requested));
+        List<Long> added = new ArrayList<>(requested.size());
+        List<Long> alreadyPresent = new ArrayList<>();
+        for (Long trackId : requested) {
+            if (present.contains(trackId)) {
+                alreadyPresent.add(trackId);
+            } else {
+                added.add(trackId);
+            }
+        }
         
-        for (Long trackId : trackIds) {
-            System.out.println("🎵 [DEBUG] addTracksToPlaylist - Processing trackId: " + trackId);
-            AudioTrack track = audioTrackRepository.findById(trackId)
-                .orElseThrow(() -> new IllegalArgumentException("Audio track not found with ID: " + trackId));
-            System.out.println("🎵 [DEBUG] addTracksToPlaylist - Found track: " + track.getTitle() + " by " + track.getArtist());
+        if (!added.isEmpty()) {
+            // Same contract as @Modifying(flushAutomatically = true, clearAutomatically = true):
+            // rows inserted over JDBC would otherwise be missing from already-loaded playlists
+            entityManager.flush();
+            Integer firstKey = PlaylistOrdering.firstAppendKey(
+                playlistTrackRepository.findMaxPositionByPlaylistId(playlistId), added.size());
+            if (firstKey == null) {
+                // Appending would run past the largest key; respace once, then append after the new maximum
+                playlistOrdering.rebalance(playlistId);
+                firstKey = PlaylistOrdering.firstAppendKey(
+                    playlistTrackRepository.findMaxPositionByPlaylistId(playlistId), added.size());
+                if (firstKey == null) {
+                    throw new IllegalArgumentException("Playlist " + playlistId + " cannot hold any more tracks");
+                }
+            }
+            List<Integer> positions = new ArrayList<>(added.size());
+            for (int i = 0; i < added.size(); i++) {
+                positions.add(firstKey + i * PlaylistTrack.POSITION_GAP);
+            }
+            playlistTrackRepository.batchInsert(playlistId, added, positions);
+            entityManager.clear();
             
-            // Check if track is already in playlist
-            List<PlaylistTrack> existingTracks = playlistTrackRepository.findByPlaylistIdAndTrackId(playlistId, trackId);
-            if (existingTracks.isEmpty()) {
-                System.out.println("🎵 [DEBUG] addTracksToPlaylist - Track not in playlist, adding at position: " + nextPosition);
-                PlaylistTrack playlistTrack = new PlaylistTrack();
-                playlistTrack.setPlaylist(playlist);
-                playlistTrack.setTrack(track);
-                playlistTrack.setPosition(nextPosition++);
-                playlistTrack = playlistTrackRepository.save(playlistTrack);
-                System.out.println("🎵 [DEBUG] addTracksToPlaylist - Saved PlaylistTrack with ID: " + playlistTrack.getId());
-                // Add to playlist's tracks list for immediate access
-                playlist.getTracks().add(playlistTrack);
-            } else {
-                System.out.println("🎵 [DEBUG] addTracksToPlaylist - Track already in playlist, skipping");
+            Object[] totals = audioTrackRepository.sumByIds(added).get(0);
+            playlistRepository.adjustAggregates(playlistId, orZero(totals[0]), orZero(totals[1]), orZero(totals[2]));
+            eventPublisher.publishEvent(new PlaylistMembershipEvent(playlistId));
+        }
+        
+        playlistEventPublisher.publish(PlaylistOperation.insert(playlistId, version, appendedEntries(playlistId, added)));
+        return new PlaylistBulkAddResponse(playlistId, requested.size(), added, alreadyPresent);
+    }
+    
+    /**
+     * Load the entries just appended to a playlist, numbered with their zero-based index.
+     */
+    private List<PlaylistTrack> appendedEntries(Long playlistId, List<Long> trackIds) {
+        if (trackIds.isEmpty()) {
+            return List.of();
+        }
+        List<PlaylistTrack> entries = playlistTrackRepository.findByPlaylistIdAndTrackIdIn(playlistId, trackIds);
+        int first = (int) playlistTrackRepository.countByPlaylistId(playlistId) - entries.size();
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setIndex(first + i);
+        }
+        return entries;
+    }
+    
+    /**
+     * Insert a single track next to another one, or at the end if no neighbour is given.
+     * Only the new row is written.
+     * @param playlistId The playlist ID
+     * @param trackId The ID of the audio track to insert
+     * @param afterTrackId ID of the track the new track should come after, or null
+     * @param beforeTrackId ID of the track the new track should come before, or null
+     * @return The new playlist track, with its zero-based index
+     * @throws IllegalArgumentException if the playlist or track does not exist, the track is already
+     *         in the playlist, or an anchor is not in the playlist
+     */
+    public PlaylistTrack insertTrack(Long playlistId, Long trackId, Long afterTrackId, Long beforeTrackId) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID cannot be null");
+        }
+        long version = beginEdit(playlistId);
+        AudioTrack track = audioTrackRepository.findById(trackId)
+            .orElseThrow(() -> new IllegalArgumentException("Audio track not found with ID: " + trackId));
+        if (!playlistTrackRepository.findTrackIdsInPlaylist(playlistId, List.of(trackId)).isEmpty()) {
+            throw new IllegalArgumentException("Track " + trackId + " is already in playlist " + playlistId);
+        }
+        
+        Integer key;
+        if (afterTrackId == null && beforeTrackId == null) {
+            key = PlaylistOrdering.firstAppendKey(playlistTrackRepository.findMaxPositionByPlaylistId(playlistId), 1);
+            if (key == null) {
+                playlistOrdering.rebalance(playlistId);
+                key = PlaylistOrdering.firstAppendKey(playlistTrackRepository.findMaxPositionByPlaylistId(playlistId), 1);
+            }
+        } else {
+            Integer[] neighbours = neighbourPositions(playlistId, NO_ROW, afterTrackId, beforeTrackId);
+            key = PlaylistOrdering.keyBetween(neighbours[0], neighbours[1]);
+            if (key == null) {
+                playlistOrdering.rebalance(playlistId);
+                neighbours = neighbourPositions(playlistId, NO_ROW, afterTrackId, beforeTrackId);
+                key = PlaylistOrdering.keyBetween(neighbours[0], neighbours[1]);
+            } else if (PlaylistOrdering.isCrowded(neighbours[0], key, neighbours[1])) {
+                playlistOrdering.scheduleRebalance(playlistId);
             }
         }
+        if (key == null) {
+            throw new IllegalStateException("No room to insert track " + trackId + " in playlist " + playlistId);
+        }
         
-        System.out.println("✅ [DEBUG] addTracksToPlaylist - Successfully added tracks to playlist");
-        return playlistRepository.findById(playlistId).orElse(playlist);
+        PlaylistTrack inserted = new PlaylistTrack(entityManager.getReference(Playlist.class, playlistId), track, key);
+        inserted = playlistTrackRepository.saveAndFlush(inserted);
+        playlistRepository.adjustAggregates(playlistId, 1, orZero(track.getDuration()), orZero(track.getFileSizeBytes()));
+        eventPublisher.publishEvent(new PlaylistMembershipEvent(playlistId));
+        inserted.setIndex((int) playlistTrackRepository.countBefore(playlistId, key, inserted.getId()));
+        playlistEventPublisher.publish(PlaylistOperation.insert(playlistId, version, List.of(inserted)));
+        return inserted;
     }
     
     /**
-     * Remove tracks from a playlist.
+     * Remove tracks from a playlist with a fixed number of statements, however many tracks are given:
+     * one query for which of them are in the playlist, one to total them and a single bulk delete.
+     * Ordering keys are sparse, so the remaining tracks keep their keys and no rows are rewritten.
      * @param playlistId The playlist ID
-     * @param trackIds List of track IDs to remove
+     * @param trackIds List of track IDs to remove; IDs not in the playlist are ignored
      * @return The updated playlist
+     * @throws IllegalArgumentException if the playlist does not exist or too many IDs are given
      */
     public Playlist removeTracksFromPlaylist(Long playlistId, List<Long> trackIds) {
-        System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Starting with playlistId=" + playlistId + ", trackIds=" + trackIds);
+        Set<Long> requested = new LinkedHashSet<>();
+        if (trackIds != null) {
+            for (Long trackId : trackIds) {
+                if (trackId != null) {
+                    requested.add(trackId);
+                }
+            }
+        }
+        if (requested.isEmpty()) {
+            return playlistRepository.findById(playlistId)
+                .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
+        }
+        if (requested.size() > MAX_BULK_TRACKS) {
+            throw new IllegalArgumentException("Cannot remove more than " + MAX_BULK_TRACKS + " tracks at once");
+        }
         
-        Playlist playlist = playlistRepository.findById(playlistId)
+        long version = beginEdit(playlistId);
+        Set<Long> present = new HashSet<>(playlistTrackRepository.findTrackIdsInPlaylist(playlistId, requested));
+        List<Long> removed = new ArrayList<>(present.size());
+        for (Long trackId : requested) {
+            if (present.contains(trackId)) {
+                removed.add(trackId);
+            }
+        }
+        
+        if (!removed.isEmpty()) {
+            Object[] totals = audioTrackRepository.sumByIds(removed).get(0);
+            playlistTrackRepository.deleteByPlaylistIdAndTrackIdIn(playlistId, removed);
+            playlistRepository.adjustAggregates(playlistId, -orZero(totals[0]), -orZero(totals[1]), -orZero(totals[2]));
+            eventPublisher.publishEvent(new PlaylistMembershipEvent(playlistId));
+        }
+        
+        playlistEventPublisher.publish(PlaylistOperation.remove(playlistId, version, removed));
+        return playlistRepository.findById(playlistId)
             .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
-        System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Found playlist: " + playlist.getName());
+    }
+    
+    /**
+     * Move a track next to another one by rewriting only the moved row's ordering key.
+     * Give the track it should follow, the track it should precede, or both.
+     * @param playlistId The playlist ID
+     * @param trackId The ID of the track to move
+     * @param afterTrackId ID of the track the moved track should come after, or null
+     * @param beforeTrackId ID of the track the moved track should come before, or null
+     * @param expectedVersion The version of the moved row the client last saw, or null to skip the check
+     * @return The moved playlist track, with its new version and zero-based index
+     * @throws IllegalArgumentException if the anchors are missing, invalid or not in the playlist
+     * @throws ObjectOptimisticLockingFailureException if the row changed since the client read it
+     */
+    public PlaylistTrack moveTrack(Long playlistId, Long trackId, Long afterTrackId, Long beforeTrackId,
+                                   Long expectedVersion) {
+        if (afterTrackId == null && beforeTrackId == null) {
+            throw new IllegalArgumentException("Either before or after must be given");
+        }
+        if (trackId.equals(afterTrackId) || trackId.equals(beforeTrackId)) {
+            throw new IllegalArgumentException("A track cannot be moved relative to itself");
+        }
+        long version = beginEdit(playlistId);
         
-        if (trackIds == null || trackIds.isEmpty()) {
-            System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - No tracks to remove, returning playlist");
-            return playlist;
+        PlaylistTrack moved = playlistTrackRepository.findByPlaylistIdAndTrackId(playlistId, trackId).stream()
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Track " + trackId + " is not in playlist " + playlistId));
+        if (expectedVersion != null && expectedVersion != moved.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(PlaylistTrack.class, moved.getId());
         }
         
-        for (Long trackId : trackIds) {
-            System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Processing trackId: " + trackId);
-            List<PlaylistTrack> playlistTracks = playlistTrackRepository.findByPlaylistIdAndTrackId(playlistId, trackId);
-            System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Found " + playlistTracks.size() + " PlaylistTrack entries to delete");
-            playlistTrackRepository.deleteAll(playlistTracks);
-            System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Deleted PlaylistTrack entries for trackId: " + trackId);
+        Integer[] neighbours = neighbourPositions(playlistId, moved.getId(), afterTrackId, beforeTrackId);
+        Integer key = PlaylistOrdering.keyBetween(neighbours[0], neighbours[1]);
+        if (key == null) {
+            // The gap is exhausted: respace the playlist (bumping every version, ours included) and retry once
+            playlistOrdering.rebalance(playlistId);
+            entityManager.refresh(moved);
+            neighbours = neighbourPositions(playlistId, moved.getId(), afterTrackId, beforeTrackId);
+            key = PlaylistOrdering.keyBetween(neighbours[0], neighbours[1]);
+            if (key == null) {
+                throw new IllegalStateException("No room to move track " + trackId + " in playlist " + playlistId);
+            }
+        } else if (PlaylistOrdering.isCrowded(neighbours[0], key, neighbours[1])) {
+            playlistOrdering.scheduleRebalance(playlistId);
         }
         
-        // Reorder remaining tracks
-        System.out.println("🎵 [DEBUG] removeTracksFromPlaylist - Reordering remaining tracks");
-        reorderPlaylistTracks(playlistId);
+        moved.setPosition(key);
+        moved = playlistTrackRepository.saveAndFlush(moved);
+        moved.setIndex((int) playlistTrackRepository.countBefore(playlistId, key, moved.getId()));
+        playlistEventPublisher.publish(PlaylistOperation.move(playlistId, version, moved));
+        return moved;
+    }
+    
+    /**
+     * Apply one collaborative edit to a playlist: insert, move or remove a single track.
+     * @param playlistId The playlist ID
+     * @param type The edit type, one of the PlaylistOperation types insert, move or remove
+     * @param trackId The ID of the track being edited
+     * @param afterTrackId For inserts and moves, the track to place it after, or null
+     * @param beforeTrackId For inserts and moves, the track to place it before, or null
+     * @param expectedVersion For moves, the version of the entry the client last saw, or null
+     * @return The playlist version produced by the edit
+     * @throws IllegalArgumentException if the edit is invalid
+     * @throws ObjectOptimisticLockingFailureException if a moved entry changed since the client read it
+     */
+    public long applyEdit(Long playlistId, String type, Long trackId, Long afterTrackId, Long beforeTrackId,
+                          Long expectedVersion) {
+        if (trackId == null) {
+            throw new IllegalArgumentException("Track ID is required");
+        }
+        if (PlaylistOperation.TYPE_INSERT.equals(type)) {
+            insertTrack(playlistId, trackId, afterTrackId, beforeTrackId);
+        } else if (PlaylistOperation.TYPE_MOVE.equals(type)) {
+            moveTrack(playlistId, trackId, afterTrackId, beforeTrackId, expectedVersion);
+        } else if (PlaylistOperation.TYPE_REMOVE.equals(type)) {
+            removeTracksFromPlaylist(playlistId, List.of(trackId));
+        } else {
+            throw new IllegalArgumentException("Unknown edit type: " + type);
+        }
+        // Still inside the edit's transaction, which holds the playlist lock
+        return playlistRepository.findVersionById(playlistId);
+    }
+    
+    /**
+     * Bump a playlist's version at the start of a track edit, locking it until the edit commits.
+     * Smart playlists are refused: their tracks come from their rules, which would undo the edit.
+     * @return The version the edit produces
+     * @throws IllegalArgumentException if the playlist does not exist or is a smart playlist
+     */
+    private long beginEdit(Long playlistId) {
+        if (playlistId == null) {
+            throw new IllegalArgumentException("Playlist not found with ID: null");
+        }
+        if (Boolean.TRUE.equals(playlistRepository.findSmartById(playlistId))) {
+            throw new IllegalArgumentException("Smart playlists cannot be edited");
+        }
+        // Lock a fork's source before the fork itself: the source locks itself before its forks
+        // when handing its rows over, so the two orders cannot deadlock
+        Long sourceId = playlistRepository.findTrackSourceIdById(playlistId);
+        if (sourceId != null) {
+            playlistRepository.findAndLockById(sourceId);
+        }
+        if (playlistRepository.incrementVersion(playlistId) == 0) {
+            throw new IllegalArgumentException("Playlist not found with ID: " + playlistId);
+        }
+        separateSharedTracks(playlistId, true);
+        return playlistRepository.findVersionById(playlistId);
+    }
+    
+    /**
+     * Copy-on-write: make sure no other playlist reads the rows about to change, or go away.
+     * An unmodified fork copies its source's rows. A playlist that forks still read hands its rows
+     * to the oldest of them, points the others there, and takes a copy back if it is keeping its
+     * tracks. Either way the rows are copied at most once, however many forks share them.
+     * The caller must hold the playlist's lock.
+     * @param playlistId The playlist about to be edited or deleted
+     * @param keepTracks Whether the playlist needs its tracks afterwards
+     */
+    private void separateSharedTracks(Long playlistId, boolean keepTracks) {
+        Long sourceId = playlistRepository.findTrackSourceIdById(playlistId);
+        if (sourceId != null) {
+            if (keepTracks) {
+                playlistTrackRepository.copyTracks(sourceId, playlistId);
+                eventPublisher.publishEvent(new PlaylistMembershipEvent(playlistId));
+            }
+            playlistRepository.detachTrackSource(playlistId, sourceId);
+            return;
+        }
         
-        System.out.println("✅ [DEBUG] removeTracksFromPlaylist - Successfully removed tracks from playlist");
-        return playlistRepository.findById(playlistId).orElse(playlist);
+        List<Long> heirs;
+        while (!(heirs = playlistRepository.findSharingPlaylistIds(playlistId, PageRequest.of(0, 1))).isEmpty()) {
+            Long heirId = heirs.get(0);
+            // Fails if the fork copied the rows itself since it was read; then try the next one
+            if (playlistRepository.detachTrackSource(heirId, playlistId) == 1) {
+                playlistTrackRepository.reassignTracks(playlistId, heirId);
+                playlistRepository.moveTrackSource(playlistId, heirId);
+                if (keepTracks) {
+                    playlistTrackRepository.copyTracks(heirId, playlistId);
+                }
+                eventPublisher.publishEvent(new PlaylistMembershipEvent(heirId));
+                logger.debug("Playlist {} handed its shared tracks to fork {}", playlistId, heirId);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Take a deleted audio track out of every playlist, adjusting their aggregates first.
+     * Runs in the transaction deleting the track, before the track row is removed.
+     * @param event The track event
+     */
+    @EventListener
+    public void onTrackActivity(TrackActivityEvent event) {
+        if (event.getType() != TrackActivityEvent.Type.DELETED) {
+            return;
+        }
+        Optional<AudioTrack> track = audioTrackRepository.findById(event.getTrackId());
+        if (track.isEmpty()) {
+            return;
+        }
+        int playlists = playlistRepository.removeTrackFromAggregates(event.getTrackId(),
+            orZero(track.get().getDuration()), orZero(track.get().getFileSizeBytes()));
+        int rows = playlistTrackRepository.deleteByTrackId(event.getTrackId());
+        logger.debug("Removed deleted track {} from {} playlist rows ({} playlists)", event.getTrackId(), rows, playlists);
+    }
+    
+    /**
+     * Fill in the stored aggregates of playlists created before they were kept.
+     * A single statement that only touches playlists with tracks but a zero count.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAggregates() {
+        int updated = playlistRepository.backfillMissingAggregates();
+        if (updated > 0) {
+            logger.info("Backfilled track aggregates for {} playlists", updated);
+        }
+    }
+    
+    private static long orZero(Object value) {
+        return (value instanceof Number number) ? number.longValue() : 0L;
+    }
+    
+    /**
+     * Find the ordering keys the moved track must land between.
+     * A missing anchor is filled in with the moved track's other neighbour, ignoring the moved row itself.
+     * @return {lower key or null, upper key or null}
+     */
+    private Integer[] neighbourPositions(Long playlistId, Long movedId, Long afterTrackId, Long beforeTrackId) {
+        Integer low = (afterTrackId != null) ? anchorPosition(playlistId, afterTrackId) : null;
+        Integer high = (beforeTrackId != null) ? anchorPosition(playlistId, beforeTrackId) : null;
+        if (low != null && high != null && low > high) {
+            throw new IllegalArgumentException("Track " + afterTrackId + " does not come before track " + beforeTrackId);
+        }
+        if (high == null) {
+            high = playlistTrackRepository.findNextPosition(playlistId, low, movedId);
+        } else if (low == null) {
+            low = playlistTrackRepository.findPreviousPosition(playlistId, high, movedId);
+        }
+        return new Integer[]{low, high};
+    }
+    
+    private Integer anchorPosition(Long playlistId, Long trackId) {
+        List<Integer> positions = playlistTrackRepository.findPositionsOfTrack(playlistId, trackId);
+        if (positions.isEmpty()) {
+            throw new IllegalArgumentException("Track " + trackId + " is not in playlist " + playlistId);
+        }
+        return positions.get(0);
     }
     
     /**
      * Get tracks in a playlist ordered by position.
      * @param playlistId The playlist ID
-     * @return List of playlist tracks ordered by position
+     * @return List of playlist tracks ordered by position, each numbered with its zero-based index
      */
     @Transactional(readOnly = true)
     public List<PlaylistTrack> getPlaylistTracks(Long playlistId) {
-        return playlistTrackRepository.findByPlaylistIdOrderByPosition(playlistId);
+        List<PlaylistTrack> tracks = playlistTrackRepository.findByPlaylistIdOrderByPosition(trackListId(playlistId));
+        for (int i = 0; i < tracks.size(); i++) {
+            tracks.get(i).setIndex(i);
+        }
+        return tracks;
+    }
+    
+    /**
+     * Get one page of the tracks in a playlist ordered by position.
+     * @param playlistId The playlist ID
+     * @param page Zero-based page number
+     * @param size Number of tracks per page
+     * @return The playlist tracks on the page, each numbered with its zero-based index in the playlist
+     * @throws IllegalArgumentException if the page or size is out of range
+     */
+    @Transactional(readOnly = true)
+    public List<PlaylistTrack> getPlaylistTracks(Long playlistId, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page cannot be negative");
+        }
+        if (size <= 0 || size > MAX_TRACK_PAGE_SIZE) {
+            throw new IllegalArgumentException("Size must be between 1 and " + MAX_TRACK_PAGE_SIZE);
+        }
+        
+        List<PlaylistTrack> tracks = playlistTrackRepository.findPageByPlaylistId(trackListId(playlistId), PageRequest.of(page, size));
+        int offset = page * size;
+        for (int i = 0; i < tracks.size(); i++) {
+            tracks.get(i).setIndex(offset + i);
+        }
+        return tracks;
+    }
+    
+    /**
+     * Count the tracks in a playlist.
+     * @param playlistId The playlist ID
+     * @return Number of tracks in the playlist
+     */
+    @Transactional(readOnly = true)
+    public long getPlaylistTrackCount(Long playlistId) {
+        return playlistTrackRepository.countByPlaylistId(trackListId(playlistId));
     }
     
     /**
@@ -232,8 +792,25 @@ public class PlaylistService {
      * @return The updated playlist
      */
     public Playlist updatePlaylist(Long playlistId, String name, String description) {
+        return updatePlaylist(playlistId, name, description, null);
+    }
+    
+    /**
+     * Update playlist information if nobody else changed the playlist first.
+     * @param playlistId The playlist ID
+     * @param name New playlist name
+     * @param description New playlist description
+     * @param expectedVersion The playlist version the client last saw, or null to skip the check
+     * @return The updated playlist
+     * @throws ObjectOptimisticLockingFailureException if the playlist changed since the client read it
+     */
+    public Playlist updatePlaylist(Long playlistId, String name, String description, Long expectedVersion) {
         Playlist playlist = playlistRepository.findById(playlistId)
             .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
+        if (expectedVersion != null && expectedVersion != playlist.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Playlist.class, playlistId);
+        }
+        long previousVersion = playlist.getVersion();
         
         if (name != null && !name.trim().isEmpty()) {
             playlist.setName(name.trim());
@@ -241,41 +818,43 @@ public class PlaylistService {
         
         playlist.setDescription(description);
         
-        return playlistRepository.save(playlist);
+        playlist = playlistRepository.saveAndFlush(playlist);
+        if (playlist.getVersion() != previousVersion) {
+            playlistEventPublisher.publish(PlaylistOperation.update(
+                playlistId, playlist.getVersion(), playlist.getName(), playlist.getDescription()));
+        }
+        return playlist;
     }
     
     /**
-     * Delete a playlist and all its tracks.
+     * Delete a playlist and all its tracks with bulk statements, so no track rows are loaded
+     * however long the playlist is.
      * @param playlistId The playlist ID
      * @return true if deleted successfully, false if not found
      */
     public boolean deletePlaylist(Long playlistId) {
         Optional<Playlist> playlistOpt = playlistRepository.findById(playlistId);
         if (playlistOpt.isPresent()) {
+            boolean smart = playlistOpt.get().isSmart();
+            // Forks still reading this playlist's tracks keep them
+            playlistRepository.incrementVersion(playlistId);
+            separateSharedTracks(playlistId, false);
+            
             // Delete all playlist tracks first
             playlistTrackRepository.deleteByPlaylistId(playlistId);
+            if (smart) {
+                smartPlaylistMemberRepository.deleteByPlaylistId(playlistId);
+                smartPlaylistRuleRepository.deleteByPlaylistId(playlistId);
+            }
             
-            // Delete the playlist
-            playlistRepository.deleteById(playlistId);
+            // Delete the playlist without loading it, which would cascade over its tracks
+            playlistRepository.deleteByIdInBulk(playlistId);
+            eventPublisher.publishEvent(new PlaylistMembershipEvent(playlistId));
             return true;
         }
         return false;
     }
     
-    /**
-     * Reorder tracks in a playlist to maintain sequential positions.
-     * @param playlistId The playlist ID
-     */
-    private void reorderPlaylistTracks(Long playlistId) {
-        List<PlaylistTrack> tracks = playlistTrackRepository.findByPlaylistIdOrderByPosition(playlistId);
-        
-        for (int i = 0; i < tracks.size(); i++) {
-            PlaylistTrack track = tracks.get(i);
-            track.setPosition(i);
-            playlistTrackRepository.save(track);
-        }
-    }
-    
     /**
      * Get total number of playlists.
      * @return Total count of playlists
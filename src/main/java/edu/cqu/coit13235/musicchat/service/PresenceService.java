@@ -0,0 +1,311 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.dto.PresenceUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service tracking which users are online in each chat room.
+ * Presence is driven by STOMP connect/disconnect events and kept fresh by inbound frames
+ * (including heartbeats). Changes are broadcast as compact join/leave diffs, with periodic
+ * snapshot checkpoints so clients that missed a diff can resynchronise without polling.
+ * Only the rooms listed in app.presence.rooms can be joined, and a room's state is dropped
+ * when its last member leaves, so clients cannot grow the room map by naming new rooms.
+ */
+@Service
+public class PresenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    /**
+     * Room used when a client does not name one in its CONNECT frame.
+     */
+    public static final String DEFAULT_ROOM = "chat";
+
+    /**
+     * STOMP CONNECT header naming the room a session joins.
+     */
+    public static final String ROOM_HEADER = "room";
+
+    /**
+     * Destination prefix for presence broadcasts; the room name is appended.
+     */
+    public static final String PRESENCE_TOPIC_PREFIX = "/topic/presence.";
+
+    /**
+     * Interval (ms) at which the server sends heartbeats and asks clients to send them.
+     */
+    public static final long HEARTBEAT_INTERVAL = 10000;
+
+    private static final int MISSED_HEARTBEATS_BEFORE_EVICTION = 3;
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final Set<String> allowedRooms;
+
+    // Session ID -> presence entry; the single source of truth for who is connected
+    private final Map<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PresenceService(@Lazy SimpMessagingTemplate messagingTemplate,
+                           @Value("${app.presence.rooms:" + DEFAULT_ROOM + "}") List<String> allowedRooms) {
+        this.messagingTemplate = messagingTemplate;
+        Set<String> rooms = new HashSet<>();
+        for (String room : allowedRooms) {
+            if (!room.isBlank()) {
+                rooms.add(room.trim());
+            }
+        }
+        rooms.add(DEFAULT_ROOM);
+        this.allowedRooms = Set.copyOf(rooms);
+    }
+
+    /**
+     * Register a session as online in a room. Sessions naming a room that is not allowed are ignored.
+     *
+     * @param room The room name
+     * @param sessionId The WebSocket session ID
+     * @param username The user owning the session
+     * @param heartbeatMillis Negotiated interval at which the client sends frames, or 0 if none
+     */
+    public void connect(String room, String sessionId, String username, long heartbeatMillis) {
+        if (sessionId == null || username == null) {
+            return;
+        }
+        String roomName = (room == null || room.isBlank()) ? DEFAULT_ROOM : room.trim();
+        if (!allowedRooms.contains(roomName)) {
+            logger.debug("Ignoring presence for session {} in unknown room", sessionId);
+            return;
+        }
+        SessionPresence presence = new SessionPresence(roomName, username, heartbeatMillis);
+        if (sessions.putIfAbsent(sessionId, presence) != null) {
+            return;
+        }
+
+        while (true) {
+            Room target = rooms.computeIfAbsent(roomName, Room::new);
+            synchronized (target) {
+                if (target.removed) {
+                    // The last member left between the lookup and the lock; join a fresh room
+                    continue;
+                }
+                Set<String> userSessions = target.sessionsByUser.computeIfAbsent(username, k -> ConcurrentHashMap.newKeySet());
+                boolean firstSession = userSessions.isEmpty();
+                userSessions.add(sessionId);
+                if (firstSession) {
+                    target.seq++;
+                    broadcast(target.name, PresenceUpdate.diff(target.name, target.seq, List.of(username), List.of()));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove a session; the user leaves the room once their last session is gone.
+     *
+     * @param sessionId The WebSocket session ID
+     */
+    public void disconnect(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        SessionPresence presence = sessions.remove(sessionId);
+        if (presence == null) {
+            return;
+        }
+
+        Room target = rooms.get(presence.room);
+        if (target == null) {
+            return;
+        }
+        synchronized (target) {
+            Set<String> userSessions = target.sessionsByUser.get(presence.username);
+            if (userSessions == null || !userSessions.remove(sessionId)) {
+                return;
+            }
+            if (userSessions.isEmpty()) {
+                target.sessionsByUser.remove(presence.username);
+                target.seq++;
+                broadcast(target.name, PresenceUpdate.diff(target.name, target.seq, List.of(), List.of(presence.username)));
+            }
+            if (target.sessionsByUser.isEmpty()) {
+                target.removed = true;
+                rooms.remove(target.name, target);
+            }
+        }
+    }
+
+    /**
+     * Record activity (any inbound frame, including heartbeats) for a session.
+     *
+     * @param sessionId The WebSocket session ID
+     */
+    public void touch(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        SessionPresence presence = sessions.get(sessionId);
+        if (presence != null) {
+            presence.lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get the full presence state of a room.
+     *
+     * @param room The room name
+     * @return A snapshot of the online users with the current sequence number
+     */
+    public PresenceUpdate getSnapshot(String room) {
+        Room target = rooms.get(room);
+        if (target == null) {
+            return PresenceUpdate.snapshot(room, 0, List.of());
+        }
+        synchronized (target) {
+            return snapshotOf(target);
+        }
+    }
+
+    /**
+     * Get the users currently online in a room.
+     *
+     * @param room The room name
+     * @return Sorted list of usernames
+     */
+    public List<String> getOnlineUsers(String room) {
+        return getSnapshot(room).getUsers();
+    }
+
+    @EventListener
+    public void handleSessionConnect(SessionConnectEvent event) {
+        Principal user = event.getUser();
+        if (user == null) {
+            // Anonymous sessions do not appear in presence lists
+            return;
+        }
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        long[] heartbeat = accessor.getHeartbeat();
+        long clientHeartbeat = (heartbeat != null && heartbeat.length > 0) ? heartbeat[0] : 0;
+        connect(accessor.getFirstNativeHeader(ROOM_HEADER), accessor.getSessionId(), user.getName(),
+            negotiatedHeartbeat(clientHeartbeat));
+    }
+
+    /**
+     * Interval at which a client actually sends heartbeats: STOMP settles on the larger of what
+     * the client offers and what the server asks for, and on none if either side declines.
+     *
+     * @param clientHeartbeat The client's advertised sending interval (cx), or 0
+     * @return The negotiated interval, or 0 for no heartbeats
+     */
+    static long negotiatedHeartbeat(long clientHeartbeat) {
+        if (clientHeartbeat <= 0) {
+            return 0;
+        }
+        return Math.max(clientHeartbeat, HEARTBEAT_INTERVAL);
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    /**
+     * Broadcast a snapshot for every room that changed since its last checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.snapshot-interval-ms:30000}")
+    public void publishCheckpoints() {
+        for (Room room : rooms.values()) {
+            synchronized (room) {
+                if (room.seq != room.checkpointSeq) {
+                    room.checkpointSeq = room.seq;
+                    broadcast(room.name, snapshotOf(room));
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop sessions that stopped sending heartbeats without a disconnect event.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.sweep-interval-ms:15000}")
+    public void evictIdleSessions() {
+        evictIdleSessions(System.currentTimeMillis());
+    }
+
+    void evictIdleSessions(long now) {
+        List<String> idle = new ArrayList<>();
+        sessions.forEach((sessionId, presence) -> {
+            if (presence.heartbeatMillis > 0
+                    && now - presence.lastSeen > presence.heartbeatMillis * MISSED_HEARTBEATS_BEFORE_EVICTION) {
+                idle.add(sessionId);
+            }
+        });
+        for (String sessionId : idle) {
+            logger.debug("Evicting idle presence session {}", sessionId);
+            disconnect(sessionId);
+        }
+    }
+
+    private PresenceUpdate snapshotOf(Room room) {
+        List<String> users = new ArrayList<>(room.sessionsByUser.keySet());
+        Collections.sort(users);
+        return PresenceUpdate.snapshot(room.name, room.seq, users);
+    }
+
+    private void broadcast(String room, PresenceUpdate update) {
+        try {
+            messagingTemplate.convertAndSend(PRESENCE_TOPIC_PREFIX + room, update);
+        } catch (Exception e) {
+            logger.warn("Failed to broadcast presence update for room {}: {}", room, e.getMessage());
+        }
+    }
+
+    private static final class SessionPresence {
+        private final String room;
+        private final String username;
+        private final long heartbeatMillis;
+        private volatile long lastSeen = System.currentTimeMillis();
+
+        private SessionPresence(String room, String username, long heartbeatMillis) {
+            this.room = room;
+            this.username = username;
+            this.heartbeatMillis = heartbeatMillis;
+        }
+    }
+
+    private static final class Room {
+        private final String name;
+        // Username -> concurrent set of that user's session IDs in this room
+        private final Map<String, Set<String>> sessionsByUser = new ConcurrentHashMap<>();
+        private long seq;
+        private long checkpointSeq;
+        // Set under the room's lock once it is taken out of the map
+        private boolean removed;
+
+        private Room(String name) {
+            this.name = name;
+        }
+    }
+}
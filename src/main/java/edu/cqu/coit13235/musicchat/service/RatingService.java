@@ -1,19 +1,37 @@
 package edu.cqu.coit13235.musicchat.service;
 
 import edu.cqu.coit13235.musicchat.domain.Rating;
+import edu.cqu.coit13235.musicchat.dto.RatingStats;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import edu.cqu.coit13235.musicchat.repository.RatingRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service class for managing audio track ratings.
  * Provides business logic for rating operations and statistics.
+ * Rating and un-rating are single atomic statements, so concurrent requests from the same
+ * user cannot race into the (user_id, track_id) unique constraint. With the write buffer enabled,
+ * ratings are written behind by {@link ReactionWriteBuffer} and a user's own ratings, single or
+ * listed, are read through it.
+ * Rating values for a page of tracks are answered from {@link UserReactionIndex}. Rating
+ * statistics come from one grouped query and are scored like the top-rated leaderboard.
  */
 @Service
 @Transactional
@@ -21,20 +39,47 @@ public class RatingService {
     
     private static final Logger logger = LoggerFactory.getLogger(RatingService.class);
     
+    /**
+     * Upsert with MERGE (H2).
+     */
+    public static final String UPSERT_MERGE = "merge";
+    
+    /**
+     * Upsert with INSERT ... ON CONFLICT (PostgreSQL).
+     */
+    public static final String UPSERT_ON_CONFLICT = "on-conflict";
+    
     private final RatingRepository ratingRepository;
+    private final AudioTrackRepository audioTrackRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReactionWriteBuffer writeBuffer;
+    private final UserReactionIndex reactionIndex;
+    private final LeaderboardService leaderboardService;
+    private final boolean useOnConflict;
     
     @Autowired
-    public RatingService(RatingRepository ratingRepository) {
+    public RatingService(RatingRepository ratingRepository, AudioTrackRepository audioTrackRepository,
+                         ApplicationEventPublisher eventPublisher, ReactionWriteBuffer writeBuffer,
+                         UserReactionIndex reactionIndex, LeaderboardService leaderboardService,
+                         @Value("${app.reactions.upsert:merge}") String upsertSyntax) {
         this.ratingRepository = ratingRepository;
+        this.audioTrackRepository = audioTrackRepository;
+        this.eventPublisher = eventPublisher;
+        this.writeBuffer = writeBuffer;
+        this.reactionIndex = reactionIndex;
+        this.leaderboardService = leaderboardService;
+        this.useOnConflict = UPSERT_ON_CONFLICT.equalsIgnoreCase(upsertSyntax);
     }
     
     /**
-     * Rate a track or update existing rating.
+     * Rate a track or update existing rating, with a single upsert statement.
+     * The row is not read back: the returned rating carries the values just written, with no ID,
+     * and its creation time is the time of this write even when an earlier rating was replaced.
      * 
      * @param userId the user ID
      * @param trackId the track ID
      * @param ratingValue the rating value (1-5)
-     * @return the saved rating
+     * @return the rating as written, or as buffered when the write is buffered
      * @throws IllegalArgumentException if rating value is invalid
      */
     public Rating rateTrack(Long userId, Long trackId, Integer ratingValue) {
@@ -44,23 +89,23 @@ public class RatingService {
         
         logger.debug("Rating track {} by user {} with value {}", trackId, userId, ratingValue);
         
-        // Check if user has already rated this track
-        Optional<Rating> existingRating = ratingRepository.findByUserIdAndTrackId(userId, trackId);
-        
-        if (existingRating.isPresent()) {
-            // Update existing rating
-            Rating rating = existingRating.get();
-            rating.setRatingValue(ratingValue);
-            Rating savedRating = ratingRepository.save(rating);
-            logger.info("Updated rating for track {} by user {} to {}", trackId, userId, ratingValue);
-            return savedRating;
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.putRating(userId, trackId, ratingValue);
+            return new Rating(userId, trackId, ratingValue);
+        }
+        Rating rating = new Rating(userId, trackId, ratingValue);
+        LocalDateTime now = rating.getUpdatedAt();
+        if (useOnConflict) {
+            ratingRepository.upsertOnConflict(userId, trackId, ratingValue, now);
         } else {
-            // Create new rating
-            Rating rating = new Rating(userId, trackId, ratingValue);
-            Rating savedRating = ratingRepository.save(rating);
-            logger.info("Created new rating for track {} by user {} with value {}", trackId, userId, ratingValue);
-            return savedRating;
+            // H2's MERGE does not lock the key it is about to insert, so two first ratings could
+            // both insert; the track row lock makes them take turns
+            audioTrackRepository.lockIdById(trackId);
+            ratingRepository.upsertMerge(userId, trackId, ratingValue, now);
         }
+        logger.info("Saved rating for track {} by user {} with value {}", trackId, userId, ratingValue);
+        eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.RATED, trackId, userId));
+        return rating;
     }
     
     /**
@@ -72,9 +117,39 @@ public class RatingService {
      */
     @Transactional(readOnly = true)
     public Optional<Rating> getUserRating(Long userId, Long trackId) {
+        if (writeBuffer.isEnabled()) {
+            Integer buffered = writeBuffer.bufferedRating(userId, trackId);
+            if (buffered != null) {
+                return buffered == ReactionWriteBuffer.REMOVED
+                    ? Optional.empty() : Optional.of(new Rating(userId, trackId, buffered));
+            }
+        }
         return ratingRepository.findByUserIdAndTrackId(userId, trackId);
     }
     
+    /**
+     * Get the value of a user's rating for a track, without loading the rating itself.
+     * 
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @return the rating value, or null if the user has not rated the track
+     */
+    // SUPPORTS: a page of lookups should not open a transaction per track
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Integer getUserRatingValue(Long userId, Long trackId) {
+        if (writeBuffer.isEnabled()) {
+            Integer buffered = writeBuffer.bufferedRating(userId, trackId);
+            if (buffered != null) {
+                return buffered == ReactionWriteBuffer.REMOVED ? null : buffered;
+            }
+        }
+        // Inside a transaction, read the row so the caller sees its own uncommitted rating
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return ratingRepository.findByUserIdAndTrackId(userId, trackId).map(Rating::getRatingValue).orElse(null);
+        }
+        return reactionIndex.getRating(userId, trackId);
+    }
+    
     /**
      * Get all ratings for a specific track.
      * 
@@ -94,7 +169,33 @@ public class RatingService {
      */
     @Transactional(readOnly = true)
     public List<Rating> getUserRatings(Long userId) {
-        return ratingRepository.findByUserId(userId);
+        List<Rating> stored = ratingRepository.findByUserId(userId);
+        if (!writeBuffer.isEnabled()) {
+            return stored;
+        }
+        Map<Long, Integer> buffered = writeBuffer.bufferedRatingsOf(userId);
+        if (buffered.isEmpty()) {
+            return stored;
+        }
+        // Buffered values replace stored ones on detached copies, so the managed rows are left alone
+        List<Rating> ratings = new ArrayList<>(stored.size() + buffered.size());
+        for (Rating rating : stored) {
+            Integer value = buffered.remove(rating.getTrackId());
+            if (value == null) {
+                ratings.add(rating);
+            } else if (value != ReactionWriteBuffer.REMOVED) {
+                Rating updated = new Rating(userId, rating.getTrackId(), value);
+                updated.setId(rating.getId());
+                updated.setCreatedAt(rating.getCreatedAt());
+                ratings.add(updated);
+            }
+        }
+        buffered.forEach((trackId, value) -> {
+            if (value != ReactionWriteBuffer.REMOVED) {
+                ratings.add(new Rating(userId, trackId, value));
+            }
+        });
+        return ratings;
     }
     
     /**
@@ -120,6 +221,62 @@ public class RatingService {
         return ratingRepository.countByTrackId(trackId);
     }
     
+    /**
+     * Get a track's rating histogram, average and Bayesian score.
+     * 
+     * @param trackId the track ID
+     * @return the track's rating statistics (all zero if it has no ratings)
+     */
+    @Transactional(readOnly = true)
+    public RatingStats getRatingStats(Long trackId) {
+        return getRatingStats(List.of(trackId)).get(0);
+    }
+    
+    /**
+     * Get the rating statistics of several tracks with one grouped query.
+     * 
+     * @param trackIds the track IDs
+     * @return one entry per track ID, in the order given
+     * @throws IllegalArgumentException if any track ID is null
+     */
+    @Transactional(readOnly = true)
+    public List<RatingStats> getRatingStats(List<Long> trackIds) {
+        if (trackIds == null) {
+            throw new IllegalArgumentException("Track IDs cannot be null");
+        }
+        Set<Long> distinctIds = new HashSet<>();
+        for (Long trackId : trackIds) {
+            if (trackId == null) {
+                throw new IllegalArgumentException("Track IDs cannot be null");
+            }
+            distinctIds.add(trackId);
+        }
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Long, long[]> histograms = new HashMap<>();
+        for (Object[] row : ratingRepository.findRatingHistogramsByTrackIds(distinctIds)) {
+            int value = (Integer) row[1];
+            if (value >= 1 && value <= 5) {
+                histograms.computeIfAbsent((Long) row[0], id -> new long[5])[value - 1] = ((Number) row[2]).longValue();
+            }
+        }
+        
+        List<RatingStats> stats = new ArrayList<>(trackIds.size());
+        for (Long trackId : trackIds) {
+            long[] histogram = histograms.getOrDefault(trackId, new long[5]);
+            long sum = 0;
+            long count = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                sum += histogram[i] * (i + 1);
+                count += histogram[i];
+            }
+            stats.add(new RatingStats(trackId, histogram, leaderboardService.getBayesianScore(sum, count)));
+        }
+        return stats;
+    }
+    
     /**
      * Remove a user's rating for a track.
      * 
@@ -128,10 +285,13 @@ public class RatingService {
      * @return true if rating was removed, false if no rating existed
      */
     public boolean removeRating(Long userId, Long trackId) {
-        Optional<Rating> rating = ratingRepository.findByUserIdAndTrackId(userId, trackId);
-        if (rating.isPresent()) {
-            ratingRepository.delete(rating.get());
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.removeRating(userId, trackId,
+                () -> ratingRepository.findByUserIdAndTrackId(userId, trackId).isPresent());
+        }
+        if (ratingRepository.deleteByUserIdAndTrackIdInBulk(userId, trackId) > 0) {
             logger.info("Removed rating for track {} by user {}", trackId, userId);
+            eventPublisher.publishEvent(new TrackActivityEvent(TrackActivityEvent.Type.UNRATED, trackId, userId));
             return true;
         }
         return false;
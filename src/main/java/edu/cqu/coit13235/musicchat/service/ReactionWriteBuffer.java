@@ -0,0 +1,455 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Optional write-behind buffer for rating and favourite clicks (app.reactions.buffer.enabled).
+ * Intents are kept per (user, track) in a striped map, so repeated clicks collapse to the last
+ * value, and flushed every few hundred milliseconds as batched upserts and deletes in one
+ * transaction. Lookups of a user's own ratings and favourites, single or listed, see the buffered
+ * values first, so a user reads their writes before they reach the database; lists by track,
+ * counts and averages catch up on flush.
+ * TrackActivityEvents are published at flush time, only for rows the flush actually changed.
+ */
+@Component
+public class ReactionWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactionWriteBuffer.class);
+
+    /**
+     * Buffered rating value meaning the rating is to be removed.
+     */
+    public static final int REMOVED = 0;
+
+    private final boolean enabled;
+    private final boolean useOnConflict;
+    private final Stripe[] stripes;
+    private final RatingRepository ratingRepository;
+    private final FavouriteRepository favouriteRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Only one flush at a time, so in-flight entries always belong to the running flush
+    private final Object flushLock = new Object();
+
+    @Autowired
+    public ReactionWriteBuffer(@Value("${app.reactions.buffer.enabled:false}") boolean enabled,
+                               @Value("${app.reactions.buffer.stripes:16}") int stripeCount,
+                               @Value("${app.reactions.upsert:merge}") String upsertSyntax,
+                               RatingRepository ratingRepository,
+                               FavouriteRepository favouriteRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               PlatformTransactionManager transactionManager) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        this.enabled = enabled;
+        this.useOnConflict = RatingService.UPSERT_ON_CONFLICT.equalsIgnoreCase(upsertSyntax);
+        // Round up to a power of two so a stripe is picked with a mask
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.ratingRepository = ratingRepository;
+        this.favouriteRepository = favouriteRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Buffer a rating, replacing any buffered value for the same user and track.
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param ratingValue the rating value (1-5)
+     */
+    public void putRating(Long userId, Long trackId, int ratingValue) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.ratings.put(key, ratingValue);
+        }
+    }
+
+    /**
+     * Buffer the removal of a rating.
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param stored Whether the database holds a rating, asked only if nothing is buffered
+     * @return true if there was a rating to remove
+     */
+    public boolean removeRating(Long userId, Long trackId, BooleanSupplier stored) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Integer current = stripe.rating(key);
+            boolean existed = (current != null) ? current != REMOVED : stored.getAsBoolean();
+            if (existed) {
+                stripe.ratings.put(key, REMOVED);
+            }
+            return existed;
+        }
+    }
+
+    /**
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @return The buffered rating value, REMOVED for a buffered removal, or null if nothing is buffered
+     */
+    public Integer bufferedRating(Long userId, Long trackId) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.rating(key);
+        }
+    }
+
+    /**
+     * Flip a favourite, reading the current state from the buffer when it has one.
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param stored Whether the database holds the favourite, asked only if nothing is buffered
+     * @return true if the track is now a favourite
+     */
+    public boolean toggleFavourite(Long userId, Long trackId, BooleanSupplier stored) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Boolean current = stripe.favourite(key);
+            boolean favourited = !((current != null) ? current : stored.getAsBoolean());
+            stripe.favourites.put(key, favourited);
+            return favourited;
+        }
+    }
+
+    /**
+     * Buffer a favourite's state.
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @param favourited Whether the track should be a favourite
+     * @param stored Whether the database holds the favourite, asked only if nothing is buffered
+     * @return Whether the track was a favourite before
+     */
+    public boolean setFavourite(Long userId, Long trackId, boolean favourited, BooleanSupplier stored) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            Boolean current = stripe.favourite(key);
+            boolean previous = (current != null) ? current : stored.getAsBoolean();
+            if (previous != favourited) {
+                stripe.favourites.put(key, favourited);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * @param userId the user ID
+     * @param trackId the track ID
+     * @return The buffered favourite state, or null if nothing is buffered
+     */
+    public Boolean bufferedFavourite(Long userId, Long trackId) {
+        Key key = new Key(userId, trackId);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.favourite(key);
+        }
+    }
+
+    /**
+     * @param userId the user ID
+     * @return The user's buffered ratings by track ID, with {@link #REMOVED} for buffered removals
+     */
+    public Map<Long, Integer> bufferedRatingsOf(Long userId) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                collect(stripe.ratingsInFlight, userId, result);
+                collect(stripe.ratings, userId, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param userId the user ID
+     * @return The user's buffered favourite states by track ID
+     */
+    public Map<Long, Boolean> bufferedFavouritesOf(Long userId) {
+        Map<Long, Boolean> result = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                collect(stripe.favouritesInFlight, userId, result);
+                collect(stripe.favourites, userId, result);
+            }
+        }
+        return result;
+    }
+
+    // Pending entries are collected after in-flight ones, so the newer intent wins
+    private static <V> void collect(Map<Key, V> entries, long userId, Map<Long, V> result) {
+        entries.forEach((key, value) -> {
+            if (key.userId == userId) {
+                result.put(key.trackId, value);
+            }
+        });
+    }
+
+    /**
+     * @return Number of buffered intents not yet handed to a flush
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.ratings.size() + stripe.favourites.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write every buffered intent in one transaction: one batch of rating upserts, one of rating
+     * deletes, one of favourite inserts and one of favourite deletes. Entries stay readable while
+     * they are written. If the batch fails, its rows are retried one per transaction, so a row that
+     * violates a constraint is dropped rather than holding back the rest; rows that could not be written
+     * for any other reason return to the buffer unless a newer intent replaced them.
+     */
+    @Scheduled(fixedDelayString = "${app.reactions.buffer.flush-interval-ms:250}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            Map<Key, Integer> ratings = new HashMap<>();
+            Map<Key, Boolean> favourites = new HashMap<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (!stripe.ratings.isEmpty()) {
+                        stripe.ratingsInFlight = stripe.ratings;
+                        stripe.ratings = new HashMap<>();
+                        ratings.putAll(stripe.ratingsInFlight);
+                    }
+                    if (!stripe.favourites.isEmpty()) {
+                        stripe.favouritesInFlight = stripe.favourites;
+                        stripe.favourites = new HashMap<>();
+                        favourites.putAll(stripe.favouritesInFlight);
+                    }
+                }
+            }
+            if (ratings.isEmpty() && favourites.isEmpty()) {
+                return;
+            }
+
+            // Until something is written, every entry goes back to the buffer
+            Set<Key> retryRatings = ratings.keySet();
+            Set<Key> retryFavourites = favourites.keySet();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(ratings, favourites));
+                retryRatings = Set.of();
+                retryFavourites = Set.of();
+                logger.debug("Flushed {} buffered ratings and {} buffered favourites", ratings.size(), favourites.size());
+            } catch (Exception e) {
+                logger.warn("Failed to flush {} buffered ratings and {} buffered favourites, retrying row by row: {}",
+                    ratings.size(), favourites.size(), e.getMessage());
+                retryRatings = new HashSet<>();
+                retryFavourites = new HashSet<>();
+                writeRowByRow(ratings, favourites, retryRatings, retryFavourites);
+            } finally {
+                for (Stripe stripe : stripes) {
+                    synchronized (stripe) {
+                        for (Map.Entry<Key, Integer> entry : stripe.ratingsInFlight.entrySet()) {
+                            if (retryRatings.contains(entry.getKey())) {
+                                stripe.ratings.putIfAbsent(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        for (Map.Entry<Key, Boolean> entry : stripe.favouritesInFlight.entrySet()) {
+                            if (retryFavourites.contains(entry.getKey())) {
+                                stripe.favourites.putIfAbsent(entry.getKey(), entry.getValue());
+                            }
+                        }
+                        stripe.ratingsInFlight = Map.of();
+                        stripe.favouritesInFlight = Map.of();
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Write a failed batch one row per transaction. Rows that violate a constraint, such as a
+     * rating of a track deleted since, are dropped; after any other failure, such as the database
+     * being unavailable, the row and every row not yet tried are left for the next flush.
+     */
+    private void writeRowByRow(Map<Key, Integer> ratings, Map<Key, Boolean> favourites,
+                               Set<Key> retryRatings, Set<Key> retryFavourites) {
+        boolean available = true;
+        for (Map.Entry<Key, Integer> entry : ratings.entrySet()) {
+            if (!available || !writeRow(entry.getKey(), Map.of(entry.getKey(), entry.getValue()), Map.of())) {
+                available = false;
+                retryRatings.add(entry.getKey());
+            }
+        }
+        for (Map.Entry<Key, Boolean> entry : favourites.entrySet()) {
+            if (!available || !writeRow(entry.getKey(), Map.of(), Map.of(entry.getKey(), entry.getValue()))) {
+                available = false;
+                retryFavourites.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return false if the row could not be written and should be retried
+     */
+    private boolean writeRow(Key key, Map<Key, Integer> rating, Map<Key, Boolean> favourite) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(rating, favourite));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Dropping buffered {} of track {} by user {}, which the database rejected: {}",
+                rating.isEmpty() ? "favourite" : "rating", key.trackId, key.userId, e.getMessage());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void write(Map<Key, Integer> ratings, Map<Key, Boolean> favourites) {
+        Batch upserts = new Batch();
+        Batch ratingDeletes = new Batch();
+        List<Integer> values = new ArrayList<>();
+        ratings.forEach((key, value) -> {
+            if (value == REMOVED) {
+                ratingDeletes.add(key);
+            } else {
+                upserts.add(key);
+                values.add(value);
+            }
+        });
+        Batch inserts = new Batch();
+        Batch favouriteDeletes = new Batch();
+        favourites.forEach((key, favourited) -> (favourited ? inserts : favouriteDeletes).add(key));
+
+        if (!upserts.isEmpty()) {
+            ratingRepository.batchUpsert(upserts.userIds, upserts.trackIds, values, useOnConflict);
+            publish(upserts, null, TrackActivityEvent.Type.RATED);
+        }
+        if (!ratingDeletes.isEmpty()) {
+            publish(ratingDeletes, ratingRepository.batchDelete(ratingDeletes.userIds, ratingDeletes.trackIds),
+                TrackActivityEvent.Type.UNRATED);
+        }
+        if (!inserts.isEmpty()) {
+            publish(inserts, favouriteRepository.batchInsertIfAbsent(inserts.userIds, inserts.trackIds, useOnConflict),
+                TrackActivityEvent.Type.FAVOURITED);
+        }
+        if (!favouriteDeletes.isEmpty()) {
+            publish(favouriteDeletes, favouriteRepository.batchDelete(favouriteDeletes.userIds, favouriteDeletes.trackIds),
+                TrackActivityEvent.Type.UNFAVOURITED);
+        }
+    }
+
+    // Publish an event for each row the batch changed; null counts mean every row changed
+    private void publish(Batch batch, int[] counts, TrackActivityEvent.Type type) {
+        for (int i = 0; i < batch.userIds.size(); i++) {
+            // Drivers may report Statement.SUCCESS_NO_INFO (-2) instead of a row count
+            if (counts == null || i >= counts.length || counts[i] != 0) {
+                eventPublisher.publishEvent(new TrackActivityEvent(type, batch.trackIds.get(i), batch.userIds.get(i)));
+            }
+        }
+    }
+
+    private Stripe stripeFor(Key key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Key {
+        private final long userId;
+        private final long trackId;
+
+        private Key(Long userId, Long trackId) {
+            if (userId == null || trackId == null) {
+                throw new IllegalArgumentException("User ID and track ID cannot be null");
+            }
+            this.userId = userId;
+            this.trackId = trackId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && key.userId == userId && key.trackId == trackId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(userId) * 31 + Long.hashCode(trackId);
+        }
+    }
+
+    /**
+     * One stripe of the buffer. Pending entries are waiting for the next flush; in-flight
+     * entries belong to the running flush and are still consulted by lookups.
+     */
+    private static final class Stripe {
+        private Map<Key, Integer> ratings = new HashMap<>();
+        private Map<Key, Integer> ratingsInFlight = Map.of();
+        private Map<Key, Boolean> favourites = new HashMap<>();
+        private Map<Key, Boolean> favouritesInFlight = Map.of();
+
+        private Integer rating(Key key) {
+            Integer value = ratings.get(key);
+            return (value != null) ? value : ratingsInFlight.get(key);
+        }
+
+        private Boolean favourite(Key key) {
+            Boolean value = favourites.get(key);
+            return (value != null) ? value : favouritesInFlight.get(key);
+        }
+    }
+
+    private static final class Batch {
+        private final List<Long> userIds = new ArrayList<>();
+        private final List<Long> trackIds = new ArrayList<>();
+
+        private void add(Key key) {
+            userIds.add(key.userId);
+            trackIds.add(key.trackId);
+        }
+
+        private boolean isEmpty() {
+            return userIds.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Bounded in-memory buffer of the most recently committed chat messages.
+ * Lets reconnecting clients replay the messages they missed without a database round trip.
+ * The buffer only answers for IDs above its floor; anything older must come from the database.
+ */
+@Component
+public class RecentMessageBuffer {
+
+    private static final long NO_FLOOR = Long.MAX_VALUE;
+
+    private final int capacity;
+
+    // Keyed by message ID so out-of-order commits still replay in ID order
+    private final ConcurrentSkipListMap<Long, ChatMessage> messages = new ConcurrentSkipListMap<>();
+
+    // Highest ID the buffer cannot vouch for; every message above it is held in memory
+    private volatile long floorId = NO_FLOOR;
+
+    public RecentMessageBuffer(@Value("${app.chat.recent-buffer-size:500}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Record a committed message, evicting the oldest entries once capacity is exceeded.
+     * @param message The persisted message (must have an ID)
+     */
+    public synchronized void append(ChatMessage message) {
+        if (message == null || message.getId() == null) {
+            return;
+        }
+
+        long id = message.getId();
+        if (floorId == NO_FLOOR) {
+            // Nothing before the first message seen since startup is known to the buffer
+            floorId = id - 1;
+        } else if (id <= floorId) {
+            return;
+        }
+
+        messages.put(id, message);
+        while (messages.size() > capacity) {
+            Long evicted = messages.pollFirstEntry().getKey();
+            floorId = Math.max(floorId, evicted);
+        }
+    }
+
+    /**
+     * Get the messages after the given ID if the buffer covers the whole gap.
+     * @param lastSeenId The last message ID the client has already seen
+     * @param limit Maximum number of messages to return
+     * @return The missed messages in ID order, or empty if the gap reaches below the buffer floor
+     */
+    public Optional<List<ChatMessage>> since(long lastSeenId, int limit) {
+        if (lastSeenId < floorId) {
+            return Optional.empty();
+        }
+
+        List<ChatMessage> result = new ArrayList<>();
+        for (ChatMessage message : messages.tailMap(lastSeenId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(message);
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Get the number of messages currently buffered.
+     * @return Buffered message count
+     */
+    public int size() {
+        return messages.size();
+    }
+
+    /**
+     * Drop all buffered messages and forget the floor.
+     */
+    public synchronized void clear() {
+        messages.clear();
+        floorId = NO_FLOOR;
+    }
+}
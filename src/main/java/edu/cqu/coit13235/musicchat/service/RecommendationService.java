@@ -0,0 +1,335 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.dto.RecommendedTrack;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Service class for personalised recommendations, using item-based collaborative filtering
+ * ({@link ItemSimilarityModel}) over ratings and favourites. A user's strength for a track is
+ * their rating (1-5), with a favourite counting as 5. The whole model is rebuilt at startup and
+ * nightly (app.recommendations.rebuild-cron) on a fork/join pool, then swapped in.
+ * <p>
+ * In between, committed rating, favourite and delete events are only queued, so the committing
+ * request does no extra work. Every app.recommendations.apply-interval-ms the queued changes are
+ * applied as one batch: the users' current ratings and favourites of the changed tracks are read
+ * in two queries, then the changed tracks' neighbours are recomputed, along with the neighbours
+ * of every track that was or now is among them, and then the changed users' recommendations.
+ * Rows are computed under the read lock and only installed under the write lock, so lookups are
+ * not held up by the recomputation. Other users' recommendations that a change affects are not
+ * refreshed until the next rebuild, so they may be up to one rebuild interval stale.
+ * Recommendations are precomputed, so serving one is a lookup.
+ */
+@Service
+@Transactional(readOnly = true)
+public class RecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    private final RatingRepository ratingRepository;
+    private final FavouriteRepository favouriteRepository;
+    private final AudioTrackRepository audioTrackRepository;
+    private final int maxNeighbours;
+    private final int maxRecommendations;
+    private final ForkJoinPool pool;
+    // Guards the model's contents: lookups and row computations read, installing rows writes
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Only one rebuild or batch of changes at a time, so only its thread changes the model
+    private final ReentrantLock updateLock = new ReentrantLock();
+    // [userId, trackId] changes and deleted track IDs not yet applied
+    private final Queue<long[]> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> pendingDeletions = new ConcurrentLinkedQueue<>();
+
+    private ItemSimilarityModel model;
+
+    @Autowired
+    public RecommendationService(RatingRepository ratingRepository,
+                                 FavouriteRepository favouriteRepository,
+                                 AudioTrackRepository audioTrackRepository,
+                                 @Value("${app.recommendations.max-neighbours:50}") int maxNeighbours,
+                                 @Value("${app.recommendations.max-per-user:50}") int maxRecommendations,
+                                 @Value("${app.recommendations.parallelism:0}") int parallelism) {
+        this.ratingRepository = ratingRepository;
+        this.favouriteRepository = favouriteRepository;
+        this.audioTrackRepository = audioTrackRepository;
+        this.maxNeighbours = maxNeighbours;
+        this.maxRecommendations = maxRecommendations;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.model = new ItemSimilarityModel(maxNeighbours, maxRecommendations);
+    }
+
+    /**
+     * Get a user's precomputed recommendations.
+     * @param userId The user ID
+     * @param limit Maximum number of tracks to return, at most app.recommendations.max-per-user
+     * @return Recommended tracks, best first; empty if the user has not rated or favourited anything yet
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public List<RecommendedTrack> getRecommendations(Long userId, int limit) {
+        if (limit < 1 || limit > maxRecommendations) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxRecommendations);
+        }
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+
+        // Ask for the full ranking, since some of it may be tracks deleted since it was computed
+        List<Long> ids = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            ItemSimilarityModel.Ranking ranking = model.getRecommendations(userId);
+            if (ranking == null) {
+                return List.of();
+            }
+            for (int i = 0; i < ranking.size(); i++) {
+                ids.add(ranking.getId(i));
+                scores.add(ranking.getScore(i));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<Long, AudioTrack> tracks = audioTrackRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(AudioTrack::getId, Function.identity()));
+        List<RecommendedTrack> recommended = new ArrayList<>(limit);
+        for (int i = 0; i < ids.size() && recommended.size() < limit; i++) {
+            AudioTrack track = tracks.get(ids.get(i));
+            if (track != null) {
+                recommended.add(new RecommendedTrack(track, scores.get(i)));
+            }
+        }
+        return recommended;
+    }
+
+    /**
+     * Rebuild the model from all ratings and favourites when the application starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void loadModel() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the model from all ratings and favourites, nightly by default, and swap it in.
+     * Lookups keep using the old model until then.
+     */
+    @Scheduled(cron = "${app.recommendations.rebuild-cron:0 0 3 * * *}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void rebuild() {
+        updateLock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            // Changes committed while loading stay queued and are applied to the rebuilt model afterwards
+            ItemSimilarityModel rebuilt = new ItemSimilarityModel(maxNeighbours, maxRecommendations);
+            for (Object[] row : ratingRepository.findAllRatingValues()) {
+                rebuilt.setInteraction((Long) row[0], (Long) row[1], strength((Integer) row[2], false));
+            }
+            // A favourite is the top strength, so it replaces any rating of the same track
+            for (Object[] row : favouriteRepository.findAllUserTrackPairs()) {
+                rebuilt.setInteraction((Long) row[0], (Long) row[1], strength(null, true));
+            }
+            rebuilt.rebuild(pool);
+
+            lock.writeLock().lock();
+            try {
+                model = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Rebuilt recommendations for {} users over {} tracks in {} ms",
+                rebuilt.getUserCount(), rebuilt.getTrackCount(), System.currentTimeMillis() - started);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Queue a rating, favourite or delete once it has committed, to apply with the next batch.
+     * @param event The track event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onTrackActivity(TrackActivityEvent event) {
+        switch (event.getType()) {
+            case RATED, UNRATED, FAVOURITED, UNFAVOURITED -> pendingChanges.add(new long[]{event.getUserId(), event.getTrackId()});
+            case DELETED -> pendingDeletions.add(event.getTrackId());
+            default -> { }
+        }
+    }
+
+    /**
+     * Apply the queued changes to the model as one batch. Skipped while a rebuild is running,
+     * so the shared scheduler thread is not parked on it; the changes stay queued for the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.recommendations.apply-interval-ms:1000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyPendingChanges() {
+        if (!updateLock.tryLock()) {
+            logger.debug("Recommendation rebuild in progress; leaving changes queued");
+            return;
+        }
+        try {
+            Set<Long> deleted = new HashSet<>();
+            for (Long trackId = pendingDeletions.poll(); trackId != null; trackId = pendingDeletions.poll()) {
+                deleted.add(trackId);
+            }
+            // User ID -> changed track IDs; several changes to one pair need reading only once
+            Map<Long, Set<Long>> changes = new HashMap<>();
+            for (long[] change = pendingChanges.poll(); change != null; change = pendingChanges.poll()) {
+                changes.computeIfAbsent(change[0], id -> new HashSet<>()).add(change[1]);
+            }
+            if (deleted.isEmpty() && changes.isEmpty()) {
+                return;
+            }
+
+            Set<Long> changedTracks = new HashSet<>();
+            changes.values().forEach(changedTracks::addAll);
+            changedTracks.removeAll(deleted);
+            Map<Long, Map<Long, Integer>> strengths = readStrengths(changes.keySet(), changedTracks);
+
+            // The interactions are small to change; the rows they affect are computed after
+            Set<Long> affectedTracks = new HashSet<>();
+            lock.writeLock().lock();
+            try {
+                for (Long trackId : deleted) {
+                    addNeighbourIds(model.getNeighbours(trackId), affectedTracks);
+                    model.removeTrack(trackId);
+                }
+                changes.forEach((userId, trackIds) -> {
+                    Map<Long, Integer> userStrengths = strengths.getOrDefault(userId, Map.of());
+                    for (Long trackId : trackIds) {
+                        if (!deleted.contains(trackId)) {
+                            model.setInteraction(userId, trackId, userStrengths.getOrDefault(trackId, 0));
+                        }
+                    }
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // A changed track's similarity to its old and new neighbours changed on both sides
+            Map<Long, ItemSimilarityModel.Ranking> trackRows = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (Long trackId : changedTracks) {
+                    addNeighbourIds(model.getNeighbours(trackId), affectedTracks);
+                    ItemSimilarityModel.Ranking row = model.computeNeighbours(trackId);
+                    trackRows.put(trackId, row);
+                    addNeighbourIds(row, affectedTracks);
+                }
+                affectedTracks.removeAll(deleted);
+                for (Long trackId : affectedTracks) {
+                    if (!trackRows.containsKey(trackId)) {
+                        trackRows.put(trackId, model.computeNeighbours(trackId));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                trackRows.forEach(model::setNeighbours);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Map<Long, ItemSimilarityModel.Ranking> userRows = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (Long userId : changes.keySet()) {
+                    userRows.put(userId, model.computeRecommendations(userId));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
+                userRows.forEach(model::setRecommendations);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.debug("Applied {} recommendation changes for {} users, refreshing {} tracks",
+                changedTracks.size() + deleted.size(), changes.size(), trackRows.size());
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Read the users' current interaction strengths with the tracks, in one query each for
+     * ratings and favourites.
+     * @return User ID -> (track ID -> strength); pairs with no interaction are absent
+     */
+    private Map<Long, Map<Long, Integer>> readStrengths(Set<Long> userIds, Set<Long> trackIds) {
+        Map<Long, Map<Long, Integer>> strengths = new HashMap<>();
+        if (userIds.isEmpty() || trackIds.isEmpty()) {
+            return strengths;
+        }
+        for (Object[] row : ratingRepository.findRatingValuesByUserIdsAndTrackIds(userIds, trackIds)) {
+            strengths.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                .put((Long) row[1], strength((Integer) row[2], false));
+        }
+        for (Object[] row : favouriteRepository.findUserTrackPairsByUserIdsAndTrackIds(userIds, trackIds)) {
+            Map<Long, Integer> userStrengths = strengths.computeIfAbsent((Long) row[0], id -> new HashMap<>());
+            Integer rating = userStrengths.get((Long) row[1]);
+            userStrengths.put((Long) row[1], strength(rating, true));
+        }
+        return strengths;
+    }
+
+    private static void addNeighbourIds(ItemSimilarityModel.Ranking ranking, Set<Long> ids) {
+        if (ranking != null) {
+            for (int i = 0; i < ranking.size(); i++) {
+                ids.add(ranking.getId(i));
+            }
+        }
+    }
+
+    /**
+     * @param rating The user's rating of the track, or null
+     * @param favourited Whether the user has favourited the track
+     * @return The interaction strength (1-5), or 0 for none
+     */
+    static int strength(Integer rating, boolean favourited) {
+        int value = (rating != null) ? rating : 0;
+        return favourited ? Math.max(value, 5) : value;
+    }
+}
@@ -0,0 +1,148 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.dto.SimilarTrack;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.PlaylistTrackRepository;
+
+/**
+ * Service class for "similar tracks": tracks that people put in the same playlists.
+ * Keeps TrackCoOccurrenceIndex in step with playlist_tracks. The index is filled once at startup,
+ * then each playlist whose rows change is read again after the change commits, so rolled-back
+ * edits never reach it. Unmodified forks read their source's rows and so count once between them.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SimilarTrackService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SimilarTrackService.class);
+    
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+    
+    private final TrackCoOccurrenceIndex index;
+    private final PlaylistTrackRepository playlistTrackRepository;
+    private final AudioTrackRepository audioTrackRepository;
+    
+    @Autowired
+    public SimilarTrackService(TrackCoOccurrenceIndex index,
+                               PlaylistTrackRepository playlistTrackRepository,
+                               AudioTrackRepository audioTrackRepository) {
+        this.index = index;
+        this.playlistTrackRepository = playlistTrackRepository;
+        this.audioTrackRepository = audioTrackRepository;
+    }
+    
+    /**
+     * Get the tracks most often found in the same playlists as a track.
+     * @param trackId The track ID
+     * @param limit Maximum number of tracks to return, at most MAX_LIMIT
+     * @return Similar tracks, best first
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public List<SimilarTrack> getSimilarTracks(Long trackId, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        List<TrackCoOccurrenceIndex.Neighbour> neighbours = index.topK(trackId, limit);
+        if (neighbours.isEmpty()) {
+            return List.of();
+        }
+        
+        List<Long> ids = new ArrayList<>(neighbours.size());
+        for (TrackCoOccurrenceIndex.Neighbour neighbour : neighbours) {
+            ids.add(neighbour.getTrackId());
+        }
+        Map<Long, AudioTrack> tracks = audioTrackRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(AudioTrack::getId, Function.identity()));
+        
+        List<SimilarTrack> similar = new ArrayList<>(neighbours.size());
+        for (TrackCoOccurrenceIndex.Neighbour neighbour : neighbours) {
+            AudioTrack track = tracks.get(neighbour.getTrackId());
+            // A track deleted since the index last heard about it
+            if (track != null) {
+                similar.add(new SimilarTrack(track, neighbour.getScore(), neighbour.getSharedPlaylists()));
+            }
+        }
+        return similar;
+    }
+    
+    /**
+     * Read a playlist's rows again once the change to them has committed.
+     * @param event The membership event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onPlaylistMembership(PlaylistMembershipEvent event) {
+        refreshPlaylist(event.getPlaylistId());
+    }
+    
+    /**
+     * Drop a deleted track from the index once its deletion has committed.
+     * @param event The track event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onTrackActivity(TrackActivityEvent event) {
+        if (event.getType() == TrackActivityEvent.Type.DELETED) {
+            index.removeTrack(event.getTrackId());
+        }
+    }
+    
+    /**
+     * Bring one playlist in the index up to date with its stored rows.
+     * @param playlistId The playlist ID
+     */
+    public void refreshPlaylist(Long playlistId) {
+        index.setPlaylistTracks(playlistId, playlistTrackRepository.findTrackIdArray(playlistId));
+    }
+    
+    /**
+     * Fill the index from every stored playlist membership in one streamed query.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        index.clear();
+        // Rows arrive grouped by playlist; hand each group over when the next one starts
+        long[] current = {0L};
+        long[][] tracks = {new long[64]};
+        int[] count = {0};
+        int[] playlists = {0};
+        playlistTrackRepository.forEachMembership((playlistId, trackId) -> {
+            if (playlistId != current[0]) {
+                if (count[0] > 0) {
+                    index.setPlaylistTracks(current[0], Arrays.copyOf(tracks[0], count[0]));
+                    playlists[0]++;
+                }
+                current[0] = playlistId;
+                count[0] = 0;
+            }
+            if (count[0] == tracks[0].length) {
+                tracks[0] = Arrays.copyOf(tracks[0], count[0] * 2);
+            }
+            tracks[0][count[0]++] = trackId;
+        });
+        if (count[0] > 0) {
+            index.setPlaylistTracks(current[0], Arrays.copyOf(tracks[0], count[0]));
+            playlists[0]++;
+        }
+        logger.info("Loaded {} playlists into the similar-tracks index", playlists[0]);
+    }
+}
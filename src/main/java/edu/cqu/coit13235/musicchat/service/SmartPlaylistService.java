@@ -0,0 +1,355 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.Playlist;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistMember;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistRule;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.PlaylistRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import edu.cqu.coit13235.musicchat.repository.SmartPlaylistMemberRepository;
+import edu.cqu.coit13235.musicchat.repository.SmartPlaylistRuleRepository;
+
+/**
+ * Service class for rule-based smart playlists.
+ * A track belongs to a smart playlist when it satisfies every one of the playlist's rules.
+ * Membership is filled once when the playlist is created and then kept up to date from
+ * track events, so only the playlists an event can affect are re-evaluated, and only for
+ * the one track involved.
+ */
+@Service
+@Transactional
+public class SmartPlaylistService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmartPlaylistService.class);
+
+    // Rules whose outcome depends on ratings or favourites rather than on the track itself;
+    // a fresh upload has neither, so it can only join playlists without these rules
+    private static final Set<SmartPlaylistRule.Type> STATEFUL_TYPES =
+        EnumSet.of(SmartPlaylistRule.Type.MIN_AVERAGE_RATING, SmartPlaylistRule.Type.FAVOURITED_BY_OWNER);
+
+    // Upload cutoff used when a playlist has no recency rule
+    private static final LocalDateTime NO_CUTOFF = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final PlaylistRepository playlistRepository;
+    private final SmartPlaylistRuleRepository ruleRepository;
+    private final SmartPlaylistMemberRepository memberRepository;
+    private final AudioTrackRepository audioTrackRepository;
+    private final RatingRepository ratingRepository;
+    private final FavouriteRepository favouriteRepository;
+
+    @Autowired
+    public SmartPlaylistService(PlaylistRepository playlistRepository,
+                               SmartPlaylistRuleRepository ruleRepository,
+                               SmartPlaylistMemberRepository memberRepository,
+                               AudioTrackRepository audioTrackRepository,
+                               RatingRepository ratingRepository,
+                               FavouriteRepository favouriteRepository) {
+        this.playlistRepository = playlistRepository;
+        this.ruleRepository = ruleRepository;
+        this.memberRepository = memberRepository;
+        this.audioTrackRepository = audioTrackRepository;
+        this.ratingRepository = ratingRepository;
+        this.favouriteRepository = favouriteRepository;
+    }
+
+    /**
+     * Create a smart playlist and fill it with the tracks that currently satisfy its rules.
+     * @param ownerId The ID of the playlist owner
+     * @param name The playlist name
+     * @param description Optional playlist description
+     * @param rules The rules; a track must satisfy all of them
+     * @return The created playlist
+     */
+    public Playlist createSmartPlaylist(Long ownerId, String name, String description, List<SmartPlaylistRule> rules) {
+        if (ownerId == null) {
+            throw new IllegalArgumentException("Owner ID cannot be null");
+        }
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Playlist name cannot be null or empty");
+        }
+        if (rules == null || rules.isEmpty()) {
+            throw new IllegalArgumentException("A smart playlist needs at least one rule");
+        }
+        List<SmartPlaylistRule> validRules = new ArrayList<>();
+        for (SmartPlaylistRule rule : rules) {
+            validRules.add(validate(rule));
+        }
+
+        Playlist playlist = new Playlist(ownerId, name.trim(), description);
+        playlist.setSmart(true);
+        playlist = playlistRepository.save(playlist);
+
+        for (SmartPlaylistRule rule : validRules) {
+            rule.setPlaylistId(playlist.getId());
+        }
+        ruleRepository.saveAll(validRules);
+
+        // Intersect the candidate set of each rule; each is a single indexed or grouped query
+        Set<Long> trackIds = null;
+        for (SmartPlaylistRule rule : validRules) {
+            List<Long> candidates = candidateTrackIds(rule, ownerId);
+            if (trackIds == null) {
+                trackIds = new LinkedHashSet<>(candidates);
+            } else {
+                trackIds.retainAll(candidates);
+            }
+        }
+
+        List<SmartPlaylistMember> members = new ArrayList<>();
+        for (Long trackId : trackIds) {
+            members.add(new SmartPlaylistMember(playlist.getId(), trackId));
+        }
+        memberRepository.saveAll(members);
+
+        logger.info("Created smart playlist {} with {} rules and {} tracks", playlist.getId(), validRules.size(), members.size());
+        return playlist;
+    }
+
+    /**
+     * Get the rules of a smart playlist.
+     * @param playlistId The playlist ID
+     * @return The playlist's rules
+     */
+    @Transactional(readOnly = true)
+    public List<SmartPlaylistRule> getRules(Long playlistId) {
+        return ruleRepository.findByPlaylistId(playlistId);
+    }
+
+    /**
+     * Get the tracks of a smart playlist, newest first.
+     * A recency rule is applied here as well, since tracks age out of it without any event.
+     * @param playlistId The playlist ID
+     * @return The tracks currently satisfying the playlist's rules
+     */
+    @Transactional(readOnly = true)
+    public List<AudioTrack> getSmartPlaylistTracks(Long playlistId) {
+        Playlist playlist = playlistRepository.findById(playlistId)
+            .orElseThrow(() -> new IllegalArgumentException("Playlist not found with ID: " + playlistId));
+        if (!playlist.isSmart()) {
+            throw new IllegalArgumentException("Playlist " + playlistId + " is not a smart playlist");
+        }
+
+        LocalDateTime cutoff = NO_CUTOFF;
+        for (SmartPlaylistRule rule : ruleRepository.findByPlaylistId(playlistId)) {
+            if (rule.getType() == SmartPlaylistRule.Type.UPLOADED_WITHIN_DAYS) {
+                LocalDateTime ruleCutoff = LocalDateTime.now().minusDays(Integer.parseInt(rule.getValue()));
+                if (ruleCutoff.isAfter(cutoff)) {
+                    cutoff = ruleCutoff;
+                }
+            }
+        }
+        return memberRepository.findTracks(playlistId, cutoff);
+    }
+
+    /**
+     * Update smart playlist membership for the track an event is about.
+     * Runs in the transaction of the upload, rating or favourite that raised the event.
+     * @param event The track event
+     */
+    @EventListener
+    public void onTrackActivity(TrackActivityEvent event) {
+        Long trackId = event.getTrackId();
+        if (trackId == null) {
+            return;
+        }
+
+        List<SmartPlaylistRule> rules;
+        switch (event.getType()) {
+            case DELETED:
+                memberRepository.deleteByTrackId(trackId);
+                return;
+            case UPLOADED:
+                rules = ruleRepository.findRulesOfPlaylistsWithoutTypes(STATEFUL_TYPES);
+                break;
+            case RATED:
+            case UNRATED:
+                rules = ruleRepository.findRulesOfPlaylistsWithType(SmartPlaylistRule.Type.MIN_AVERAGE_RATING);
+                break;
+            case FAVOURITED:
+            case UNFAVOURITED:
+                rules = ruleRepository.findRulesOfOwnerPlaylistsWithType(
+                    SmartPlaylistRule.Type.FAVOURITED_BY_OWNER, event.getUserId());
+                break;
+            default:
+                return;
+        }
+        if (rules.isEmpty()) {
+            return;
+        }
+
+        Optional<AudioTrack> track = audioTrackRepository.findById(trackId);
+        if (track.isEmpty()) {
+            return;
+        }
+
+        TrackFacts facts = new TrackFacts(track.get());
+        if (event.getType() == TrackActivityEvent.Type.FAVOURITED || event.getType() == TrackActivityEvent.Type.UNFAVOURITED) {
+            facts.favouritedBy.put(event.getUserId(), event.getType() == TrackActivityEvent.Type.FAVOURITED);
+        }
+
+        Map<Long, List<SmartPlaylistRule>> rulesByPlaylist = new LinkedHashMap<>();
+        Set<Long> ownerNeeded = new LinkedHashSet<>();
+        for (SmartPlaylistRule rule : rules) {
+            rulesByPlaylist.computeIfAbsent(rule.getPlaylistId(), id -> new ArrayList<>()).add(rule);
+            if (rule.getType() == SmartPlaylistRule.Type.FAVOURITED_BY_OWNER) {
+                ownerNeeded.add(rule.getPlaylistId());
+            }
+        }
+        // Favourite events only reach the acting user's playlists; otherwise look the owners up together
+        Map<Long, Long> ownerByPlaylist = new HashMap<>();
+        if (event.getType() == TrackActivityEvent.Type.FAVOURITED || event.getType() == TrackActivityEvent.Type.UNFAVOURITED) {
+            ownerNeeded.forEach(playlistId -> ownerByPlaylist.put(playlistId, event.getUserId()));
+        } else if (!ownerNeeded.isEmpty()) {
+            playlistRepository.findAllById(ownerNeeded)
+                .forEach(playlist -> ownerByPlaylist.put(playlist.getId(), playlist.getOwnerId()));
+        }
+
+        for (Map.Entry<Long, List<SmartPlaylistRule>> entry : rulesByPlaylist.entrySet()) {
+            Long playlistId = entry.getKey();
+            if (matchesAll(ownerByPlaylist.get(playlistId), entry.getValue(), facts)) {
+                if (!memberRepository.existsByPlaylistIdAndTrackId(playlistId, trackId)) {
+                    memberRepository.save(new SmartPlaylistMember(playlistId, trackId));
+                    logger.debug("Track {} joined smart playlist {}", trackId, playlistId);
+                }
+            } else if (memberRepository.deleteByPlaylistIdAndTrackId(playlistId, trackId) > 0) {
+                logger.debug("Track {} left smart playlist {}", trackId, playlistId);
+            }
+        }
+    }
+
+    private SmartPlaylistRule validate(SmartPlaylistRule rule) {
+        if (rule == null || rule.getType() == null) {
+            throw new IllegalArgumentException("Rule type is required");
+        }
+        String value = rule.getValue() != null ? rule.getValue().trim() : null;
+        switch (rule.getType()) {
+            case ARTIST:
+                if (value == null || value.isEmpty()) {
+                    throw new IllegalArgumentException("ARTIST rule needs an artist to match");
+                }
+                break;
+            case MIN_AVERAGE_RATING:
+                double minimum = parseNumber(rule.getType(), value);
+                if (minimum < 1 || minimum > 5) {
+                    throw new IllegalArgumentException("MIN_AVERAGE_RATING must be between 1 and 5");
+                }
+                break;
+            case UPLOADED_WITHIN_DAYS:
+                double days = parseNumber(rule.getType(), value);
+                if (days < 1 || days != Math.floor(days) || days > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("UPLOADED_WITHIN_DAYS must be a positive whole number of days");
+                }
+                value = String.valueOf((int) days);
+                break;
+            case FAVOURITED_BY_OWNER:
+                value = null;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported rule type: " + rule.getType());
+        }
+        return new SmartPlaylistRule(null, rule.getType(), value);
+    }
+
+    private static double parseNumber(SmartPlaylistRule.Type type, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException(type + " rule needs a value");
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(type + " rule value must be a number: " + value);
+        }
+    }
+
+    private List<Long> candidateTrackIds(SmartPlaylistRule rule, Long ownerId) {
+        switch (rule.getType()) {
+            case ARTIST:
+                return audioTrackRepository.findIdsByArtistContainingIgnoreCase(rule.getValue());
+            case MIN_AVERAGE_RATING:
+                return ratingRepository.findTrackIdsWithAverageAtLeast(Double.parseDouble(rule.getValue()));
+            case FAVOURITED_BY_OWNER:
+                return favouriteRepository.findTrackIdsByUserId(ownerId);
+            case UPLOADED_WITHIN_DAYS:
+                return audioTrackRepository.findIdsUploadedSince(
+                    LocalDateTime.now().minusDays(Integer.parseInt(rule.getValue())));
+            default:
+                throw new IllegalArgumentException("Unsupported rule type: " + rule.getType());
+        }
+    }
+
+    private boolean matchesAll(Long ownerId, List<SmartPlaylistRule> rules, TrackFacts facts) {
+        for (SmartPlaylistRule rule : rules) {
+            if (!matches(ownerId, rule, facts)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(Long ownerId, SmartPlaylistRule rule, TrackFacts facts) {
+        AudioTrack track = facts.track;
+        switch (rule.getType()) {
+            case ARTIST:
+                return track.getArtist() != null
+                    && track.getArtist().toLowerCase().contains(rule.getValue().toLowerCase());
+            case MIN_AVERAGE_RATING:
+                Double average = facts.averageRating();
+                return average != null && average >= Double.parseDouble(rule.getValue());
+            case FAVOURITED_BY_OWNER:
+                return ownerId != null && facts.isFavouritedBy(ownerId);
+            case UPLOADED_WITHIN_DAYS:
+                return track.getUploadedAt() != null && !track.getUploadedAt()
+                    .isBefore(LocalDateTime.now().minusDays(Integer.parseInt(rule.getValue())));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * What is known about the event's track, looked up at most once per event.
+     */
+    private final class TrackFacts {
+
+        private final AudioTrack track;
+        private final Map<Long, Boolean> favouritedBy = new HashMap<>();
+        private boolean averageLoaded;
+        private Double average;
+
+        private TrackFacts(AudioTrack track) {
+            this.track = track;
+        }
+
+        private Double averageRating() {
+            if (!averageLoaded) {
+                average = ratingRepository.findAverageRatingByTrackId(track.getId());
+                averageLoaded = true;
+            }
+            return average;
+        }
+
+        private boolean isFavouritedBy(Long userId) {
+            return favouritedBy.computeIfAbsent(userId,
+                id -> favouriteRepository.existsByUserIdAndTrackId(id, track.getId()));
+        }
+    }
+}
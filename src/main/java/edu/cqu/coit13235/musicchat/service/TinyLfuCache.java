@@ -0,0 +1,581 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongBiFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded cache with W-TinyLFU eviction, write expiry and background refresh.
+ * <p>
+ * New entries enter a small LRU window (1% of the entries); an entry leaving the window is only
+ * admitted to the main area if it has been asked for more often than the entry it would replace,
+ * as estimated by a count-min sketch of recent key frequencies that is halved periodically so old
+ * popularity fades. The main area is a segmented LRU: entries hit again move from probation to a
+ * protected segment (80% of the main area). This keeps popular keys cached through bursts of
+ * one-off keys, which plain LRU would let flush the cache.
+ * <p>
+ * The cache is bounded by both entry count and total weight (e.g. estimated bytes). Entries expire
+ * a fixed time after they were written, tracked in write order so expiry is constant time; an
+ * entry read after the refresh interval is still returned but reloaded in the background. Loaders
+ * are asynchronous and run outside the lock, so a slow load holds no thread and never blocks other
+ * keys. Misses on a key that is already loading share the pending load instead of starting
+ * another, and a failed load is passed to all of them and not cached. Guarded by one monitor.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TinyLfuCache.class);
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /**
+     * Snapshot of a cache's counters.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTimeNanos;
+        private final long evictionCount;
+        private final long expirationCount;
+        private final long refreshCount;
+        private final long coalescedCount;
+        private final int size;
+        private final long weightedSize;
+
+        Stats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTimeNanos,
+              long evictionCount, long expirationCount, long refreshCount, long coalescedCount,
+              int size, long weightedSize) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTimeNanos = totalLoadTimeNanos;
+            this.evictionCount = evictionCount;
+            this.expirationCount = expirationCount;
+            this.refreshCount = refreshCount;
+            this.coalescedCount = coalescedCount;
+            this.size = size;
+            this.weightedSize = weightedSize;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return Fraction of lookups that were hits, or 0 before the first lookup
+         */
+        public double getHitRate() {
+            long requests = hitCount + missCount;
+            return requests > 0 ? (double) hitCount / requests : 0;
+        }
+
+        /**
+         * @return Loads (including background refreshes) that produced a value
+         */
+        public long getLoadSuccessCount() {
+            return loadSuccessCount;
+        }
+
+        public long getLoadFailureCount() {
+            return loadFailureCount;
+        }
+
+        public long getTotalLoadTimeNanos() {
+            return totalLoadTimeNanos;
+        }
+
+        /**
+         * @return Mean time per load, successful or not, or 0 before the first load
+         */
+        public double getAverageLoadNanos() {
+            long loads = loadSuccessCount + loadFailureCount;
+            return loads > 0 ? (double) totalLoadTimeNanos / loads : 0;
+        }
+
+        /**
+         * @return Entries removed to stay within the entry or weight limit
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public long getExpirationCount() {
+            return expirationCount;
+        }
+
+        public long getRefreshCount() {
+            return refreshCount;
+        }
+
+        /**
+         * @return Misses that joined a load already pending for their key instead of starting one
+         */
+        public long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getWeightedSize() {
+            return weightedSize;
+        }
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private long weight;
+        private long writtenAt;
+        private int segment;
+        private boolean refreshing;
+        // Position in its segment, least recently used first
+        private Node<K, V> prev;
+        private Node<K, V> next;
+        // Position in write order, oldest first
+        private Node<K, V> prevWritten;
+        private Node<K, V> nextWritten;
+
+        private Node(K key) {
+            this.key = key;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final ToLongBiFunction<K, V> weigher;
+    private final LongSupplier ticker;
+
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    // Loads started by a miss and not yet complete, shared by later misses on the same key
+    private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    // Bumped by invalidateAll, so loads started before it do not cache their results
+    private long generation;
+    // Sentinels: heads[s].next is segment s's least recently used entry
+    @SuppressWarnings("unchecked")
+    private final Node<K, V>[] heads = new Node[3];
+    private final int[] segmentSizes = new int[3];
+    private final Node<K, V> writeOrder = new Node<>(null);
+    private final FrequencySketch sketch;
+    private long weightedSize;
+
+    private long hitCount;
+    private long missCount;
+    private long loadSuccessCount;
+    private long loadFailureCount;
+    private long totalLoadTimeNanos;
+    private long evictionCount;
+    private long expirationCount;
+    private long refreshCount;
+    private long coalescedCount;
+
+    /**
+     * @param maxEntries Maximum number of entries
+     * @param maxWeight Maximum total weight of the entries
+     * @param expireAfterWriteNanos Time after writing that an entry expires
+     * @param refreshAfterWriteNanos Time after writing that a read reloads an entry in the background;
+     *                               at least expireAfterWriteNanos to never refresh
+     * @param weigher Weight of an entry, e.g. its estimated size in bytes
+     * @param ticker Current time in nanoseconds
+     */
+    public TinyLfuCache(int maxEntries, long maxWeight, long expireAfterWriteNanos, long refreshAfterWriteNanos,
+                        ToLongBiFunction<K, V> weigher, LongSupplier ticker) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        if (expireAfterWriteNanos <= 0 || refreshAfterWriteNanos <= 0) {
+            throw new IllegalArgumentException("Expiry and refresh times must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.windowMax = Math.max(1, maxEntries / 100);
+        this.mainMax = maxEntries - windowMax;
+        this.protectedMax = mainMax * 4 / 5;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+        this.weigher = weigher;
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(maxEntries);
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = new Node<>(null);
+            heads[i].prev = heads[i];
+            heads[i].next = heads[i];
+        }
+        writeOrder.prevWritten = writeOrder;
+        writeOrder.nextWritten = writeOrder;
+    }
+
+    /**
+     * Get a key's value, loading and caching it on a miss. A null value is returned but not cached.
+     * A miss while the key is already loading waits for that load rather than starting another.
+     * @param key The key
+     * @param loader Starts loading the value; also used to refresh it later
+     * @return The value, completed at once on a hit; completes exceptionally if the load fails
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        V cached = lookup(key, loader);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<V> shared;
+        long startedIn;
+        synchronized (this) {
+            shared = loading.get(key);
+            if (shared != null) {
+                coalescedCount++;
+                // A copy, so one caller cancelling or completing it cannot affect the others
+                return shared.copy();
+            }
+            Node<K, V> node = nodes.get(key);
+            if (node != null) {
+                // Loaded since the lookup
+                return CompletableFuture.completedFuture(node.value);
+            }
+            shared = new CompletableFuture<>();
+            loading.put(key, shared);
+            startedIn = generation;
+        }
+
+        CompletableFuture<V> pending = shared;
+        load(key, loader).whenComplete((value, error) -> {
+            // Cache the value and stop sharing the load together, so later misses see one or the other
+            synchronized (this) {
+                if (value != null && generation == startedIn) {
+                    put(key, value);
+                }
+                loading.remove(key, pending);
+            }
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(value);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * @param key The key
+     * @return The cached value, or null if absent or expired; counts as a hit or miss
+     */
+    public V getIfPresent(K key) {
+        return lookup(key, null);
+    }
+
+    /**
+     * Add or replace an entry.
+     * @param key The key
+     * @param value The value
+     */
+    public synchronized void put(K key, V value) {
+        long now = ticker.getAsLong();
+        expire(now);
+        long weight = weigher.applyAsLong(key, value);
+        Node<K, V> node = nodes.get(key);
+        if (weight > maxWeight) {
+            // Could never fit; drop any older value rather than keep serving it
+            if (node != null) {
+                remove(node);
+            }
+            return;
+        }
+        sketch.increment(key.hashCode());
+        if (node != null) {
+            write(node, value, weight, now);
+        } else {
+            node = new Node<>(key);
+            nodes.put(key, node);
+            write(node, value, weight, now);
+            link(node, WINDOW);
+            while (segmentSizes[WINDOW] > windowMax) {
+                Node<K, V> candidate = heads[WINDOW].next;
+                unlink(candidate);
+                admit(candidate);
+            }
+        }
+        while (weightedSize > maxWeight) {
+            remove(leastValuable());
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Remove every entry. Loads still in flight complete for the callers waiting on them, but
+     * their values are not cached and later misses start fresh loads.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        loading.clear();
+        nodes.clear();
+        for (int i = 0; i < heads.length; i++) {
+            heads[i].prev = heads[i];
+            heads[i].next = heads[i];
+            segmentSizes[i] = 0;
+        }
+        writeOrder.prevWritten = writeOrder;
+        writeOrder.nextWritten = writeOrder;
+        weightedSize = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hitCount, missCount, loadSuccessCount, loadFailureCount, totalLoadTimeNanos,
+            evictionCount, expirationCount, refreshCount, coalescedCount,
+            nodes.size(), weightedSize);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    private V lookup(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        Node<K, V> stale;
+        V value;
+        synchronized (this) {
+            long now = ticker.getAsLong();
+            expire(now);
+            sketch.increment(key.hashCode());
+            Node<K, V> node = nodes.get(key);
+            if (node == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+            touch(node);
+            value = node.value;
+            stale = (loader != null && !node.refreshing && now - node.writtenAt >= refreshAfterWriteNanos) ? node : null;
+            if (stale != null) {
+                stale.refreshing = true;
+            }
+        }
+        // Started outside the lock, in case the loader does any work before returning its future
+        if (stale != null) {
+            load(key, loader).whenComplete((refreshed, error) -> refreshed(stale, refreshed, error));
+        }
+        return value;
+    }
+
+    private synchronized void refreshed(Node<K, V> node, V value, Throwable error) {
+        node.refreshing = false;
+        refreshCount++;
+        if (error != null) {
+            logger.debug("Background refresh failed, keeping the cached value: {}", error.getMessage());
+        }
+        // Only replace the entry this refresh started from; it may have been evicted or rewritten
+        if (value == null || nodes.get(node.key) != node) {
+            return;
+        }
+        long weight = weigher.applyAsLong(node.key, value);
+        if (weight > maxWeight) {
+            remove(node);
+            return;
+        }
+        write(node, value, weight, ticker.getAsLong());
+        while (weightedSize > maxWeight) {
+            remove(leastValuable());
+            evictionCount++;
+        }
+    }
+
+    private CompletableFuture<V> load(K key, Function<? super K, ? extends CompletableFuture<V>> loader) {
+        long started = ticker.getAsLong();
+        CompletableFuture<V> future;
+        try {
+            future = loader.apply(key);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((value, error) -> {
+            long elapsed = ticker.getAsLong() - started;
+            synchronized (this) {
+                totalLoadTimeNanos += elapsed;
+                if (error == null) {
+                    loadSuccessCount++;
+                } else {
+                    loadFailureCount++;
+                }
+            }
+        });
+    }
+
+    // Move a window entry that has aged out into the main area, or drop it or the main area's victim
+    private void admit(Node<K, V> candidate) {
+        if (segmentSizes[PROBATION] + segmentSizes[PROTECTED] < mainMax) {
+            link(candidate, PROBATION);
+            return;
+        }
+        Node<K, V> victim = segmentSizes[PROBATION] > 0 ? heads[PROBATION].next
+            : segmentSizes[PROTECTED] > 0 ? heads[PROTECTED].next : null;
+        if (victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            remove(victim);
+            link(candidate, PROBATION);
+        } else {
+            // Not linked to any segment, but still in the map and write order
+            candidate.segment = -1;
+            remove(candidate);
+        }
+        evictionCount++;
+    }
+
+    private void touch(Node<K, V> node) {
+        switch (node.segment) {
+            case PROBATION -> {
+                unlink(node);
+                link(node, PROTECTED);
+                if (segmentSizes[PROTECTED] > protectedMax) {
+                    Node<K, V> demoted = heads[PROTECTED].next;
+                    unlink(demoted);
+                    link(demoted, PROBATION);
+                }
+            }
+            default -> {
+                int segment = node.segment;
+                unlink(node);
+                link(node, segment);
+            }
+        }
+    }
+
+    private Node<K, V> leastValuable() {
+        for (int segment : new int[]{PROBATION, PROTECTED, WINDOW}) {
+            if (segmentSizes[segment] > 0) {
+                return heads[segment].next;
+            }
+        }
+        throw new IllegalStateException("Cache is over its weight limit with no entries");
+    }
+
+    private void expire(long now) {
+        Node<K, V> oldest = writeOrder.nextWritten;
+        while (oldest != writeOrder && now - oldest.writtenAt >= expireAfterWriteNanos) {
+            remove(oldest);
+            expirationCount++;
+            oldest = writeOrder.nextWritten;
+        }
+    }
+
+    private void write(Node<K, V> node, V value, long weight, long now) {
+        weightedSize += weight - node.weight;
+        node.value = value;
+        node.weight = weight;
+        node.writtenAt = now;
+        if (node.nextWritten != null) {
+            node.prevWritten.nextWritten = node.nextWritten;
+            node.nextWritten.prevWritten = node.prevWritten;
+        }
+        node.prevWritten = writeOrder.prevWritten;
+        node.nextWritten = writeOrder;
+        writeOrder.prevWritten.nextWritten = node;
+        writeOrder.prevWritten = node;
+    }
+
+    private void remove(Node<K, V> node) {
+        nodes.remove(node.key);
+        if (node.segment >= 0) {
+            unlink(node);
+        }
+        node.prevWritten.nextWritten = node.nextWritten;
+        node.nextWritten.prevWritten = node.prevWritten;
+        weightedSize -= node.weight;
+    }
+
+    private void link(Node<K, V> node, int segment) {
+        Node<K, V> head = heads[segment];
+        node.segment = segment;
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        segmentSizes[segment]++;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        segmentSizes[node.segment]--;
+    }
+
+    /**
+     * Count-min sketch of 4 rows of saturating byte counters. Every counter is halved once the
+     * number of increments reaches ten times the cache's capacity, so it tracks recent popularity.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        private FrequencySketch(int capacity) {
+            int width = 16;
+            while (width < capacity && width < (1 << 24)) {
+                width <<= 1;
+            }
+            this.counters = new byte[width * DEPTH];
+            this.mask = width - 1;
+            this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(capacity, 16));
+        }
+
+        private void increment(int hash) {
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            return row * (mask + 1) + ((h ^ (h >>> 16)) & mask);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.cqu.coit13235.musicchat.service;
+
+/**
+ * Bounded min-heap over parallel primitive arrays that keeps the k best-scoring IDs offered to it;
+ * the root is the weakest entry kept. Ties are broken by the lower ID so results are stable.
+ * Each entry carries an int alongside its score (e.g. a count of shared playlists). Not thread-safe.
+ */
+final class TopK {
+
+    /**
+     * Receives the kept entries, best first.
+     */
+    @FunctionalInterface
+    interface EntryVisitor {
+        void visit(long id, int count, double score);
+    }
+
+    private final long[] ids;
+    private final int[] counts;
+    private final double[] scores;
+    private int size;
+
+    TopK(int capacity) {
+        ids = new long[capacity];
+        counts = new int[capacity];
+        scores = new double[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void offer(long id, int count, double score) {
+        if (ids.length == 0) {
+            return;
+        }
+        if (size < ids.length) {
+            set(size, id, count, score);
+            siftUp(size++);
+        } else if (weaker(0, id, score)) {
+            set(0, id, count, score);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empty the heap, visiting its entries best first.
+     * @param visitor Receives each entry
+     */
+    void drain(EntryVisitor visitor) {
+        int total = size;
+        long[] sortedIds = new long[total];
+        int[] sortedCounts = new int[total];
+        double[] sortedScores = new double[total];
+        // Popping yields the weakest first, so fill from the back
+        while (size > 0) {
+            sortedIds[size - 1] = ids[0];
+            sortedCounts[size - 1] = counts[0];
+            sortedScores[size - 1] = scores[0];
+            size--;
+            if (size > 0) {
+                set(0, ids[size], counts[size], scores[size]);
+                siftDown(0);
+            }
+        }
+        for (int i = 0; i < total; i++) {
+            visitor.visit(sortedIds[i], sortedCounts[i], sortedScores[i]);
+        }
+    }
+
+    // Whether the entry at slot ranks below the given candidate
+    private boolean weaker(int slot, long id, double score) {
+        return scores[slot] < score || (scores[slot] == score && ids[slot] > id);
+    }
+
+    private boolean weaker(int a, int b) {
+        return weaker(a, ids[b], scores[b]);
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!weaker(slot, parent)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int weakest = slot;
+            int left = 2 * slot + 1;
+            int right = left + 1;
+            if (left < size && weaker(left, weakest)) {
+                weakest = left;
+            }
+            if (right < size && weaker(right, weakest)) {
+                weakest = right;
+            }
+            if (weakest == slot) {
+                return;
+            }
+            swap(slot, weakest);
+            slot = weakest;
+        }
+    }
+
+    private void set(int slot, long id, int count, double score) {
+        ids[slot] = id;
+        counts[slot] = count;
+        scores[slot] = score;
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        int count = counts[a];
+        double score = scores[a];
+        set(a, ids[b], counts[b], scores[b]);
+        set(b, id, count, score);
+    }
+}
@@ -0,0 +1,55 @@
+package edu.cqu.coit13235.musicchat.service;
+
+/**
+ * Application event published when something happens to a track that can change
+ * which smart playlists it belongs to. Listeners run synchronously, inside the
+ * transaction of the change that raised the event.
+ */
+public class TrackActivityEvent {
+    
+    /**
+     * What happened to the track.
+     */
+    public enum Type {
+        UPLOADED,
+        RATED,
+        UNRATED,
+        FAVOURITED,
+        UNFAVOURITED,
+        DELETED
+    }
+    
+    private final Type type;
+    private final Long trackId;
+    private final Long userId;
+    
+    public TrackActivityEvent(Type type, Long trackId, Long userId) {
+        this.type = type;
+        this.trackId = trackId;
+        this.userId = userId;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public Long getTrackId() {
+        return trackId;
+    }
+    
+    /**
+     * @return The user who uploaded, rated, unrated or favourited the track
+     */
+    public Long getUserId() {
+        return userId;
+    }
+    
+    @Override
+    public String toString() {
+        return "TrackActivityEvent{" +
+                "type=" + type +
+                ", trackId=" + trackId +
+                ", userId=" + userId +
+                '}';
+    }
+}
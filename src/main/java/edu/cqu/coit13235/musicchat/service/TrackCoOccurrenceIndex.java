@@ -0,0 +1,247 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory sparse track x track co-occurrence matrix built from playlist memberships.
+ * For every pair of tracks it counts the playlists holding both, and for every track the
+ * playlists holding it, so neighbours can be scored by cosine similarity without touching the
+ * database. All maps are keyed by primitive longs. Each membership change adjusts only the pairs
+ * it touches. Playlists with more tracks than the configured cap are ignored, since they would add
+ * a quadratic number of pairs while saying little about which tracks belong together.
+ */
+@Component
+public class TrackCoOccurrenceIndex {
+
+    private static final long[] NO_TRACKS = new long[0];
+
+    // Playlist ID -> its track IDs (as a set with value 1)
+    private final LongObjectHashMap<LongIntHashMap> memberships = new LongObjectHashMap<>();
+    // Track ID -> (other track ID -> playlists holding both)
+    private final LongObjectHashMap<LongIntHashMap> counts = new LongObjectHashMap<>();
+    // Track ID -> playlists holding it
+    private final LongIntHashMap occurrences = new LongIntHashMap();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxPlaylistSize;
+
+    /**
+     * A track that shares playlists with the queried one.
+     */
+    public static final class Neighbour {
+        private final long trackId;
+        private final int sharedPlaylists;
+        private final double score;
+
+        public Neighbour(long trackId, int sharedPlaylists, double score) {
+            this.trackId = trackId;
+            this.sharedPlaylists = sharedPlaylists;
+            this.score = score;
+        }
+
+        public long getTrackId() {
+            return trackId;
+        }
+
+        /**
+         * @return Number of playlists holding both tracks
+         */
+        public int getSharedPlaylists() {
+            return sharedPlaylists;
+        }
+
+        /**
+         * @return Cosine similarity between 0 and 1
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    public TrackCoOccurrenceIndex(@Value("${app.similar.max-playlist-size:500}") int maxPlaylistSize) {
+        this.maxPlaylistSize = maxPlaylistSize;
+    }
+
+    /**
+     * Replace a playlist's tracks, adjusting only the pairs that gained or lost it.
+     * @param playlistId The playlist ID
+     * @param trackIds The playlist's track IDs; empty removes the playlist
+     */
+    public void setPlaylistTracks(long playlistId, long[] trackIds) {
+        lock.writeLock().lock();
+        try {
+            LongIntHashMap current = memberships.get(playlistId);
+            if (current == null) {
+                current = new LongIntHashMap(trackIds.length);
+            }
+            LongIntHashMap target = new LongIntHashMap(trackIds.length);
+            for (long trackId : trackIds) {
+                target.put(trackId, 1);
+            }
+            long[] removed = difference(current, target);
+            long[] added = difference(target, current);
+            if (removed.length > 0 || added.length > 0) {
+                apply(playlistId, current, removed, added);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop a playlist from the matrix.
+     * @param playlistId The playlist ID
+     */
+    public void removePlaylist(long playlistId) {
+        setPlaylistTracks(playlistId, NO_TRACKS);
+    }
+
+    /**
+     * Drop a track from every playlist holding it.
+     * @param trackId The track ID
+     */
+    public void removeTrack(long trackId) {
+        lock.writeLock().lock();
+        try {
+            LongIntHashMap holders = new LongIntHashMap();
+            memberships.forEach((playlistId, tracks) -> {
+                if (tracks.containsKey(trackId)) {
+                    holders.put(playlistId, 1);
+                }
+            });
+            long[] removed = {trackId};
+            for (long playlistId : holders.keys()) {
+                apply(playlistId, memberships.get(playlistId), removed, NO_TRACKS);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            memberships.clear();
+            counts.clear();
+            occurrences.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the tracks most often grouped with a track, best first.
+     * Ties are broken by the lower track ID so results are stable.
+     * @param trackId The track ID
+     * @param k Maximum number of neighbours
+     * @return Up to k neighbours
+     */
+    public List<Neighbour> topK(long trackId, int k) {
+        lock.readLock().lock();
+        try {
+            LongIntHashMap row = counts.get(trackId);
+            if (row == null || k <= 0) {
+                return List.of();
+            }
+            double ownOccurrences = occurrences.get(trackId);
+            TopK top = new TopK(Math.min(k, row.size()));
+            row.forEach((otherId, shared) ->
+                top.offer(otherId, shared, shared / Math.sqrt(ownOccurrences * occurrences.get(otherId))));
+            List<Neighbour> neighbours = new ArrayList<>(top.size());
+            top.drain((otherId, shared, score) -> neighbours.add(new Neighbour(otherId, shared, score)));
+            return neighbours;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param trackId The track ID
+     * @return Number of indexed playlists holding the track
+     */
+    public int getOccurrences(long trackId) {
+        lock.readLock().lock();
+        try {
+            return occurrences.get(trackId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(long playlistId, LongIntHashMap tracks, long[] removed, long[] added) {
+        boolean counted = tracks.size() <= maxPlaylistSize && !tracks.isEmpty();
+        int newSize = tracks.size() - removed.length + added.length;
+        boolean stillCounted = newSize <= maxPlaylistSize;
+
+        if (counted && !stillCounted) {
+            adjustAll(tracks, -1);
+        }
+        for (long trackId : removed) {
+            tracks.remove(trackId);
+            if (counted && stillCounted) {
+                adjustTrack(trackId, tracks, -1);
+            }
+        }
+        for (long trackId : added) {
+            if (counted && stillCounted) {
+                adjustTrack(trackId, tracks, 1);
+            }
+            tracks.put(trackId, 1);
+        }
+        if (!counted && stillCounted && !tracks.isEmpty()) {
+            adjustAll(tracks, 1);
+        }
+
+        if (tracks.isEmpty()) {
+            memberships.remove(playlistId);
+        } else {
+            memberships.put(playlistId, tracks);
+        }
+    }
+
+    // Count (or uncount) one track's membership, pairing it with the other tracks given
+    private void adjustTrack(long trackId, LongIntHashMap others, int delta) {
+        occurrences.addTo(trackId, delta);
+        others.forEach((otherId, ignored) -> {
+            if (otherId != trackId) {
+                adjustPair(trackId, otherId, delta);
+                adjustPair(otherId, trackId, delta);
+            }
+        });
+    }
+
+    // Count (or uncount) a whole playlist
+    private void adjustAll(LongIntHashMap tracks, int delta) {
+        long[] ids = tracks.keys();
+        for (int i = 0; i < ids.length; i++) {
+            occurrences.addTo(ids[i], delta);
+            for (int j = i + 1; j < ids.length; j++) {
+                adjustPair(ids[i], ids[j], delta);
+                adjustPair(ids[j], ids[i], delta);
+            }
+        }
+    }
+
+    private void adjustPair(long trackId, long otherId, int delta) {
+        LongIntHashMap row = counts.computeIfAbsent(trackId, id -> new LongIntHashMap());
+        if (row.addTo(otherId, delta) == 0 && row.isEmpty()) {
+            counts.remove(trackId);
+        }
+    }
+
+    private static long[] difference(LongIntHashMap from, LongIntHashMap without) {
+        long[] result = new long[from.size()];
+        int[] count = {0};
+        from.forEach((trackId, ignored) -> {
+            if (!without.containsKey(trackId)) {
+                result[count[0]++] = trackId;
+            }
+        });
+        return Arrays.copyOf(result, count[0]);
+    }
+}
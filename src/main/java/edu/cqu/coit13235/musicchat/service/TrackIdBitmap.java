@@ -0,0 +1,156 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative IDs, laid out like a Roaring bitmap: IDs are grouped by their
+ * high bits into chunks of 65536, and each chunk is a sorted char array while it is sparse, or a
+ * 8 KB bit array once it holds more than 4096 IDs. A user's few hundred favourites therefore cost
+ * about two bytes each, and a lookup is a hash probe plus a binary search or a bit test.
+ * Not thread-safe.
+ */
+public final class TrackIdBitmap {
+
+    // Above this many values a bit array is smaller than a sorted array
+    private static final int ARRAY_LIMIT = 4096;
+
+    // Chunk number + 1 (0 is reserved by the map) -> chunk
+    private final LongObjectHashMap<Chunk> chunks = new LongObjectHashMap<>();
+    private int cardinality;
+
+    /**
+     * @param id The ID
+     * @return true if the ID was not already present
+     */
+    public boolean add(long id) {
+        if (chunks.computeIfAbsent(chunkKey(id), key -> new Chunk()).add((char) id)) {
+            cardinality++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param id The ID
+     * @return true if the ID was present
+     */
+    public boolean remove(long id) {
+        long key = chunkKey(id);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null || !chunk.remove((char) id)) {
+            return false;
+        }
+        if (chunk.size == 0) {
+            chunks.remove(key);
+        }
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(long id) {
+        Chunk chunk = chunks.get(chunkKey(id));
+        return chunk != null && chunk.contains((char) id);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    private static long chunkKey(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("IDs cannot be negative");
+        }
+        return (id >>> 16) + 1;
+    }
+
+    /**
+     * The low 16 bits of the IDs in one chunk, as a sorted array or, once dense, a bit array.
+     */
+    private static final class Chunk {
+        private char[] array = new char[4];
+        private long[] bits;
+        private int size;
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, size, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                size++;
+                return true;
+            }
+            int slot = Arrays.binarySearch(array, 0, size, low);
+            if (slot >= 0) {
+                return false;
+            }
+            if (size == ARRAY_LIMIT) {
+                toBits();
+                return add(low);
+            }
+            slot = -slot - 1;
+            if (size == array.length) {
+                array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, size * 2));
+            }
+            System.arraycopy(array, slot, array, slot + 1, size - slot);
+            array[slot] = low;
+            size++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bits[low >>> 6] &= ~mask;
+                // Go back to an array well below the limit, so a chunk near it does not flip back and forth
+                if (--size <= ARRAY_LIMIT / 2) {
+                    toArray();
+                }
+                return true;
+            }
+            int slot = Arrays.binarySearch(array, 0, size, low);
+            if (slot < 0) {
+                return false;
+            }
+            System.arraycopy(array, slot + 1, array, slot, size - slot - 1);
+            size--;
+            return true;
+        }
+
+        private void toBits() {
+            bits = new long[1024];
+            for (int i = 0; i < size; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        private void toArray() {
+            array = new char[Math.max(4, size)];
+            int n = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long remaining = bits[word];
+                while (remaining != 0) {
+                    array[n++] = (char) ((word << 6) + Long.numberOfTrailingZeros(remaining));
+                    remaining &= remaining - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
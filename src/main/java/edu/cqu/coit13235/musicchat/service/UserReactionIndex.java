@@ -0,0 +1,205 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.Rating;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-user index of which tracks a user has favourited (a {@link TrackIdBitmap}) and rated
+ * (a {@link LongIntHashMap} of track ID to value), so "did I favourite / rate this?" for a page
+ * of tracks needs no queries. A user's entry is loaded on first use and the least recently used
+ * entries are evicted past app.reactions.index.max-users. Once a rating or favourite change
+ * commits, the changed row is re-read into a loaded entry; re-reading rather than applying the
+ * event means listeners running out of order still leave the latest committed state.
+ */
+@Component
+public class UserReactionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserReactionIndex.class);
+
+    private static final int STAMP_SLOTS = 64;
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final FavouriteRepository favouriteRepository;
+    private final RatingRepository ratingRepository;
+    private final TransactionTemplate loadTemplate;
+    private final LinkedHashMap<Long, UserReactions> users;
+    // Bumped (under the users lock) by every change, per user hash slot, so a load that raced
+    // with a change to the same user can tell and retry
+    private final long[] stamps = new long[STAMP_SLOTS];
+
+    /**
+     * One user's favourites and ratings; guarded by its own monitor.
+     */
+    private static final class UserReactions {
+        private final TrackIdBitmap favourites = new TrackIdBitmap();
+        private final LongIntHashMap ratings = new LongIntHashMap();
+    }
+
+    @Autowired
+    public UserReactionIndex(FavouriteRepository favouriteRepository, RatingRepository ratingRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.reactions.index.max-users:10000}") int maxUsers) {
+        if (maxUsers <= 0) {
+            throw new IllegalArgumentException("Maximum users must be positive");
+        }
+        this.favouriteRepository = favouriteRepository;
+        this.ratingRepository = ratingRepository;
+        // Load from committed rows only, never from the caller's uncommitted (and maybe rolled back) writes
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTemplate.setReadOnly(true);
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, UserReactions> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    /**
+     * @param userId The user ID
+     * @param trackId The track ID
+     * @return true if the user has favourited the track
+     */
+    public boolean isFavourited(Long userId, Long trackId) {
+        UserReactions reactions = get(userId);
+        synchronized (reactions) {
+            return reactions.favourites.contains(trackId);
+        }
+    }
+
+    /**
+     * @param userId The user ID
+     * @param trackId The track ID
+     * @return The user's rating of the track, or null if they have not rated it
+     */
+    public Integer getRating(Long userId, Long trackId) {
+        UserReactions reactions = get(userId);
+        synchronized (reactions) {
+            int value = reactions.ratings.get(trackId);
+            return value != 0 ? value : null;
+        }
+    }
+
+    /**
+     * @return Number of users currently loaded
+     */
+    public int size() {
+        synchronized (users) {
+            return users.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (users) {
+            users.clear();
+            for (int i = 0; i < stamps.length; i++) {
+                stamps[i]++;
+            }
+        }
+    }
+
+    /**
+     * Re-read a changed rating or favourite once its change has committed.
+     * @param event The track event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onTrackActivity(TrackActivityEvent event) {
+        TrackActivityEvent.Type type = event.getType();
+        if (type != TrackActivityEvent.Type.RATED && type != TrackActivityEvent.Type.UNRATED
+                && type != TrackActivityEvent.Type.FAVOURITED && type != TrackActivityEvent.Type.UNFAVOURITED) {
+            return;
+        }
+        Long userId = event.getUserId();
+        Long trackId = event.getTrackId();
+        UserReactions reactions;
+        synchronized (users) {
+            stamps[slot(userId)]++;
+            reactions = users.get(userId);
+        }
+        if (reactions == null) {
+            return;
+        }
+        // Read and apply under the user's lock, so the last listener to run applies the latest state
+        synchronized (reactions) {
+            if (type == TrackActivityEvent.Type.RATED || type == TrackActivityEvent.Type.UNRATED) {
+                Integer value = ratingRepository.findByUserIdAndTrackId(userId, trackId)
+                    .map(Rating::getRatingValue).orElse(null);
+                if (value != null) {
+                    reactions.ratings.put(trackId, value);
+                } else {
+                    reactions.ratings.remove(trackId);
+                }
+            } else if (favouriteRepository.existsByUserIdAndTrackId(userId, trackId)) {
+                reactions.favourites.add(trackId);
+            } else {
+                reactions.favourites.remove(trackId);
+            }
+        }
+    }
+
+    private UserReactions get(Long userId) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        for (int attempt = 0; ; attempt++) {
+            long stamp;
+            synchronized (users) {
+                UserReactions cached = users.get(userId);
+                if (cached != null) {
+                    return cached;
+                }
+                stamp = stamps[slot(userId)];
+            }
+            UserReactions loaded = load(userId);
+            synchronized (users) {
+                UserReactions cached = users.get(userId);
+                if (cached != null) {
+                    return cached;
+                }
+                if (stamps[slot(userId)] == stamp) {
+                    users.put(userId, loaded);
+                    return loaded;
+                }
+            }
+            if (attempt + 1 >= MAX_LOAD_ATTEMPTS) {
+                // Keep losing the race with writes to this user; answer from this load without caching it
+                logger.debug("Not caching reactions for user {} after {} changed loads", userId, MAX_LOAD_ATTEMPTS);
+                return loaded;
+            }
+        }
+    }
+
+    private UserReactions load(Long userId) {
+        return loadTemplate.execute(status -> {
+            UserReactions reactions = new UserReactions();
+            for (Long trackId : favouriteRepository.findTrackIdsByUserId(userId)) {
+                reactions.favourites.add(trackId);
+            }
+            for (Object[] row : ratingRepository.findTrackRatingsByUserId(userId)) {
+                reactions.ratings.put((Long) row[0], (Integer) row[1]);
+            }
+            return reactions;
+        });
+    }
+
+    private static int slot(Long userId) {
+        return LongIntHashMap.hash(userId) & (STAMP_SLOTS - 1);
+    }
+}
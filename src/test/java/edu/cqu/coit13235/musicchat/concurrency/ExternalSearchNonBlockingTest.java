@@ -0,0 +1,176 @@
+package edu.cqu.coit13235.musicchat.concurrency;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that external searches do not hold request threads: many concurrent searches against a
+ * slow stub of the Deezer API must keep only a handful of Tomcat threads busy, not one per request,
+ * and concurrent searches for the same query must reach the stub once.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class ExternalSearchNonBlockingTest {
+
+    private static final int CONCURRENT_SEARCHES = 40;
+    // The WebClient's connection pool holds at least 16 connections, so this many reach the stub at once
+    private static final int MIN_SEARCHES_AT_STUB = 16;
+    private static final long STUB_DELAY_MS = 2000;
+
+    private static final ExecutorService stubExecutor = Executors.newFixedThreadPool(CONCURRENT_SEARCHES + 8);
+    private static final AtomicInteger stubRequests = new AtomicInteger();
+    private static final HttpServer stubServer = startStubServer();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void deezerBaseUrl(DynamicPropertyRegistry registry) {
+        registry.add("app.external.deezer.base-url",
+            () -> "http://127.0.0.1:" + stubServer.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopStubServer() {
+        stubServer.stop(0);
+        stubExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentSlowSearches_ShouldNotHoldARequestThreadEach() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        // Warm up, so the first request's start-up work is not measured
+        assertThat(client.send(search("warmup"), HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+
+        int before = stubRequests.get();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_SEARCHES; i++) {
+            responses.add(client.sendAsync(search("query" + i), HttpResponse.BodyHandlers.ofString()));
+        }
+
+        // While the stub holds the searches, blocking would park a request thread on each of them
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (stubRequests.get() - before < MIN_SEARCHES_AT_STUB && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(stubRequests.get() - before).isGreaterThanOrEqualTo(MIN_SEARCHES_AT_STUB);
+        Thread.sleep(STUB_DELAY_MS / 4);
+        int maxBusyThreads = 0;
+        long sampleUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STUB_DELAY_MS / 4);
+        while (System.nanoTime() < sampleUntil) {
+            maxBusyThreads = Math.max(maxBusyThreads, countBusyRequestThreads());
+            Thread.sleep(10);
+        }
+
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+            assertThat(response.get().body()).contains("\"count\":1");
+        }
+        assertThat(maxBusyThreads).isLessThan(MIN_SEARCHES_AT_STUB / 2);
+    }
+
+    @Test
+    void concurrentIdenticalSearches_ShouldShareOneUpstreamRequest() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+        int before = stubRequests.get();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_SEARCHES; i++) {
+            responses.add(client.sendAsync(search("viral"), HttpResponse.BodyHandlers.ofString()));
+        }
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+            assertThat(response.get().body()).contains("\"count\":1");
+        }
+        assertThat(stubRequests.get() - before).isEqualTo(1);
+    }
+
+    private HttpRequest search(String query) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/audio/search/external?query=" + query))
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build();
+    }
+
+    // Tomcat request threads doing work, i.e. not parked waiting for the next task
+    private static int countBusyRequestThreads() {
+        int count = 0;
+        for (var entry : Thread.getAllStackTraces().entrySet()) {
+            String name = entry.getKey().getName();
+            if (name.startsWith("http-nio-") && name.contains("-exec-") && !isIdle(entry.getValue())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isIdle(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().endsWith(".TaskQueue")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static HttpServer startStubServer() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), CONCURRENT_SEARCHES * 2);
+            server.createContext("/search", exchange -> {
+                stubRequests.incrementAndGet();
+                try {
+                    Thread.sleep(STUB_DELAY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = ("{\"data\":[{\"id\":1,\"title\":\"Slow Song\",\"duration\":180,"
+                    + "\"artist\":{\"id\":1,\"name\":\"Slow Artist\"},"
+                    + "\"album\":{\"id\":1,\"title\":\"Slow Album\"}}],\"total\":1}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.setExecutor(stubExecutor);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the stub Deezer server", e);
+        }
+    }
+}
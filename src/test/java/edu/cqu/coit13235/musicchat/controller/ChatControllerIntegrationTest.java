@@ -314,4 +314,78 @@ class ChatControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].sender", is("testuser")))
                 .andExpect(jsonPath("$[0].text", is("Integration test message")));
     }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void getThread_ReplyChain_ReturnsAncestorsAndReplies() throws Exception {
+        // Given - a root, a reply to it, a reply to the reply, and an unrelated message
+        Long rootId = postMessage("root", null);
+        Long replyId = postMessage("reply", rootId);
+        Long nestedId = postMessage("nested reply", replyId);
+        postMessage("unrelated", null);
+
+        // When & Then
+        mockMvc.perform(get("/api/chat/messages/" + replyId + "/thread"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message.id", is(replyId.intValue())))
+                .andExpect(jsonPath("$.ancestors", hasSize(1)))
+                .andExpect(jsonPath("$.ancestors[0].id", is(rootId.intValue())))
+                .andExpect(jsonPath("$.replies", hasSize(1)))
+                .andExpect(jsonPath("$.replies[0].id", is(nestedId.intValue())));
+    }
+
+    @Test
+    void getThread_NonExistingId_ReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/chat/messages/999999/thread"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "testuser")
+    void search_MatchingMessages_ReturnsRankedPages() throws Exception {
+        // Given
+        Long onceId = postMessage("saxophone solo tonight", null);
+        Long twiceId = postMessage("saxophone meets saxophone", null);
+        postMessage("drums only", null);
+
+        // When & Then - first page holds the best match and a cursor
+        String firstPage = mockMvc.perform(get("/api/chat/search").param("q", "Saxophone").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(1)))
+                .andExpect(jsonPath("$.results[0].message.id", is(twiceId.intValue())))
+                .andExpect(jsonPath("$.nextCursor", notNullValue()))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        // And - the cursor continues with the next match and ends the results
+        mockMvc.perform(get("/api/chat/search").param("q", "saxophone").param("limit", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(1)))
+                .andExpect(jsonPath("$.results[0].message.id", is(onceId.intValue())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void search_BlankQuery_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/chat/search").param("q", " "))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Invalid search parameters")));
+    }
+
+    private Long postMessage(String content, Long previousId) throws Exception {
+        Map<String, Object> request = new HashMap<>();
+        request.put("content", content);
+        request.put("previousId", previousId);
+
+        String response = mockMvc.perform(post("/api/chat/messages")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
 }
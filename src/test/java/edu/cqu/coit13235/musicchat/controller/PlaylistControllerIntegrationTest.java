@@ -9,6 +9,9 @@ import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import edu.cqu.coit13235.musicchat.repository.PlaylistRepository;
 import edu.cqu.coit13235.musicchat.repository.PlaylistTrackRepository;
 import edu.cqu.coit13235.musicchat.repository.UserRepository;
+import edu.cqu.coit13235.musicchat.service.AudioService;
+import edu.cqu.coit13235.musicchat.service.PlaylistService;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -55,6 +58,15 @@ class PlaylistControllerIntegrationTest {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private AudioService audioService;
+    
+    @Autowired
+    private PlaylistService playlistService;
+    
     private MockMvc mockMvc;
     private ObjectMapper objectMapper;
     
@@ -212,6 +224,63 @@ class PlaylistControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].name", notNullValue()));
     }
     
+    @Test
+    void getPlaylistsByOwner_WithTracks_ShouldReturnSummaries() throws Exception {
+        // Arrange
+        testTrack1.setDuration(180);
+        testTrack2.setDuration(200);
+        audioTrackRepository.saveAll(Arrays.asList(testTrack1, testTrack2));
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack2.getId(), testTrack1.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        
+        // Act & Assert
+        String summary = "$[?(@.id == " + testPlaylist.getId() + ")]";
+        mockMvc.perform(get("/api/playlists/owner/{ownerId}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath(summary + ".trackCount", contains(2)))
+                .andExpect(jsonPath(summary + ".totalDurationSeconds", contains(380)))
+                .andExpect(jsonPath(summary + ".coverTracks[0].id", contains(testTrack2.getId().intValue())))
+                .andExpect(jsonPath(summary + ".coverTracks[1].title", contains("Song 1")))
+                .andExpect(jsonPath(summary + ".tracks").doesNotExist());
+    }
+    
+    @Test
+    void getPlaylistTracks_Paged_ShouldReturnPageWithPlaylistIndexes() throws Exception {
+        // Arrange
+        AudioTrack testTrack3 = new AudioTrack("Song 3", "Artist 3", "song3.mp3", "song3.mp3", testUser);
+        testTrack3.setUploadedAt(LocalDateTime.now());
+        testTrack3 = audioTrackRepository.save(testTrack3);
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId(), testTrack3.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        
+        // Act & Assert
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .param("page", "1")
+                .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "3"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].track.id", is(testTrack3.getId().intValue())))
+                .andExpect(jsonPath("$[0].position", is(2)));
+    }
+    
+    @Test
+    void getPlaylistTracks_OversizedPage_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .param("size", "100000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Invalid input")));
+    }
+    
     @Test
     void searchPlaylistsByName_ValidQuery_ShouldReturnMatchingPlaylists() throws Exception {
         // Act & Assert
@@ -286,6 +355,169 @@ class PlaylistControllerIntegrationTest {
                 .andExpect(jsonPath("$.message", is("trackIds is required and cannot be empty")));
     }
     
+    @Test
+    void bulkAddTracks_NewAndExistingTracks_ShouldReturnSummary() throws Exception {
+        // Arrange - track 1 is already in the playlist
+        playlistTrackRepository.save(new PlaylistTrack(testPlaylist, testTrack1, 0));
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId(), testTrack2.getId()));
+        String requestBody = objectMapper.writeValueAsString(requestData);
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.playlistId", is(testPlaylist.getId().intValue())))
+                .andExpect(jsonPath("$.requested", is(2)))
+                .andExpect(jsonPath("$.addedCount", is(1)))
+                .andExpect(jsonPath("$.added[0]", is(testTrack2.getId().intValue())))
+                .andExpect(jsonPath("$.alreadyPresent[0]", is(testTrack1.getId().intValue())));
+        
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].track.id", is(testTrack2.getId().intValue())))
+                .andExpect(jsonPath("$[1].position", is(1)));
+    }
+    
+    @Test
+    void bulkAddTracks_UnknownTrack_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("trackIds", Arrays.asList(testTrack1.getId(), 999999L));
+        String requestBody = objectMapper.writeValueAsString(requestData);
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(requestBody))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", is("Audio track not found with ID: 999999")));
+        
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+    
+    @Test
+    void removeTracksFromPlaylist_MiddleTrack_LeavesOtherKeysAndDensePositions() throws Exception {
+        // Arrange
+        AudioTrack testTrack3 = new AudioTrack("Song 3", "Artist 3", "song3.mp3", "song3.mp3", testUser);
+        testTrack3.setUploadedAt(LocalDateTime.now());
+        testTrack3 = audioTrackRepository.save(testTrack3);
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId(), testTrack3.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        Integer lastKey = playlistTrackRepository.findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack3.getId())
+                .get(0).getPosition();
+        // Forget the lazy playlist proxy loaded above, as a new request would
+        entityManager.clear();
+        
+        // Act
+        Map<String, Object> removeData = new HashMap<>();
+        removeData.put("trackIds", Arrays.asList(testTrack2.getId()));
+        mockMvc.perform(delete("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(removeData)))
+                .andExpect(status().isOk());
+        
+        // Assert - the last track kept its sparse key, clients still see 0..n-1
+        org.junit.jupiter.api.Assertions.assertEquals(lastKey, playlistTrackRepository
+                .findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack3.getId()).get(0).getPosition());
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].track.id", is(testTrack3.getId().intValue())))
+                .andExpect(jsonPath("$[1].position", is(1)));
+    }
+    
+    @Test
+    void moveTrack_AfterAnchor_RewritesOnlyMovedKey() throws Exception {
+        // Arrange
+        AudioTrack testTrack3 = new AudioTrack("Song 3", "Artist 3", "song3.mp3", "song3.mp3", testUser);
+        testTrack3.setUploadedAt(LocalDateTime.now());
+        testTrack3 = audioTrackRepository.save(testTrack3);
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId(), testTrack3.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        Integer firstKey = playlistTrackRepository.findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack1.getId())
+                .get(0).getPosition();
+        Integer secondKey = playlistTrackRepository.findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack2.getId())
+                .get(0).getPosition();
+        entityManager.clear();
+        
+        // Act - drag the last track between the first two
+        Map<String, Object> moveData = new HashMap<>();
+        moveData.put("after", testTrack1.getId());
+        moveData.put("version", 0);
+        mockMvc.perform(patch("/api/playlists/{id}/tracks/{trackId}/position", testPlaylist.getId(), testTrack3.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(moveData)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.track.id", is(testTrack3.getId().intValue())))
+                .andExpect(jsonPath("$.position", is(1)))
+                .andExpect(jsonPath("$.version", is(1)));
+        entityManager.clear();
+        
+        // Assert - neighbours kept their keys
+        org.junit.jupiter.api.Assertions.assertEquals(firstKey, playlistTrackRepository
+                .findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack1.getId()).get(0).getPosition());
+        org.junit.jupiter.api.Assertions.assertEquals(secondKey, playlistTrackRepository
+                .findByPlaylistIdAndTrackId(testPlaylist.getId(), testTrack2.getId()).get(0).getPosition());
+        entityManager.clear();
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].track.id", is(testTrack1.getId().intValue())))
+                .andExpect(jsonPath("$[1].track.id", is(testTrack3.getId().intValue())))
+                .andExpect(jsonPath("$[2].track.id", is(testTrack2.getId().intValue())));
+    }
+    
+    @Test
+    void moveTrack_StaleVersion_ShouldReturnConflict() throws Exception {
+        // Arrange
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        
+        Map<String, Object> moveData = new HashMap<>();
+        moveData.put("before", testTrack1.getId());
+        moveData.put("version", 7);
+        
+        // Act & Assert
+        mockMvc.perform(patch("/api/playlists/{id}/tracks/{trackId}/position", testPlaylist.getId(), testTrack2.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(moveData)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("Conflict")));
+    }
+    
+    @Test
+    void moveTrack_NoAnchor_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        
+        // Act & Assert
+        mockMvc.perform(patch("/api/playlists/{id}/tracks/{trackId}/position", testPlaylist.getId(), testTrack1.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", is("Invalid input")));
+    }
+    
     @Test
     void removeTracksFromPlaylist_ValidData_ShouldReturnUpdatedPlaylist() throws Exception {
         // Arrange - Add tracks first
@@ -348,6 +580,223 @@ class PlaylistControllerIntegrationTest {
                 .andExpect(jsonPath("$.description", is("Updated description")));
     }
     
+    @Test
+    void updatePlaylist_StaleVersion_ShouldReturnConflict() throws Exception {
+        // Arrange - a track edit bumps the playlist version past the one the client holds
+        long seenVersion = testPlaylist.getVersion();
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        
+        Map<String, Object> requestData = new HashMap<>();
+        requestData.put("name", "Renamed From Stale Tab");
+        requestData.put("version", seenVersion);
+        
+        // Act & Assert
+        mockMvc.perform(put("/api/playlists/{id}", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestData)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is("Conflict")));
+        mockMvc.perform(get("/api/playlists/{id}", testPlaylist.getId()))
+                .andExpect(jsonPath("$.name", is("Test Playlist")))
+                .andExpect(jsonPath("$.version", is((int) seenVersion + 1)));
+    }
+    
+    private AudioTrack saveSizedTrack(String title, int durationSeconds, long bytes) {
+        AudioTrack track = new AudioTrack(title, "Artist", title + ".mp3", title + ".mp3",
+                durationSeconds, bytes, "audio/mpeg", testUser);
+        track.setUploadedAt(LocalDateTime.now());
+        return audioTrackRepository.save(track);
+    }
+    
+    @Test
+    void addAndRemoveTracks_ShouldMaintainStoredAggregates() throws Exception {
+        // Arrange
+        AudioTrack short1 = saveSizedTrack("Short", 120, 1000L);
+        AudioTrack long1 = saveSizedTrack("Long", 300, 4000L);
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(short1.getId(), long1.getId()));
+        
+        // Act
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        entityManager.clear();
+        
+        // Assert
+        Playlist stored = playlistRepository.findById(testPlaylist.getId()).orElseThrow();
+        org.junit.jupiter.api.Assertions.assertEquals(2, stored.getTrackCount());
+        org.junit.jupiter.api.Assertions.assertEquals(420, stored.getTotalDurationSeconds());
+        org.junit.jupiter.api.Assertions.assertEquals(5000, stored.getTotalBytes());
+        
+        Map<String, Object> removeData = new HashMap<>();
+        removeData.put("trackIds", Arrays.asList(long1.getId()));
+        mockMvc.perform(delete("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(removeData)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trackCount", is(1)))
+                .andExpect(jsonPath("$.totalDurationSeconds", is(120)))
+                .andExpect(jsonPath("$.totalBytes", is(1000)));
+        mockMvc.perform(get("/api/playlists/owner/{ownerId}", 1L))
+                .andExpect(jsonPath("$[?(@.id == " + testPlaylist.getId() + ")].totalDurationSeconds", contains(120)));
+    }
+    
+    @Test
+    void deleteAudioTrack_ShouldRemoveItFromPlaylistAggregates() throws Exception {
+        // Arrange
+        AudioTrack doomed = saveSizedTrack("Doomed", 200, 3000L);
+        AudioTrack kept = saveSizedTrack("Kept", 100, 500L);
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(doomed.getId(), kept.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        entityManager.clear();
+        
+        // Act
+        org.junit.jupiter.api.Assertions.assertTrue(audioService.deleteTrack(doomed.getId()));
+        entityManager.flush();
+        entityManager.clear();
+        
+        // Assert
+        Playlist stored = playlistRepository.findById(testPlaylist.getId()).orElseThrow();
+        org.junit.jupiter.api.Assertions.assertEquals(1, stored.getTrackCount());
+        org.junit.jupiter.api.Assertions.assertEquals(100, stored.getTotalDurationSeconds());
+        org.junit.jupiter.api.Assertions.assertEquals(500, stored.getTotalBytes());
+        org.junit.jupiter.api.Assertions.assertEquals(1, playlistTrackRepository.countByPlaylistId(testPlaylist.getId()));
+    }
+    
+    private Long forkTestPlaylist(Long ownerId) throws Exception {
+        Map<String, Object> forkData = new HashMap<>();
+        forkData.put("ownerId", ownerId);
+        String response = mockMvc.perform(post("/api/playlists/{id}/fork", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(forkData)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        entityManager.clear();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+    
+    private void addTestTracksToPlaylist() throws Exception {
+        Map<String, Object> addData = new HashMap<>();
+        addData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack2.getId()));
+        mockMvc.perform(post("/api/playlists/{id}/tracks/bulk", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addData)))
+                .andExpect(status().isOk());
+        entityManager.clear();
+    }
+    
+    @Test
+    void forkPlaylist_ShouldShareTracksUntilForkIsEdited() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        
+        // Act
+        Long forkId = forkTestPlaylist(2L);
+        
+        // Assert - the fork shows the original's tracks without any rows of its own
+        org.junit.jupiter.api.Assertions.assertEquals(0, playlistTrackRepository.countByPlaylistId(forkId));
+        mockMvc.perform(get("/api/playlists/{id}", forkId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ownerId", is(2)))
+                .andExpect(jsonPath("$.forkedFromId", is(testPlaylist.getId().intValue())))
+                .andExpect(jsonPath("$.tracks", hasSize(2)));
+        mockMvc.perform(get("/api/playlists/{id}/tracks", forkId))
+                .andExpect(jsonPath("$", hasSize(2)));
+        
+        // Editing the fork copies the rows once and leaves the original alone
+        Map<String, Object> removeData = new HashMap<>();
+        removeData.put("trackIds", Arrays.asList(testTrack1.getId()));
+        mockMvc.perform(delete("/api/playlists/{id}/tracks", forkId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(removeData)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/playlists/{id}/tracks", forkId))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].track.id", is(testTrack2.getId().intValue())));
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+    
+    @Test
+    void forkPlaylist_EditingOriginal_ShouldCopyOnceForAllForks() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        Long firstFork = forkTestPlaylist(2L);
+        Long secondFork = forkTestPlaylist(3L);
+        
+        // Act
+        Map<String, Object> removeData = new HashMap<>();
+        removeData.put("trackIds", Arrays.asList(testTrack2.getId()));
+        mockMvc.perform(delete("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(removeData)))
+                .andExpect(status().isOk());
+        
+        // Assert - one fork took over the shared rows, the other still shares them
+        org.junit.jupiter.api.Assertions.assertEquals(2, playlistTrackRepository.countByPlaylistId(firstFork));
+        org.junit.jupiter.api.Assertions.assertEquals(0, playlistTrackRepository.countByPlaylistId(secondFork));
+        mockMvc.perform(get("/api/playlists/{id}/tracks", secondFork))
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/api/playlists/{id}/tracks", testPlaylist.getId()))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+    
+    @Test
+    void forkPlaylist_ListedForks_ShouldShowSourceTracks() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        forkTestPlaylist(2L);
+        forkTestPlaylist(2L);
+        
+        // Act - both forks' shared tracks come from one query
+        java.util.List<Playlist> forks = playlistService.getPlaylistsByOwner(2L);
+        
+        // Assert
+        org.junit.jupiter.api.Assertions.assertEquals(2, forks.size());
+        for (Playlist fork : forks) {
+            org.junit.jupiter.api.Assertions.assertEquals(2, fork.getIndexedTracks().size());
+            org.junit.jupiter.api.Assertions.assertEquals(testTrack1.getId(), fork.getIndexedTracks().get(0).getTrack().getId());
+        }
+    }
+    
+    @Test
+    void forkPlaylist_DeletingOriginal_ShouldKeepForkTracks() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        Long forkId = forkTestPlaylist(2L);
+        
+        // Act
+        mockMvc.perform(delete("/api/playlists/{id}", testPlaylist.getId()))
+                .andExpect(status().isOk());
+        
+        // Assert
+        mockMvc.perform(get("/api/playlists/{id}/tracks", forkId))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+    
+    @Test
+    void forkPlaylist_NonExistingPlaylist_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        Map<String, Object> forkData = new HashMap<>();
+        forkData.put("ownerId", 2L);
+        
+        // Act & Assert
+        mockMvc.perform(post("/api/playlists/{id}/fork", 999L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(forkData)))
+                .andExpect(status().isBadRequest());
+    }
+    
     @Test
     void deletePlaylist_ExistingPlaylist_ShouldReturnOk() throws Exception {
         // Act & Assert
@@ -356,6 +805,37 @@ class PlaylistControllerIntegrationTest {
                 .andExpect(jsonPath("$.message", is("Playlist deleted successfully")));
     }
     
+    @Test
+    void deletePlaylist_WithTracks_ShouldDeleteAllTrackRows() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        
+        // Act
+        mockMvc.perform(delete("/api/playlists/{id}", testPlaylist.getId()))
+                .andExpect(status().isOk());
+        
+        // Assert
+        org.junit.jupiter.api.Assertions.assertEquals(0, playlistTrackRepository.countByPlaylistId(testPlaylist.getId()));
+        org.junit.jupiter.api.Assertions.assertFalse(playlistRepository.existsById(testPlaylist.getId()));
+    }
+    
+    @Test
+    void removeTracksFromPlaylist_DuplicateAndUnknownIds_ShouldRemoveOnlyPresentTracks() throws Exception {
+        // Arrange
+        addTestTracksToPlaylist();
+        Map<String, Object> removeData = new HashMap<>();
+        removeData.put("trackIds", Arrays.asList(testTrack1.getId(), testTrack1.getId(), 999999L));
+        
+        // Act & Assert
+        mockMvc.perform(delete("/api/playlists/{id}/tracks", testPlaylist.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(removeData)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.trackCount", is(1)))
+                .andExpect(jsonPath("$.tracks", hasSize(1)))
+                .andExpect(jsonPath("$.tracks[0].track.id", is(testTrack2.getId().intValue())));
+    }
+    
     @Test
     void deletePlaylist_NonExistingPlaylist_ShouldReturnNotFound() throws Exception {
         // Act & Assert
@@ -20,7 +20,9 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -31,6 +33,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -79,7 +82,7 @@ public class AudioFlowE2ETest {
         metadata.setAlbum("Test Album");
         metadata.setDuration(180);
         
-        when(externalMusicService.searchMusic(anyString())).thenReturn(List.of(metadata));
+        when(externalMusicService.searchMusicReactive(anyString())).thenReturn(Mono.just(List.of(metadata)));
     }
 
     @Test
@@ -114,8 +117,11 @@ public class AudioFlowE2ETest {
         Long trackId = tracks.get(0).getId();
 
         // Step 3: Fetch metadata from external service (mocked)
-        mockMvc.perform(get("/api/audio/search/external?query=Test Song")
+        MvcResult searchResult = mockMvc.perform(get("/api/audio/search/external?query=Test Song")
                 .with(user(testUser.getUsername()).roles("USER")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(searchResult))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.results").isArray())
                 .andExpect(jsonPath("$.results", hasSize(1)))
@@ -119,6 +119,16 @@ public class RatingFavouriteFlowE2ETest {
         ratings = ratingRepository.findAll();
         assertThat(ratings).hasSize(1); // Should still be 1, just updated
         assertThat(ratings.get(0).getRatingValue()).isEqualTo(3);
+
+        // Step 5: Retrieve the histogram in bulk
+        mockMvc.perform(get("/api/audio/ratings")
+                .param("ids", testTrack.getId() + ",999999")
+                .with(user(testUser.getUsername()).roles("USER")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.tracks[0].histogram.3").value(1))
+                .andExpect(jsonPath("$.tracks[0].histogram.5").value(0))
+                .andExpect(jsonPath("$.tracks[1].ratingCount").value(0));
     }
 
     @Test
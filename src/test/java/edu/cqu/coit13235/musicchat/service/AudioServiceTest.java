@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mock.web.MockMultipartFile;
 
 import java.io.IOException;
@@ -39,6 +40,9 @@ class AudioServiceTest {
     @Mock
     private UserRepository userRepository;
     
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     private AudioService audioService;
     
     private MockMultipartFile validAudioFile;
@@ -52,7 +56,7 @@ class AudioServiceTest {
         testUser = new User("testuser", "test@example.com", "password");
         
         // Initialize AudioService with mock dependencies
-        audioService = new AudioService(audioTrackRepository, userRepository, "test-uploads", 52428800L);
+        audioService = new AudioService(audioTrackRepository, userRepository, eventPublisher, "test-uploads", 52428800L);
         
         // Create a valid audio file for testing
         validAudioFile = new MockMultipartFile(
@@ -0,0 +1,63 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ChatSearchIndex.
+ */
+class ChatSearchIndexTest {
+
+    private ChatSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ChatSearchIndex();
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "Loving the new jazz playlist"});
+        rows.add(new Object[]{2L, "Jazz, jazz and more JAZZ!"});
+        rows.add(new Object[]{3L, "Anyone into rock?"});
+        index.loadIfAbsent(() -> rows);
+    }
+
+    @Test
+    void search_RanksByTermFrequency() {
+        List<ChatSearchIndex.Hit> hits = index.search("jazz");
+
+        assertEquals(2, hits.size());
+        assertEquals(2L, hits.get(0).getId());
+        assertEquals(1L, hits.get(1).getId());
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void search_RequiresEveryTerm() {
+        assertEquals(1, index.search("jazz playlist").size());
+        assertTrue(index.search("jazz rock").isEmpty());
+        assertTrue(index.search("   ").isEmpty());
+    }
+
+    @Test
+    void add_AfterLoad_IsSearchableAndIdempotent() {
+        index.add(4L, "rock and roll");
+        index.add(4L, "rock and roll");
+
+        List<ChatSearchIndex.Hit> hits = index.search("ROCK");
+        assertEquals(2, hits.size());
+        assertEquals(4L, hits.get(0).getId());
+    }
+
+    @Test
+    void add_BeforeFirstUse_IsIgnored() {
+        ChatSearchIndex unused = new ChatSearchIndex();
+        unused.add(1L, "jazz");
+        unused.loadIfAbsent(List::of);
+
+        assertTrue(unused.search("jazz").isEmpty());
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -16,6 +17,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -28,6 +31,15 @@ class ChatServiceTest {
     @Mock
     private ChatMessageRepository chatMessageRepository;
     
+    @Mock
+    private RecentMessageBuffer recentMessageBuffer;
+    
+    @Mock
+    private ChatThreadIndex chatThreadIndex;
+    
+    @Mock
+    private ChatSearchIndex chatSearchIndex;
+    
     @InjectMocks
     private ChatService chatService;
     
@@ -54,6 +66,7 @@ class ChatServiceTest {
         assertEquals("Hello, world!", result.getText());
         assertNotNull(result.getTimestamp());
         verify(chatMessageRepository).save(any(ChatMessage.class));
+        verify(recentMessageBuffer).append(sampleMessage);
     }
     
     @Test
@@ -73,6 +86,7 @@ class ChatServiceTest {
         assertEquals("Reply message", result.getText());
         assertEquals(1L, result.getPreviousId());
         verify(chatMessageRepository).save(any(ChatMessage.class));
+        verify(chatThreadIndex).recordReply(2L, 1L);
     }
     
     @Test
@@ -177,6 +191,43 @@ class ChatServiceTest {
         assertThrows(IllegalArgumentException.class, () -> chatService.getConversation(-1));
     }
     
+    @Test
+    void getMessagesSince_BufferCoversGap_ReturnsBufferedMessages() {
+        // Given
+        when(recentMessageBuffer.since(0L, ChatService.MAX_REPLAY_MESSAGES))
+            .thenReturn(Optional.of(List.of(sampleMessage)));
+        
+        // When
+        List<ChatMessage> result = chatService.getMessagesSince(0L);
+        
+        // Then
+        assertEquals(List.of(sampleMessage), result);
+        verify(chatMessageRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class));
+    }
+    
+    @Test
+    void getMessagesSince_GapOlderThanBuffer_QueriesIdRange() {
+        // Given
+        when(recentMessageBuffer.since(0L, ChatService.MAX_REPLAY_MESSAGES)).thenReturn(Optional.empty());
+        when(chatMessageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+            .thenReturn(List.of(sampleMessage));
+        
+        // When
+        List<ChatMessage> result = chatService.getMessagesSince(0L);
+        
+        // Then
+        assertEquals(List.of(sampleMessage), result);
+        verify(chatMessageRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
+        verify(chatMessageRepository, never()).findAllOrderByTimestamp();
+    }
+    
+    @Test
+    void getMessagesSince_InvalidId_ThrowsException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> chatService.getMessagesSince(null));
+        assertThrows(IllegalArgumentException.class, () -> chatService.getMessagesSince(-1L));
+    }
+    
     @Test
     void getMessageById_ExistingId_ReturnsMessage() {
         // Given
@@ -0,0 +1,108 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import edu.cqu.coit13235.musicchat.dto.ChatThreadResponse;
+import edu.cqu.coit13235.musicchat.repository.ChatMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ChatThreadService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatThreadServiceTest {
+
+    @Mock
+    private ChatMessageRepository chatMessageRepository;
+
+    private ChatThreadIndex chatThreadIndex;
+
+    private ChatMessage root;
+    private ChatMessage reply;
+    private ChatMessage nested;
+
+    @BeforeEach
+    void setUp() {
+        chatThreadIndex = new ChatThreadIndex();
+        root = message(1L, "root", null);
+        reply = message(2L, "reply", 1L);
+        nested = message(3L, "nested", 2L);
+    }
+
+    private static ChatMessage message(Long id, String text, Long previousId) {
+        ChatMessage message = new ChatMessage("alice", text, previousId);
+        message.setId(id);
+        return message;
+    }
+
+    @Test
+    void getThread_Adjacency_LoadsIndexOnceAndFetchesThreadInOneQuery() {
+        // Given
+        ChatThreadService service = new ChatThreadService(chatMessageRepository, chatThreadIndex,
+            ChatThreadService.LOOKUP_ADJACENCY);
+        List<Object[]> edges = new ArrayList<>();
+        edges.add(new Object[]{2L, 1L});
+        edges.add(new Object[]{3L, 2L});
+        when(chatMessageRepository.findReplyEdges()).thenReturn(edges);
+        when(chatMessageRepository.findAllById(anyIterable())).thenReturn(List.of(root, reply, nested));
+
+        // When
+        Optional<ChatThreadResponse> thread = service.getThread(2L);
+        service.getThread(2L);
+
+        // Then
+        assertTrue(thread.isPresent());
+        assertEquals(2L, thread.get().getMessage().getId());
+        assertEquals(List.of(root), thread.get().getAncestors());
+        assertEquals(List.of(nested), thread.get().getReplies());
+        verify(chatMessageRepository, times(1)).findReplyEdges();
+        verify(chatMessageRepository, times(2)).findAllById(List.of(2L, 1L, 3L));
+    }
+
+    @Test
+    void getThread_Cte_UsesRecursiveQuery() {
+        // Given
+        ChatThreadService service = new ChatThreadService(chatMessageRepository, chatThreadIndex,
+            ChatThreadService.LOOKUP_CTE);
+        when(chatMessageRepository.findThread(3L)).thenReturn(List.of(root, reply, nested));
+
+        // When
+        Optional<ChatThreadResponse> thread = service.getThread(3L);
+
+        // Then
+        assertTrue(thread.isPresent());
+        assertEquals(List.of(root, reply), thread.get().getAncestors());
+        assertTrue(thread.get().getReplies().isEmpty());
+        verify(chatMessageRepository, never()).findReplyEdges();
+    }
+
+    @Test
+    void getThread_UnknownMessage_ReturnsEmpty() {
+        // Given
+        ChatThreadService service = new ChatThreadService(chatMessageRepository, chatThreadIndex,
+            ChatThreadService.LOOKUP_CTE);
+        when(chatMessageRepository.findThread(99L)).thenReturn(List.of());
+
+        // When & Then
+        assertTrue(service.getThread(99L).isEmpty());
+    }
+
+    @Test
+    void getThread_NullId_ThrowsException() {
+        ChatThreadService service = new ChatThreadService(chatMessageRepository, chatThreadIndex,
+            ChatThreadService.LOOKUP_ADJACENCY);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getThread(null));
+    }
+}
@@ -2,15 +2,18 @@ package edu.cqu.coit13235.musicchat.service;
 
 import edu.cqu.coit13235.musicchat.domain.Favourite;
 import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -27,7 +30,18 @@ class FavouriteServiceTest {
     @Mock
     private FavouriteRepository favouriteRepository;
     
-    @InjectMocks
+    @Mock
+    private AudioTrackRepository audioTrackRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private ReactionWriteBuffer writeBuffer;
+    
+    @Mock
+    private UserReactionIndex reactionIndex;
+    
     private FavouriteService favouriteService;
     
     private Favourite testFavourite;
@@ -36,6 +50,7 @@ class FavouriteServiceTest {
     
     @BeforeEach
     void setUp() {
+        favouriteService = new FavouriteService(favouriteRepository, audioTrackRepository, eventPublisher, writeBuffer, reactionIndex, RatingService.UPSERT_MERGE);
         testFavourite = new Favourite(TEST_USER_ID, TEST_TRACK_ID);
         testFavourite.setId(1L);
         testFavourite.setCreatedAt(LocalDateTime.now());
@@ -44,9 +59,9 @@ class FavouriteServiceTest {
     @Test
     void toggleFavourite_NotFavourited_ShouldAddToFavourites() {
         // Given
-        when(favouriteRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.empty());
-        when(favouriteRepository.save(any(Favourite.class))).thenReturn(testFavourite);
+        when(favouriteRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(0);
+        when(favouriteRepository.insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class)))
+            .thenReturn(1);
         
         // When
         boolean result = favouriteService.toggleFavourite(TEST_USER_ID, TEST_TRACK_ID);
@@ -54,15 +69,15 @@ class FavouriteServiceTest {
         // Then
         assertTrue(result);
         
-        verify(favouriteRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository).save(any(Favourite.class));
+        verify(favouriteRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(favouriteRepository).insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class));
+        verify(eventPublisher).publishEvent(any(TrackActivityEvent.class));
     }
     
     @Test
     void toggleFavourite_AlreadyFavourited_ShouldRemoveFromFavourites() {
         // Given
-        when(favouriteRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.of(testFavourite));
+        when(favouriteRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(1);
         
         // When
         boolean result = favouriteService.toggleFavourite(TEST_USER_ID, TEST_TRACK_ID);
@@ -70,14 +85,32 @@ class FavouriteServiceTest {
         // Then
         assertFalse(result);
         
-        verify(favouriteRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository).delete(testFavourite);
+        verify(favouriteRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(favouriteRepository, never()).insertIfAbsentMerge(any(), any(), any());
+    }
+    
+    @Test
+    void toggleFavourite_ConcurrentlyAdded_ShouldStayFavouritedWithoutEvent() {
+        // Given: nothing to delete, and another request inserted the favourite first
+        favouriteService = new FavouriteService(favouriteRepository, audioTrackRepository, eventPublisher, writeBuffer, reactionIndex, RatingService.UPSERT_ON_CONFLICT);
+        when(favouriteRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(0);
+        when(favouriteRepository.insertIfAbsentOnConflict(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class)))
+            .thenReturn(0);
+        
+        // When
+        boolean result = favouriteService.toggleFavourite(TEST_USER_ID, TEST_TRACK_ID);
+        
+        // Then
+        assertTrue(result);
+        
+        verify(favouriteRepository, never()).insertIfAbsentMerge(any(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
     }
     
     @Test
     void isFavourited_ExistingFavourite_ShouldReturnTrue() {
         // Given
-        when(favouriteRepository.existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
+        when(reactionIndex.isFavourited(TEST_USER_ID, TEST_TRACK_ID))
             .thenReturn(true);
         
         // When
@@ -86,13 +119,13 @@ class FavouriteServiceTest {
         // Then
         assertTrue(result);
         
-        verify(favouriteRepository).existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
+        verifyNoInteractions(favouriteRepository);
     }
     
     @Test
     void isFavourited_NonExistentFavourite_ShouldReturnFalse() {
         // Given
-        when(favouriteRepository.existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
+        when(reactionIndex.isFavourited(TEST_USER_ID, TEST_TRACK_ID))
             .thenReturn(false);
         
         // When
@@ -101,7 +134,7 @@ class FavouriteServiceTest {
         // Then
         assertFalse(result);
         
-        verify(favouriteRepository).existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
+        verifyNoInteractions(favouriteRepository);
     }
     
     @Test
@@ -187,9 +220,10 @@ class FavouriteServiceTest {
     @Test
     void addFavourite_NotAlreadyFavourited_ShouldCreateFavourite() {
         // Given
-        when(favouriteRepository.existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(false);
-        when(favouriteRepository.save(any(Favourite.class))).thenReturn(testFavourite);
+        when(favouriteRepository.insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class)))
+            .thenReturn(1);
+        when(favouriteRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
+            .thenReturn(Optional.of(testFavourite));
         
         // When
         Favourite result = favouriteService.addFavourite(TEST_USER_ID, TEST_TRACK_ID);
@@ -198,30 +232,29 @@ class FavouriteServiceTest {
         assertNotNull(result);
         assertEquals(testFavourite, result);
         
-        verify(favouriteRepository).existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository).save(any(Favourite.class));
+        verify(favouriteRepository).insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class));
+        verify(favouriteRepository, never()).save(any(Favourite.class));
     }
     
     @Test
     void addFavourite_AlreadyFavourited_ShouldThrowException() {
         // Given
-        when(favouriteRepository.existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(true);
+        when(favouriteRepository.insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class)))
+            .thenReturn(0);
         
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
             favouriteService.addFavourite(TEST_USER_ID, TEST_TRACK_ID);
         });
         
-        verify(favouriteRepository).existsByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository, never()).save(any(Favourite.class));
+        verify(favouriteRepository).insertIfAbsentMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any(LocalDateTime.class));
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
     }
     
     @Test
     void removeFavourite_ExistingFavourite_ShouldDeleteAndReturnTrue() {
         // Given
-        when(favouriteRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.of(testFavourite));
+        when(favouriteRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(1);
         
         // When
         boolean result = favouriteService.removeFavourite(TEST_USER_ID, TEST_TRACK_ID);
@@ -229,15 +262,14 @@ class FavouriteServiceTest {
         // Then
         assertTrue(result);
         
-        verify(favouriteRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository).delete(testFavourite);
+        verify(favouriteRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(eventPublisher).publishEvent(any(TrackActivityEvent.class));
     }
     
     @Test
     void removeFavourite_NonExistentFavourite_ShouldReturnFalse() {
         // Given
-        when(favouriteRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.empty());
+        when(favouriteRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(0);
         
         // When
         boolean result = favouriteService.removeFavourite(TEST_USER_ID, TEST_TRACK_ID);
@@ -245,7 +277,44 @@ class FavouriteServiceTest {
         // Then
         assertFalse(result);
         
-        verify(favouriteRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(favouriteRepository, never()).delete(any(Favourite.class));
+        verify(favouriteRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
+    }
+    
+    @Test
+    void toggleFavourite_Buffered_ShouldBufferAndReadOwnWrite() {
+        // Given
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        when(writeBuffer.toggleFavourite(eq(TEST_USER_ID), eq(TEST_TRACK_ID), any())).thenReturn(true);
+        when(writeBuffer.bufferedFavourite(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(true);
+        
+        // When
+        boolean result = favouriteService.toggleFavourite(TEST_USER_ID, TEST_TRACK_ID);
+        
+        // Then
+        assertTrue(result);
+        assertTrue(favouriteService.isFavourited(TEST_USER_ID, TEST_TRACK_ID));
+        
+        verify(favouriteRepository, never()).deleteByUserIdAndTrackIdInBulk(any(), any());
+        verify(favouriteRepository, never()).existsByUserIdAndTrackId(any(), any());
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
+    }
+    
+    @Test
+    void getUserFavourites_Buffered_ShouldOverlayBufferedChanges() {
+        // Given
+        Favourite removed = new Favourite(TEST_USER_ID, 2L);
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        when(favouriteRepository.findByUserId(TEST_USER_ID)).thenReturn(List.of(testFavourite, removed));
+        when(writeBuffer.bufferedFavouritesOf(TEST_USER_ID)).thenReturn(new HashMap<>(Map.of(2L, false, 3L, true)));
+        
+        // When
+        List<Favourite> result = favouriteService.getUserFavourites(TEST_USER_ID);
+        
+        // Then
+        assertEquals(2, result.size());
+        assertSame(testFavourite, result.get(0));
+        assertEquals(3L, result.get(1).getTrackId());
+        assertEquals(TEST_USER_ID, result.get(1).getUserId());
     }
 }
@@ -0,0 +1,131 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ItemSimilarityModel.
+ */
+class ItemSimilarityModelTest {
+
+    private ForkJoinPool pool;
+    private ItemSimilarityModel model;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        model = new ItemSimilarityModel(10, 10);
+        // Users 1 and 2 like tracks 10 and 11; user 3 likes 10 and 12; user 4 likes only 10
+        model.setInteraction(1L, 10L, 5);
+        model.setInteraction(1L, 11L, 5);
+        model.setInteraction(2L, 10L, 4);
+        model.setInteraction(2L, 11L, 4);
+        model.setInteraction(3L, 10L, 5);
+        model.setInteraction(3L, 12L, 2);
+        model.setInteraction(4L, 10L, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void rebuild_ComputesCosineNeighbours() {
+        model.rebuild(pool);
+
+        ItemSimilarityModel.Ranking near = model.getNeighbours(11L);
+        assertEquals(1, near.size());
+        assertEquals(10L, near.getId(0));
+        // 11 = (5, 4, 0, 0) and 10 = (5, 4, 5, 5) over users 1-4
+        assertEquals(41 / (Math.sqrt(41) * Math.sqrt(91)), near.getScore(0), 1e-9);
+        assertNull(model.getNeighbours(99L));
+    }
+
+    @Test
+    void rebuild_RecommendsUnseenTracksBestFirst() {
+        model.rebuild(pool);
+
+        ItemSimilarityModel.Ranking recommended = model.getRecommendations(4L);
+        assertEquals(2, recommended.size());
+        assertEquals(11L, recommended.getId(0));
+        assertEquals(12L, recommended.getId(1));
+        assertTrue(recommended.getScore(0) > recommended.getScore(1));
+
+        // User 1 already has 10 and 11, which leaves 12, reached through 10
+        ItemSimilarityModel.Ranking forUserOne = model.getRecommendations(1L);
+        assertEquals(1, forUserOne.size());
+        assertEquals(12L, forUserOne.getId(0));
+    }
+
+    @Test
+    void refresh_AfterChange_MatchesFullRebuild() {
+        model.rebuild(pool);
+
+        model.setInteraction(4L, 12L, 5);
+        model.setNeighbours(12L, model.computeNeighbours(12L));
+        model.setRecommendations(4L, model.computeRecommendations(4L));
+        ItemSimilarityModel.Ranking incremental = model.getRecommendations(4L);
+
+        model.rebuild(pool);
+        ItemSimilarityModel.Ranking rebuilt = model.getRecommendations(4L);
+        assertEquals(rebuilt.size(), incremental.size());
+        for (int i = 0; i < rebuilt.size(); i++) {
+            assertEquals(rebuilt.getId(i), incremental.getId(i));
+        }
+        assertEquals(11L, incremental.getId(0));
+    }
+
+    @Test
+    void setInteraction_Zero_RemovesUserAndTrack() {
+        model.setInteraction(3L, 12L, 0);
+        model.setInteraction(3L, 10L, 0);
+        model.rebuild(pool);
+
+        assertNull(model.getRecommendations(3L));
+        assertNull(model.getNeighbours(12L));
+        assertEquals(3, model.getUserCount());
+        assertEquals(2, model.getTrackCount());
+    }
+
+    @Test
+    void rebuild_InParallel_MatchesSingleThread() {
+        ItemSimilarityModel parallel = new ItemSimilarityModel(5, 5);
+        ItemSimilarityModel sequential = new ItemSimilarityModel(5, 5);
+        for (long user = 1; user <= 500; user++) {
+            for (long track = user % 20 + 1; track <= user % 20 + 5; track++) {
+                parallel.setInteraction(user, track, (int) (track % 5) + 1);
+                sequential.setInteraction(user, track, (int) (track % 5) + 1);
+            }
+        }
+
+        parallel.rebuild(pool);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            sequential.rebuild(single);
+        } finally {
+            single.shutdownNow();
+        }
+
+        assertEquals(24, parallel.getTrackCount());
+        for (long track = 1; track <= 24; track++) {
+            assertSameRanking(sequential.getNeighbours(track), parallel.getNeighbours(track));
+        }
+        for (long user = 1; user <= 500; user++) {
+            assertSameRanking(sequential.getRecommendations(user), parallel.getRecommendations(user));
+        }
+    }
+
+    private static void assertSameRanking(ItemSimilarityModel.Ranking expected, ItemSimilarityModel.Ranking actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getId(i), actual.getId(i));
+            assertEquals(expected.getScore(i), actual.getScore(i), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.TrendingScore;
+import edu.cqu.coit13235.musicchat.dto.RankedTrack;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import edu.cqu.coit13235.musicchat.repository.TrendingScoreRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LeaderboardService.
+ */
+@ExtendWith(MockitoExtension.class)
+class LeaderboardServiceTest {
+
+    @Mock
+    private AudioTrackRepository audioTrackRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private TrendingScoreRepository trendingScoreRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MutableClock clock;
+    private LeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        leaderboardService = new LeaderboardService(audioTrackRepository, ratingRepository,
+            trendingScoreRepository, transactionManager, 1.0, 5.0, clock);
+    }
+
+    @Test
+    void getTrending_ShouldFavourRecentActivity() {
+        stubTracks();
+        // Two plays for track 1, then one favourite for track 2 two half-lives later
+        leaderboardService.recordPlay(1L);
+        leaderboardService.recordPlay(1L);
+        clock.advance(Duration.ofHours(2));
+        leaderboardService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 2L, 9L));
+
+        List<RankedTrack> trending = leaderboardService.getTrending(10);
+
+        assertEquals(2, trending.size());
+        assertEquals(2L, trending.get(0).getTrack().getId());
+        assertEquals(LeaderboardService.FAVOURITE_WEIGHT, trending.get(0).getScore(), 1e-9);
+        assertEquals(0.5, trending.get(1).getScore(), 1e-9);
+    }
+
+    @Test
+    void getTrending_ShouldSkipDeletedTracks() {
+        stubTracks();
+        leaderboardService.recordPlay(1L);
+        leaderboardService.recordPlay(2L);
+
+        leaderboardService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.DELETED, 1L, 9L));
+
+        List<RankedTrack> trending = leaderboardService.getTrending(10);
+        assertEquals(1, trending.size());
+        assertEquals(2L, trending.get(0).getTrack().getId());
+    }
+
+    @Test
+    void getTopRated_ShouldRankByBayesianAverage() {
+        stubTracks();
+        // Track 1: a single 5; track 2: twenty ratings averaging 4.5; track 3: ten 2s
+        when(ratingRepository.findAllRatingTotals()).thenReturn(List.of(
+            new Object[]{1L, 5L, 1L},
+            new Object[]{2L, 90L, 20L},
+            new Object[]{3L, 20L, 10L}));
+        when(trendingScoreRepository.findAll()).thenReturn(List.of());
+        leaderboardService.loadLeaderboards();
+
+        List<RankedTrack> topRated = leaderboardService.getTopRated(10);
+
+        assertEquals(List.of(2L, 1L, 3L), topRated.stream().map(ranked -> ranked.getTrack().getId()).toList());
+        double mean = 115.0 / 31;
+        assertEquals((5 * mean + 90) / 25, topRated.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void onTrackActivity_Rated_ShouldRefreshTopRated() {
+        stubTracks();
+        when(ratingRepository.findRatingTotalsByTrackId(1L)).thenReturn(List.<Object[]>of(new Object[]{12L, 3L}));
+
+        leaderboardService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 1L, 9L));
+
+        List<RankedTrack> topRated = leaderboardService.getTopRated(10);
+        assertEquals(1, topRated.size());
+        assertEquals(4.0, topRated.get(0).getScore(), 1e-9);
+        assertEquals(LeaderboardService.RATING_WEIGHT, leaderboardService.getTrending(10).get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void onTrackActivity_Unrated_ShouldRefreshTopRatedWithoutTrending() {
+        stubTracks();
+        when(ratingRepository.findRatingTotalsByTrackId(1L)).thenReturn(List.<Object[]>of(new Object[]{12L, 3L}));
+
+        leaderboardService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.UNRATED, 1L, 9L));
+
+        assertEquals(1, leaderboardService.getTopRated(10).size());
+        assertTrue(leaderboardService.getTrending(10).isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshot_ShouldSaveDecayedScoresAndDropFadedOnes() {
+        leaderboardService.recordPlay(1L);
+        clock.advance(Duration.ofHours(20));
+        leaderboardService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 2L, 9L));
+        clock.advance(Duration.ofHours(1));
+
+        leaderboardService.snapshot();
+
+        ArgumentCaptor<Iterable<TrendingScore>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(trendingScoreRepository).deleteAllInBatch();
+        verify(trendingScoreRepository).saveAll(saved.capture());
+        List<TrendingScore> rows = new ArrayList<>((Collection<TrendingScore>) saved.getValue());
+        assertEquals(1, rows.size());
+        assertEquals(2L, rows.get(0).getTrackId());
+        assertEquals(LeaderboardService.FAVOURITE_WEIGHT / 2, rows.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void saveOnShutdown_FailedSave_ShouldRollBackTheDelete() {
+        leaderboardService.recordPlay(1L);
+        when(trendingScoreRepository.saveAll(anyIterable())).thenThrow(new IllegalStateException("database unavailable"));
+
+        leaderboardService.saveOnShutdown();
+
+        // Called directly, not through the proxy, yet the delete and insert share one transaction
+        InOrder order = inOrder(transactionManager, trendingScoreRepository);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(trendingScoreRepository).deleteAllInBatch();
+        order.verify(trendingScoreRepository).saveAll(anyIterable());
+        order.verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void loadLeaderboards_ShouldDecaySnapshotFromWhenItWasTaken() {
+        stubTracks();
+        LocalDateTime anHourAgo = LocalDateTime.now(clock).minusHours(1);
+        when(trendingScoreRepository.findAll()).thenReturn(List.of(new TrendingScore(1L, 8.0, anHourAgo)));
+        when(ratingRepository.findAllRatingTotals()).thenReturn(List.of());
+
+        leaderboardService.loadLeaderboards();
+
+        assertEquals(4.0, leaderboardService.getTrending(10).get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void getTrending_InvalidLimit_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> leaderboardService.getTrending(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> leaderboardService.getTopRated(LeaderboardService.MAX_LIMIT + 1));
+        verify(audioTrackRepository, never()).findAllById(anyIterable());
+    }
+
+    private void stubTracks() {
+        lenient().when(audioTrackRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<AudioTrack> tracks = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                AudioTrack track = new AudioTrack("Track " + id, "Artist", "file.mp3", "file.mp3", null);
+                track.setId((Long) id);
+                tracks.add(track);
+            }
+            return tracks;
+        });
+    }
+
+    /**
+     * Clock that tests move forward by hand.
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Leaderboard.
+ */
+class LeaderboardTest {
+
+    @Test
+    void top_ShouldOrderByScoreThenLowerId() {
+        Leaderboard board = new Leaderboard();
+        board.set(3L, 5.0);
+        board.set(1L, 2.0);
+        board.set(2L, 5.0);
+        board.add(4L, 1.0);
+        board.add(4L, 2.5);
+
+        List<Leaderboard.Entry> top = board.top(3);
+
+        assertEquals(List.of(2L, 3L, 4L), top.stream().map(Leaderboard.Entry::getId).toList());
+        assertEquals(3.5, top.get(2).getScore());
+        assertEquals(4, board.size());
+    }
+
+    @Test
+    void updates_ShouldReplaceTheOldEntry() {
+        Leaderboard board = new Leaderboard();
+        board.set(1L, 10.0);
+        board.set(2L, 5.0);
+
+        board.set(1L, 1.0);
+        board.add(2L, 1.0);
+        board.remove(3L);
+
+        List<Leaderboard.Entry> top = board.top(10);
+        assertEquals(2, top.size());
+        assertEquals(2L, top.get(0).getId());
+        assertEquals(6.0, board.getScore(2L));
+
+        board.remove(2L);
+        assertEquals(0.0, board.getScore(2L));
+        assertEquals(List.of(1L), board.top(10).stream().map(Leaderboard.Entry::getId).toList());
+    }
+
+    @Test
+    void concurrentAdds_ShouldNotLoseUpdates() throws InterruptedException {
+        Leaderboard board = new Leaderboard();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    board.add(i % 10, 1.0);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10, board.size());
+        assertEquals(10, board.top(100).size());
+        for (long id = 0; id < 10; id++) {
+            assertEquals(400.0, board.getScore(id));
+        }
+    }
+}
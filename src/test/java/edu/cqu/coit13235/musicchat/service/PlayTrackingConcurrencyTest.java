@@ -0,0 +1,113 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.PlayEvent;
+import edu.cqu.coit13235.musicchat.domain.User;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.PlayEventRepository;
+import edu.cqu.coit13235.musicchat.repository.TrackPlayCountRepository;
+import edu.cqu.coit13235.musicchat.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency tests for play tracking: plays counted from many threads, with flushes running
+ * alongside, must all reach track_play_counts and play_events.
+ * Not transactional: each flush commits on its own, as it would when scheduled.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class PlayTrackingConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int PLAYS_PER_THREAD = 50;
+
+    @Autowired
+    private PlayTrackingService playTrackingService;
+
+    @Autowired
+    private PlayEventRepository playEventRepository;
+
+    @Autowired
+    private TrackPlayCountRepository trackPlayCountRepository;
+
+    @Autowired
+    private AudioTrackRepository audioTrackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private AudioTrack track;
+
+    @BeforeEach
+    void setUp() {
+        playTrackingService.flush();
+        user = userRepository.save(new User("playuser", "playuser@example.com", "password"));
+        track = audioTrackRepository.save(new AudioTrack("Plays", "Play Artist", "plays.mp3", "plays.mp3", user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        playEventRepository.deleteAll(playEventRepository.findAll().stream()
+            .filter(play -> play.getTrackId().equals(track.getId())).toList());
+        trackPlayCountRepository.deleteById(track.getId());
+        audioTrackRepository.deleteById(track.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void recordPlay_ConcurrentWithFlushes_ShouldLoseNoPlays() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PLAYS_PER_THREAD; i++) {
+                        playTrackingService.recordPlay(track.getId(), (i % 2 == 0) ? user.getId() : null);
+                    }
+                    return null;
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 5; i++) {
+                    playTrackingService.flush();
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        playTrackingService.flush();
+
+        int totalPlays = THREADS * PLAYS_PER_THREAD;
+        assertThat(trackPlayCountRepository.findById(track.getId()))
+            .hasValueSatisfying(count -> assertThat(count.getPlayCount()).isEqualTo(totalPlays));
+        assertThat(playTrackingService.getPlayCount(track.getId())).isEqualTo(totalPlays);
+
+        List<PlayEvent> history = playTrackingService.getListeningHistory(user.getId(), PlayTrackingService.MAX_HISTORY_LIMIT);
+        assertThat(history).hasSize(PlayTrackingService.MAX_HISTORY_LIMIT);
+        assertThat(history).allMatch(play -> play.getTrackId().equals(track.getId()));
+    }
+}
@@ -0,0 +1,117 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.TrackPlayCount;
+import edu.cqu.coit13235.musicchat.repository.PlayEventRepository;
+import edu.cqu.coit13235.musicchat.repository.TrackPlayCountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PlayTrackingService.
+ */
+@ExtendWith(MockitoExtension.class)
+class PlayTrackingServiceTest {
+
+    @Mock
+    private PlayEventRepository playEventRepository;
+
+    @Mock
+    private TrackPlayCountRepository trackPlayCountRepository;
+
+    @Mock
+    private LeaderboardService leaderboardService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlayTrackingService playTrackingService;
+
+    @BeforeEach
+    void setUp() {
+        playTrackingService = new PlayTrackingService(playEventRepository, trackPlayCountRepository,
+            leaderboardService, transactionManager, 2, RatingService.UPSERT_MERGE);
+    }
+
+    @Test
+    void recordPlay_ShouldCountInMemoryAndFeedTrending() {
+        when(trackPlayCountRepository.findById(10L))
+            .thenReturn(Optional.of(new TrackPlayCount(10L, 5, LocalDateTime.now())));
+
+        playTrackingService.recordPlay(10L, 1L);
+        playTrackingService.recordPlay(10L, null);
+
+        assertEquals(7, playTrackingService.getPlayCount(10L));
+        verify(leaderboardService, times(2)).recordPlay(10L);
+        verifyNoInteractions(playEventRepository);
+        verify(trackPlayCountRepository, never()).batchIncrement(anyList(), anyList(), any(), anyBoolean());
+    }
+
+    @Test
+    void flush_ShouldWriteCountsAndHistoryInOneTransaction() {
+        playTrackingService.recordPlay(10L, 1L);
+        playTrackingService.recordPlay(10L, 2L);
+        playTrackingService.recordPlay(11L, null);
+
+        playTrackingService.flush();
+
+        verify(trackPlayCountRepository).batchIncrement(eq(List.of(10L, 11L)), eq(List.of(2L, 1L)), any(), eq(false));
+        verify(playEventRepository).batchInsert(eq(List.of(1L, 2L)), eq(List.of(10L, 10L)), anyList());
+        verify(transactionManager).commit(any());
+
+        // Nothing left to write
+        playTrackingService.flush();
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void recordPlay_FullHistoryQueue_ShouldStillCountThePlay() {
+        playTrackingService.recordPlay(10L, 1L);
+        playTrackingService.recordPlay(10L, 1L);
+        playTrackingService.recordPlay(10L, 1L);
+
+        playTrackingService.flush();
+
+        verify(trackPlayCountRepository).batchIncrement(eq(List.of(10L)), eq(List.of(3L)), any(), eq(false));
+        verify(playEventRepository).batchInsert(eq(List.of(1L, 1L)), eq(List.of(10L, 10L)), anyList());
+    }
+
+    @Test
+    void flush_WriteFails_ShouldKeepPlaysForNextFlush() {
+        playTrackingService.recordPlay(10L, 1L);
+        when(trackPlayCountRepository.batchIncrement(anyList(), anyList(), any(), anyBoolean()))
+            .thenThrow(new RuntimeException("database down"))
+            .thenReturn(new int[]{1});
+
+        playTrackingService.flush();
+        when(trackPlayCountRepository.findById(10L)).thenReturn(Optional.empty());
+        assertEquals(1, playTrackingService.getPlayCount(10L));
+
+        playTrackingService.flush();
+        verify(trackPlayCountRepository, times(2)).batchIncrement(eq(List.of(10L)), eq(List.of(1L)), any(), eq(false));
+        verify(playEventRepository).batchInsert(eq(List.of(1L)), eq(List.of(10L)), anyList());
+    }
+
+    @Test
+    void getListeningHistory_InvalidInput_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> playTrackingService.getListeningHistory(null, 10));
+        assertThrows(IllegalArgumentException.class, () -> playTrackingService.getListeningHistory(1L, 0));
+        assertThrows(IllegalArgumentException.class,
+            () -> playTrackingService.getListeningHistory(1L, PlayTrackingService.MAX_HISTORY_LIMIT + 1));
+        assertThrows(IllegalArgumentException.class, () -> playTrackingService.recordPlay(null, 1L));
+    }
+}
@@ -0,0 +1,75 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.dto.PlaylistOperation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for PlaylistEventPublisher.
+ */
+@ExtendWith(MockitoExtension.class)
+class PlaylistEventPublisherTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private PlaylistEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new PlaylistEventPublisher(messagingTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void publish_OutsideTransaction_SendsToPlaylistTopic() {
+        PlaylistOperation operation = PlaylistOperation.remove(5L, 3L, List.of(9L));
+
+        publisher.publish(operation);
+
+        verify(messagingTemplate).convertAndSend("/topic/playlists/5", operation);
+    }
+
+    @Test
+    void publish_InsideTransaction_WaitsForCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        PlaylistOperation operation = PlaylistOperation.update(5L, 4L, "Renamed", null);
+
+        publisher.publish(operation);
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        verify(messagingTemplate).convertAndSend("/topic/playlists/5", operation);
+    }
+
+    @Test
+    void publish_BrokerFailure_DoesNotPropagate() {
+        PlaylistOperation operation = PlaylistOperation.remove(5L, 3L, List.of(9L));
+        doThrow(new IllegalStateException("broker down")).when(messagingTemplate).convertAndSend("/topic/playlists/5", operation);
+
+        publisher.publish(operation);
+    }
+}
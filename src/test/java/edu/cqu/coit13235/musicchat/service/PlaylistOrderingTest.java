@@ -0,0 +1,77 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.PlaylistTrack;
+import edu.cqu.coit13235.musicchat.repository.PlaylistTrackRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PlaylistOrdering.
+ */
+@ExtendWith(MockitoExtension.class)
+class PlaylistOrderingTest {
+
+    private static final int GAP = PlaylistTrack.POSITION_GAP;
+
+    @Mock
+    private PlaylistTrackRepository playlistTrackRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PlaylistOrdering playlistOrdering;
+
+    @BeforeEach
+    void setUp() {
+        playlistOrdering = new PlaylistOrdering(playlistTrackRepository, transactionManager);
+    }
+
+    @Test
+    void keyBetween_Neighbours_ReturnsMidpoint() {
+        assertEquals(GAP / 2, PlaylistOrdering.keyBetween(0, GAP));
+        assertEquals(-GAP, PlaylistOrdering.keyBetween(null, 0));
+        assertEquals(2 * GAP, PlaylistOrdering.keyBetween(GAP, null));
+        assertEquals(0, PlaylistOrdering.keyBetween(null, null));
+    }
+
+    @Test
+    void keyBetween_NoRoom_ReturnsNull() {
+        assertNull(PlaylistOrdering.keyBetween(5, 6));
+        assertNull(PlaylistOrdering.keyBetween(Integer.MAX_VALUE, null));
+    }
+
+    @Test
+    void isCrowded_NarrowGap_ReturnsTrue() {
+        assertTrue(PlaylistOrdering.isCrowded(0, 3, GAP));
+        assertFalse(PlaylistOrdering.isCrowded(0, GAP / 2, GAP));
+    }
+
+    @Test
+    void firstAppendKey_AppendsAfterMaximum() {
+        assertEquals(0, PlaylistOrdering.firstAppendKey(null, 3));
+        assertEquals(5 + GAP, PlaylistOrdering.firstAppendKey(5, 3));
+        assertNull(PlaylistOrdering.firstAppendKey(Integer.MAX_VALUE - GAP, 2));
+    }
+
+    @Test
+    void rebalancePending_RebalancesQueuedPlaylistsOnce() {
+        // Given
+        playlistOrdering.scheduleRebalance(7L);
+        playlistOrdering.scheduleRebalance(7L);
+
+        // When
+        playlistOrdering.rebalancePending();
+        playlistOrdering.rebalancePending();
+
+        // Then
+        verify(playlistTrackRepository, times(1)).rebalancePositions(7L, GAP);
+        assertFalse(playlistOrdering.isRebalancePending(7L));
+    }
+}
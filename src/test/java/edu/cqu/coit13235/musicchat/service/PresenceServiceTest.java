@@ -0,0 +1,174 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.dto.PresenceUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PresenceService.
+ */
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+
+    private static final String TOPIC = PresenceService.PRESENCE_TOPIC_PREFIX + PresenceService.DEFAULT_ROOM;
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private PresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        presenceService = new PresenceService(messagingTemplate, List.of(PresenceService.DEFAULT_ROOM, "lobby"));
+    }
+
+    private PresenceUpdate lastBroadcast() {
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, atLeastOnce()).convertAndSend(eq(TOPIC), captor.capture());
+        return (PresenceUpdate) captor.getValue();
+    }
+
+    @Test
+    void connect_FirstSession_BroadcastsJoinDiff() {
+        // When
+        presenceService.connect(null, "s1", "alice", 0);
+
+        // Then
+        PresenceUpdate diff = lastBroadcast();
+        assertEquals(PresenceUpdate.TYPE_DIFF, diff.getType());
+        assertEquals(List.of("alice"), diff.getJoined());
+        assertEquals(1, diff.getSeq());
+        assertEquals(List.of("alice"), presenceService.getOnlineUsers(PresenceService.DEFAULT_ROOM));
+    }
+
+    @Test
+    void connect_SecondSessionSameUser_DoesNotBroadcast() {
+        // When
+        presenceService.connect(null, "s1", "alice", 0);
+        presenceService.connect(null, "s2", "alice", 0);
+
+        // Then
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+    }
+
+    @Test
+    void disconnect_LastSession_BroadcastsLeaveDiff() {
+        // Given
+        presenceService.connect(null, "s1", "alice", 0);
+        presenceService.connect(null, "s2", "alice", 0);
+
+        // When
+        presenceService.disconnect("s1");
+        verify(messagingTemplate, times(1)).convertAndSend(eq(TOPIC), any(Object.class));
+        presenceService.disconnect("s2");
+
+        // Then
+        PresenceUpdate diff = lastBroadcast();
+        assertEquals(List.of("alice"), diff.getLeft());
+        assertEquals(2, diff.getSeq());
+        assertTrue(presenceService.getOnlineUsers(PresenceService.DEFAULT_ROOM).isEmpty());
+    }
+
+    @Test
+    void connect_UnknownRoom_IsIgnored() {
+        // When
+        presenceService.connect("room-42", "s1", "alice", 0);
+        presenceService.disconnect("s1");
+
+        // Then
+        verifyNoInteractions(messagingTemplate);
+        assertTrue(presenceService.getOnlineUsers("room-42").isEmpty());
+    }
+
+    @Test
+    void disconnect_LastMember_DropsTheRoom() {
+        // Given
+        presenceService.connect("lobby", "s1", "alice", 0);
+        assertEquals(1, presenceService.getSnapshot("lobby").getSeq());
+
+        // When
+        presenceService.disconnect("s1");
+
+        // Then the room's state is gone, and a later join starts a fresh room
+        assertEquals(0, presenceService.getSnapshot("lobby").getSeq());
+        presenceService.connect("lobby", "s2", "bob", 0);
+        assertEquals(List.of("bob"), presenceService.getOnlineUsers("lobby"));
+        assertEquals(1, presenceService.getSnapshot("lobby").getSeq());
+    }
+
+    @Test
+    void publishCheckpoints_OnlyChangedRoomsGetSnapshot() {
+        // Given
+        presenceService.connect(null, "s1", "bob", 0);
+        presenceService.connect(null, "s2", "alice", 0);
+
+        // When
+        presenceService.publishCheckpoints();
+        presenceService.publishCheckpoints();
+
+        // Then
+        PresenceUpdate snapshot = lastBroadcast();
+        assertEquals(PresenceUpdate.TYPE_SNAPSHOT, snapshot.getType());
+        assertEquals(List.of("alice", "bob"), snapshot.getUsers());
+        verify(messagingTemplate, times(3)).convertAndSend(eq(TOPIC), any(Object.class));
+    }
+
+    @Test
+    void evictIdleSessions_MissedHeartbeats_RemovesSession() {
+        // Given
+        presenceService.connect(null, "s1", "alice", 1000);
+        presenceService.connect(null, "s2", "bob", 0);
+
+        // When
+        presenceService.evictIdleSessions(System.currentTimeMillis() + 10_000);
+
+        // Then
+        assertEquals(List.of("bob"), presenceService.getOnlineUsers(PresenceService.DEFAULT_ROOM));
+    }
+
+    @Test
+    void evictIdleSessions_ClientHeartbeatBelowServerInterval_UsesNegotiatedInterval() {
+        // Given a client offering heartbeats more often than the server asks for them
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.setSessionId("s1");
+        accessor.setHeartbeat(1000, 1000);
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        presenceService.handleSessionConnect(new SessionConnectEvent(this, connect, () -> "alice"));
+        long connectedAt = System.currentTimeMillis();
+
+        // When it sends at the negotiated interval, it is still online after three of its own intervals
+        presenceService.evictIdleSessions(connectedAt + 3 * 1000 + 1000);
+
+        // Then
+        assertEquals(List.of("alice"), presenceService.getOnlineUsers(PresenceService.DEFAULT_ROOM));
+
+        // And it is evicted after missing three negotiated heartbeats
+        presenceService.evictIdleSessions(connectedAt + 3 * PresenceService.HEARTBEAT_INTERVAL + 1000);
+        assertTrue(presenceService.getOnlineUsers(PresenceService.DEFAULT_ROOM).isEmpty());
+    }
+
+    @Test
+    void getSnapshot_UnknownRoom_ReturnsEmpty() {
+        PresenceUpdate snapshot = presenceService.getSnapshot("nowhere");
+
+        assertEquals(0, snapshot.getSeq());
+        assertTrue(snapshot.getUsers().isEmpty());
+    }
+}
@@ -1,21 +1,28 @@
 package edu.cqu.coit13235.musicchat.service;
 
 import edu.cqu.coit13235.musicchat.domain.Rating;
+import edu.cqu.coit13235.musicchat.dto.RatingStats;
 import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -27,7 +34,21 @@ class RatingServiceTest {
     @Mock
     private RatingRepository ratingRepository;
     
-    @InjectMocks
+    @Mock
+    private AudioTrackRepository audioTrackRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private ReactionWriteBuffer writeBuffer;
+    
+    @Mock
+    private UserReactionIndex reactionIndex;
+    
+    @Mock
+    private LeaderboardService leaderboardService;
+    
     private RatingService ratingService;
     
     private Rating testRating;
@@ -37,6 +58,7 @@ class RatingServiceTest {
     
     @BeforeEach
     void setUp() {
+        ratingService = new RatingService(ratingRepository, audioTrackRepository, eventPublisher, writeBuffer, reactionIndex, leaderboardService, RatingService.UPSERT_MERGE);
         testRating = new Rating(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE);
         testRating.setId(1L);
         testRating.setCreatedAt(LocalDateTime.now());
@@ -46,9 +68,8 @@ class RatingServiceTest {
     @Test
     void rateTrack_NewRating_ShouldCreateNewRating() {
         // Given
-        when(ratingRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.empty());
-        when(ratingRepository.save(any(Rating.class))).thenReturn(testRating);
+        when(ratingRepository.upsertMerge(eq(TEST_USER_ID), eq(TEST_TRACK_ID), eq(TEST_RATING_VALUE), any(LocalDateTime.class)))
+            .thenReturn(1);
         
         // When
         Rating result = ratingService.rateTrack(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE);
@@ -59,20 +80,19 @@ class RatingServiceTest {
         assertEquals(TEST_TRACK_ID, result.getTrackId());
         assertEquals(TEST_RATING_VALUE, result.getRatingValue());
         
-        verify(ratingRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(ratingRepository).save(any(Rating.class));
+        verify(audioTrackRepository).lockIdById(TEST_TRACK_ID);
+        verify(ratingRepository).upsertMerge(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE, result.getUpdatedAt());
+        verify(ratingRepository, never()).save(any(Rating.class));
+        // The written values are returned without reading the row back
+        verify(ratingRepository, never()).findByUserIdAndTrackId(any(), any());
     }
     
     @Test
     void rateTrack_ExistingRating_ShouldUpdateRating() {
         // Given
-        Rating existingRating = new Rating(TEST_USER_ID, TEST_TRACK_ID, 3);
-        existingRating.setId(1L);
-        existingRating.setCreatedAt(LocalDateTime.now().minusHours(1));
-        
-        when(ratingRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.of(existingRating));
-        when(ratingRepository.save(any(Rating.class))).thenReturn(testRating);
+        ratingService = new RatingService(ratingRepository, audioTrackRepository, eventPublisher, writeBuffer, reactionIndex, leaderboardService, RatingService.UPSERT_ON_CONFLICT);
+        when(ratingRepository.upsertOnConflict(eq(TEST_USER_ID), eq(TEST_TRACK_ID), eq(TEST_RATING_VALUE), any(LocalDateTime.class)))
+            .thenReturn(1);
         
         // When
         Rating result = ratingService.rateTrack(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE);
@@ -82,8 +102,9 @@ class RatingServiceTest {
         assertEquals(TEST_RATING_VALUE, result.getRatingValue());
         assertNotNull(result.getUpdatedAt());
         
-        verify(ratingRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(ratingRepository).save(existingRating);
+        verify(ratingRepository).upsertOnConflict(eq(TEST_USER_ID), eq(TEST_TRACK_ID), eq(TEST_RATING_VALUE), any(LocalDateTime.class));
+        verify(ratingRepository, never()).upsertMerge(any(), any(), any(), any());
+        verify(audioTrackRepository, never()).lockIdById(anyLong());
     }
     
     @Test
@@ -98,6 +119,7 @@ class RatingServiceTest {
         });
         
         verify(ratingRepository, never()).save(any(Rating.class));
+        verify(ratingRepository, never()).upsertMerge(any(), any(), any(), any());
     }
     
     @Test
@@ -194,6 +216,41 @@ class RatingServiceTest {
         verify(ratingRepository).findAverageRatingByTrackId(TEST_TRACK_ID);
     }
     
+    @Test
+    void getRatingStats_ShouldBuildHistogramsFromOneQuery() {
+        // Given
+        when(ratingRepository.findRatingHistogramsByTrackIds(Set.of(1L, 2L, 3L))).thenReturn(List.of(
+            new Object[]{1L, 5, 3L},
+            new Object[]{1L, 2, 1L},
+            new Object[]{2L, 4, 2L}));
+        when(leaderboardService.getBayesianScore(17L, 4L)).thenReturn(4.0);
+        when(leaderboardService.getBayesianScore(8L, 2L)).thenReturn(3.8);
+        when(leaderboardService.getBayesianScore(0L, 0L)).thenReturn(3.5);
+        
+        // When
+        List<RatingStats> result = ratingService.getRatingStats(List.of(3L, 1L, 2L));
+        
+        // Then
+        assertEquals(List.of(3L, 1L, 2L), result.stream().map(RatingStats::getTrackId).toList());
+        RatingStats first = result.get(1);
+        assertEquals(Map.of(1, 0L, 2, 1L, 3, 0L, 4, 0L, 5, 3L), first.getHistogram());
+        assertEquals(4L, first.getRatingCount());
+        assertEquals(4.25, first.getAverageRating());
+        assertEquals(4.0, first.getBayesianScore());
+        assertEquals(0L, result.get(0).getRatingCount());
+        assertNull(result.get(0).getAverageRating());
+        assertEquals(3.5, result.get(0).getBayesianScore());
+        
+        verify(ratingRepository, times(1)).findRatingHistogramsByTrackIds(any());
+    }
+    
+    @Test
+    void getRatingStats_NullTrackId_ShouldThrowException() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> ratingService.getRatingStats(Arrays.asList(1L, null)));
+        verifyNoInteractions(ratingRepository);
+    }
+    
     @Test
     void getRatingCount_ShouldReturnCount() {
         // Given
@@ -212,8 +269,7 @@ class RatingServiceTest {
     @Test
     void removeRating_ExistingRating_ShouldDeleteAndReturnTrue() {
         // Given
-        when(ratingRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.of(testRating));
+        when(ratingRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(1);
         
         // When
         boolean result = ratingService.removeRating(TEST_USER_ID, TEST_TRACK_ID);
@@ -221,15 +277,15 @@ class RatingServiceTest {
         // Then
         assertTrue(result);
         
-        verify(ratingRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(ratingRepository).delete(testRating);
+        verify(ratingRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof TrackActivityEvent activity
+            && activity.getType() == TrackActivityEvent.Type.UNRATED));
     }
     
     @Test
     void removeRating_NonExistentRating_ShouldReturnFalse() {
         // Given
-        when(ratingRepository.findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID))
-            .thenReturn(Optional.empty());
+        when(ratingRepository.deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(0);
         
         // When
         boolean result = ratingService.removeRating(TEST_USER_ID, TEST_TRACK_ID);
@@ -237,7 +293,50 @@ class RatingServiceTest {
         // Then
         assertFalse(result);
         
-        verify(ratingRepository).findByUserIdAndTrackId(TEST_USER_ID, TEST_TRACK_ID);
-        verify(ratingRepository, never()).delete(any(Rating.class));
+        verify(ratingRepository).deleteByUserIdAndTrackIdInBulk(TEST_USER_ID, TEST_TRACK_ID);
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
+    }
+    
+    @Test
+    void rateTrack_Buffered_ShouldBufferAndReadOwnWrite() {
+        // Given
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        when(writeBuffer.bufferedRating(TEST_USER_ID, TEST_TRACK_ID)).thenReturn(TEST_RATING_VALUE);
+        
+        // When
+        Rating result = ratingService.rateTrack(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE);
+        Optional<Rating> read = ratingService.getUserRating(TEST_USER_ID, TEST_TRACK_ID);
+        
+        // Then
+        assertEquals(TEST_RATING_VALUE, result.getRatingValue());
+        assertTrue(read.isPresent());
+        assertEquals(TEST_RATING_VALUE, read.get().getRatingValue());
+        
+        verify(writeBuffer).putRating(TEST_USER_ID, TEST_TRACK_ID, TEST_RATING_VALUE);
+        verifyNoInteractions(ratingRepository, audioTrackRepository, eventPublisher);
+    }
+    
+    @Test
+    void getUserRatings_Buffered_ShouldOverlayBufferedChanges() {
+        // Given
+        Rating changed = new Rating(TEST_USER_ID, 2L, 3);
+        changed.setId(2L);
+        Rating removed = new Rating(TEST_USER_ID, 3L, 4);
+        when(writeBuffer.isEnabled()).thenReturn(true);
+        when(ratingRepository.findByUserId(TEST_USER_ID)).thenReturn(List.of(testRating, changed, removed));
+        when(writeBuffer.bufferedRatingsOf(TEST_USER_ID))
+            .thenReturn(new HashMap<>(Map.of(2L, 5, 3L, ReactionWriteBuffer.REMOVED, 4L, 1)));
+        
+        // When
+        List<Rating> result = ratingService.getUserRatings(TEST_USER_ID);
+        
+        // Then
+        assertEquals(3, result.size());
+        assertSame(testRating, result.get(0));
+        assertEquals(2L, result.get(1).getId());
+        assertEquals(5, result.get(1).getRatingValue());
+        assertEquals(3, changed.getRatingValue());
+        assertEquals(4L, result.get(2).getTrackId());
+        assertEquals(1, result.get(2).getRatingValue());
     }
 }
@@ -0,0 +1,110 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.User;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import edu.cqu.coit13235.musicchat.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency tests for the single-statement rating and favourite writes.
+ * Not transactional: each call commits on its own, as it would from a request.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ReactionUpsertConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int CALLS_PER_THREAD = 25;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private FavouriteService favouriteService;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private FavouriteRepository favouriteRepository;
+
+    @Autowired
+    private AudioTrackRepository audioTrackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private AudioTrack track;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("upsertuser", "upsertuser@example.com", "password"));
+        track = audioTrackRepository.save(new AudioTrack("Upsert", "Upsert Artist", "upsert.mp3", "upsert.mp3", user));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ratingService.removeRating(user.getId(), track.getId());
+        favouriteService.removeFavourite(user.getId(), track.getId());
+        audioTrackRepository.deleteById(track.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    private void runConcurrently(Callable<Object> call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS * CALLS_PER_THREAD; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Object> future : futures) {
+                // Rethrows any constraint violation from a worker
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent ratings by one user leave exactly one rating row")
+    public void testConcurrentRatingsUpsertOneRow() throws Exception {
+        runConcurrently(() -> ratingService.rateTrack(user.getId(), track.getId(), 1 + (int) (Math.random() * 5)));
+
+        assertThat(ratingRepository.countByTrackId(track.getId())).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Concurrent favourite toggles by one user never violate the unique constraint")
+    public void testConcurrentTogglesNeverDuplicate() throws Exception {
+        runConcurrently(() -> favouriteService.toggleFavourite(user.getId(), track.getId()));
+
+        assertThat(favouriteRepository.countByTrackId(track.getId())).isBetween(0L, 1L);
+    }
+}
@@ -0,0 +1,167 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReactionWriteBuffer.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReactionWriteBufferTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private FavouriteRepository favouriteRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReactionWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ReactionWriteBuffer(true, 4, RatingService.UPSERT_MERGE,
+            ratingRepository, favouriteRepository, eventPublisher, transactionManager);
+    }
+
+    @Test
+    void toggleFavourite_RepeatedClicks_ShouldCollapseToLastValue() {
+        assertTrue(buffer.toggleFavourite(1L, 10L, () -> false));
+        assertFalse(buffer.toggleFavourite(1L, 10L, () -> { throw new AssertionError("buffer should answer"); }));
+        assertTrue(buffer.toggleFavourite(1L, 10L, () -> { throw new AssertionError("buffer should answer"); }));
+
+        assertEquals(Boolean.TRUE, buffer.bufferedFavourite(1L, 10L));
+        assertEquals(1, buffer.getPendingCount());
+    }
+
+    @Test
+    void putRating_ShouldServeLastValueBeforeFlush() {
+        buffer.putRating(1L, 10L, 2);
+        buffer.putRating(1L, 10L, 5);
+
+        assertEquals(5, buffer.bufferedRating(1L, 10L));
+        assertNull(buffer.bufferedRating(2L, 10L));
+        assertTrue(buffer.removeRating(1L, 10L, () -> false));
+        assertEquals(ReactionWriteBuffer.REMOVED, buffer.bufferedRating(1L, 10L));
+        assertFalse(buffer.removeRating(1L, 10L, () -> true));
+    }
+
+    @Test
+    void bufferedOf_ShouldListOnlyTheUsersEntries() {
+        buffer.putRating(1L, 10L, 4);
+        buffer.removeRating(1L, 11L, () -> true);
+        buffer.putRating(2L, 10L, 1);
+        buffer.setFavourite(1L, 12L, true, () -> false);
+        buffer.setFavourite(2L, 12L, false, () -> true);
+
+        assertEquals(Map.of(10L, 4, 11L, ReactionWriteBuffer.REMOVED), buffer.bufferedRatingsOf(1L));
+        assertEquals(Map.of(12L, true), buffer.bufferedFavouritesOf(1L));
+        assertEquals(Map.of(12L, false), buffer.bufferedFavouritesOf(2L));
+        assertTrue(buffer.bufferedRatingsOf(3L).isEmpty());
+    }
+
+    @Test
+    void flush_ShouldWriteBatchesAndPublishChangedRows() {
+        buffer.putRating(1L, 10L, 4);
+        buffer.removeRating(2L, 10L, () -> true);
+        buffer.setFavourite(1L, 11L, true, () -> false);
+        buffer.setFavourite(2L, 11L, false, () -> true);
+        when(ratingRepository.batchDelete(List.of(2L), List.of(10L))).thenReturn(new int[]{1});
+        when(favouriteRepository.batchInsertIfAbsent(List.of(1L), List.of(11L), false)).thenReturn(new int[]{0});
+        when(favouriteRepository.batchDelete(List.of(2L), List.of(11L))).thenReturn(new int[]{1});
+
+        buffer.flush();
+
+        verify(ratingRepository).batchUpsert(List.of(1L), List.of(10L), List.of(4), false);
+        verify(transactionManager).commit(any());
+        // The favourite insert changed nothing, so only three events
+        verify(eventPublisher, times(3)).publishEvent(any(TrackActivityEvent.class));
+        assertEquals(0, buffer.getPendingCount());
+        assertNull(buffer.bufferedRating(1L, 10L));
+    }
+
+    @Test
+    void flush_WhenWriteFails_ShouldKeepEntriesButPreferNewerOnes() {
+        buffer.putRating(1L, 10L, 4);
+        when(ratingRepository.batchUpsert(any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            // A click arriving mid-flush still sees the in-flight value, then replaces it
+            assertEquals(4, buffer.bufferedRating(1L, 10L));
+            buffer.putRating(1L, 10L, 3);
+            throw new IllegalStateException("database unavailable");
+        }).thenThrow(new IllegalStateException("database unavailable"));
+
+        buffer.flush();
+
+        assertEquals(3, buffer.bufferedRating(1L, 10L));
+        assertEquals(1, buffer.getPendingCount());
+        verify(eventPublisher, never()).publishEvent(any(TrackActivityEvent.class));
+    }
+
+    @Test
+    void flush_RejectedRow_ShouldBeDroppedAndOthersWritten() {
+        buffer.putRating(1L, 10L, 4);
+        buffer.putRating(2L, 99L, 5);
+        // Track 99 has been deleted, so any batch holding it violates the foreign key
+        when(ratingRepository.batchUpsert(any(), any(), any(), anyBoolean())).thenAnswer(invocation -> {
+            List<Long> trackIds = invocation.getArgument(1);
+            if (trackIds.contains(99L)) {
+                throw new DataIntegrityViolationException("track 99 does not exist");
+            }
+            return new int[]{1};
+        });
+
+        buffer.flush();
+
+        verify(ratingRepository).batchUpsert(List.of(1L), List.of(10L), List.of(4), false);
+        verify(eventPublisher, times(1)).publishEvent(any(TrackActivityEvent.class));
+        assertEquals(0, buffer.getPendingCount());
+        assertNull(buffer.bufferedRating(2L, 99L));
+    }
+
+    @Test
+    void flush_WhenDatabaseUnavailable_ShouldStopRetryingRowsAndKeepThemAll() {
+        buffer.putRating(1L, 10L, 4);
+        buffer.putRating(2L, 11L, 5);
+        when(ratingRepository.batchUpsert(any(), any(), any(), anyBoolean()))
+            .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        buffer.flush();
+
+        // The batch and the first row; the second row is not tried once the database looks down
+        verify(ratingRepository, times(2)).batchUpsert(any(), any(), any(), anyBoolean());
+        assertEquals(2, buffer.getPendingCount());
+        assertEquals(4, buffer.bufferedRating(1L, 10L));
+        assertEquals(5, buffer.bufferedRating(2L, 11L));
+    }
+
+    @Test
+    void flush_WhenDisabled_ShouldDoNothing() {
+        ReactionWriteBuffer disabled = new ReactionWriteBuffer(false, 4, RatingService.UPSERT_MERGE,
+            ratingRepository, favouriteRepository, eventPublisher, transactionManager);
+
+        disabled.flush();
+
+        assertFalse(disabled.isEnabled());
+        verifyNoInteractions(ratingRepository, favouriteRepository, transactionManager);
+    }
+}
@@ -0,0 +1,72 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RecentMessageBuffer.
+ */
+class RecentMessageBufferTest {
+
+    private ChatMessage message(long id) {
+        ChatMessage message = new ChatMessage("user", "message " + id);
+        message.setId(id);
+        return message;
+    }
+
+    @Test
+    void since_EmptyBuffer_ReturnsEmpty() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(10);
+
+        assertTrue(buffer.since(0L, 10).isEmpty());
+    }
+
+    @Test
+    void since_GapInsideBuffer_ReturnsMissedMessagesInOrder() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(10);
+        buffer.append(message(5));
+        buffer.append(message(7));
+        buffer.append(message(6));
+
+        Optional<List<ChatMessage>> result = buffer.since(5L, 10);
+
+        assertTrue(result.isPresent());
+        assertEquals(List.of(6L, 7L), result.get().stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void since_GapBelowFirstBufferedMessage_ReturnsEmpty() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(10);
+        buffer.append(message(5));
+
+        assertTrue(buffer.since(4L, 10).isPresent());
+        assertTrue(buffer.since(3L, 10).isEmpty());
+    }
+
+    @Test
+    void append_OverCapacity_EvictsOldestAndRaisesFloor() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(2);
+        buffer.append(message(1));
+        buffer.append(message(2));
+        buffer.append(message(3));
+
+        assertEquals(2, buffer.size());
+        assertTrue(buffer.since(0L, 10).isEmpty());
+        assertEquals(List.of(2L, 3L), buffer.since(1L, 10).get().stream().map(ChatMessage::getId).toList());
+    }
+
+    @Test
+    void since_RespectsLimit() {
+        RecentMessageBuffer buffer = new RecentMessageBuffer(10);
+        for (long id = 1; id <= 5; id++) {
+            buffer.append(message(id));
+        }
+
+        assertEquals(2, buffer.since(0L, 2).get().size());
+    }
+}
@@ -0,0 +1,153 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.dto.RecommendedTrack;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RecommendationService.
+ */
+@ExtendWith(MockitoExtension.class)
+class RecommendationServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private FavouriteRepository favouriteRepository;
+
+    @Mock
+    private AudioTrackRepository audioTrackRepository;
+
+    private RecommendationService recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        recommendationService = new RecommendationService(ratingRepository, favouriteRepository,
+            audioTrackRepository, 10, 10, 2);
+        // Users 1 and 2 rated tracks 10 and 11; user 3 rated only 10
+        when(ratingRepository.findAllRatingValues()).thenReturn(List.of(
+            new Object[]{1L, 10L, 5}, new Object[]{1L, 11L, 5},
+            new Object[]{2L, 10L, 5}, new Object[]{2L, 11L, 5},
+            new Object[]{3L, 10L, 5}));
+        when(favouriteRepository.findAllUserTrackPairs()).thenReturn(List.of());
+        recommendationService.rebuild();
+        clearInvocations(ratingRepository, favouriteRepository);
+        stubTracks();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recommendationService.shutdown();
+    }
+
+    @Test
+    void onTrackActivity_ShouldOnlyQueueTheChange() {
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 12L, 3L));
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.DELETED, 11L, null));
+
+        verifyNoInteractions(ratingRepository, favouriteRepository);
+    }
+
+    @Test
+    void applyPendingChanges_ShouldReadTheBatchOnceAndRefreshAffectedRows() {
+        // Users 1 and 3 both rate track 12; user 3 favourites it too
+        when(ratingRepository.findRatingValuesByUserIdsAndTrackIds(Set.of(1L, 3L), Set.of(12L)))
+            .thenReturn(List.of(new Object[]{1L, 12L, 5}, new Object[]{3L, 12L, 2}));
+        when(favouriteRepository.findUserTrackPairsByUserIdsAndTrackIds(Set.of(1L, 3L), Set.of(12L)))
+            .thenReturn(List.<Object[]>of(new Object[]{3L, 12L}));
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 12L, 1L));
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 12L, 3L));
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 12L, 3L));
+
+        recommendationService.applyPendingChanges();
+
+        verify(ratingRepository, times(1)).findRatingValuesByUserIdsAndTrackIds(Set.of(1L, 3L), Set.of(12L));
+        verify(favouriteRepository, times(1)).findUserTrackPairsByUserIdsAndTrackIds(Set.of(1L, 3L), Set.of(12L));
+        // Track 11 is now reached through both 10 and 12, whose neighbours were refreshed
+        List<RecommendedTrack> recommended = recommendationService.getRecommendations(3L, 10);
+        assertEquals(1, recommended.size());
+        assertEquals(11L, recommended.get(0).getTrack().getId());
+        assertTrue(recommendationService.getRecommendations(1L, 10).isEmpty());
+
+        // Nothing left to apply
+        recommendationService.applyPendingChanges();
+        verifyNoMoreInteractions(ratingRepository, favouriteRepository);
+    }
+
+    @Test
+    void applyPendingChanges_RemovedRating_ClearsTheInteraction() {
+        // User 1 removes their rating of 11, so the batch finds no rating or favourite for it
+        when(ratingRepository.findRatingValuesByUserIdsAndTrackIds(Set.of(1L), Set.of(11L))).thenReturn(List.of());
+        when(favouriteRepository.findUserTrackPairsByUserIdsAndTrackIds(Set.of(1L), Set.of(11L))).thenReturn(List.of());
+        assertTrue(recommendationService.getRecommendations(1L, 10).isEmpty());
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 11L, 1L));
+
+        recommendationService.applyPendingChanges();
+
+        // 11 is still similar to 10 through user 2, and user 1 no longer has it
+        List<RecommendedTrack> recommended = recommendationService.getRecommendations(1L, 10);
+        assertEquals(1, recommended.size());
+        assertEquals(11L, recommended.get(0).getTrack().getId());
+    }
+
+    @Test
+    void applyPendingChanges_DuringRebuild_ShouldSkipAndKeepChangesQueued() throws Exception {
+        // A rebuild that is still loading holds the update lock
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ratingRepository.findAllRatingValues()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+        Thread rebuild = new Thread(recommendationService::rebuild);
+        rebuild.start();
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        recommendationService.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 12L, 3L));
+
+        try {
+            // Returns at once instead of waiting for the rebuild
+            recommendationService.applyPendingChanges();
+            verify(ratingRepository, never()).findRatingValuesByUserIdsAndTrackIds(any(), any());
+        } finally {
+            release.countDown();
+            rebuild.join(10_000);
+        }
+
+        // The change is applied by the next run
+        recommendationService.applyPendingChanges();
+        verify(ratingRepository).findRatingValuesByUserIdsAndTrackIds(Set.of(3L), Set.of(12L));
+    }
+
+    private void stubTracks() {
+        lenient().when(audioTrackRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<AudioTrack> tracks = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                AudioTrack track = new AudioTrack("Track " + id, "Artist", "file.mp3", "file.mp3", null);
+                track.setId((Long) id);
+                tracks.add(track);
+            }
+            return tracks;
+        });
+    }
+}
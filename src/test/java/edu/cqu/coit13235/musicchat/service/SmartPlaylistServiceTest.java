@@ -0,0 +1,191 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.Playlist;
+import edu.cqu.coit13235.musicchat.domain.SmartPlaylistRule;
+import edu.cqu.coit13235.musicchat.domain.User;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for SmartPlaylistService.
+ * Checks the initial fill and that membership follows uploads, ratings and favourites.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class SmartPlaylistServiceTest {
+
+    @Autowired
+    private SmartPlaylistService smartPlaylistService;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private FavouriteService favouriteService;
+
+    @Autowired
+    private AudioService audioService;
+
+    @Autowired
+    private AudioTrackRepository audioTrackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User owner;
+    private User other;
+    private AudioTrack recentTrack;
+    private AudioTrack oldTrack;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User("smartowner", "smartowner@example.com", "password"));
+        other = userRepository.save(new User("smartother", "smartother@example.com", "password"));
+        recentTrack = saveTrack("Recent", "Smart Artist", LocalDateTime.now().minusDays(2));
+        oldTrack = saveTrack("Old", "Smart Artist", LocalDateTime.now().minusDays(60));
+    }
+
+    private AudioTrack saveTrack(String title, String artist, LocalDateTime uploadedAt) {
+        AudioTrack track = new AudioTrack(title, artist, title + ".mp3", title + ".mp3", owner);
+        track.setUploadedAt(uploadedAt);
+        return audioTrackRepository.save(track);
+    }
+
+    private static SmartPlaylistRule rule(SmartPlaylistRule.Type type, String value) {
+        return new SmartPlaylistRule(null, type, value);
+    }
+
+    private List<Long> trackIds(Playlist playlist) {
+        return smartPlaylistService.getSmartPlaylistTracks(playlist.getId()).stream()
+            .map(AudioTrack::getId)
+            .toList();
+    }
+
+    @Test
+    @DisplayName("Smart playlist: initial fill intersects the candidates of every rule")
+    public void testInitialFillIntersectsRules() {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "Recent smart", null, List.of(
+            rule(SmartPlaylistRule.Type.ARTIST, "smart artist"),
+            rule(SmartPlaylistRule.Type.UPLOADED_WITHIN_DAYS, "30")));
+
+        assertThat(playlist.isSmart()).isTrue();
+        assertThat(trackIds(playlist)).containsExactly(recentTrack.getId());
+    }
+
+    @Test
+    @DisplayName("Smart playlist: ratings move a track in and out of a minimum-average playlist")
+    public void testRatingsUpdateMembership() {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "Top rated", null, List.of(
+            rule(SmartPlaylistRule.Type.MIN_AVERAGE_RATING, "4")));
+        assertThat(trackIds(playlist)).isEmpty();
+
+        ratingService.rateTrack(owner.getId(), oldTrack.getId(), 5);
+        assertThat(trackIds(playlist)).containsExactly(oldTrack.getId());
+
+        ratingService.rateTrack(other.getId(), oldTrack.getId(), 1);
+        assertThat(trackIds(playlist)).isEmpty();
+
+        ratingService.removeRating(other.getId(), oldTrack.getId());
+        assertThat(trackIds(playlist)).containsExactly(oldTrack.getId());
+    }
+
+    @Test
+    @DisplayName("Smart playlist: only the owner's favourites count")
+    public void testOwnerFavouritesUpdateMembership() {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "My favourites", null, List.of(
+            rule(SmartPlaylistRule.Type.FAVOURITED_BY_OWNER, null)));
+
+        favouriteService.addFavourite(other.getId(), recentTrack.getId());
+        assertThat(trackIds(playlist)).isEmpty();
+
+        favouriteService.toggleFavourite(owner.getId(), recentTrack.getId());
+        assertThat(trackIds(playlist)).containsExactly(recentTrack.getId());
+
+        favouriteService.toggleFavourite(owner.getId(), recentTrack.getId());
+        assertThat(trackIds(playlist)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Smart playlist: ratings re-check the owner's favourites too")
+    public void testRatingWithOwnerFavouriteRule() {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "Loved and rated", null, List.of(
+            rule(SmartPlaylistRule.Type.FAVOURITED_BY_OWNER, null),
+            rule(SmartPlaylistRule.Type.MIN_AVERAGE_RATING, "4")));
+
+        favouriteService.addFavourite(other.getId(), recentTrack.getId());
+        ratingService.rateTrack(other.getId(), recentTrack.getId(), 5);
+        assertThat(trackIds(playlist)).isEmpty();
+
+        favouriteService.addFavourite(owner.getId(), oldTrack.getId());
+        assertThat(trackIds(playlist)).isEmpty();
+        ratingService.rateTrack(other.getId(), oldTrack.getId(), 5);
+        assertThat(trackIds(playlist)).containsExactly(oldTrack.getId());
+    }
+
+    @Test
+    @DisplayName("Smart playlist: uploads join matching playlists and deletions leave them")
+    public void testUploadAndDeleteUpdateMembership() throws Exception {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "New uploads", null, List.of(
+            rule(SmartPlaylistRule.Type.ARTIST, "Fresh Band"),
+            rule(SmartPlaylistRule.Type.UPLOADED_WITHIN_DAYS, "7")));
+        assertThat(trackIds(playlist)).isEmpty();
+
+        MockMultipartFile file = new MockMultipartFile("file", "fresh.mp3", "audio/mpeg", "fresh audio".getBytes());
+        AudioTrack uploaded = audioService.uploadAudio(file, "Fresh", "The Fresh Band", owner);
+        assertThat(trackIds(playlist)).containsExactly(uploaded.getId());
+
+        audioService.deleteTrack(uploaded.getId());
+        assertThat(trackIds(playlist)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Smart playlist: invalid rules are rejected and plain playlists are not smart")
+    public void testInvalidRulesRejected() {
+        assertThatThrownBy(() -> smartPlaylistService.createSmartPlaylist(owner.getId(), "None", null, List.of()))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> smartPlaylistService.createSmartPlaylist(owner.getId(), "Bad", null, List.of(
+            rule(SmartPlaylistRule.Type.MIN_AVERAGE_RATING, "6"))))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        Playlist plain = playlistService.createPlaylist(owner.getId(), "Plain", null);
+        assertThatThrownBy(() -> smartPlaylistService.getSmartPlaylistTracks(plain.getId()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Smart playlist: manual track edits are rejected")
+    public void testManualTrackEditsRejected() {
+        Playlist playlist = smartPlaylistService.createSmartPlaylist(owner.getId(), "Recent smart", null, List.of(
+            rule(SmartPlaylistRule.Type.UPLOADED_WITHIN_DAYS, "30")));
+
+        assertThatThrownBy(() -> playlistService.bulkAddTracks(playlist.getId(), List.of(oldTrack.getId())))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Smart playlists cannot be edited");
+        assertThatThrownBy(() -> playlistService.insertTrack(playlist.getId(), oldTrack.getId(), null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> playlistService.removeTracksFromPlaylist(playlist.getId(), List.of(recentTrack.getId())))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> playlistService.moveTrack(playlist.getId(), recentTrack.getId(), oldTrack.getId(), null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(trackIds(playlist)).containsExactly(recentTrack.getId());
+    }
+}
@@ -0,0 +1,233 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TinyLfuCache.
+ */
+class TinyLfuCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private TinyLfuCache<String, String> newCache(int maxEntries, long maxWeight) {
+        return new TinyLfuCache<>(maxEntries, maxWeight, 1000, 500,
+            (key, value) -> value.length(), now::get);
+    }
+
+    @Test
+    void getAsync_ShouldLoadOnceAndCountHitsAndMisses() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("a!", cache.getAsync("a", key -> { loads.incrementAndGet(); return CompletableFuture.completedFuture(key + "!"); }).join());
+        assertEquals("a!", cache.getAsync("a", key -> { loads.incrementAndGet(); return CompletableFuture.completedFuture(key + "!"); }).join());
+        assertNull(cache.getAsync("b", key -> CompletableFuture.completedFuture(null)).join());
+        assertNull(cache.getIfPresent("b"));
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertEquals(1, loads.get());
+        assertEquals(1, stats.getHitCount());
+        assertEquals(3, stats.getMissCount());
+        assertEquals(2, stats.getLoadSuccessCount());
+        assertEquals(1, stats.getSize());
+        assertEquals(2, stats.getWeightedSize());
+    }
+
+    @Test
+    void getAsync_PendingLoad_ShouldCacheOnlyOnceComplete() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> result = cache.getAsync("a", key -> pending);
+        assertFalse(result.isDone());
+        assertNull(cache.getIfPresent("a"));
+
+        pending.complete("1");
+
+        assertEquals("1", result.join());
+        assertEquals("1", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void invalidateAll_DuringLoad_ShouldNotCacheOrShareTheStaleLoad() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        CompletableFuture<String> stale = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.getAsync("a", key -> stale);
+
+        cache.invalidateAll();
+        // A miss after the invalidation starts its own load instead of joining the old one
+        CompletableFuture<String> fresh = cache.getAsync("a", key -> CompletableFuture.completedFuture("2"));
+        stale.complete("1");
+
+        assertEquals("1", result.join());
+        assertEquals("2", fresh.join());
+        assertEquals("2", cache.getIfPresent("a"));
+        assertEquals(0, cache.stats().getCoalescedCount());
+    }
+
+    @Test
+    void invalidateAll_DuringLoad_ShouldLeaveTheCacheEmpty() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        CompletableFuture<String> stale = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.getAsync("a", key -> stale);
+
+        cache.invalidateAll();
+        stale.complete("1");
+
+        assertEquals("1", result.join());
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void getAsync_LoadFails_ShouldCountFailureAndCacheNothing() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+
+        CompletionException thrown = assertThrows(CompletionException.class,
+            () -> cache.getAsync("a", key -> CompletableFuture.failedFuture(new IllegalStateException("down"))).join());
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+        // A loader that throws instead of returning a failed future fails the same way
+        assertThrows(CompletionException.class,
+            () -> cache.getAsync("b", key -> { throw new IllegalStateException("down"); }).join());
+
+        assertEquals(2, cache.stats().getLoadFailureCount());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    @Test
+    void getAsync_ConcurrentMisses_ShouldShareOneLoad() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = cache.getAsync("a", key -> { loads.incrementAndGet(); return pending; });
+        CompletableFuture<String> second = cache.getAsync("a", key -> { loads.incrementAndGet(); return pending; });
+        // Cancelling one caller's future leaves the shared load running for the other
+        second.cancel(false);
+        CompletableFuture<String> third = cache.getAsync("a", key -> { loads.incrementAndGet(); return pending; });
+        pending.complete("1");
+
+        assertEquals(1, loads.get());
+        assertEquals("1", first.join());
+        assertEquals("1", third.join());
+        assertEquals(2, cache.stats().getCoalescedCount());
+        assertEquals("1", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void getAsync_SharedLoadFails_ShouldFailEveryCallerAndCacheNothing() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        CompletableFuture<String> pending = new CompletableFuture<>();
+
+        CompletableFuture<String> first = cache.getAsync("a", key -> pending);
+        CompletableFuture<String> second = cache.getAsync("a", key -> pending);
+        pending.completeExceptionally(new IllegalStateException("down"));
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, first::join).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, second::join).getCause());
+        assertEquals(1, cache.stats().getLoadFailureCount());
+        assertEquals(0, cache.stats().getSize());
+        // The failure is not shared with later misses
+        assertEquals("2", cache.getAsync("a", key -> CompletableFuture.completedFuture("2")).join());
+    }
+
+    @Test
+    void entries_ShouldExpireAfterWrite() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        cache.put("a", "1");
+        now.set(999);
+        assertEquals("1", cache.getIfPresent("a"));
+
+        now.set(1000);
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().getExpirationCount());
+        assertEquals(0, cache.stats().getWeightedSize());
+    }
+
+    @Test
+    void getAsync_AfterRefreshInterval_ShouldServeOldValueAndReloadInBackground() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        cache.put("a", "old");
+        now.set(600);
+        CompletableFuture<String> refresh = new CompletableFuture<>();
+        AtomicInteger refreshes = new AtomicInteger();
+
+        assertEquals("old", cache.getAsync("a", key -> { refreshes.incrementAndGet(); return refresh; }).join());
+        assertEquals("old", cache.getAsync("a", key -> { refreshes.incrementAndGet(); return refresh; }).join());
+        assertEquals(1, refreshes.get());
+
+        refresh.complete("new");
+        assertEquals("new", cache.getIfPresent("a"));
+        assertEquals(1, cache.stats().getRefreshCount());
+
+        // The refresh restarted the expiry clock
+        now.set(1500);
+        assertEquals("new", cache.getIfPresent("a"));
+    }
+
+    @Test
+    void put_OverWeightLimit_ShouldEvictToFit() {
+        TinyLfuCache<String, String> cache = newCache(100, 10);
+        cache.put("a", "xxxx");
+        cache.put("b", "xxxx");
+        cache.put("c", "xxxx");
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertTrue(stats.getWeightedSize() <= 10);
+        assertEquals(2, stats.getSize());
+        assertEquals(1, stats.getEvictionCount());
+
+        cache.put("huge", "x".repeat(11));
+        assertNull(cache.getIfPresent("huge"));
+    }
+
+    @Test
+    void eviction_ShouldKeepFrequentKeysThroughAScan() {
+        TinyLfuCache<String, String> cache = newCache(100, Long.MAX_VALUE);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "v");
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getIfPresent("hot" + i);
+            }
+        }
+
+        // A burst of one-off keys, twice the cache's size
+        for (int i = 0; i < 200; i++) {
+            cache.put("cold" + i, "v");
+        }
+
+        int hotLeft = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getIfPresent("hot" + i) != null) {
+                hotLeft++;
+            }
+        }
+        assertEquals(50, hotLeft);
+        assertTrue(cache.stats().getSize() <= 100);
+    }
+
+    @Test
+    void invalidateAll_ShouldEmptyTheCache() {
+        TinyLfuCache<String, String> cache = newCache(10, 1000);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        cache.invalidateAll();
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.stats().getSize());
+        assertEquals(0, cache.stats().getWeightedSize());
+        cache.put("c", "3");
+        assertEquals("3", cache.getIfPresent("c"));
+    }
+}
@@ -0,0 +1,101 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TrackCoOccurrenceIndex.
+ */
+class TrackCoOccurrenceIndexTest {
+
+    private TrackCoOccurrenceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrackCoOccurrenceIndex(4);
+        index.setPlaylistTracks(1L, new long[]{10L, 11L, 12L});
+        index.setPlaylistTracks(2L, new long[]{10L, 11L});
+        index.setPlaylistTracks(3L, new long[]{10L, 13L});
+    }
+
+    @Test
+    void topK_RanksBySharedPlaylists() {
+        List<TrackCoOccurrenceIndex.Neighbour> similar = index.topK(10L, 10);
+
+        assertEquals(3, similar.size());
+        assertEquals(11L, similar.get(0).getTrackId());
+        assertEquals(2, similar.get(0).getSharedPlaylists());
+        // 11 shares both of its playlists with 10, which is in three
+        assertEquals(2 / Math.sqrt(3 * 2), similar.get(0).getScore(), 1e-9);
+        assertTrue(similar.get(0).getScore() > similar.get(1).getScore());
+    }
+
+    @Test
+    void topK_LimitsResultsAndBreaksTiesByTrackId() {
+        index.setPlaylistTracks(4L, new long[]{20L, 23L, 22L, 21L});
+
+        List<TrackCoOccurrenceIndex.Neighbour> similar = index.topK(20L, 2);
+
+        assertEquals(2, similar.size());
+        assertEquals(21L, similar.get(0).getTrackId());
+        assertEquals(22L, similar.get(1).getTrackId());
+        assertTrue(index.topK(99L, 5).isEmpty());
+    }
+
+    @Test
+    void setPlaylistTracks_AppliesOnlyTheDifference() {
+        index.setPlaylistTracks(2L, new long[]{10L, 13L});
+
+        assertEquals(1, index.topK(10L, 10).stream().filter(n -> n.getTrackId() == 11L)
+            .findFirst().orElseThrow().getSharedPlaylists());
+        assertEquals(2, index.topK(13L, 10).get(0).getSharedPlaylists());
+        assertEquals(3, index.getOccurrences(10L));
+        assertEquals(1, index.getOccurrences(11L));
+    }
+
+    @Test
+    void removePlaylistAndTrack_UndoTheirPairs() {
+        index.removePlaylist(3L);
+        assertTrue(index.topK(13L, 10).isEmpty());
+        assertEquals(0, index.getOccurrences(13L));
+
+        index.removeTrack(11L);
+        assertEquals(0, index.getOccurrences(11L));
+        List<TrackCoOccurrenceIndex.Neighbour> similar = index.topK(10L, 10);
+        assertEquals(1, similar.size());
+        assertEquals(12L, similar.get(0).getTrackId());
+    }
+
+    @Test
+    void playlistsOverTheCap_AreIgnoredUntilTheyShrink() {
+        index.setPlaylistTracks(2L, new long[]{10L, 11L, 14L, 15L, 16L});
+        assertEquals(1, index.getOccurrences(11L));
+        assertTrue(index.topK(14L, 10).isEmpty());
+
+        index.setPlaylistTracks(2L, new long[]{10L, 11L, 14L});
+        assertEquals(2, index.topK(14L, 10).size());
+        assertEquals(2, index.getOccurrences(11L));
+    }
+
+    @Test
+    void longIntHashMap_SurvivesGrowthAndRemoval() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (long key = 1; key <= 1000; key++) {
+            map.addTo(key, (int) key);
+        }
+        for (long key = 1; key <= 1000; key += 2) {
+            assertEquals((int) key, map.remove(key));
+        }
+        assertEquals(500, map.size());
+        for (long key = 1; key <= 1000; key++) {
+            assertEquals(key % 2 == 0 ? (int) key : 0, map.get(key));
+        }
+        assertEquals(0, map.addTo(2L, -2));
+        assertFalse(map.containsKey(2L));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1));
+    }
+}
@@ -0,0 +1,84 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TrackIdBitmap.
+ */
+class TrackIdBitmapTest {
+
+    @Test
+    void addRemoveContains_ShouldBehaveLikeASet() {
+        TrackIdBitmap bitmap = new TrackIdBitmap();
+
+        assertTrue(bitmap.add(5L));
+        assertFalse(bitmap.add(5L));
+        assertTrue(bitmap.add(70_000L));
+        assertTrue(bitmap.add(0L));
+
+        assertTrue(bitmap.contains(5L));
+        assertTrue(bitmap.contains(70_000L));
+        assertFalse(bitmap.contains(6L));
+        assertFalse(bitmap.contains(5L + 65_536L));
+        assertEquals(3, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(5L));
+        assertFalse(bitmap.remove(5L));
+        assertFalse(bitmap.contains(5L));
+        assertEquals(2, bitmap.cardinality());
+    }
+
+    @Test
+    void denseChunk_ShouldSwitchToBitsAndBack() {
+        TrackIdBitmap bitmap = new TrackIdBitmap();
+        for (long id = 1; id <= 10_000; id++) {
+            bitmap.add(id);
+        }
+        assertEquals(10_000, bitmap.cardinality());
+        assertTrue(bitmap.contains(4_097L));
+        assertFalse(bitmap.contains(10_001L));
+
+        for (long id = 1; id <= 9_000; id++) {
+            assertTrue(bitmap.remove(id));
+        }
+        assertEquals(1_000, bitmap.cardinality());
+        assertFalse(bitmap.contains(9_000L));
+        assertTrue(bitmap.contains(9_001L));
+        assertTrue(bitmap.contains(10_000L));
+    }
+
+    @Test
+    void randomOperations_ShouldMatchHashSet() {
+        Random random = new Random(42);
+        TrackIdBitmap bitmap = new TrackIdBitmap();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 50_000; i++) {
+            // Mostly within two chunks, so both layouts and the switch between them are exercised
+            long id = random.nextInt(20) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(131_072);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), bitmap.remove(id));
+            } else {
+                assertEquals(expected.add(id), bitmap.add(id));
+            }
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (long id = 0; id < 131_072; id++) {
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+    }
+
+    @Test
+    void negativeId_ShouldBeRejected() {
+        TrackIdBitmap bitmap = new TrackIdBitmap();
+
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1L));
+    }
+}
@@ -0,0 +1,120 @@
+package edu.cqu.coit13235.musicchat.service;
+
+import edu.cqu.coit13235.musicchat.domain.Rating;
+import edu.cqu.coit13235.musicchat.repository.FavouriteRepository;
+import edu.cqu.coit13235.musicchat.repository.RatingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UserReactionIndex.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserReactionIndexTest {
+
+    @Mock
+    private FavouriteRepository favouriteRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserReactionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new UserReactionIndex(favouriteRepository, ratingRepository, transactionManager, 2);
+    }
+
+    private void stubUser(long userId, List<Long> favourites, List<Object[]> ratings) {
+        when(favouriteRepository.findTrackIdsByUserId(userId)).thenReturn(favourites);
+        when(ratingRepository.findTrackRatingsByUserId(userId)).thenReturn(ratings);
+    }
+
+    @Test
+    void lookups_ShouldLoadUserOnceAndAnswerFromMemory() {
+        stubUser(1L, List.of(10L, 11L), List.<Object[]>of(new Object[]{10L, 4}));
+
+        assertTrue(index.isFavourited(1L, 10L));
+        assertFalse(index.isFavourited(1L, 12L));
+        assertEquals(4, index.getRating(1L, 10L));
+        assertNull(index.getRating(1L, 11L));
+
+        verify(favouriteRepository, times(1)).findTrackIdsByUserId(1L);
+        verify(ratingRepository, times(1)).findTrackRatingsByUserId(1L);
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void lookups_BeyondCapacity_ShouldEvictLeastRecentlyUsedUser() {
+        stubUser(1L, List.of(10L), List.of());
+        stubUser(2L, List.of(), List.of());
+        stubUser(3L, List.of(), List.of());
+
+        index.isFavourited(1L, 10L);
+        index.isFavourited(2L, 10L);
+        index.isFavourited(1L, 10L);
+        index.isFavourited(3L, 10L);
+        index.isFavourited(1L, 10L);
+        index.isFavourited(2L, 10L);
+
+        assertEquals(2, index.size());
+        // User 1 stayed loaded; user 2 was evicted by user 3 and loaded again
+        verify(favouriteRepository, times(1)).findTrackIdsByUserId(1L);
+        verify(favouriteRepository, times(2)).findTrackIdsByUserId(2L);
+    }
+
+    @Test
+    void onTrackActivity_LoadedUser_ShouldApplyCommittedState() {
+        stubUser(1L, List.of(10L), List.of());
+        index.isFavourited(1L, 10L);
+        Rating rating = new Rating(1L, 12L, 5);
+        when(favouriteRepository.existsByUserIdAndTrackId(1L, 10L)).thenReturn(false);
+        when(favouriteRepository.existsByUserIdAndTrackId(1L, 11L)).thenReturn(true);
+        when(ratingRepository.findByUserIdAndTrackId(1L, 12L)).thenReturn(Optional.of(rating));
+
+        index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.UNFAVOURITED, 10L, 1L));
+        index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 11L, 1L));
+        index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.RATED, 12L, 1L));
+
+        assertFalse(index.isFavourited(1L, 10L));
+        assertTrue(index.isFavourited(1L, 11L));
+        assertEquals(5, index.getRating(1L, 12L));
+    }
+
+    @Test
+    void onTrackActivity_UnloadedUser_ShouldNotQuery() {
+        index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 10L, 1L));
+        index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.DELETED, 10L, null));
+
+        verifyNoInteractions(favouriteRepository, ratingRepository);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void lookup_WhenUserChangesDuringLoad_ShouldReload() {
+        when(ratingRepository.findTrackRatingsByUserId(1L)).thenReturn(List.of());
+        when(favouriteRepository.findTrackIdsByUserId(1L))
+            .thenAnswer(invocation -> {
+                // A favourite commits while the first load is reading
+                index.onTrackActivity(new TrackActivityEvent(TrackActivityEvent.Type.FAVOURITED, 10L, 1L));
+                return List.of();
+            })
+            .thenReturn(List.of(10L));
+
+        assertTrue(index.isFavourited(1L, 10L));
+        verify(favouriteRepository, times(2)).findTrackIdsByUserId(1L);
+    }
+}
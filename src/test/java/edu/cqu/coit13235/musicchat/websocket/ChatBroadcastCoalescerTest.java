@@ -0,0 +1,94 @@
+package edu.cqu.coit13235.musicchat.websocket;
+
+import edu.cqu.coit13235.musicchat.config.ChatBroadcastCoalescer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for chat broadcast coalescing on the broker channel.
+ */
+public class ChatBroadcastCoalescerTest {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final SimpleBrokerMessageHandler broker = mock(SimpleBrokerMessageHandler.class);
+    private ChatBroadcastCoalescer coalescer;
+
+    @AfterEach
+    void tearDown() {
+        if (coalescer != null) {
+            coalescer.shutdown();
+        }
+    }
+
+    private Message<byte[]> chatMessage(String destination, int id) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        byte[] payload = ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8);
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    @Test
+    @DisplayName("Coalescer: quiet traffic passes through as single frames")
+    public void testQuietTrafficPassesThrough() {
+        coalescer = new ChatBroadcastCoalescer(true, 100, 5);
+
+        Message<byte[]> message = chatMessage(ChatBroadcastCoalescer.CHAT_TOPIC, 1);
+
+        assertThat(coalescer.beforeHandle(message, channel, broker)).isSameAs(message);
+        assertThat(coalescer.isCoalescing()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Coalescer: burst above threshold is delivered as one array frame")
+    @SuppressWarnings("unchecked")
+    public void testBurstIsCoalescedIntoArray() {
+        coalescer = new ChatBroadcastCoalescer(true, 2, 20);
+
+        assertThat(coalescer.beforeHandle(chatMessage(ChatBroadcastCoalescer.CHAT_TOPIC, 1), channel, broker)).isNotNull();
+        assertThat(coalescer.beforeHandle(chatMessage(ChatBroadcastCoalescer.CHAT_TOPIC, 2), channel, broker)).isNull();
+        assertThat(coalescer.beforeHandle(chatMessage(ChatBroadcastCoalescer.CHAT_TOPIC, 3), channel, broker)).isNull();
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(broker, timeout(1000)).handleMessage(captor.capture());
+
+        Message<?> batch = captor.getValue();
+        assertThat(new String((byte[]) batch.getPayload(), StandardCharsets.UTF_8)).isEqualTo("[{\"id\":2},{\"id\":3}]");
+        assertThat(SimpMessageHeaderAccessor.getDestination(batch.getHeaders())).isEqualTo(ChatBroadcastCoalescer.CHAT_TOPIC);
+        assertThat(SimpMessageHeaderAccessor.wrap(batch).getFirstNativeHeader(ChatBroadcastCoalescer.BATCH_SIZE_HEADER)).isEqualTo("2");
+    }
+
+    @Test
+    @DisplayName("Coalescer: other destinations and disabled mode are untouched")
+    public void testOtherDestinationsUntouched() {
+        coalescer = new ChatBroadcastCoalescer(true, 1, 5);
+        Message<byte[]> other = chatMessage("/topic/presence", 1);
+        assertThat(coalescer.beforeHandle(other, channel, broker)).isSameAs(other);
+        assertThat(coalescer.beforeHandle(other, channel, broker)).isSameAs(other);
+
+        ChatBroadcastCoalescer disabled = new ChatBroadcastCoalescer(false, 1, 5);
+        try {
+            Message<byte[]> chat = chatMessage(ChatBroadcastCoalescer.CHAT_TOPIC, 1);
+            assertThat(disabled.beforeHandle(chat, channel, broker)).isSameAs(chat);
+            assertThat(disabled.beforeHandle(chat, channel, broker)).isSameAs(chat);
+        } finally {
+            disabled.shutdown();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.cqu.coit13235.musicchat.websocket;
+
+import edu.cqu.coit13235.musicchat.controller.WebSocketPlaylistController;
+import edu.cqu.coit13235.musicchat.domain.AudioTrack;
+import edu.cqu.coit13235.musicchat.domain.Playlist;
+import edu.cqu.coit13235.musicchat.domain.User;
+import edu.cqu.coit13235.musicchat.dto.PlaylistEditRequest;
+import edu.cqu.coit13235.musicchat.dto.PlaylistEditResult;
+import edu.cqu.coit13235.musicchat.dto.PlaylistOperation;
+import edu.cqu.coit13235.musicchat.repository.AudioTrackRepository;
+import edu.cqu.coit13235.musicchat.repository.PlaylistRepository;
+import edu.cqu.coit13235.musicchat.repository.UserRepository;
+import edu.cqu.coit13235.musicchat.service.PlaylistEventPublisher;
+import edu.cqu.coit13235.musicchat.service.PlaylistService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Collaborative playlist editing tests.
+ * Drives the WebSocket edit handler directly and checks the operations handed to the broadcaster.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class PlaylistCollaborationTest {
+
+    @Autowired
+    private WebSocketPlaylistController webSocketPlaylistController;
+
+    @Autowired
+    private PlaylistService playlistService;
+
+    @Autowired
+    private PlaylistRepository playlistRepository;
+
+    @Autowired
+    private AudioTrackRepository audioTrackRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private PlaylistEventPublisher playlistEventPublisher;
+
+    private Playlist playlist;
+    private AudioTrack track1;
+    private AudioTrack track2;
+    private AudioTrack track3;
+
+    @BeforeEach
+    void setUp() {
+        User user = userRepository.save(new User("collabuser", "collabuser@example.com", "password"));
+        track1 = saveTrack("Collab 1", user);
+        track2 = saveTrack("Collab 2", user);
+        track3 = saveTrack("Collab 3", user);
+        playlist = playlistRepository.save(new Playlist(user.getId(), "Shared", "Edited together"));
+        playlistService.bulkAddTracks(playlist.getId(), Arrays.asList(track1.getId(), track2.getId()));
+    }
+
+    private AudioTrack saveTrack(String title, User user) {
+        AudioTrack track = new AudioTrack(title, "Artist", title + ".mp3", title + ".mp3", user);
+        track.setUploadedAt(LocalDateTime.now());
+        return audioTrackRepository.save(track);
+    }
+
+    private PlaylistEditRequest edit(String type, Long trackId, Long after, Long before) {
+        PlaylistEditRequest request = new PlaylistEditRequest();
+        request.setType(type);
+        request.setTrackId(trackId);
+        request.setAfter(after);
+        request.setBefore(before);
+        request.setClientOpId("op-" + type + "-" + trackId);
+        return request;
+    }
+
+    private PlaylistOperation lastPublished() {
+        ArgumentCaptor<PlaylistOperation> captor = ArgumentCaptor.forClass(PlaylistOperation.class);
+        verify(playlistEventPublisher, atLeastOnce()).publish(captor.capture());
+        List<PlaylistOperation> operations = captor.getAllValues();
+        return operations.get(operations.size() - 1);
+    }
+
+    @Test
+    @DisplayName("Collaboration: insert between tracks is broadcast with its position and the next version")
+    public void testInsertBroadcastsOperation() {
+        long before = playlistService.getPlaylistById(playlist.getId()).orElseThrow().getVersion();
+
+        PlaylistEditResult result = webSocketPlaylistController.edit(playlist.getId(),
+            edit(PlaylistOperation.TYPE_INSERT, track3.getId(), track1.getId(), null));
+
+        assertThat(result.isAccepted()).isTrue();
+        assertThat(result.getClientOpId()).isEqualTo("op-insert-" + track3.getId());
+        assertThat(result.getVersion()).isEqualTo(before + 1);
+
+        PlaylistOperation operation = lastPublished();
+        assertThat(operation.getType()).isEqualTo(PlaylistOperation.TYPE_INSERT);
+        assertThat(operation.getVersion()).isEqualTo(before + 1);
+        assertThat(operation.getEntries()).hasSize(1);
+        assertThat(operation.getEntries().get(0).getTrack().getId()).isEqualTo(track3.getId());
+        assertThat(operation.getEntries().get(0).getIndex()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Collaboration: successive edits produce consecutive versions")
+    public void testEditsProduceConsecutiveVersions() {
+        PlaylistEditResult moved = webSocketPlaylistController.edit(playlist.getId(),
+            edit(PlaylistOperation.TYPE_MOVE, track2.getId(), null, track1.getId()));
+        PlaylistEditResult removed = webSocketPlaylistController.edit(playlist.getId(),
+            edit(PlaylistOperation.TYPE_REMOVE, track1.getId(), null, null));
+
+        assertThat(moved.isAccepted()).isTrue();
+        assertThat(removed.isAccepted()).isTrue();
+        assertThat(removed.getVersion()).isEqualTo(moved.getVersion() + 1);
+
+        PlaylistOperation operation = lastPublished();
+        assertThat(operation.getType()).isEqualTo(PlaylistOperation.TYPE_REMOVE);
+        assertThat(operation.getTrackIds()).containsExactly(track1.getId());
+    }
+
+    @Test
+    @DisplayName("Collaboration: a move based on a stale entry version is rejected")
+    public void testStaleMoveIsRejected() {
+        PlaylistEditRequest request = edit(PlaylistOperation.TYPE_MOVE, track2.getId(), null, track1.getId());
+        request.setVersion(42L);
+
+        PlaylistEditResult result = webSocketPlaylistController.edit(playlist.getId(), request);
+
+        assertThat(result.isAccepted()).isFalse();
+        assertThat(result.getError()).isEqualTo("Conflict");
+        assertThat(result.getClientOpId()).isEqualTo(request.getClientOpId());
+    }
+
+    @Test
+    @DisplayName("Collaboration: inserting a track already in the playlist is rejected")
+    public void testDuplicateInsertIsRejected() {
+        PlaylistEditResult result = webSocketPlaylistController.edit(playlist.getId(),
+            edit(PlaylistOperation.TYPE_INSERT, track1.getId(), null, null));
+
+        assertThat(result.isAccepted()).isFalse();
+        assertThat(result.getError()).isEqualTo("Invalid input");
+    }
+}